@@ -33,12 +33,18 @@ import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.util.IndentingPrintWriter;
 import android.util.Log;
+import android.util.SparseArray;
 
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.PreferenceControllerTimings;
 import com.android.settings.datausage.lib.DataUsageLib;
+import com.android.settings.deviceinfo.storage.StorageAccounting;
+import com.android.settings.deviceinfo.storage.StorageAsyncLoader;
 import com.android.settings.network.MobileNetworkRepository;
+import com.android.settings.slices.SliceBackgroundWorker;
+import com.android.settings.slices.SliceDataConverter;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -67,6 +73,12 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_CONTROLLER_TIMINGS = "controller_timings";
+    @VisibleForTesting
+    static final String KEY_SLICE_UPDATES = "slice_updates";
+    @VisibleForTesting
+    static final String KEY_SLICE_CONVERSION_TIMES = "slice_conversion_times";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -98,6 +110,9 @@ public class SettingsDumpService extends Service {
                 dump.put(KEY_DATAUSAGE, dumpDataUsage());
                 dump.put(KEY_MEMORY, dumpMemory());
                 dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
+                dump.put(KEY_CONTROLLER_TIMINGS, PreferenceControllerTimings.dump());
+                dump.put(KEY_SLICE_UPDATES, SliceBackgroundWorker.dumpUpdateCounts());
+                dump.put(KEY_SLICE_CONVERSION_TIMES, SliceDataConverter.dumpConversionTimes());
             } catch (Exception e) {
                 Log.w(TAG, "exception in dump: ", e);
             }
@@ -180,6 +195,30 @@ public class SettingsDumpService extends Service {
             volObj.put("description", volume.getDescription());
             obj.put(volume.getId(), volObj);
         }
+        if (StorageAccounting.isEnabled(this)) {
+            obj.put("categories", dumpStorageCategories());
+        }
+        return obj;
+    }
+
+    private JSONObject dumpStorageCategories() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final SparseArray<StorageAsyncLoader.StorageResult> results =
+                StorageAccounting.getInstance(this).getStorageResults();
+        for (int i = 0; i < results.size(); i++) {
+            final StorageAsyncLoader.StorageResult result = results.valueAt(i);
+            final JSONObject userObj = new JSONObject();
+            userObj.put("images", result.imagesSize);
+            userObj.put("videos", result.videosSize);
+            userObj.put("audio", result.audioSize);
+            userObj.put("documents", result.documentsSize);
+            userObj.put("other", result.otherSize);
+            userObj.put("trash", result.trashSize);
+            userObj.put("apps", result.allAppsExceptGamesSize);
+            userObj.put("games", result.gamesSize);
+            userObj.put("system", result.systemSize);
+            obj.put(String.valueOf(results.keyAt(i)), userObj);
+        }
         return obj;
     }
 
@@ -17,6 +17,7 @@
 package com.android.settings.accessibility;
 
 import android.content.Context;
+import android.net.Uri;
 import android.provider.Settings;
 
 import androidx.preference.PreferenceScreen;
@@ -64,6 +65,11 @@ public class HighTextContrastPreferenceController extends TogglePreferenceContro
                 Settings.Secure.ACCESSIBILITY_HIGH_TEXT_CONTRAST_ENABLED, (isChecked ? 1 : 0));
     }
 
+    @Override
+    public Uri getSliceResultBackingUri() {
+        return Settings.Secure.getUriFor(Settings.Secure.ACCESSIBILITY_HIGH_TEXT_CONTRAST_ENABLED);
+    }
+
     @Override
     public int getSliceHighlightMenuRes() {
         return R.string.menu_key_accessibility;
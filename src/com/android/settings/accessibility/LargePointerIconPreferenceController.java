@@ -17,6 +17,7 @@
 package com.android.settings.accessibility;
 
 import android.content.Context;
+import android.net.Uri;
 import android.provider.Settings;
 
 import androidx.annotation.VisibleForTesting;
@@ -52,6 +53,11 @@ public class LargePointerIconPreferenceController extends TogglePreferenceContro
         return AVAILABLE;
     }
 
+    @Override
+    public Uri getSliceResultBackingUri() {
+        return Settings.Secure.getUriFor(Settings.Secure.ACCESSIBILITY_LARGE_POINTER_ICON);
+    }
+
     @Override
     public int getSliceHighlightMenuRes() {
         return R.string.menu_key_accessibility;
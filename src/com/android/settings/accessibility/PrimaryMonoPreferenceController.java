@@ -17,6 +17,7 @@
 package com.android.settings.accessibility;
 
 import android.content.Context;
+import android.net.Uri;
 import android.os.UserHandle;
 import android.provider.Settings;
 
@@ -49,6 +50,11 @@ public class PrimaryMonoPreferenceController extends TogglePreferenceController
         return AVAILABLE;
     }
 
+    @Override
+    public Uri getSliceResultBackingUri() {
+        return Settings.System.getUriFor(Settings.System.MASTER_MONO);
+    }
+
     @Override
     public int getSliceHighlightMenuRes() {
         return R.string.menu_key_accessibility;
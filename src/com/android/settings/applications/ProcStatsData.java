@@ -29,6 +29,7 @@ import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.android.internal.app.ProcessMap;
@@ -55,7 +56,7 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
-    private static ProcessStats sStatsXfer;
+    private static StatsSnapshot sStatsXfer;
 
     private PackageManager mPm;
     private Context mContext;
@@ -63,17 +64,22 @@ public class ProcStatsData {
 
     private IProcessStats mProcessStats;
     private ProcessStats mStats;
+    private long mStatsDuration = -1;
 
     private boolean mUseUss;
-    private long mDuration;
+    // Set on the main thread, the stats of it are refreshed in background.
+    private volatile long mDuration;
 
     private int[] mMemStates;
 
     private int[] mStates;
 
-    private MemInfo mMemInfo;
+    // The snapshot of the last refresh, published as a whole so its values are consistent.
+    private volatile StatsSnapshot mCurrentSnapshot;
 
-    private ArrayList<ProcStatsPackageEntry> pkgEntries;
+    private final Object mLock = new Object();
+    // Key: duration, the entries computed from the stats loaded for it. Guarded by mLock.
+    private final LongSparseArray<StatsSnapshot> mSnapshots = new LongSparseArray<>();
 
     public ProcStatsData(Context context, boolean useXfer) {
         mContext = context;
@@ -82,28 +88,33 @@ public class ProcStatsData {
                 ServiceManager.getService(ProcessStats.SERVICE_NAME));
         mMemStates = ProcessStats.ALL_MEM_ADJ;
         mStates = ProcessStats.BACKGROUND_PROC_STATES;
-        if (useXfer) {
-            mStats = sStatsXfer;
+        if (useXfer && sStatsXfer != null) {
+            mStats = sStatsXfer.mStats;
+            mStatsDuration = sStatsXfer.mDuration;
+            mSnapshots.put(mStatsDuration, sStatsXfer);
         }
     }
 
     public void xferStats() {
-        sStatsXfer = mStats;
+        synchronized (mLock) {
+            sStatsXfer = mSnapshots.get(mStatsDuration);
+        }
     }
 
     public int getMemState() {
-        int factor = mStats.mMemFactor;
-        if (factor == ProcessStats.ADJ_NOTHING) {
-            return ProcessStats.ADJ_MEM_FACTOR_NORMAL;
-        }
-        if (factor >= ProcessStats.ADJ_SCREEN_ON) {
-            factor -= ProcessStats.ADJ_SCREEN_ON;
-        }
-        return factor;
+        return mCurrentSnapshot.getMemState();
     }
 
     public MemInfo getMemInfo() {
-        return mMemInfo;
+        return mCurrentSnapshot.getMemInfo();
+    }
+
+    /**
+     * Returns the snapshot of the last refresh, or null if the stats are not refreshed yet. Read
+     * the values shown together from the same snapshot, the stats may be refreshed meanwhile.
+     */
+    StatsSnapshot getStatsSnapshot() {
+        return mCurrentSnapshot;
     }
 
     /**
@@ -119,22 +130,53 @@ public class ProcStatsData {
         return mDuration;
     }
 
+    /** Returns a copy of the entries of the last refresh, or null if there is no refresh. */
     public List<ProcStatsPackageEntry> getEntries() {
-        return pkgEntries;
+        final StatsSnapshot snapshot = mCurrentSnapshot;
+        return snapshot == null ? null : snapshot.getEntries();
     }
 
     /**
      * Refreshes the stats.
      *
+     * <p>The entries computed for each duration are kept until the stats are force loaded, so
+     * switching back to a duration which was already shown is a lookup.
+     *
      * <p>Note: This needs to be called manually to take effect.
      */
     @WorkerThread
     public void refreshStats(boolean forceLoad) {
-        if (mStats == null || forceLoad) {
-            load();
+        synchronized (mLock) {
+            final long duration = mDuration;
+            if (forceLoad) {
+                mSnapshots.clear();
+            }
+            StatsSnapshot snapshot = mSnapshots.get(duration);
+            if (snapshot == null) {
+                final long startTime = SystemClock.elapsedRealtime();
+                snapshot = loadSnapshot(duration, forceLoad);
+                mSnapshots.put(snapshot.mDuration, snapshot);
+                if (DEBUG) {
+                    Log.d(TAG, String.format("Computed stats over %d ms in %d/ms", duration,
+                            SystemClock.elapsedRealtime() - startTime));
+                }
+            }
+            mStats = snapshot.mStats;
+            mStatsDuration = snapshot.mDuration;
+            mCurrentSnapshot = snapshot;
+        }
+    }
+
+    @VisibleForTesting
+    StatsSnapshot loadSnapshot(long duration, boolean forceLoad) {
+        if (mStats == null || forceLoad || mStatsDuration != duration) {
+            load(duration);
         }
+        return computeSnapshot();
+    }
 
-        pkgEntries = new ArrayList<>();
+    private StatsSnapshot computeSnapshot() {
+        final ArrayList<ProcStatsPackageEntry> pkgEntries = new ArrayList<>();
 
         long now = SystemClock.uptimeMillis();
 
@@ -145,24 +187,26 @@ public class ProcStatsData {
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates);
         mStats.computeTotalMemoryUse(totalMem, now);
 
-        mMemInfo = new MemInfo(mContext, totalMem, memTotalTime);
+        final MemInfo memInfo = new MemInfo(mContext, totalMem, memTotalTime);
 
         ProcessDataCollection bgTotals = new ProcessDataCollection(
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates, mStates);
         ProcessDataCollection runTotals = new ProcessDataCollection(
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates, ProcessStats.NON_CACHED_PROC_STATES);
 
-        createPkgMap(getProcs(bgTotals, runTotals), bgTotals, runTotals);
+        createPkgMap(pkgEntries, getProcs(bgTotals, runTotals), bgTotals, runTotals);
         if (totalMem.sysMemZRamWeight > 0 && !totalMem.hasSwappedOutPss) {
-            distributeZRam(totalMem.sysMemZRamWeight);
+            distributeZRam(pkgEntries, totalMem.sysMemZRamWeight);
         }
 
         ProcStatsPackageEntry osPkg = createOsEntry(bgTotals, runTotals, totalMem,
-                mMemInfo.baseCacheRam);
+                memInfo.baseCacheRam);
         pkgEntries.add(osPkg);
+        return new StatsSnapshot(mStats, mStatsDuration, memInfo, pkgEntries);
     }
 
-    private void createPkgMap(ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
+    private void createPkgMap(ArrayList<ProcStatsPackageEntry> pkgEntries,
+            ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
             ProcessDataCollection runTotals) {
         // Combine processes into packages.
         ArrayMap<String, ProcStatsPackageEntry> pkgMap = new ArrayMap<>();
@@ -179,7 +223,8 @@ public class ProcStatsData {
         }
     }
 
-    private void distributeZRam(double zramWeight) {
+    private void distributeZRam(ArrayList<ProcStatsPackageEntry> pkgEntries,
+            double zramWeight) {
         // Distribute kernel's Z-Ram across processes, based on how much they have been running.
         // The idea is that the memory used by the kernel for this is not really the kernel's
         // responsibility, but that of whoever got swapped in to it...  and we will take how
@@ -333,10 +378,11 @@ public class ProcStatsData {
         return procEntries;
     }
 
-    private void load() {
+    private void load(long duration) {
         try {
-            ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(mDuration);
+            ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(duration);
             mStats = new ProcessStats(false);
+            mStatsDuration = duration;
             InputStream is = new ParcelFileDescriptor.AutoCloseInputStream(pfd);
             mStats.read(is);
             try {
@@ -351,6 +397,45 @@ public class ProcStatsData {
         }
     }
 
+    /** The stats loaded for a duration and the entries computed from them. */
+    static class StatsSnapshot {
+        final ProcessStats mStats;
+        final long mDuration;
+        final MemInfo mMemInfo;
+        final ArrayList<ProcStatsPackageEntry> mEntries;
+
+        StatsSnapshot(ProcessStats stats, long duration, MemInfo memInfo,
+                ArrayList<ProcStatsPackageEntry> entries) {
+            mStats = stats;
+            mDuration = duration;
+            mMemInfo = memInfo;
+            mEntries = entries;
+        }
+
+        int getMemState() {
+            int factor = mStats.mMemFactor;
+            if (factor == ProcessStats.ADJ_NOTHING) {
+                return ProcessStats.ADJ_MEM_FACTOR_NORMAL;
+            }
+            if (factor >= ProcessStats.ADJ_SCREEN_ON) {
+                factor -= ProcessStats.ADJ_SCREEN_ON;
+            }
+            return factor;
+        }
+
+        MemInfo getMemInfo() {
+            return mMemInfo;
+        }
+
+        /**
+         * Returns a copy of the entries, the entries of a duration are shared with the other
+         * pages and the callers may sort the list.
+         */
+        List<ProcStatsPackageEntry> getEntries() {
+            return new ArrayList<>(mEntries);
+        }
+    }
+
     public static class MemInfo {
         public double realUsedRam;
         public double realFreeRam;
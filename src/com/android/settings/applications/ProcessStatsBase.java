@@ -30,6 +30,7 @@ import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.applications.ProcStatsData.MemInfo;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settingslib.core.instrumentation.Instrumentable;
+import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.SettingsSpinnerAdapter;
 
 public abstract class ProcessStatsBase extends SettingsPreferenceFragment
@@ -75,7 +76,8 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
                 ? icicle.getInt(ARG_DURATION_INDEX)
                 : args != null ? args.getInt(ARG_DURATION_INDEX) : 0;
         mStatsManager.setDuration(icicle != null
-                ? icicle.getLong(DURATION, sDurations[0]) : sDurations[0]);
+                ? icicle.getLong(DURATION, sDurations[mDurationIndex])
+                : sDurations[mDurationIndex]);
     }
 
     @Override
@@ -88,8 +90,7 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     @Override
     public void onResume() {
         super.onResume();
-        mStatsManager.refreshStats(false);
-        refreshUi();
+        refreshStats();
     }
 
     @Override
@@ -119,7 +120,7 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         mDurationIndex = position;
         mStatsManager.setDuration(sDurations[position]);
-        refreshUi();
+        refreshStats();
     }
 
     @Override
@@ -130,6 +131,22 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
 
     public abstract void refreshUi();
 
+    /**
+     * Refreshes the stats of the selected duration in background, then refreshes the UI if the
+     * duration is still selected.
+     */
+    private void refreshStats() {
+        final long duration = mStatsManager.getDuration();
+        ThreadUtils.postOnBackgroundThread(() -> {
+            mStatsManager.refreshStats(false /* forceLoad */);
+            ThreadUtils.postOnMainThread(() -> {
+                if (isAdded() && duration == mStatsManager.getDuration()) {
+                    refreshUi();
+                }
+            });
+        });
+    }
+
     public static void launchMemoryDetail(SettingsActivity activity, MemInfo memInfo,
             ProcStatsPackageEntry entry, boolean includeAppInfo) {
         Bundle args = new Bundle();
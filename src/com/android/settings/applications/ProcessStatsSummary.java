@@ -111,7 +111,8 @@ public class ProcessStatsSummary extends ProcessStatsBase implements OnPreferenc
             return;
         }
 
-        MemInfo memInfo = mStatsManager.getMemInfo();
+        final ProcStatsData.StatsSnapshot snapshot = mStatsManager.getStatsSnapshot();
+        MemInfo memInfo = snapshot.getMemInfo();
 
         double usedRam = memInfo.realUsedRam;
         double totalRam = memInfo.realTotalRam;
@@ -122,7 +123,7 @@ public class ProcessStatsSummary extends ProcessStatsBase implements OnPreferenc
         String freeString = Formatter.formatShortFileSize(context, (long) freeRam);
         CharSequence memString;
         CharSequence[] memStatesStr = getResources().getTextArray(R.array.ram_states);
-        int memState = mStatsManager.getMemState();
+        int memState = snapshot.getMemState();
         if (memState >= 0 && memState < memStatesStr.length - 1) {
             memString = memStatesStr[memState];
         } else {
@@ -138,7 +139,7 @@ public class ProcessStatsSummary extends ProcessStatsBase implements OnPreferenc
         mAverageUsed.setSummary(Utils.formatPercentage((long) usedRam, (long) totalRam));
         mFree.setSummary(freeString);
         String durationString = getString(sDurationLabels[mDurationIndex]);
-        int numApps = mStatsManager.getEntries().size();
+        int numApps = snapshot.getEntries().size();
         MessageFormat msgFormat = new MessageFormat(
                 getResources().getString(R.string.memory_usage_apps_summary),
                         Locale.getDefault());
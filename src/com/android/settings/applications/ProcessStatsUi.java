@@ -79,7 +79,10 @@ public class ProcessStatsUi extends ProcessStatsBase {
             case MENU_SHOW_AVG:
             case MENU_SHOW_MAX:
                 mShowMax = !mShowMax;
-                refreshUi();
+                // Otherwise the UI is refreshed once the stats are loaded.
+                if (mStatsManager.getStatsSnapshot() != null) {
+                    refreshUi();
+                }
                 updateMenu();
                 return true;
         }
@@ -151,9 +154,10 @@ public class ProcessStatsUi extends ProcessStatsBase {
                 : R.string.average_memory_use);
 
         final Context context = getActivity();
-        MemInfo memInfo = mStatsManager.getMemInfo();
+        final ProcStatsData.StatsSnapshot snapshot = mStatsManager.getStatsSnapshot();
+        MemInfo memInfo = snapshot.getMemInfo();
 
-        List<ProcStatsPackageEntry> pkgEntries = mStatsManager.getEntries();
+        List<ProcStatsPackageEntry> pkgEntries = snapshot.getEntries();
 
         // Update everything and get the absolute maximum of memory usage for scaling.
         for (int i=0, N=pkgEntries.size(); i<N; i++) {
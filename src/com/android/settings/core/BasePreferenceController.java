@@ -45,6 +45,8 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Abstract class to consolidate utility between preference controllers and act as an interface
@@ -119,6 +121,13 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     public static final int DISABLED_DEPENDENT_SETTING = 5;
 
+    // The constructors resolved by createInstance (key: controller class name). A missing
+    // constructor is cached with the lookup failure, so the class is not looked up again.
+    private static final Map<String, ResolvedConstructor> sContextConstructors =
+            new ConcurrentHashMap<>();
+    private static final Map<String, ResolvedConstructor> sContextKeyConstructors =
+            new ConcurrentHashMap<>();
+
     protected final String mPreferenceKey;
     protected UiBlockListener mUiBlockListener;
     protected boolean mUiBlockerFinished;
@@ -127,6 +136,8 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     private UserHandle mWorkProfileUser;
     private int mMetricsCategory;
     private boolean mPrefVisibility;
+    // The availability status evaluated ahead of the UI pass, or null to query it directly.
+    private Integer mPrecomputedAvailabilityStatus;
 
     /**
      * Instantiate a controller as specified controller type and user-defined key.
@@ -135,17 +146,8 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     public static BasePreferenceController createInstance(Context context,
             String controllerName, String key) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
-            final Object[] params = new Object[]{context, key};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        return newInstance(getContextKeyConstructor(controllerName), controllerName,
+                context, key);
     }
 
     /**
@@ -154,16 +156,7 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      * This is done through reflection. Do not use this method unless you know what you are doing.
      */
     public static BasePreferenceController createInstance(Context context, String controllerName) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor = clazz.getConstructor(Context.class);
-            final Object[] params = new Object[]{context};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        return newInstance(getContextConstructor(controllerName), controllerName, context);
     }
 
     /**
@@ -178,17 +171,49 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     public static BasePreferenceController createInstance(Context context, String controllerName,
             String key, boolean isWorkProfile) {
+        final BasePreferenceController controller = createInstance(context, controllerName, key);
+        controller.setForWork(isWorkProfile);
+        return controller;
+    }
+
+    /**
+     * @return {@code true} if the controller has a constructor only taking a {@link Context},
+     * i.e. it can be created by {@link #createInstance(Context, String)}.
+     */
+    static boolean hasContextConstructor(String controllerName) {
+        return getContextConstructor(controllerName).mConstructor != null;
+    }
+
+    private static ResolvedConstructor getContextConstructor(String controllerName) {
+        return sContextConstructors.computeIfAbsent(controllerName,
+                name -> findConstructor(name, Context.class));
+    }
+
+    private static ResolvedConstructor getContextKeyConstructor(String controllerName) {
+        return sContextKeyConstructors.computeIfAbsent(controllerName,
+                name -> findConstructor(name, Context.class, String.class));
+    }
+
+    private static ResolvedConstructor findConstructor(String controllerName,
+            Class<?>... parameterTypes) {
+        try {
+            return new ResolvedConstructor(
+                    Class.forName(controllerName).getConstructor(parameterTypes), null);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return new ResolvedConstructor(null, e);
+        }
+    }
+
+    private static BasePreferenceController newInstance(ResolvedConstructor constructor,
+            String controllerName, Object... params) {
+        if (constructor.mConstructor == null) {
+            throw new IllegalStateException("Invalid preference controller: " + controllerName,
+                    constructor.mError);
+        }
         try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
-            final Object[] params = new Object[]{context, key};
-            final BasePreferenceController controller =
-                    (BasePreferenceController) preferenceConstructor.newInstance(params);
-            controller.setForWork(isWorkProfile);
-            return controller;
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
-                | IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
+            return (BasePreferenceController) constructor.mConstructor.newInstance(params);
+        } catch (InstantiationException | IllegalArgumentException | InvocationTargetException
+                | IllegalAccessException e) {
             throw new IllegalStateException(
                     "Invalid preference controller: " + controllerName, e);
         }
@@ -257,7 +282,7 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
             return false;
         }
 
-        final int availabilityStatus = getAvailabilityStatus();
+        final int availabilityStatus = getCurrentAvailabilityStatus();
         return (availabilityStatus == AVAILABLE
                 || availabilityStatus == AVAILABLE_UNSEARCHABLE
                 || availabilityStatus == DISABLED_DEPENDENT_SETTING);
@@ -271,7 +296,34 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      * Note that a return value of {@code true} does not mean that the setting is available.
      */
     public final boolean isSupported() {
-        return getAvailabilityStatus() != UNSUPPORTED_ON_DEVICE;
+        return getCurrentAvailabilityStatus() != UNSUPPORTED_ON_DEVICE;
+    }
+
+    /**
+     * Sets the availability status evaluated on a background thread, it is used instead of
+     * {@link #getAvailabilityStatus()} by {@link #isAvailable()}, {@link #isSupported()} and
+     * {@link #displayPreference(PreferenceScreen)} until it is cleared with {@code null}.
+     *
+     * Called by DashboardFragment for the {@link ThreadSafeAvailability} controllers.
+     */
+    public void setPrecomputedAvailabilityStatus(@Nullable Integer availabilityStatus) {
+        mPrecomputedAvailabilityStatus = availabilityStatus;
+    }
+
+    @AvailabilityStatus
+    private int getCurrentAvailabilityStatus() {
+        final Integer precomputedStatus = mPrecomputedAvailabilityStatus;
+        if (precomputedStatus != null) {
+            return precomputedStatus;
+        }
+        final long startTime = PreferenceControllerTimings.begin(
+                this, PreferenceControllerTimings.CALLBACK_AVAILABILITY);
+        try {
+            return getAvailabilityStatus();
+        } finally {
+            PreferenceControllerTimings.end(
+                    this, PreferenceControllerTimings.CALLBACK_AVAILABILITY, startTime);
+        }
     }
 
     /**
@@ -280,7 +332,7 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     @Override
     public void displayPreference(PreferenceScreen screen) {
         super.displayPreference(screen);
-        if (getAvailabilityStatus() == DISABLED_DEPENDENT_SETTING) {
+        if (getCurrentAvailabilityStatus() == DISABLED_DEPENDENT_SETTING) {
             // Disable preference if it depends on another setting.
             final Preference preference = screen.findPreference(getPreferenceKey());
             if (preference != null) {
@@ -415,6 +467,23 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     public interface UiBlocker {
     }
 
+    /**
+     * Used for {@link BasePreferenceController} whose {@link #getAvailabilityStatus()} is thread
+     * safe. If the DashboardFragment opts in, it evaluates the availability of these controllers
+     * on background threads in parallel, and applies the results in its first UI pass.
+     *
+     * This must be used in {@link BasePreferenceController}
+     */
+    public interface ThreadSafeAvailability {
+        /**
+         * Loads the data needed by the initial {@code updateState()} on a background thread, it is
+         * only called if the controller is available. The fragment doesn't wait for it beyond a
+         * short timeout, so the loaded data must be synchronized with {@code updateState()}.
+         */
+        default void preloadState() {
+        }
+    }
+
     /**
      * Set the metrics category of the parent fragment.
      *
@@ -463,4 +532,18 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     private void savePrefVisibility(boolean isVisible) {
         mPrefVisibility = isVisible;
     }
+
+    /** A constructor resolved by {@link #createInstance}, or the failure to resolve it. */
+    private static final class ResolvedConstructor {
+        @Nullable
+        final Constructor<?> mConstructor;
+        @Nullable
+        final ReflectiveOperationException mError;
+
+        ResolvedConstructor(@Nullable Constructor<?> constructor,
+                @Nullable ReflectiveOperationException error) {
+            mConstructor = constructor;
+            mError = error;
+        }
+    }
 }
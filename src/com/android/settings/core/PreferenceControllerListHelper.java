@@ -73,11 +73,17 @@ public class PreferenceControllerListHelper {
                 BoolSettingPrefController.maybeAdd(context, metadata, controllers);
                 continue;
             }
-            BasePreferenceController controller;
-            try {
-                controller = BasePreferenceController.createInstance(context, controllerName);
-            } catch (IllegalStateException e) {
-                Log.d(TAG, "Could not find Context-only controller for pref: " + controllerName);
+            BasePreferenceController controller = null;
+            // Most controllers take a key, so only try the Context-only constructor if it exists.
+            if (BasePreferenceController.hasContextConstructor(controllerName)) {
+                try {
+                    controller = BasePreferenceController.createInstance(context, controllerName);
+                } catch (IllegalStateException e) {
+                    Log.d(TAG, "Could not create Context-only controller for pref: "
+                            + controllerName);
+                }
+            }
+            if (controller == null) {
                 final String key = metadata.getString(METADATA_KEY);
                 final boolean isWorkProfile = metadata.getBoolean(METADATA_FOR_WORK, false);
                 if (TextUtils.isEmpty(key)) {
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long each preference controller spends in its callbacks, aggregated per controller
+ * class and callback into a histogram, and wraps each call in a {@link Trace} section named
+ * {@code <controller>#<callback>}. The records are dumped by
+ * {@link com.android.settings.SettingsDumpService}.
+ *
+ * <p>The callbacks are only recorded on debuggable builds or while the app is traced, otherwise
+ * {@link #begin} and {@link #end} return immediately.
+ *
+ * <p>Usage:
+ * <pre>
+ * final long startTime = PreferenceControllerTimings.begin(controller, CALLBACK_UPDATE_STATE);
+ * try {
+ *     controller.updateState(preference);
+ * } finally {
+ *     PreferenceControllerTimings.end(controller, CALLBACK_UPDATE_STATE, startTime);
+ * }
+ * </pre>
+ */
+public final class PreferenceControllerTimings {
+
+    public static final String CALLBACK_AVAILABILITY = "getAvailabilityStatus";
+    public static final String CALLBACK_DISPLAY_PREFERENCE = "displayPreference";
+    public static final String CALLBACK_UPDATE_STATE = "updateState";
+
+    // Upper bounds of the histogram buckets in milliseconds, the last bucket is unbounded.
+    @VisibleForTesting
+    static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 4, 8, 16, 32, 64, 128};
+
+    // Returned by begin() if the callback is not recorded.
+    private static final long NOT_RECORDED = -1;
+
+    @VisibleForTesting
+    static boolean sAlwaysEnabled = Build.IS_DEBUGGABLE;
+
+    // Key: <controller class name>#<callback>.
+    private static final Map<String, Timing> sTimings = new ConcurrentHashMap<>();
+    // Key: controller class, value: the timings keyed by callback, so the names are only built
+    // once for each class.
+    private static final Map<Class<?>, Map<String, Timing>> sTimingsByClass =
+            new ConcurrentHashMap<>();
+
+    private PreferenceControllerTimings() {
+    }
+
+    /**
+     * Starts a trace section of the callback, returns the start time to be passed to
+     * {@link #end}.
+     */
+    public static long begin(Object controller, String callback) {
+        if (!sAlwaysEnabled && !Trace.isEnabled()) {
+            return NOT_RECORDED;
+        }
+        Trace.beginSection(getTiming(controller.getClass(), callback).mTraceName);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Ends the trace section of the callback and records its duration. */
+    public static void end(Object controller, String callback, long startTime) {
+        if (startTime == NOT_RECORDED) {
+            return;
+        }
+        final long durationNanos = SystemClock.elapsedRealtimeNanos() - startTime;
+        Trace.endSection();
+        getTiming(controller.getClass(), callback).add(durationNanos);
+    }
+
+    /**
+     * Returns the records sorted by the total duration in descending order, each of them has the
+     * controller callback name, the count, the total and max duration and the histogram.
+     */
+    public static JSONArray dump() throws JSONException {
+        final List<Map.Entry<String, Timing>> entries = new ArrayList<>(sTimings.entrySet());
+        final Map<String, Long> totalNanos = new ArrayMap<>(entries.size());
+        for (Map.Entry<String, Timing> entry : entries) {
+            totalNanos.put(entry.getKey(), entry.getValue().mTotalNanos.sum());
+        }
+        entries.sort((a, b) -> Long.compare(totalNanos.get(b.getKey()),
+                totalNanos.get(a.getKey())));
+
+        final JSONArray array = new JSONArray();
+        for (Map.Entry<String, Timing> entry : entries) {
+            final Timing timing = entry.getValue();
+            final JSONObject obj = new JSONObject();
+            obj.put("name", entry.getKey());
+            obj.put("count", timing.mCount.sum());
+            obj.put("totalMs", totalNanos.get(entry.getKey()) / 1_000_000);
+            obj.put("maxMs", timing.mMaxNanos.get() / 1_000_000);
+            final JSONArray histogram = new JSONArray();
+            for (LongAdder count : timing.mBuckets) {
+                histogram.put(count.sum());
+            }
+            obj.put("histogram", histogram);
+            array.put(obj);
+        }
+        return array;
+    }
+
+    @VisibleForTesting
+    static void reset() {
+        sTimingsByClass.clear();
+        sTimings.clear();
+    }
+
+    @VisibleForTesting
+    static void record(String name, long durationNanos) {
+        getTiming(name, name).add(durationNanos);
+    }
+
+    private static Timing getTiming(Class<?> controllerClass, String callback) {
+        Map<String, Timing> timings = sTimingsByClass.get(controllerClass);
+        if (timings == null) {
+            timings = sTimingsByClass.computeIfAbsent(controllerClass,
+                    key -> new ConcurrentHashMap<>());
+        }
+        Timing timing = timings.get(callback);
+        if (timing == null) {
+            timing = timings.computeIfAbsent(callback, key -> getTiming(
+                    controllerClass.getName() + "#" + key,
+                    controllerClass.getSimpleName() + "#" + key));
+        }
+        return timing;
+    }
+
+    private static Timing getTiming(String name, String traceName) {
+        return sTimings.computeIfAbsent(name, key -> new Timing(traceName));
+    }
+
+    private static class Timing {
+        final String mTraceName;
+        final LongAdder mCount = new LongAdder();
+        final LongAdder mTotalNanos = new LongAdder();
+        final LongAccumulator mMaxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder[] mBuckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+
+        // Trace section names are limited to 127 characters, the simple name keeps it short.
+        Timing(String traceName) {
+            mTraceName = traceName.length() > 127 ? traceName.substring(0, 127) : traceName;
+            for (int i = 0; i < mBuckets.length; i++) {
+                mBuckets[i] = new LongAdder();
+            }
+        }
+
+        void add(long durationNanos) {
+            mCount.increment();
+            mTotalNanos.add(durationNanos);
+            mMaxNanos.accumulate(durationNanos);
+            final long durationMillis = durationNanos / 1_000_000;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length
+                    && durationMillis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            mBuckets[bucket].increment();
+        }
+    }
+}
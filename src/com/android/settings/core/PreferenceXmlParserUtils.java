@@ -18,18 +18,23 @@ package com.android.settings.core;
 
 import android.annotation.XmlRes;
 import android.content.Context;
+import android.content.pm.ActivityInfo;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.Xml;
 
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
+import com.android.settings.overlay.FeatureFactory;
+import com.android.settingslib.applications.InterestingConfigChanges;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
@@ -54,6 +59,24 @@ public class PreferenceXmlParserUtils {
     public static final int PREPEND_VALUE = 0;
     public static final int APPEND_VALUE = 1;
 
+    @VisibleForTesting
+    static final int METADATA_CACHE_SIZE = 256;
+    // The config changes which may change the parsed metadata, e.g. the title and the
+    // resources selected by the qualifiers.
+    private static final int METADATA_CONFIG_CHANGES = ActivityInfo.CONFIG_LOCALE
+            | ActivityInfo.CONFIG_UI_MODE | ActivityInfo.CONFIG_SCREEN_LAYOUT
+            | ActivityInfo.CONFIG_ASSETS_PATHS | ActivityInfo.CONFIG_DENSITY
+            | ActivityInfo.CONFIG_MCC | ActivityInfo.CONFIG_MNC
+            | ActivityInfo.CONFIG_ORIENTATION | ActivityInfo.CONFIG_SMALLEST_SCREEN_SIZE;
+
+    // Process-wide cache of the parsed metadata (key: xml res id and flags), guarded by itself.
+    private static final LruCache<Long, List<Bundle>> sMetadataCache =
+            new LruCache<>(METADATA_CACHE_SIZE);
+    private static final InterestingConfigChanges sMetadataConfigChanges =
+            new InterestingConfigChanges(METADATA_CONFIG_CHANGES);
+    // Increases on every invalidation, the metadata parsed before an invalidation is not cached.
+    private static long sMetadataCacheGeneration;
+
     /**
      * Flag definition to indicate which metadata should be extracted when
      * {@link #extractMetadata(Context, int, int)} is called. The flags can be combined by using |
@@ -120,11 +143,61 @@ public class PreferenceXmlParserUtils {
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             Log.d(TAG, xmlResId + " is invalid.");
-            return metadata;
+            return new ArrayList<>();
+        }
+        if (!FeatureFactory.getFeatureFactory().getDashboardFeatureProvider()
+                .isPreferenceXmlMetadataCacheEnabled()) {
+            return parseMetadata(context, xmlResId, flags);
+        }
+
+        final Long key = ((long) xmlResId << 32) | (flags & 0xffffffffL);
+        final long generation;
+        synchronized (sMetadataCache) {
+            if (sMetadataConfigChanges.applyNewConfig(context.getResources())) {
+                invalidateMetadataCacheLocked();
+            }
+            final List<Bundle> cachedMetadata = sMetadataCache.get(key);
+            if (cachedMetadata != null) {
+                return copyMetadata(cachedMetadata);
+            }
+            generation = sMetadataCacheGeneration;
+        }
+        final List<Bundle> metadata = parseMetadata(context, xmlResId, flags);
+        synchronized (sMetadataCache) {
+            if (generation == sMetadataCacheGeneration) {
+                sMetadataCache.put(key, copyMetadata(metadata));
+            }
         }
+        return metadata;
+    }
+
+    /** Drops all the metadata cached by {@link #extractMetadata(Context, int, int)}. */
+    @VisibleForTesting
+    static void invalidateMetadataCache() {
+        synchronized (sMetadataCache) {
+            invalidateMetadataCacheLocked();
+        }
+    }
+
+    private static void invalidateMetadataCacheLocked() {
+        sMetadataCacheGeneration++;
+        sMetadataCache.evictAll();
+    }
+
+    // The callers may modify the returned bundles, so the cached ones are never handed out.
+    private static List<Bundle> copyMetadata(List<Bundle> metadata) {
+        final List<Bundle> copy = new ArrayList<>(metadata.size());
+        for (Bundle bundle : metadata) {
+            copy.add(new Bundle(bundle));
+        }
+        return copy;
+    }
+
+    private static List<Bundle> parseMetadata(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
+        final List<Bundle> metadata = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
@@ -17,6 +17,7 @@ package com.android.settings.dashboard;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.os.Parcel;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
@@ -26,6 +27,7 @@ import android.util.Pair;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.homepage.HighlightableMenu;
+import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.safetycenter.SafetyCenterManagerWrapper;
 import com.android.settingslib.applications.InterestingConfigChanges;
 import com.android.settingslib.drawer.CategoryKey;
@@ -37,6 +39,7 @@ import com.android.settingslib.drawer.TileUtils;
 import com.google.android.setupcompat.util.WizardManagerHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +47,15 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 
+/**
+ * Loads and keeps the tiles injected into Settings, grouped by category.
+ *
+ * <p>The loaded categories are published as an immutable {@link CategorySnapshot} through a
+ * volatile reference, so the readers never wait for the lock. Only the initial load,
+ * {@link #reloadAllCategories} and {@link #updateCategoryFromDenylist} build and publish a new
+ * snapshot under the lock, the published categories are never modified. The published tiles are
+ * shared with the tile cache, except the ones moved to another category, which are copies.
+ */
 public class CategoryManager {
 
     private static final String TAG = "CategoryManager";
@@ -52,13 +64,16 @@ public class CategoryManager {
     private static CategoryManager sInstance;
     private final InterestingConfigChanges mInterestingConfigChanges;
 
-    // Tile cache (key: <packageName, activityName>, value: tile)
+    // Tile cache (key: <packageName, activityName>, value: tile), guarded by this.
     private final Map<Pair<String, String>, Tile> mTileByComponentCache;
 
-    // Tile cache (key: category key, value: category)
-    private final Map<String, DashboardCategory> mCategoryByKeyMap;
+    private volatile CategorySnapshot mSnapshot;
 
-    private List<DashboardCategory> mCategories;
+    // Whether the tile cache is built from the TileSnapshot instead of TileUtils.
+    private boolean mTileCacheFromSnapshot;
+    // The sequence number and the key of the TileSnapshot file, it's not rewritten if unchanged.
+    private int mSnapshotSequenceNumber;
+    private String mSnapshotKey;
 
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
@@ -69,29 +84,27 @@ public class CategoryManager {
 
     CategoryManager(Context context) {
         mTileByComponentCache = new ArrayMap<>();
-        mCategoryByKeyMap = new ArrayMap<>();
         mInterestingConfigChanges = new InterestingConfigChanges();
         mInterestingConfigChanges.applyNewConfig(context.getResources());
     }
 
-    public synchronized DashboardCategory getTilesByCategory(Context context, String categoryKey) {
-        tryInitCategories(context);
-
-        return mCategoryByKeyMap.get(categoryKey);
+    public DashboardCategory getTilesByCategory(Context context, String categoryKey) {
+        final CategorySnapshot snapshot = getSnapshot(context);
+        return snapshot == null ? null : snapshot.mCategoryByKeyMap.get(categoryKey);
     }
 
-    public synchronized List<DashboardCategory> getCategories(Context context) {
+    public List<DashboardCategory> getCategories(Context context) {
         if (!WizardManagerHelper.isUserSetupComplete(context)) {
             return new ArrayList<>();
         }
-        tryInitCategories(context);
-        return mCategories;
+        final CategorySnapshot snapshot = getSnapshot(context);
+        return snapshot == null ? new ArrayList<>() : snapshot.mCategories;
     }
 
     public synchronized void reloadAllCategories(Context context) {
         final boolean forceClearCache = mInterestingConfigChanges.applyNewConfig(
                 context.getResources());
-        mCategories = null;
+        // The current snapshot keeps serving the readers until the new one is published.
         tryInitCategories(context, forceClearCache);
     }
 
@@ -100,29 +113,48 @@ public class CategoryManager {
      * @param tileDenylist
      */
     public synchronized void updateCategoryFromDenylist(Set<ComponentName> tileDenylist) {
-        if (mCategories == null) {
+        final CategorySnapshot snapshot = mSnapshot;
+        if (snapshot == null) {
             Log.w(TAG, "Category is null, skipping denylist update");
             return;
         }
-        for (int i = 0; i < mCategories.size(); i++) {
-            DashboardCategory category = mCategories.get(i);
-            for (int j = 0; j < category.getTilesCount(); j++) {
-                Tile tile = category.getTile(j);
+        if (tileDenylist.isEmpty()) {
+            return;
+        }
+        boolean changed = false;
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        for (Entry<String, DashboardCategory> entry : snapshot.mCategoryByKeyMap.entrySet()) {
+            final DashboardCategory category = entry.getValue();
+            final DashboardCategory newCategory = new DashboardCategory(category.key);
+            for (int i = 0; i < category.getTilesCount(); i++) {
+                final Tile tile = category.getTile(i);
                 if (tileDenylist.contains(tile.getIntent().getComponent())) {
-                    category.removeTile(j--);
+                    changed = true;
+                } else {
+                    newCategory.addTile(tile);
                 }
             }
+            categoryByKeyMap.put(entry.getKey(), newCategory);
+        }
+        if (!changed) {
+            return;
+        }
+        final List<DashboardCategory> categories = new ArrayList<>(snapshot.mCategories.size());
+        for (DashboardCategory category : snapshot.mCategories) {
+            categories.add(categoryByKeyMap.get(category.key));
         }
+        publishCategories(categories, categoryByKeyMap);
     }
 
     /** Return the current tile map */
-    public synchronized Map<ComponentName, Tile> getTileByComponentMap() {
+    public Map<ComponentName, Tile> getTileByComponentMap() {
         final Map<ComponentName, Tile> result = new ArrayMap<>();
-        if (mCategories == null) {
+        final CategorySnapshot snapshot = mSnapshot;
+        if (snapshot == null) {
             Log.w(TAG, "Category is null, no tiles");
             return result;
         }
-        mCategories.forEach(category -> {
+        snapshot.mCategories.forEach(category -> {
             for (int i = 0; i < category.getTilesCount(); i++) {
                 final Tile tile = category.getTile(i);
                 result.put(tile.getIntent().getComponent(), tile);
@@ -131,6 +163,21 @@ public class CategoryManager {
         return result;
     }
 
+    @VisibleForTesting
+    void publishCategories(List<DashboardCategory> categories,
+            Map<String, DashboardCategory> categoryByKeyMap) {
+        mSnapshot = new CategorySnapshot(categories, categoryByKeyMap);
+    }
+
+    private CategorySnapshot getSnapshot(Context context) {
+        final CategorySnapshot snapshot = mSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        tryInitCategories(context);
+        return mSnapshot;
+    }
+
     private void logTiles(Context context) {
         if (DEBUG) {
             getTileByComponentMap().forEach((component, tile) -> {
@@ -141,6 +188,10 @@ public class CategoryManager {
     }
 
     private synchronized void tryInitCategories(Context context) {
+        if (mSnapshot != null) {
+            // Loaded by another thread while waiting for the lock.
+            return;
+        }
         // Keep cached tiles by default. The cache is only invalidated when InterestingConfigChange
         // happens.
         tryInitCategories(context, false /* forceClearCache */);
@@ -151,38 +202,155 @@ public class CategoryManager {
             // Don't init while setup wizard is still running.
             return;
         }
-        if (mCategories == null) {
-            final boolean firstLoading = mCategoryByKeyMap.isEmpty();
-            if (forceClearCache) {
-                mTileByComponentCache.clear();
-            }
-            mCategoryByKeyMap.clear();
-            mCategories = TileUtils.getCategories(context, mTileByComponentCache);
-            for (DashboardCategory category : mCategories) {
-                mCategoryByKeyMap.put(category.key, category);
+        final boolean firstLoading = mSnapshot == null;
+        List<DashboardCategory> categories =
+                firstLoading ? loadCategoriesFromSnapshot(context) : null;
+        if (categories == null) {
+            categories = loadCategories(context, forceClearCache);
+        }
+        publishLoadedCategories(context, categories);
+        if (firstLoading) {
+            logTiles(context);
+
+            final DashboardCategory homepageCategory = mSnapshot.mCategoryByKeyMap.get(
+                    CategoryKey.CATEGORY_HOMEPAGE);
+            if (homepageCategory == null) {
+                return;
             }
-            backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
-            mergeSecurityPrivacyKeys(context, mTileByComponentCache, mCategoryByKeyMap);
-            sortCategories(context, mCategoryByKeyMap);
-            filterDuplicateTiles(mCategoryByKeyMap);
-            if (firstLoading) {
-                logTiles(context);
-
-                final DashboardCategory homepageCategory = mCategoryByKeyMap.get(
-                        CategoryKey.CATEGORY_HOMEPAGE);
-                if (homepageCategory == null) {
-                    return;
+            for (Tile tile : homepageCategory.getTiles()) {
+                final String key = tile.getKey(context);
+                if (TextUtils.isEmpty(key)) {
+                    Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
+                    continue;
                 }
-                for (Tile tile : homepageCategory.getTiles()) {
-                    final String key = tile.getKey(context);
-                    if (TextUtils.isEmpty(key)) {
-                        Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
-                        continue;
-                    }
-                    HighlightableMenu.addMenuKey(key);
+                HighlightableMenu.addMenuKey(key);
+            }
+        }
+    }
+
+    /**
+     * Cleans up, sorts and publishes the categories just loaded into the tile cache. The published
+     * categories are new lists of the cached tiles, only the tiles moved to another category are
+     * copied, so the cached tiles keep the category they are loaded with.
+     */
+    @VisibleForTesting
+    synchronized void publishLoadedCategories(Context context,
+            List<DashboardCategory> loadedCategories) {
+        final List<DashboardCategory> categories = new ArrayList<>(loadedCategories.size());
+        for (DashboardCategory loadedCategory : loadedCategories) {
+            final DashboardCategory category = new DashboardCategory(loadedCategory.key);
+            for (int i = 0; i < loadedCategory.getTilesCount(); i++) {
+                category.addTile(loadedCategory.getTile(i));
+            }
+            categories.add(category);
+        }
+        final Map<Pair<String, String>, Tile> tileByComponent = new ArrayMap<>();
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+            for (Tile tile : category.getTiles()) {
+                tileByComponent.put(getTileCacheKey(tile), tile);
+            }
+        }
+        backwardCompatCleanupForCategory(tileByComponent, categoryByKeyMap);
+        mergeSecurityPrivacyKeys(context, tileByComponent, categoryByKeyMap);
+        sortCategories(context, categoryByKeyMap);
+        filterDuplicateTiles(categoryByKeyMap);
+        publishCategories(categories, categoryByKeyMap);
+    }
+
+    /**
+     * Moves a copy of the tile into the new category, the copy also replaces the tile in its old
+     * category. The tile itself is shared with the tile cache, so it's not modified.
+     */
+    private static void moveTileToCategory(Tile tile, String newCategoryKey,
+            Map<String, DashboardCategory> categoryByKeyMap) {
+        final Tile movedTile = copyTile(tile);
+        movedTile.setCategory(newCategoryKey);
+        final DashboardCategory oldCategory = categoryByKeyMap.get(tile.getCategory());
+        if (oldCategory != null) {
+            for (int i = 0; i < oldCategory.getTilesCount(); i++) {
+                if (oldCategory.getTile(i) == tile) {
+                    // The order is restored by sortCategories().
+                    oldCategory.removeTile(i);
+                    oldCategory.addTile(movedTile);
+                    break;
                 }
             }
         }
+        DashboardCategory newCategory = categoryByKeyMap.get(newCategoryKey);
+        if (newCategory == null) {
+            newCategory = new DashboardCategory(newCategoryKey);
+            categoryByKeyMap.put(newCategoryKey, newCategory);
+        }
+        newCategory.addTile(movedTile);
+    }
+
+    private static Tile copyTile(Tile tile) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            tile.writeToParcel(parcel, 0 /* flags */);
+            parcel.setDataPosition(0);
+            return Tile.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static Pair<String, String> getTileCacheKey(Tile tile) {
+        return new Pair<>(tile.getPackageName(), tile.getDescription());
+    }
+
+    private List<DashboardCategory> loadCategories(Context context, boolean forceClearCache) {
+        if (forceClearCache || mTileCacheFromSnapshot) {
+            // The keys of the tiles loaded from the snapshot don't match the ones of TileUtils.
+            mTileByComponentCache.clear();
+            mTileCacheFromSnapshot = false;
+        }
+        if (!isTileSnapshotEnabled()) {
+            return TileUtils.getCategories(context, mTileByComponentCache);
+        }
+        final TileSnapshot snapshot = new TileSnapshot(context);
+        final int sequenceNumber = snapshot.getSequenceNumber();
+        final String snapshotKey = snapshot.getSnapshotKey();
+        final List<DashboardCategory> categories =
+                TileUtils.getCategories(context, mTileByComponentCache);
+        // The same packages and key load the same tiles, the snapshot is up to date.
+        if (sequenceNumber != mSnapshotSequenceNumber || !snapshotKey.equals(mSnapshotKey)) {
+            snapshot.write(categories, sequenceNumber, snapshotKey);
+            mSnapshotSequenceNumber = sequenceNumber;
+            mSnapshotKey = snapshotKey;
+        }
+        return categories;
+    }
+
+    private List<DashboardCategory> loadCategoriesFromSnapshot(Context context) {
+        if (!isTileSnapshotEnabled()) {
+            return null;
+        }
+        final long startTime = System.currentTimeMillis();
+        final TileSnapshot snapshot = new TileSnapshot(context);
+        final List<DashboardCategory> categories = snapshot.read();
+        if (categories == null) {
+            return null;
+        }
+        mSnapshotSequenceNumber = snapshot.getReadSequenceNumber();
+        mSnapshotKey = snapshot.getSnapshotKey();
+        mTileByComponentCache.clear();
+        for (DashboardCategory category : categories) {
+            for (Tile tile : category.getTiles()) {
+                mTileByComponentCache.put(getTileCacheKey(tile), tile);
+            }
+        }
+        mTileCacheFromSnapshot = true;
+        Log.d(TAG, String.format("Load tiles from snapshot in %d/ms",
+                System.currentTimeMillis() - startTime));
+        return categories;
+    }
+
+    private static boolean isTileSnapshotEnabled() {
+        return FeatureFactory.getFeatureFactory().getDashboardFeatureProvider()
+                .isTileSnapshotEnabled();
     }
 
     @VisibleForTesting
@@ -221,16 +389,8 @@ public class CategoryManager {
             // Uses only old key, map them to new keys one by one.
             if (useOldKey && !useNewKey) {
                 for (Tile tile : tiles) {
-                    final String newCategoryKey =
-                            CategoryKey.KEY_COMPAT_MAP.get(tile.getCategory());
-                    tile.setCategory(newCategoryKey);
-                    // move tile to new category.
-                    DashboardCategory newCategory = categoryByKeyMap.get(newCategoryKey);
-                    if (newCategory == null) {
-                        newCategory = new DashboardCategory(newCategoryKey);
-                        categoryByKeyMap.put(newCategoryKey, newCategory);
-                    }
-                    newCategory.addTile(tile);
+                    moveTileToCategory(tile, CategoryKey.KEY_COMPAT_MAP.get(tile.getCategory()),
+                            categoryByKeyMap);
                 }
             }
         }
@@ -253,15 +413,8 @@ public class CategoryManager {
             Tile tile = tileEntry.getValue();
             if (Objects.equals(tile.getCategory(), CategoryKey.CATEGORY_SECURITY_ADVANCED_SETTINGS)
                     || Objects.equals(tile.getCategory(), CategoryKey.CATEGORY_PRIVACY)) {
-                final String newCategoryKey = CategoryKey.CATEGORY_MORE_SECURITY_PRIVACY_SETTINGS;
-                tile.setCategory(newCategoryKey);
-                // move tile to new category.
-                DashboardCategory newCategory = categoryByKeyMap.get(newCategoryKey);
-                if (newCategory == null) {
-                    newCategory = new DashboardCategory(newCategoryKey);
-                    categoryByKeyMap.put(newCategoryKey, newCategory);
-                }
-                newCategory.addTile(tile);
+                moveTileToCategory(tile, CategoryKey.CATEGORY_MORE_SECURITY_PRIVACY_SETTINGS,
+                        categoryByKeyMap);
             }
         }
     }
@@ -312,4 +465,17 @@ public class CategoryManager {
             }
         }
     }
+
+    /** The published categories, they must not be modified after publishing. */
+    private static final class CategorySnapshot {
+        final List<DashboardCategory> mCategories;
+        // (key: category key, value: category)
+        final Map<String, DashboardCategory> mCategoryByKeyMap;
+
+        CategorySnapshot(List<DashboardCategory> categories,
+                Map<String, DashboardCategory> categoryByKeyMap) {
+            mCategories = Collections.unmodifiableList(categories);
+            mCategoryByKeyMap = Collections.unmodifiableMap(categoryByKeyMap);
+        }
+    }
 }
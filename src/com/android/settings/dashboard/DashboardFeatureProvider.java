@@ -66,4 +66,19 @@ public interface DashboardFeatureProvider {
      */
     void openTileIntent(FragmentActivity activity, Tile tile);
 
+    /**
+     * @return true if the injected tiles should be persisted in {@link TileSnapshot} and loaded
+     * from it on the first access after the process starts.
+     */
+    default boolean isTileSnapshotEnabled() {
+        return false;
+    }
+
+    /**
+     * @return true if the metadata parsed from the preference xml should be cached in process by
+     * {@link com.android.settings.core.PreferenceXmlParserUtils}.
+     */
+    default boolean isPreferenceXmlMetadataCacheEnabled() {
+        return false;
+    }
 }
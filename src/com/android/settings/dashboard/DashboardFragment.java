@@ -21,6 +21,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.preference.PreferenceManager.OnActivityResultListener;
 import android.text.TextUtils;
 import android.util.ArrayMap;
@@ -46,6 +47,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.core.PreferenceControllerListHelper;
+import com.android.settings.core.PreferenceControllerTimings;
 import com.android.settings.flags.Flags;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
@@ -54,6 +56,7 @@ import com.android.settingslib.core.lifecycle.Lifecycle;
 import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.Indexable;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -64,8 +67,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -76,6 +84,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     public static final String CATEGORY = "category";
     private static final String TAG = "DashboardFragment";
     private static final long TIMEOUT_MILLIS = 50L;
+    private static final long AVAILABILITY_TIMEOUT_MILLIS = 200L;
 
     @VisibleForTesting
     final ArrayMap<String, List<DynamicDataObserver>> mDashboardTilePrefKeys = new ArrayMap<>();
@@ -89,6 +98,13 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    // Availability status evaluated in parallel for the ThreadSafeAvailability controllers.
+    private final Map<BasePreferenceController, Integer> mPrecomputedAvailability =
+            new ConcurrentHashMap<>();
+    private List<Future<?>> mAvailabilityFutures;
+    // Set once the results of the current check are applied, the late results are ignored. The
+    // results are put while holding it.
+    private AtomicBoolean mAvailabilityApplied;
 
     @Override
     public void onAttach(Context context) {
@@ -136,6 +152,111 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         for (AbstractPreferenceController controller : mControllers) {
             addPreferenceController(controller);
         }
+        if (isParallelAvailabilityEnabled()) {
+            // Overlaps with the inflation of the preference screen on the main thread.
+            startAvailabilityCheck(mControllers);
+        }
+    }
+
+    /**
+     * Returns true if the availability of the
+     * {@link BasePreferenceController.ThreadSafeAvailability} controllers should be evaluated in
+     * parallel on background threads, ahead of the first UI pass.
+     */
+    protected boolean isParallelAvailabilityEnabled() {
+        return false;
+    }
+
+    @VisibleForTesting
+    void startAvailabilityCheck(List<AbstractPreferenceController> controllers) {
+        final List<Future<?>> futures = new ArrayList<>();
+        final AtomicBoolean applied = new AtomicBoolean();
+        for (AbstractPreferenceController controller : controllers) {
+            if (!(controller instanceof BasePreferenceController.ThreadSafeAvailability)) {
+                continue;
+            }
+            final BasePreferenceController baseController = (BasePreferenceController) controller;
+            futures.add(ThreadUtils.postOnBackgroundThread(() -> {
+                if (applied.get()) {
+                    return;
+                }
+                final long startTime = PreferenceControllerTimings.begin(
+                        baseController, PreferenceControllerTimings.CALLBACK_AVAILABILITY);
+                final int status;
+                try {
+                    status = baseController.getAvailabilityStatus();
+                } finally {
+                    PreferenceControllerTimings.end(baseController,
+                            PreferenceControllerTimings.CALLBACK_AVAILABILITY, startTime);
+                }
+                if (status == BasePreferenceController.AVAILABLE
+                        || status == BasePreferenceController.AVAILABLE_UNSEARCHABLE
+                        || status == BasePreferenceController.DISABLED_DEPENDENT_SETTING) {
+                    // The main thread uses the controller once the results are applied.
+                    if (applied.get()) {
+                        return;
+                    }
+                    ((BasePreferenceController.ThreadSafeAvailability) baseController)
+                            .preloadState();
+                }
+                synchronized (applied) {
+                    if (!applied.get()) {
+                        mPrecomputedAvailability.put(baseController, status);
+                    }
+                }
+            }));
+        }
+        mAvailabilityFutures = futures.isEmpty() ? null : futures;
+        mAvailabilityApplied = futures.isEmpty() ? null : applied;
+    }
+
+    /**
+     * Waits for the availability check started by {@link #startAvailabilityCheck} and applies
+     * the results to the controllers. The checks not finished within the timeout are cancelled
+     * and their results are ignored, the controllers are evaluated on the main thread as usual.
+     */
+    @VisibleForTesting
+    void applyPrecomputedAvailability() {
+        if (mAvailabilityFutures == null) {
+            return;
+        }
+        final long startTime = SystemClock.elapsedRealtime();
+        final long deadline = startTime + AVAILABILITY_TIMEOUT_MILLIS;
+        for (Future<?> future : mAvailabilityFutures) {
+            try {
+                future.get(Math.max(0, deadline - SystemClock.elapsedRealtime()),
+                        TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                Log.w(TAG, "Timed out waiting for the availability check");
+                break;
+            } catch (InterruptedException | ExecutionException e) {
+                Log.w(TAG, "Failed to check availability", e);
+            }
+        }
+        synchronized (mAvailabilityApplied) {
+            mAvailabilityApplied.set(true);
+        }
+        for (Future<?> future : mAvailabilityFutures) {
+            future.cancel(true /* mayInterruptIfRunning */);
+        }
+        mPrecomputedAvailability.forEach(
+                BasePreferenceController::setPrecomputedAvailabilityStatus);
+        Log.d(TAG, String.format("Applied %d/%d availability in %d/ms",
+                mPrecomputedAvailability.size(), mAvailabilityFutures.size(),
+                SystemClock.elapsedRealtime() - startTime));
+        mAvailabilityFutures = null;
+        mAvailabilityApplied = null;
+    }
+
+    /** Makes the controllers evaluate their availability on demand again. */
+    @VisibleForTesting
+    void clearPrecomputedAvailability() {
+        if (mPrecomputedAvailability.isEmpty()) {
+            return;
+        }
+        mPrecomputedAvailability.keySet().forEach(
+                controller -> controller.setPrecomputedAvailabilityStatus(null));
+        mPrecomputedAvailability.clear();
     }
 
     @VisibleForTesting
@@ -202,6 +323,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
 
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
+        applyPrecomputedAvailability();
         checkUiBlocker(mControllers);
         refreshAllPreferences(getLogTag());
         mControllers.stream()
@@ -241,6 +363,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     public void onResume() {
         super.onResume();
         updatePreferenceStates();
+        // The initial states are applied, the later updates query the availability again.
+        clearPrecomputedAvailability();
     }
 
     @Override
@@ -376,7 +500,17 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      */
     protected void displayResourceTilesToScreen(PreferenceScreen screen) {
         mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+                controller -> {
+                    final long startTime = PreferenceControllerTimings.begin(controller,
+                            PreferenceControllerTimings.CALLBACK_DISPLAY_PREFERENCE);
+                    try {
+                        controller.displayPreference(screen);
+                    } finally {
+                        PreferenceControllerTimings.end(controller,
+                                PreferenceControllerTimings.CALLBACK_DISPLAY_PREFERENCE,
+                                startTime);
+                    }
+                });
     }
 
     /**
@@ -412,7 +546,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                             key, controller.getClass().getSimpleName()));
                     continue;
                 }
-                controller.updateState(preference);
+                updateState(controller, preference);
             }
         }
     }
@@ -460,13 +594,25 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 }
                 final boolean available = controller.isAvailable();
                 if (available) {
-                    controller.updateState(preference);
+                    updateState(controller, preference);
                 }
                 preference.setVisible(available);
             }
         }
     }
 
+    private static void updateState(AbstractPreferenceController controller,
+            Preference preference) {
+        final long startTime = PreferenceControllerTimings.begin(
+                controller, PreferenceControllerTimings.CALLBACK_UPDATE_STATE);
+        try {
+            controller.updateState(preference);
+        } finally {
+            PreferenceControllerTimings.end(
+                    controller, PreferenceControllerTimings.CALLBACK_UPDATE_STATE, startTime);
+        }
+    }
+
     @VisibleForTesting
     void updatePreferenceVisibility(
             Map<Class, List<AbstractPreferenceController>> preferenceControllers) {
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.provider.Settings;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.utils.VersionedSnapshotFile;
+import com.android.settingslib.drawer.DashboardCategory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A binary snapshot of the injected tiles queried from PackageManager by
+ * {@link com.android.settingslib.drawer.TileUtils}, so {@link CategoryManager} can load them on
+ * the first access after the process starts instead of querying every injected activity and
+ * provider again.
+ *
+ * <p>The snapshot is keyed by the build, the boot, the configuration and the profiles of the
+ * user, since TileUtils also queries the tiles of the profiles. It records the package change
+ * sequence number at the time of the query, and it is only loaded if no package has been
+ * installed, updated, removed or changed in any of the profiles since then, which costs a single
+ * PackageManager call per profile. The package changes while Settings is running are handled by
+ * {@link com.android.settings.core.CategoryMixin}, which reloads the tiles and rewrites the
+ * snapshot.
+ */
+class TileSnapshot {
+
+    private static final String TAG = "TileSnapshot";
+
+    @VisibleForTesting
+    static final String SNAPSHOT_FILE = "tile_snapshot";
+    // Increases it when the format of the snapshot file is changed.
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Context mContext;
+    private int mReadSequenceNumber;
+
+    TileSnapshot(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the categories of the snapshot as they were returned by TileUtils, or null if there
+     * is no valid snapshot.
+     */
+    @Nullable
+    List<DashboardCategory> read() {
+        return getSnapshotFile(mContext).read(getSnapshotKey(), in -> {
+            final int sequenceNumber = in.readInt();
+            for (PackageManager packageManager : getProfilePackageManagers()) {
+                if (packageManager.getChangedPackages(sequenceNumber) != null) {
+                    Log.i(TAG, "Packages changed, skip snapshot");
+                    return null;
+                }
+            }
+            final byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            mReadSequenceNumber = sequenceNumber;
+            return unmarshall(data);
+        });
+    }
+
+    /** Returns the package change sequence number of the snapshot returned by {@link #read}. */
+    int getReadSequenceNumber() {
+        return mReadSequenceNumber;
+    }
+
+    /**
+     * Returns the current package change sequence number, it must be read before querying the
+     * tiles to be passed to {@link #write}.
+     */
+    int getSequenceNumber() {
+        // The sequence number is shared by all users, but the changes are tracked per user.
+        int sequenceNumber = 0;
+        for (PackageManager packageManager : getProfilePackageManagers()) {
+            final ChangedPackages changedPackages =
+                    packageManager.getChangedPackages(0 /* sequenceNumber */);
+            if (changedPackages != null) {
+                sequenceNumber = Math.max(sequenceNumber, changedPackages.getSequenceNumber());
+            }
+        }
+        return sequenceNumber;
+    }
+
+    /**
+     * Writes the categories just returned by TileUtils with the key read before querying them, it
+     * must be called before the tiles are modified by {@link CategoryManager}.
+     */
+    void write(List<DashboardCategory> categories, int sequenceNumber, String snapshotKey) {
+        getSnapshotFile(mContext).write(snapshotKey, out -> {
+            final byte[] data = marshall(categories);
+            out.writeInt(sequenceNumber);
+            out.writeInt(data.length);
+            out.write(data);
+        });
+    }
+
+    @VisibleForTesting
+    static void clear(Context context) {
+        getSnapshotFile(context).delete();
+    }
+
+    /**
+     * Returns the key of the snapshot, the snapshot is only read if it's written with the same key.
+     * The sequence number is reset on every boot, so the boot count is part of the key.
+     */
+    String getSnapshotKey() {
+        final Configuration config = mContext.getResources().getConfiguration();
+        final StringBuilder key = new StringBuilder()
+                .append(Build.FINGERPRINT)
+                .append('|').append(Settings.Global.getInt(mContext.getContentResolver(),
+                        Settings.Global.BOOT_COUNT, 0))
+                .append('|').append(config.getLocales().toLanguageTags())
+                .append('|').append(config.densityDpi)
+                .append('|').append(config.uiMode)
+                .append('|');
+        // The serial numbers are not reused, unlike the user ids of the removed profiles.
+        final UserManager userManager = mContext.getSystemService(UserManager.class);
+        for (UserHandle user : userManager.getUserProfiles()) {
+            key.append(userManager.getSerialNumberForUser(user)).append(',');
+        }
+        return key.toString();
+    }
+
+    private List<PackageManager> getProfilePackageManagers() {
+        final List<PackageManager> packageManagers = new ArrayList<>();
+        packageManagers.add(mContext.getPackageManager());
+        for (UserHandle user : mContext.getSystemService(UserManager.class).getUserProfiles()) {
+            if (!user.equals(mContext.getUser())) {
+                packageManagers.add(
+                        mContext.createContextAsUser(user, 0 /* flags */).getPackageManager());
+            }
+        }
+        return packageManagers;
+    }
+
+    private static VersionedSnapshotFile getSnapshotFile(Context context) {
+        return new VersionedSnapshotFile(
+                new File(context.getFilesDir(), SNAPSHOT_FILE), SNAPSHOT_VERSION);
+    }
+
+    private static byte[] marshall(List<DashboardCategory> categories) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(categories);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static List<DashboardCategory> unmarshall(byte[] data) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            return parcel.createTypedArrayList(DashboardCategory.CREATOR);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -77,6 +77,7 @@ import com.android.settings.development.qstile.DevelopmentTiles;
 import com.android.settings.development.storage.SharedDataPreferenceController;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settings.search.SearchIndexableDataCache;
 import com.android.settings.search.actionbar.SearchMenuController;
 import com.android.settings.widget.SettingsMainSwitchBar;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -398,6 +399,7 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
                     DisableDevSettingsDialogFragment.show(this /* host */);
                 }
             }
+            SearchIndexableDataCache.invalidate(getContext());
             FeatureFactory.getFeatureFactory().getSearchFeatureProvider()
                     .sendPreIndexIntent(getContext());
         }
@@ -40,6 +40,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.InstrumentedPreferenceFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.password.ChooseLockSettingsHelper;
+import com.android.settings.search.SearchIndexableDataCache;
 import com.android.settingslib.RestrictedLockUtils;
 import com.android.settingslib.RestrictedLockUtilsInternal;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
@@ -241,6 +242,7 @@ public class BuildNumberPreferenceController extends BasePreferenceController im
                 Toast.LENGTH_LONG);
         mDevHitToast.show();
 
+        SearchIndexableDataCache.invalidate(mContext);
         FeatureFactory.getFeatureFactory().getSearchFeatureProvider().sendPreIndexIntent(mContext);
     }
 
@@ -281,10 +281,16 @@ public class StorageCategoryFragment extends DashboardFragment
     public Loader<SparseArray<StorageAsyncLoader.StorageResult>> onCreateLoader(int id,
             Bundle args) {
         final Context context = getContext();
-        return new StorageAsyncLoader(context, mUserManager,
+        final StorageAsyncLoader loader = new StorageAsyncLoader(context, mUserManager,
                 mSelectedStorageEntry.getFsUuid(),
                 new StorageStatsSource(context),
                 context.getPackageManager());
+        loader.setOnUserResultLoadedListener((userId, result) -> {
+            if (mAppsResult == null) {
+                mPreferenceController.onUserResultLoaded(result, userId);
+            }
+        });
+        return loader;
     }
 
     @Override
@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.content.pm.UserInfo;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.provider.MediaStore;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.R;
+import com.android.settings.deviceinfo.storage.StorageAsyncLoader.StorageResult;
+import com.android.settingslib.applications.StorageStatsSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the per-user and per-category storage sizes of the internal storage in process, so the
+ * storage dashboard and the dump service don't rescan every category each time they are opened.
+ *
+ * <p>The sizes are read on demand and only the parts which changed since the last read are read
+ * again:
+ * <ul>
+ *     <li>The file categories of a user are queried again after a MediaStore change notification
+ *     of the user.
+ *     <li>The size of a package is queried again after it is added, updated, removed or its data
+ *     is cleared.
+ *     <li>The data and cache of the apps grow without any notification, so the sizes of all the
+ *     packages of a user are queried again once they are older than
+ *     {@link #APP_SIZES_MAX_AGE_MILLIS}.
+ *     <li>The external storage stats are a single quota query, they are read every time.
+ * </ul>
+ *
+ * <p>It's enabled by {@code R.bool.config_storage_incremental_accounting}.
+ */
+public class StorageAccounting {
+
+    private static final String TAG = "StorageAccounting";
+
+    @VisibleForTesting
+    static final long APP_SIZES_MAX_AGE_MILLIS = 60_000;
+
+    private static StorageAccounting sInstance;
+
+    private final Context mContext;
+    private final UserManager mUserManager;
+    private final PackageManager mPackageManager;
+    private final StorageStatsSource mStatsSource;
+    private final Object mLock = new Object();
+    // Serializes the updates, the sizes are read without holding mLock.
+    private final Object mUpdateLock = new Object();
+    // Key: user id, guarded by mLock.
+    private final SparseArray<UserAccount> mAccounts = new SparseArray<>();
+    // Guarded by mLock.
+    private long mSystemSize = -1;
+
+    /** Returns true if the storage sizes are kept by {@link StorageAccounting}. */
+    public static boolean isEnabled(Context context) {
+        return context.getResources().getBoolean(R.bool.config_storage_incremental_accounting);
+    }
+
+    /** Returns the instance, it starts to listen to the changes on the first call. */
+    public static synchronized StorageAccounting getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new StorageAccounting(appContext,
+                    appContext.getSystemService(UserManager.class),
+                    appContext.getPackageManager(), new StorageStatsSource(appContext));
+            sInstance.registerListeners();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    StorageAccounting(Context context, UserManager userManager, PackageManager packageManager,
+            StorageStatsSource statsSource) {
+        mContext = context;
+        mUserManager = userManager;
+        mPackageManager = packageManager;
+        mStatsSource = statsSource;
+    }
+
+    /**
+     * Returns the storage results of all users, the same as {@link StorageAsyncLoader} returns for
+     * the internal storage. Only the sizes changed since the last call are read.
+     */
+    @WorkerThread
+    public SparseArray<StorageResult> getStorageResults() {
+        final long startTime = SystemClock.elapsedRealtime();
+        final List<UserInfo> infos = mUserManager.getUsers();
+        // Sort the users by user id ascending, the duplicate code size depends on it.
+        infos.sort((userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
+
+        final SparseArray<StorageResult> results = new SparseArray<>();
+        synchronized (mUpdateLock) {
+            final List<PendingUpdate> updates = new ArrayList<>(infos.size());
+            final boolean loadSystemSize;
+            synchronized (mLock) {
+                removeStaleUsers(infos);
+                loadSystemSize = mSystemSize < 0;
+                for (UserInfo info : infos) {
+                    UserAccount account = mAccounts.get(info.id);
+                    if (account == null) {
+                        account = new UserAccount(info.id);
+                        mAccounts.put(info.id, account);
+                    }
+                    updates.add(account.takePendingUpdate());
+                }
+            }
+
+            // The sizes are read without holding mLock, so the change listeners aren't blocked by
+            // the IPC. The changes received in the meantime are read by the next update.
+            final long systemSize =
+                    loadSystemSize ? StorageAsyncLoader.getSystemSize(mStatsSource) : -1;
+            for (PendingUpdate update : updates) {
+                load(update);
+            }
+
+            synchronized (mLock) {
+                if (loadSystemSize) {
+                    mSystemSize = systemSize;
+                }
+                final ArraySet<String> seenPackages = new ArraySet<>();
+                for (PendingUpdate update : updates) {
+                    // The users are only removed by the updates, the account is still there.
+                    final UserAccount account = mAccounts.get(update.mUserId);
+                    account.apply(update);
+                    results.put(update.mUserId, account.getResult(mSystemSize, seenPackages));
+                }
+            }
+        }
+        Log.d(TAG, String.format("getStorageResults in %d/ms",
+                SystemClock.elapsedRealtime() - startTime));
+        return results;
+    }
+
+    @VisibleForTesting
+    void onMediaChanged(int userId) {
+        synchronized (mLock) {
+            if (userId == UserHandle.USER_ALL) {
+                for (int i = 0; i < mAccounts.size(); i++) {
+                    mAccounts.valueAt(i).mMediaChanged = true;
+                }
+                return;
+            }
+            final UserAccount account = mAccounts.get(userId);
+            if (account != null) {
+                account.mMediaChanged = true;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void onPackageChanged(int userId, String packageName) {
+        synchronized (mLock) {
+            for (int i = 0; i < mAccounts.size(); i++) {
+                final UserAccount account = mAccounts.valueAt(i);
+                if (userId == UserHandle.USER_ALL || account.mUserId == userId) {
+                    account.mChangedPackages.add(packageName);
+                }
+            }
+        }
+    }
+
+    private void registerListeners() {
+        final HandlerThread thread = new HandlerThread(TAG);
+        thread.start();
+        final Handler handler = new Handler(thread.getLooper());
+
+        mContext.getContentResolver().registerContentObserverAsUser(MediaStore.AUTHORITY_URI,
+                true /* notifyForDescendants */, new ContentObserver(handler) {
+                    @Override
+                    public void onChange(boolean selfChange, @NonNull Collection<Uri> uris,
+                            int flags, @NonNull UserHandle user) {
+                        onMediaChanged(user.getIdentifier());
+                    }
+                }, UserHandle.ALL);
+
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_DATA_CLEARED);
+        filter.addDataScheme("package");
+        mContext.registerReceiverForAllUsers(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                final Uri data = intent.getData();
+                if (data != null) {
+                    onPackageChanged(getSendingUserId(), data.getSchemeSpecificPart());
+                }
+            }
+        }, filter, null /* broadcastPermission */, handler);
+    }
+
+    private void removeStaleUsers(List<UserInfo> infos) {
+        for (int i = mAccounts.size() - 1; i >= 0; i--) {
+            final int userId = mAccounts.keyAt(i);
+            if (infos.stream().noneMatch(info -> info.id == userId)) {
+                mAccounts.removeAt(i);
+            }
+        }
+    }
+
+    private void load(PendingUpdate update) {
+        final UserHandle user = UserHandle.of(update.mUserId);
+        if (update.mLoadAllApps) {
+            for (ApplicationInfo app :
+                    mPackageManager.getInstalledApplicationsAsUser(0, update.mUserId)) {
+                loadApp(update, app, user);
+            }
+            update.mAppsLoadedTime = SystemClock.elapsedRealtime();
+        } else {
+            for (int i = 0; i < update.mChangedPackages.size(); i++) {
+                try {
+                    loadApp(update, mPackageManager.getApplicationInfoAsUser(
+                            update.mChangedPackages.valueAt(i), 0 /* flags */, update.mUserId),
+                            user);
+                } catch (NameNotFoundException e) {
+                    // The package is removed.
+                }
+            }
+        }
+
+        if (update.mLoadMedia) {
+            update.mMedia = new StorageResult();
+            StorageAsyncLoader.loadMediaSizes(mContext, update.mUserId, update.mMedia);
+        }
+
+        // It's a single quota query, cheap enough to be read every time.
+        try {
+            update.mExternalStats = mStatsSource.getExternalStorageStats(null /* volumeUuid */,
+                    user);
+        } catch (IOException e) {
+            Log.w(TAG, e);
+        }
+    }
+
+    private void loadApp(PendingUpdate update, ApplicationInfo app, UserHandle user) {
+        final StorageStatsSource.AppStorageStats stats;
+        try {
+            stats = mStatsSource.getStatsForPackage(null /* volumeUuid */, app.packageName, user);
+        } catch (NameNotFoundException | IOException e) {
+            // This may happen if the package was removed during our calculation.
+            Log.w(TAG, "App unexpectedly not found", e);
+            return;
+        }
+        update.mApps.put(app.packageName, new AppSize(StorageAsyncLoader.isGame(app),
+                StorageAsyncLoader.getBlamedSize(mStatsSource, null /* uuid */, app, stats),
+                stats.getCodeBytes()));
+    }
+
+    private static class AppSize {
+        final boolean mIsGame;
+        final long mBlamedSize;
+        final long mCodeBytes;
+
+        AppSize(boolean isGame, long blamedSize, long codeBytes) {
+            mIsGame = isGame;
+            mBlamedSize = blamedSize;
+            mCodeBytes = codeBytes;
+        }
+    }
+
+    /** The sizes of a user to read, and the sizes read outside of the lock. */
+    private static class PendingUpdate {
+        final int mUserId;
+        final boolean mLoadAllApps;
+        final ArraySet<String> mChangedPackages;
+        final boolean mLoadMedia;
+        // Key: package name. A changed package which is missing here is removed.
+        final ArrayMap<String, AppSize> mApps = new ArrayMap<>();
+        long mAppsLoadedTime = -1;
+        StorageResult mMedia;
+        StorageStatsSource.ExternalStorageStats mExternalStats;
+
+        PendingUpdate(int userId, boolean loadAllApps, ArraySet<String> changedPackages,
+                boolean loadMedia) {
+            mUserId = userId;
+            mLoadAllApps = loadAllApps;
+            mChangedPackages = changedPackages;
+            mLoadMedia = loadMedia;
+        }
+    }
+
+    private static class UserAccount {
+        final int mUserId;
+        // Key: package name.
+        final ArrayMap<String, AppSize> mApps = new ArrayMap<>();
+        final ArraySet<String> mChangedPackages = new ArraySet<>();
+        long mAppsLoadedTime = -1;
+        boolean mMediaChanged = true;
+        // Only the file category sizes are set.
+        StorageResult mMedia = new StorageResult();
+        StorageStatsSource.ExternalStorageStats mExternalStats;
+
+        UserAccount(int userId) {
+            mUserId = userId;
+        }
+
+        /** Returns the sizes to read, the changes are cleared until they are received again. */
+        PendingUpdate takePendingUpdate() {
+            final boolean loadAllApps = mAppsLoadedTime < 0
+                    || SystemClock.elapsedRealtime() - mAppsLoadedTime > APP_SIZES_MAX_AGE_MILLIS;
+            final PendingUpdate update = new PendingUpdate(mUserId, loadAllApps,
+                    loadAllApps ? new ArraySet<>() : new ArraySet<>(mChangedPackages),
+                    mMediaChanged);
+            mChangedPackages.clear();
+            mMediaChanged = false;
+            return update;
+        }
+
+        void apply(PendingUpdate update) {
+            if (update.mLoadAllApps) {
+                mApps.clear();
+                mAppsLoadedTime = update.mAppsLoadedTime;
+            } else {
+                for (int i = 0; i < update.mChangedPackages.size(); i++) {
+                    mApps.remove(update.mChangedPackages.valueAt(i));
+                }
+            }
+            mApps.putAll(update.mApps);
+            if (update.mMedia != null) {
+                mMedia = update.mMedia;
+            }
+            if (update.mExternalStats != null) {
+                mExternalStats = update.mExternalStats;
+            }
+        }
+
+        /**
+         * Returns a new result of the user, the code of the packages in seenPackages is counted
+         * as the duplicate code size.
+         */
+        StorageResult getResult(long systemSize, ArraySet<String> seenPackages) {
+            final StorageResult result = mMedia.copy();
+            result.systemSize = systemSize;
+            result.externalStats = mExternalStats;
+            for (int i = 0; i < mApps.size(); i++) {
+                final AppSize appSize = mApps.valueAt(i);
+                if (appSize.mIsGame) {
+                    result.gamesSize += appSize.mBlamedSize;
+                } else {
+                    result.allAppsExceptGamesSize += appSize.mBlamedSize;
+                }
+                if (!seenPackages.add(mApps.keyAt(i))) {
+                    result.duplicateCodeSize += appSize.mCodeBytes;
+                }
+            }
+            return result;
+        }
+    }
+}
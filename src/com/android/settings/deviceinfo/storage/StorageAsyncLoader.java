@@ -31,22 +31,35 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.os.storage.StorageManager;
 import android.provider.MediaStore;
 import android.provider.MediaStore.Files.FileColumns;
 import android.provider.MediaStore.MediaColumns;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
@@ -56,11 +69,17 @@ public class StorageAsyncLoader
         extends AsyncLoaderCompat<SparseArray<StorageAsyncLoader.StorageResult>> {
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
+    private static final int MAX_WORKER_COUNT = 4;
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+
+    // Shared by all the loaders, it's created on the first load of multiple users.
+    private static ThreadPoolExecutor sUserResultExecutor;
 
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
-    private ArraySet<String> mSeenPackages;
+    @Nullable
+    private volatile OnUserResultLoadedListener mOnUserResultLoadedListener;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
@@ -71,13 +90,24 @@ public class StorageAsyncLoader
         mPackageManager = pm;
     }
 
+    /**
+     * Sets a listener to be notified on the main thread once the result of each user is loaded,
+     * before the results of all users are delivered. The duplicate code size of the result is not
+     * counted yet.
+     */
+    public void setOnUserResultLoadedListener(@Nullable OnUserResultLoadedListener listener) {
+        mOnUserResultLoadedListener = listener;
+    }
+
     @Override
     public SparseArray<StorageResult> loadInBackground() {
+        if (mUuid == null && StorageAccounting.isEnabled(getContext())) {
+            return StorageAccounting.getInstance(getContext()).getStorageResults();
+        }
         return getStorageResultsForUsers();
     }
 
     private SparseArray<StorageResult> getStorageResultsForUsers() {
-        mSeenPackages = new ArraySet<>();
         final SparseArray<StorageResult> results = new SparseArray<>();
         final List<UserInfo> infos = mUserManager.getUsers();
 
@@ -85,61 +115,249 @@ public class StorageAsyncLoader
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
-        for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-            final Bundle media = new Bundle();
-            media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
-                    + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.systemSize = getSystemSize();
-
-            final Bundle documentsQueryArgs = new Bundle();
-            documentsQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "=" + FileColumns.MEDIA_TYPE_DOCUMENT);
-            result.documentsSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    documentsQueryArgs);
-
-            final Bundle otherQueryArgs = new Bundle();
-            otherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                            + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                            + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                            + " AND " + FileColumns.MEDIA_TYPE + "!="
-                            + FileColumns.MEDIA_TYPE_DOCUMENT
-                            + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.otherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    otherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    trashQueryArgs);
-
-            results.put(info.id, result);
+        final List<ArrayMap<String, Long>> codeBytesOfUsers = new ArrayList<>(infos.size());
+        final List<StorageResult> userResults = infos.size() > 1
+                ? getStorageResultsInParallel(infos, codeBytesOfUsers)
+                : getStorageResultsSerially(infos, codeBytesOfUsers);
+
+        // Code bytes may share between different profiles. To know all the duplicate code size
+        // and we can get a reasonable system size in StorageItemPreferenceController. The users
+        // are loaded concurrently, so it's counted afterwards in the order of the user id.
+        final ArraySet<String> seenPackages = new ArraySet<>();
+        for (int i = 0; i < infos.size(); i++) {
+            final StorageResult result = userResults.get(i);
+            final ArrayMap<String, Long> codeBytes = codeBytesOfUsers.get(i);
+            for (int j = 0; j < codeBytes.size(); j++) {
+                if (!seenPackages.add(codeBytes.keyAt(j))) {
+                    result.duplicateCodeSize += codeBytes.valueAt(j);
+                }
+            }
+            results.put(infos.get(i).id, result);
         }
         return results;
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
-        final Context perUserContext;
+    private List<StorageResult> getStorageResultsSerially(List<UserInfo> infos,
+            List<ArrayMap<String, Long>> codeBytesOfUsers) {
+        final List<StorageResult> userResults = new ArrayList<>(infos.size());
+        for (UserInfo info : infos) {
+            final ArrayMap<String, Long> codeBytes = new ArrayMap<>();
+            userResults.add(getStorageResultForUser(info.id, codeBytes));
+            codeBytesOfUsers.add(codeBytes);
+        }
+        return userResults;
+    }
+
+    /**
+     * Loads each user in a bounded worker pool shared by all the loaders, the results are
+     * returned in the order of the users.
+     */
+    private List<StorageResult> getStorageResultsInParallel(List<UserInfo> infos,
+            List<ArrayMap<String, Long>> codeBytesOfUsers) {
+        final ExecutorService executor = getUserResultExecutor();
+        final List<Future<StorageResult>> futures = new ArrayList<>(infos.size());
+        try {
+            for (UserInfo info : infos) {
+                final ArrayMap<String, Long> codeBytes = new ArrayMap<>();
+                codeBytesOfUsers.add(codeBytes);
+                futures.add(executor.submit(() -> getStorageResultForUser(info.id, codeBytes)));
+            }
+            final List<StorageResult> userResults = new ArrayList<>(infos.size());
+            for (Future<StorageResult> future : futures) {
+                userResults.add(future.get());
+            }
+            return userResults;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading storage results", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // The pool is shared, only the users of this load are cancelled.
+            for (Future<StorageResult> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor getUserResultExecutor() {
+        if (sUserResultExecutor == null) {
+            sUserResultExecutor = new ThreadPoolExecutor(MAX_WORKER_COUNT, MAX_WORKER_COUNT,
+                    WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            sUserResultExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sUserResultExecutor;
+    }
+
+    private StorageResult getStorageResultForUser(int userId, ArrayMap<String, Long> codeBytes) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final StorageResult result = getAppsAndGamesSize(userId, codeBytes);
+        result.systemSize = getSystemSize(mStatsManager);
+        loadMediaSizes(getContext(), userId, result);
+        Log.d(TAG, String.format("Load storage result of user %d in %d/ms", userId,
+                SystemClock.elapsedRealtime() - startTime));
+
+        final OnUserResultLoadedListener listener = mOnUserResultLoadedListener;
+        if (listener != null) {
+            final StorageResult copy = result.copy();
+            ThreadUtils.postOnMainThread(() -> {
+                if (isStarted() && !isAbandoned()) {
+                    listener.onUserResultLoaded(userId, copy);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Loads the sizes of all the file categories and the trash of the user into the result.
+     */
+    static void loadMediaSizes(Context context, int userId, StorageResult result) {
+        final Context perUserContext = getPerUserContext(context, userId);
+        if (perUserContext == null) {
+            return;
+        }
+        if (!loadGroupedMediaSizes(perUserContext, userId, result)) {
+            loadMediaSizesByCategory(perUserContext, result);
+        }
+    }
+
+    /**
+     * Loads the sizes of all the file categories and the trash with a single query grouped by
+     * the media type and the trashed state.
+     *
+     * @return false if the query is not supported or the grouping is not honored, the sizes
+     * should be loaded by {@link #loadMediaSizesByCategory} instead.
+     */
+    private static boolean loadGroupedMediaSizes(Context perUserContext, int userId,
+            StorageResult result) {
+
+        final Bundle queryArgs = new Bundle();
+        // Trashed files are counted regardless of the mime type, the same as the trash size
+        // which is queried without any selection.
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                MediaColumns.IS_TRASHED + "=1 OR " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_GROUP_BY,
+                FileColumns.MEDIA_TYPE + "," + MediaColumns.IS_TRASHED);
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_INCLUDE);
+        try (Cursor cursor = perUserContext.getContentResolver().query(
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                new String[] {FileColumns.MEDIA_TYPE, MediaColumns.IS_TRASHED,
+                        "sum(" + MediaColumns.SIZE + ")",
+                        "count(DISTINCT " + FileColumns.MEDIA_TYPE + ")",
+                        "count(DISTINCT " + MediaColumns.IS_TRASHED + ")"},
+                queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor == null) {
+                return false;
+            }
+            if (!addMediaSizes(result, cursor)) {
+                Log.w(TAG, "Media sizes are not grouped for user ID " + userId);
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to query grouped media sizes for user ID " + userId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Adds the sizes of the rows with media type, trashed state, size and the distinct count of
+     * the media types and the trashed states to the result.
+     *
+     * @return false if a row has more than one media type or trashed state, i.e. the rows are
+     * not grouped, nothing is added to the result in this case.
+     */
+    @VisibleForTesting
+    static boolean addMediaSizes(StorageResult result, Cursor cursor) {
+        while (cursor.moveToNext()) {
+            if (cursor.getInt(3) > 1 || cursor.getInt(4) > 1) {
+                return false;
+            }
+        }
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            final long size = cursor.getLong(2);
+            if (cursor.getInt(1) != 0) {
+                result.trashSize += size;
+                continue;
+            }
+            switch (cursor.getInt(0)) {
+                case FileColumns.MEDIA_TYPE_IMAGE:
+                    result.imagesSize += size;
+                    break;
+                case FileColumns.MEDIA_TYPE_VIDEO:
+                    result.videosSize += size;
+                    break;
+                case FileColumns.MEDIA_TYPE_AUDIO:
+                    result.audioSize += size;
+                    break;
+                case FileColumns.MEDIA_TYPE_DOCUMENT:
+                    result.documentsSize += size;
+                    break;
+                default:
+                    result.otherSize += size;
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private static void loadMediaSizesByCategory(Context perUserContext, StorageResult result) {
+        final Bundle media = new Bundle();
+        media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
+                + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
+        result.imagesSize = getFilesSize(perUserContext,
+                MediaStore.Images.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.videosSize = getFilesSize(perUserContext,
+                MediaStore.Video.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.audioSize = getFilesSize(perUserContext,
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+
+        final Bundle documentsQueryArgs = new Bundle();
+        documentsQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "=" + FileColumns.MEDIA_TYPE_DOCUMENT);
+        result.documentsSize = getFilesSize(perUserContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                documentsQueryArgs);
+
+        final Bundle otherQueryArgs = new Bundle();
+        otherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
+                        + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
+                        + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
+                        + " AND " + FileColumns.MEDIA_TYPE + "!="
+                        + FileColumns.MEDIA_TYPE_DOCUMENT
+                        + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        result.otherSize = getFilesSize(perUserContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                otherQueryArgs);
+
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = getFilesSize(perUserContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                trashQueryArgs);
+    }
+
+    @Nullable
+    private static Context getPerUserContext(Context context, int userId) {
         try {
-            perUserContext = getContext().createPackageContextAsUser(
-                getContext().getApplicationContext().getPackageName(),
+            return context.createPackageContextAsUser(
+                context.getApplicationContext().getPackageName(),
                 0 /* flags= */,
                 UserHandle.of(userId));
         } catch (NameNotFoundException e) {
             Log.e(TAG, "Not able to get Context for user ID " + userId);
-            return 0L;
+            return null;
         }
+    }
 
+    private static long getFilesSize(Context perUserContext, Uri uri, Bundle queryArgs) {
         try (Cursor cursor = perUserContext.getContentResolver().query(
                 uri,
                 new String[] {"sum(" + MediaColumns.SIZE + ")"},
@@ -152,9 +370,9 @@ public class StorageAsyncLoader
         }
     }
 
-    private long getSystemSize() {
+    static long getSystemSize(StorageStatsSource source) {
         try {
-            return mStatsManager.getTotalBytes(StorageManager.UUID_DEFAULT)
+            return source.getTotalBytes(StorageManager.UUID_DEFAULT)
                     - Environment.getDataDirectory().getTotalSpace();
         } catch (IOException e) {
             Log.e(TAG, "Exception in calculating System category size", e);
@@ -162,7 +380,7 @@ public class StorageAsyncLoader
         }
     }
 
-    private StorageResult getAppsAndGamesSize(int userId) {
+    private StorageResult getAppsAndGamesSize(int userId, ArrayMap<String, Long> codeBytes) {
         Log.d(TAG, "Loading apps");
         final List<ApplicationInfo> applicationInfos =
                 mPackageManager.getInstalledApplicationsAsUser(0, userId);
@@ -180,43 +398,15 @@ public class StorageAsyncLoader
                 continue;
             }
 
-            final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
-            final long cacheBytes = stats.getCacheBytes();
-            long blamedSize = dataSize + stats.getCodeBytes();
-            // Technically, we could overages as freeable on the storage settings screen.
-            // If the app is using more cache than its quota, we would accidentally subtract the
-            // overage from the system size (because it shows up as unused) during our attribution.
-            // Thus, we cap the attribution at the quota size.
-            if (cacheQuota < cacheBytes) {
-                blamedSize = blamedSize - cacheBytes + cacheQuota;
-            }
+            final long blamedSize = getBlamedSize(mStatsManager, mUuid, app, stats);
 
-            // Code bytes may share between different profiles. To know all the duplicate code size
-            // and we can get a reasonable system size in StorageItemPreferenceController.
-            if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
-            } else {
-                mSeenPackages.add(app.packageName);
-            }
+            // The duplicate code size is counted in getStorageResultsForUsers.
+            codeBytes.put(app.packageName, stats.getCodeBytes());
 
-            switch (app.category) {
-                case CATEGORY_GAME:
-                    result.gamesSize += blamedSize;
-                    break;
-                case CATEGORY_AUDIO:
-                case CATEGORY_VIDEO:
-                case CATEGORY_IMAGE:
-                    result.allAppsExceptGamesSize += blamedSize;
-                    break;
-                default:
-                    // The deprecated game flag does not set the category.
-                    if ((app.flags & ApplicationInfo.FLAG_IS_GAME) != 0) {
-                        result.gamesSize += blamedSize;
-                        break;
-                    }
-                    result.allAppsExceptGamesSize += blamedSize;
-                    break;
+            if (isGame(app)) {
+                result.gamesSize += blamedSize;
+            } else {
+                result.allAppsExceptGamesSize += blamedSize;
             }
         }
 
@@ -231,6 +421,41 @@ public class StorageAsyncLoader
         return result;
     }
 
+    /**
+     * Returns the size blamed on the app, which is its data and code size with the cache capped at
+     * the cache quota.
+     */
+    static long getBlamedSize(StorageStatsSource source, String uuid, ApplicationInfo app,
+            StorageStatsSource.AppStorageStats stats) {
+        final long dataSize = stats.getDataBytes();
+        final long cacheQuota = source.getCacheQuotaBytes(uuid, app.uid);
+        final long cacheBytes = stats.getCacheBytes();
+        long blamedSize = dataSize + stats.getCodeBytes();
+        // Technically, we could overages as freeable on the storage settings screen.
+        // If the app is using more cache than its quota, we would accidentally subtract the
+        // overage from the system size (because it shows up as unused) during our attribution.
+        // Thus, we cap the attribution at the quota size.
+        if (cacheQuota < cacheBytes) {
+            blamedSize = blamedSize - cacheBytes + cacheQuota;
+        }
+        return blamedSize;
+    }
+
+    /** Returns true if the app is counted in the games category. */
+    static boolean isGame(ApplicationInfo app) {
+        switch (app.category) {
+            case CATEGORY_GAME:
+                return true;
+            case CATEGORY_AUDIO:
+            case CATEGORY_VIDEO:
+            case CATEGORY_IMAGE:
+                return false;
+            default:
+                // The deprecated game flag does not set the category.
+                return (app.flags & ApplicationInfo.FLAG_IS_GAME) != 0;
+        }
+    }
+
     @Override
     protected void onDiscardResult(SparseArray<StorageResult> result) {
     }
@@ -253,6 +478,29 @@ public class StorageAsyncLoader
         public long cacheSize;
         public long duplicateCodeSize;
         public StorageStatsSource.ExternalStorageStats externalStats;
+
+        StorageResult copy() {
+            final StorageResult result = new StorageResult();
+            result.gamesSize = gamesSize;
+            result.allAppsExceptGamesSize = allAppsExceptGamesSize;
+            result.audioSize = audioSize;
+            result.imagesSize = imagesSize;
+            result.videosSize = videosSize;
+            result.documentsSize = documentsSize;
+            result.otherSize = otherSize;
+            result.trashSize = trashSize;
+            result.systemSize = systemSize;
+            result.cacheSize = cacheSize;
+            result.duplicateCodeSize = duplicateCodeSize;
+            result.externalStats = externalStats;
+            return result;
+        }
+    }
+
+    /** Listener of the result of a single user, see {@link #setOnUserResultLoadedListener}. */
+    public interface OnUserResultLoadedListener {
+        /** Called on the main thread once the result of the user is loaded. */
+        void onUserResultLoaded(int userId, StorageResult result);
     }
 
     /**
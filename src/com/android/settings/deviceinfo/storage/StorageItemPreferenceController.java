@@ -478,6 +478,28 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         setPrivateStorageCategoryPreferencesVisibility(true);
     }
 
+    /**
+     * Updates the sizes of the file and app categories of the user as soon as its result is
+     * loaded by {@link StorageAsyncLoader}, before the results of all users are delivered to
+     * {@link #onLoadFinished}. It only applies when the sizes are already shown from the cache,
+     * the system and temporary files sizes depend on all users and are left unchanged.
+     */
+    public void onUserResultLoaded(StorageAsyncLoader.StorageResult result, int userId) {
+        if (userId != mUserId || mImagesPreference == null || !mIsPreferenceOrderedBySize) {
+            return;
+        }
+        mImagesPreference.setStorageSize(result.imagesSize, mTotalSize, false /* animate */);
+        mVideosPreference.setStorageSize(result.videosSize, mTotalSize, false /* animate */);
+        mAudioPreference.setStorageSize(result.audioSize, mTotalSize, false /* animate */);
+        mAppsPreference.setStorageSize(result.allAppsExceptGamesSize, mTotalSize,
+                false /* animate */);
+        mGamesPreference.setStorageSize(result.gamesSize, mTotalSize, false /* animate */);
+        mDocumentsPreference.setStorageSize(result.documentsSize, mTotalSize,
+                false /* animate */);
+        mOtherPreference.setStorageSize(result.otherSize, mTotalSize, false /* animate */);
+        mTrashPreference.setStorageSize(result.trashSize, mTotalSize, false /* animate */);
+    }
+
     private StorageCacheHelper.StorageCache getSizeInfo(
             SparseArray<StorageAsyncLoader.StorageResult> result, int userId) {
         if (result == null) {
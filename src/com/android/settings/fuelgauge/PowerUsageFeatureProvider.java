@@ -47,6 +47,9 @@ public interface PowerUsageFeatureProvider {
     /** Check whether to log the optimization mode of app entry in period job */
     boolean isAppOptimizationModeLogged();
 
+    /** Check whether to store battery usage slots into the columnar tables */
+    boolean isBatteryUsageSlotColumnarStorageEnabled();
+
     /**
      * Returns a threshold (in milliseconds) for the minimal screen on time in battery usage list
      */
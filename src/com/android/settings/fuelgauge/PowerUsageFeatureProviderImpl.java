@@ -93,6 +93,11 @@ public class PowerUsageFeatureProviderImpl implements PowerUsageFeatureProvider
         return false;
     }
 
+    @Override
+    public boolean isBatteryUsageSlotColumnarStorageEnabled() {
+        return false;
+    }
+
     @Override
     public double getBatteryUsageListScreenOnTimeThresholdInMs() {
         return 0;
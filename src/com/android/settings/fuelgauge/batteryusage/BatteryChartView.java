@@ -30,7 +30,9 @@ import android.graphics.Color;
 import android.graphics.CornerPathEffect;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.RecordingCanvas;
 import android.graphics.Rect;
+import android.graphics.RenderNode;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.util.ArraySet;
@@ -105,6 +107,11 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private Paint mTextPaint;
     private AccessibilityNodeProvider mAccessibilityNodeProvider;
     private BatteryChartView.OnSelectListener mOnSelectListener;
+    // Caches the dividers, percentages and axis labels, which are not changed by the selection.
+    private RenderNode mStaticLayerNode;
+    private boolean mIsStaticLayerValid;
+    // Caches the trapezoid shapes, only the paint color is changed by the selection or hover.
+    private Path[] mTrapezoidPaths;
 
     @VisibleForTesting TrapezoidSlot[] mTrapezoidSlots;
     // Records the location to calculate selected index.
@@ -127,6 +134,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     public void setViewModel(BatteryChartViewModel viewModel) {
         if (viewModel == null) {
             mViewModel = null;
+            invalidateRenderCache();
             invalidate();
             return;
         }
@@ -138,11 +146,17 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                         viewModel.size(),
                         viewModel.selectedIndex(),
                         viewModel.getHighlightSlotIndex()));
-        mViewModel = viewModel;
-        initializeAxisLabelsBounds();
-        initializeTrapezoidSlots(viewModel.size() - 1);
+        // Only the selected or highlight index is changed for the same view model, so the cached
+        // trapezoid slots and static layer are still valid.
+        if (mViewModel != viewModel) {
+            mViewModel = viewModel;
+            initializeAxisLabelsBounds();
+            initializeTrapezoidSlots(viewModel.size() - 1);
+            invalidateRenderCache();
+        }
         setClickable(hasAnyValidTrapezoid(viewModel));
         requestLayout();
+        invalidate();
     }
 
     /** Sets the callback to monitor the selected group index. */
@@ -160,12 +174,14 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mTextPaint = null;
         }
+        invalidateRenderCache();
         requestLayout();
     }
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        final Rect previousIndent = new Rect(mIndent);
         // Measures text bounds and updates indent configuration.
         if (mTextPaint != null) {
             mTextPaint.setTextAlign(Paint.Align.LEFT);
@@ -198,18 +214,40 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mIndent.set(0, 0, 0, 0);
         }
+        if (!mIndent.equals(previousIndent)) {
+            invalidateRenderCache();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        invalidateRenderCache();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mStaticLayerNode != null) {
+            mStaticLayerNode.discardDisplayList();
+        }
+        mIsStaticLayerValid = false;
     }
 
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
-        // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
-        // horizontal percentages and dividers.
-        drawHorizontalDividers(canvas);
+        if (canvas.isHardwareAccelerated()) {
+            if (!mIsStaticLayerValid) {
+                recordStaticLayer();
+            }
+            canvas.drawRenderNode(mStaticLayerNode);
+        } else {
+            drawStaticLayer(canvas);
+        }
         if (mViewModel == null) {
             return;
         }
-        drawVerticalDividers(canvas);
         drawTrapezoids(canvas);
         drawTransomLine(canvas);
     }
@@ -321,6 +359,34 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
+    private void invalidateRenderCache() {
+        mIsStaticLayerValid = false;
+        mTrapezoidPaths = null;
+    }
+
+    private void recordStaticLayer() {
+        if (mStaticLayerNode == null) {
+            mStaticLayerNode = new RenderNode(TAG);
+        }
+        mStaticLayerNode.setPosition(0, 0, getWidth(), getHeight());
+        final RecordingCanvas recordingCanvas = mStaticLayerNode.beginRecording();
+        try {
+            drawStaticLayer(recordingCanvas);
+        } finally {
+            mStaticLayerNode.endRecording();
+        }
+        mIsStaticLayerValid = true;
+    }
+
+    private void drawStaticLayer(Canvas canvas) {
+        // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
+        // horizontal percentages and dividers.
+        drawHorizontalDividers(canvas);
+        if (mViewModel != null) {
+            drawVerticalDividers(canvas);
+        }
+    }
+
     private void initializeTrapezoidSlots(int count) {
         mTrapezoidSlots = new TrapezoidSlot[count];
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
@@ -611,9 +677,11 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         final float availableSpace =
                 trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
         final float unitHeight = availableSpace / 100f;
+        final boolean isTrapezoidPathsCached = mTrapezoidPaths != null;
+        if (!isTrapezoidPathsCached) {
+            mTrapezoidPaths = new Path[mTrapezoidSlots.length];
+        }
         // Draws all trapezoid shapes into the canvas.
-        final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
@@ -629,34 +697,38 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             final boolean isHoverState =
                     mHoveredIndex == index && isValidToDraw(mViewModel, mHoveredIndex);
             mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
-
-            float leftTop =
-                    round(
-                            trapezoidBottom
-                                    - requireNonNull(mViewModel.getLevel(index)) * unitHeight);
-            float rightTop =
-                    round(
-                            trapezoidBottom
-                                    - requireNonNull(mViewModel.getLevel(index + 1)) * unitHeight);
-            // Mirror the shape of the trapezoid for RTL
-            if (isRTL()) {
-                float temp = leftTop;
-                leftTop = rightTop;
-                rightTop = temp;
+            if (!isTrapezoidPathsCached) {
+                mTrapezoidPaths[index] = createTrapezoidPath(index, trapezoidBottom, unitHeight);
             }
-            trapezoidPath.reset();
-            trapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, trapezoidBottom);
-            // A tricky way to make the trapezoid shape drawing the rounded corner.
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
             // Draws the trapezoid shape into canvas.
-            canvas.drawPath(trapezoidPath, mTrapezoidPaint);
+            canvas.drawPath(mTrapezoidPaths[index], mTrapezoidPaint);
         }
     }
 
+    private Path createTrapezoidPath(int index, float trapezoidBottom, float unitHeight) {
+        float leftTop =
+                round(trapezoidBottom - requireNonNull(mViewModel.getLevel(index)) * unitHeight);
+        float rightTop =
+                round(
+                        trapezoidBottom
+                                - requireNonNull(mViewModel.getLevel(index + 1)) * unitHeight);
+        // Mirror the shape of the trapezoid for RTL
+        if (isRTL()) {
+            float temp = leftTop;
+            leftTop = rightTop;
+            rightTop = temp;
+        }
+        final Path trapezoidPath = new Path();
+        trapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
+        trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
+        trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
+        trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, trapezoidBottom);
+        // A tricky way to make the trapezoid shape drawing the rounded corner.
+        trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
+        trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
+        return trapezoidPath;
+    }
+
     private boolean isHighlightSlotValid() {
         return mViewModel != null
                 && mViewModel.getHighlightSlotIndex()
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A memoization cache for the battery usage pipeline, so reloading the battery usage page only
+ * needs to recompute the latest still-open hourly slot.
+ *
+ * <p>Finished hourly slots are persisted as {@link BatteryUsageSlot} rows by the periodic job and
+ * never change afterwards, so their converted {@link BatteryDiffData} is kept keyed by the slot
+ * start timestamp. The accumulated daily and all-time {@link BatteryDiffData} are kept together
+ * with the hourly inputs they are accumulated from and reused when the same inputs come again.
+ */
+final class BatteryDiffDataCache {
+    private static final String TAG = "BatteryDiffDataCache";
+
+    private static final Object sHourlyCacheLock = new Object();
+    private static final Object sAccumulatedCacheLock = new Object();
+
+    // Caches the converted hourly BatteryDiffData keyed by the slot start timestamp.
+    @VisibleForTesting
+    @GuardedBy("sHourlyCacheLock")
+    static final Map<Long, HourlyCacheEntry> sHourlyCache = new ArrayMap<>();
+
+    // Caches the accumulated BatteryDiffData keyed by the daily start timestamp, or
+    // SELECTED_INDEX_ALL for the all-time usage data.
+    @VisibleForTesting
+    @GuardedBy("sAccumulatedCacheLock")
+    static final Map<Long, AccumulatedCacheEntry> sAccumulatedCache = new ArrayMap<>();
+
+    private BatteryDiffDataCache() {}
+
+    /**
+     * Converts the persisted {@link BatteryUsageSlot} list into {@link BatteryDiffData} keyed by
+     * the slot start timestamp, reusing the cached result of a slot if it is not changed.
+     */
+    static Map<Long, BatteryDiffData> convertToBatteryDiffDataMap(
+            Context context,
+            final List<BatteryUsageSlot> batteryUsageSlotList,
+            final @NonNull Set<String> systemAppsPackageNames,
+            final @NonNull Set<Integer> systemAppsUids) {
+        final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
+        if (batteryUsageSlotList.isEmpty()) {
+            return batteryDiffDataMap;
+        }
+        final Map<Long, HourlyCacheEntry> hourlyCache = new ArrayMap<>();
+        int cachedSize = 0;
+        synchronized (sHourlyCacheLock) {
+            for (BatteryUsageSlot batteryUsageSlot : batteryUsageSlotList) {
+                final long startTimestamp = batteryUsageSlot.getStartTimestamp();
+                HourlyCacheEntry cacheEntry = sHourlyCache.get(startTimestamp);
+                if (cacheEntry != null
+                        && cacheEntry.isValid(
+                                batteryUsageSlot, systemAppsPackageNames, systemAppsUids)) {
+                    cachedSize++;
+                } else {
+                    cacheEntry =
+                            new HourlyCacheEntry(
+                                    batteryUsageSlot,
+                                    systemAppsPackageNames,
+                                    systemAppsUids,
+                                    ConvertUtils.convertToBatteryDiffData(
+                                            context,
+                                            batteryUsageSlot,
+                                            systemAppsPackageNames,
+                                            systemAppsUids));
+                }
+                hourlyCache.put(startTimestamp, cacheEntry);
+                batteryDiffDataMap.put(startTimestamp, cacheEntry.mBatteryDiffData);
+            }
+            // Only keeps the slots in the latest loaded time range.
+            sHourlyCache.clear();
+            sHourlyCache.putAll(hourlyCache);
+        }
+        Log.d(
+                TAG,
+                String.format(
+                        "convertToBatteryDiffDataMap() size=%d cached=%d",
+                        batteryUsageSlotList.size(), cachedSize));
+        return batteryDiffDataMap;
+    }
+
+    /**
+     * Gets the accumulated {@link BatteryDiffData} of the input list, reusing the cached result if
+     * the input list contains the same {@link BatteryDiffData} instances as the cached one.
+     */
+    @Nullable
+    static BatteryDiffData getAccumulatedUsageDiffData(
+            final long key,
+            final List<BatteryDiffData> batteryDiffDataList,
+            final Function<List<BatteryDiffData>, BatteryDiffData> accumulator) {
+        synchronized (sAccumulatedCacheLock) {
+            final AccumulatedCacheEntry cacheEntry = sAccumulatedCache.get(key);
+            if (cacheEntry != null && cacheEntry.isValid(batteryDiffDataList)) {
+                return cacheEntry.mBatteryDiffData;
+            }
+        }
+        final List<BatteryDiffData> inputList = new ArrayList<>(batteryDiffDataList);
+        final BatteryDiffData accumulatedData = accumulator.apply(inputList);
+        synchronized (sAccumulatedCacheLock) {
+            sAccumulatedCache.put(key, new AccumulatedCacheEntry(inputList, accumulatedData));
+        }
+        return accumulatedData;
+    }
+
+    /** Removes the accumulated cache entries whose key is not in the key set. */
+    static void retainAccumulatedKeys(final Set<Long> keySet) {
+        synchronized (sAccumulatedCacheLock) {
+            sAccumulatedCache.keySet().retainAll(keySet);
+        }
+    }
+
+    /** Clears all cached data, e.g. when the battery usage database is changed. */
+    static void clearCache() {
+        synchronized (sHourlyCacheLock) {
+            sHourlyCache.clear();
+        }
+        synchronized (sAccumulatedCacheLock) {
+            sAccumulatedCache.clear();
+        }
+    }
+
+    @VisibleForTesting
+    static final class HourlyCacheEntry {
+        private final BatteryUsageSlot mBatteryUsageSlot;
+        private final Set<String> mSystemAppsPackageNames;
+        private final Set<Integer> mSystemAppsUids;
+        final BatteryDiffData mBatteryDiffData;
+
+        HourlyCacheEntry(
+                final BatteryUsageSlot batteryUsageSlot,
+                final Set<String> systemAppsPackageNames,
+                final Set<Integer> systemAppsUids,
+                final BatteryDiffData batteryDiffData) {
+            mBatteryUsageSlot = batteryUsageSlot;
+            mSystemAppsPackageNames = systemAppsPackageNames;
+            mSystemAppsUids = systemAppsUids;
+            mBatteryDiffData = batteryDiffData;
+        }
+
+        boolean isValid(
+                final BatteryUsageSlot batteryUsageSlot,
+                final Set<String> systemAppsPackageNames,
+                final Set<Integer> systemAppsUids) {
+            return mBatteryUsageSlot.equals(batteryUsageSlot)
+                    && mSystemAppsPackageNames.equals(systemAppsPackageNames)
+                    && mSystemAppsUids.equals(systemAppsUids);
+        }
+    }
+
+    @VisibleForTesting
+    static final class AccumulatedCacheEntry {
+        private final List<BatteryDiffData> mInputList;
+        final BatteryDiffData mBatteryDiffData;
+
+        AccumulatedCacheEntry(
+                final List<BatteryDiffData> inputList, final BatteryDiffData batteryDiffData) {
+            mInputList = inputList;
+            mBatteryDiffData = batteryDiffData;
+        }
+
+        boolean isValid(final List<BatteryDiffData> batteryDiffDataList) {
+            if (mInputList.size() != batteryDiffDataList.size()) {
+                return false;
+            }
+            for (int index = 0; index < mInputList.size(); index++) {
+                if (mInputList.get(index) != batteryDiffDataList.get(index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -17,7 +17,10 @@
 package com.android.settings.fuelgauge.batteryusage;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.net.Uri;
@@ -35,8 +38,12 @@ import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageColumnarDao;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageDiffEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageNameEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotHeaderEntity;
 import com.android.settingslib.fuelgauge.BatteryUtils;
 
 import java.time.Clock;
@@ -44,6 +51,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 /** {@link ContentProvider} class to fetch battery usage data. */
 public class BatteryUsageContentProvider extends ContentProvider {
@@ -61,6 +69,8 @@ public class BatteryUsageContentProvider extends ContentProvider {
     private static final int LAST_FULL_CHARGE_TIMESTAMP_CODE = 5;
     private static final int BATTERY_STATE_LATEST_TIMESTAMP_CODE = 6;
     private static final int BATTERY_USAGE_SLOT_CODE = 7;
+    private static final int BATTERY_USAGE_SLOT_HEADER_CODE = 8;
+    private static final int BATTERY_USAGE_DIFF_CODE = 9;
 
     private static final List<Integer> ALL_BATTERY_EVENT_TYPES =
             Arrays.stream(BatteryEventType.values()).map(type -> type.getNumber()).toList();
@@ -95,13 +105,23 @@ public class BatteryUsageContentProvider extends ContentProvider {
                 DatabaseUtils.AUTHORITY,
                 /* path= */ DatabaseUtils.BATTERY_USAGE_SLOT_TABLE,
                 /* code= */ BATTERY_USAGE_SLOT_CODE);
+        sUriMatcher.addURI(
+                DatabaseUtils.AUTHORITY,
+                /* path= */ DatabaseUtils.BATTERY_USAGE_SLOT_HEADER_TABLE,
+                /* code= */ BATTERY_USAGE_SLOT_HEADER_CODE);
+        sUriMatcher.addURI(
+                DatabaseUtils.AUTHORITY,
+                /* path= */ DatabaseUtils.BATTERY_USAGE_DIFF_TABLE,
+                /* code= */ BATTERY_USAGE_DIFF_CODE);
     }
 
     private Clock mClock;
+    private BatteryStateDatabase mDatabase;
     private BatteryStateDao mBatteryStateDao;
     private AppUsageEventDao mAppUsageEventDao;
     private BatteryEventDao mBatteryEventDao;
     private BatteryUsageSlotDao mBatteryUsageSlotDao;
+    private BatteryUsageColumnarDao mBatteryUsageColumnarDao;
 
     @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
     public void setClock(Clock clock) {
@@ -115,11 +135,12 @@ public class BatteryUsageContentProvider extends ContentProvider {
             return false;
         }
         mClock = Clock.systemUTC();
-        final BatteryStateDatabase database = BatteryStateDatabase.getInstance(getContext());
-        mBatteryStateDao = database.batteryStateDao();
-        mAppUsageEventDao = database.appUsageEventDao();
-        mBatteryEventDao = database.batteryEventDao();
-        mBatteryUsageSlotDao = database.batteryUsageSlotDao();
+        mDatabase = BatteryStateDatabase.getInstance(getContext());
+        mBatteryStateDao = mDatabase.batteryStateDao();
+        mAppUsageEventDao = mDatabase.appUsageEventDao();
+        mBatteryEventDao = mDatabase.batteryEventDao();
+        mBatteryUsageSlotDao = mDatabase.batteryUsageSlotDao();
+        mBatteryUsageColumnarDao = mDatabase.batteryUsageColumnarDao();
         Log.w(TAG, "create content provider from " + getCallingPackage());
         return true;
     }
@@ -147,6 +168,8 @@ public class BatteryUsageContentProvider extends ContentProvider {
                 return getBatteryStateLatestTimestamp(uri);
             case BATTERY_USAGE_SLOT_CODE:
                 return getBatteryUsageSlots(uri);
+            case BATTERY_USAGE_SLOT_HEADER_CODE:
+                return getColumnarBatteryUsageSlots(uri);
             default:
                 throw new IllegalArgumentException("unknown URI: " + uri);
         }
@@ -162,22 +185,7 @@ public class BatteryUsageContentProvider extends ContentProvider {
     @Override
     public Uri insert(@NonNull Uri uri, @Nullable ContentValues contentValues) {
         try {
-            switch (sUriMatcher.match(uri)) {
-                case BATTERY_STATE_CODE:
-                    mBatteryStateDao.insert(BatteryState.create(contentValues));
-                    break;
-                case APP_USAGE_EVENT_CODE:
-                    mAppUsageEventDao.insert(AppUsageEventEntity.create(contentValues));
-                    break;
-                case BATTERY_EVENT_CODE:
-                    mBatteryEventDao.insert(BatteryEventEntity.create(contentValues));
-                    break;
-                case BATTERY_USAGE_SLOT_CODE:
-                    mBatteryUsageSlotDao.insert(BatteryUsageSlotEntity.create(contentValues));
-                    break;
-                default:
-                    throw new IllegalArgumentException("unknown URI: " + uri);
-            }
+            insertOrThrow(uri, sUriMatcher.match(uri), contentValues);
         } catch (RuntimeException e) {
             if (e instanceof IllegalArgumentException) {
                 throw e;
@@ -188,6 +196,80 @@ public class BatteryUsageContentProvider extends ContentProvider {
         return uri;
     }
 
+    private void insertOrThrow(Uri uri, int code, ContentValues contentValues) {
+        switch (code) {
+            case BATTERY_STATE_CODE:
+                mBatteryStateDao.insert(BatteryState.create(contentValues));
+                break;
+            case APP_USAGE_EVENT_CODE:
+                mAppUsageEventDao.insert(AppUsageEventEntity.create(contentValues));
+                break;
+            case BATTERY_EVENT_CODE:
+                mBatteryEventDao.insert(BatteryEventEntity.create(contentValues));
+                break;
+            case BATTERY_USAGE_SLOT_CODE:
+                mBatteryUsageSlotDao.insert(BatteryUsageSlotEntity.create(contentValues));
+                break;
+            case BATTERY_USAGE_SLOT_HEADER_CODE:
+                final BatteryUsageSlotHeaderEntity header =
+                        BatteryUsageSlotHeaderEntity.create(contentValues);
+                // Drops the stale usage rows if the same slot is uploaded again.
+                mBatteryUsageColumnarDao.clearDiffsAt(header.timestamp);
+                mBatteryUsageColumnarDao.insertHeader(header);
+                break;
+            case BATTERY_USAGE_DIFF_CODE:
+                // Looks up and inserts the names and the row atomically.
+                mDatabase.runInTransaction(
+                        () ->
+                                mBatteryUsageColumnarDao.insertDiff(
+                                        BatteryUsageDiffEntity.create(
+                                                contentValues, this::getOrInsertNameId)));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown URI: " + uri);
+        }
+    }
+
+    /** Inserts all rows into the same table in one database transaction. */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        final long timestamp = mClock.millis();
+        final int code = sUriMatcher.match(uri);
+        final int size;
+        try {
+            size = mDatabase.runInTransaction(() -> insertAll(uri, code, values));
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            Log.e(TAG, "bulkInsert() from:" + uri + " error:", e);
+            return 0;
+        }
+        Log.d(
+                TAG,
+                String.format(
+                        "bulkInsert() size=%d into %s in %d/ms",
+                        size, uri.getLastPathSegment(), mClock.millis() - timestamp));
+        return size;
+    }
+
+    /** Applies all operations in one database transaction, all of them succeed or none does. */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(
+            @NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final long timestamp = mClock.millis();
+        final ContentProviderResult[] results =
+                mDatabase.runInTransaction(() -> super.applyBatch(operations));
+        Log.d(
+                TAG,
+                String.format(
+                        "applyBatch() size=%d in %d/ms",
+                        operations.size(), mClock.millis() - timestamp));
+        return results;
+    }
+
     @Override
     public int delete(@NonNull Uri uri, @Nullable String s, @Nullable String[] strings) {
         throw new UnsupportedOperationException("unsupported!");
@@ -202,6 +284,35 @@ public class BatteryUsageContentProvider extends ContentProvider {
         throw new UnsupportedOperationException("unsupported!");
     }
 
+    private int insertAll(Uri uri, int code, ContentValues[] values) {
+        switch (code) {
+            case BATTERY_STATE_CODE:
+                mBatteryStateDao.insertAll(createAll(values, BatteryState::create));
+                return values.length;
+            case APP_USAGE_EVENT_CODE:
+                mAppUsageEventDao.insertAll(createAll(values, AppUsageEventEntity::create));
+                return values.length;
+            case BATTERY_EVENT_CODE:
+                mBatteryEventDao.insertAll(createAll(values, BatteryEventEntity::create));
+                return values.length;
+            case BATTERY_USAGE_SLOT_CODE:
+                mBatteryUsageSlotDao.insertAll(createAll(values, BatteryUsageSlotEntity::create));
+                return values.length;
+            default:
+                // Each columnar row is written into more than one table. A failed row throws to
+                // roll back the whole transaction.
+                for (ContentValues contentValues : values) {
+                    insertOrThrow(uri, code, contentValues);
+                }
+                return values.length;
+        }
+    }
+
+    private long getOrInsertNameId(String name) {
+        return BatteryUsageNameEntity.getOrInsertNameId(
+                name, mBatteryUsageColumnarDao::getName, mBatteryUsageColumnarDao::insertName);
+    }
+
     private Cursor getLastFullChargeTimestamp(Uri uri) {
         final long timestamp = mClock.millis();
         Cursor cursor = null;
@@ -318,6 +429,19 @@ public class BatteryUsageContentProvider extends ContentProvider {
         return cursor;
     }
 
+    private Cursor getColumnarBatteryUsageSlots(Uri uri) {
+        final long queryTimestamp = getQueryTimestamp(uri);
+        final long timestamp = mClock.millis();
+        Cursor cursor = null;
+        try {
+            cursor = mBatteryUsageColumnarDao.getAllAfter(queryTimestamp);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "query() from:" + uri + " error:", e);
+        }
+        Log.w(TAG, "getColumnarBatteryUsageSlots() in " + (mClock.millis() - timestamp) + "/ms");
+        return cursor;
+    }
+
     private List<Integer> getQueryBatteryEventTypes(Uri uri) {
         Log.d(TAG, "getQueryBatteryEventTypes from uri: " + uri);
         final String batteryEventTypesParameter =
@@ -373,6 +497,15 @@ public class BatteryUsageContentProvider extends ContentProvider {
         return getQueryValueFromUri(uri, DatabaseUtils.QUERY_KEY_TIMESTAMP, defaultTimestamp);
     }
 
+    private static <E> List<E> createAll(
+            ContentValues[] values, Function<ContentValues, E> creator) {
+        final List<E> entities = new ArrayList<>(values.length);
+        for (ContentValues contentValues : values) {
+            entities.add(creator.apply(contentValues));
+        }
+        return entities;
+    }
+
     private long getQueryValueFromUri(Uri uri, String key, long defaultValue) {
         final String value = uri.getQueryParameter(key);
         if (TextUtils.isEmpty(value)) {
@@ -39,7 +39,9 @@ import androidx.annotation.VisibleForTesting;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageDiffEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotHeaderEntity;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -174,6 +176,101 @@ public final class ConvertUtils {
         return values;
     }
 
+    /** Converts the slot level information of {@link BatteryUsageSlot} to {@link ContentValues} */
+    public static ContentValues convertBatteryUsageSlotToHeaderContentValues(
+            final BatteryUsageSlot batteryUsageSlot) {
+        final ContentValues values = new ContentValues(5);
+        values.put(
+                BatteryUsageSlotHeaderEntity.KEY_TIMESTAMP, batteryUsageSlot.getStartTimestamp());
+        values.put(
+                BatteryUsageSlotHeaderEntity.KEY_END_TIMESTAMP,
+                batteryUsageSlot.getEndTimestamp());
+        values.put(
+                BatteryUsageSlotHeaderEntity.KEY_START_BATTERY_LEVEL,
+                batteryUsageSlot.getStartBatteryLevel());
+        values.put(
+                BatteryUsageSlotHeaderEntity.KEY_END_BATTERY_LEVEL,
+                batteryUsageSlot.getEndBatteryLevel());
+        values.put(
+                BatteryUsageSlotHeaderEntity.KEY_SCREEN_ON_TIME,
+                batteryUsageSlot.getScreenOnTime());
+        return values;
+    }
+
+    /** Converts all app and system usage of {@link BatteryUsageSlot} to {@link ContentValues} */
+    public static List<ContentValues> convertBatteryUsageSlotToDiffContentValuesList(
+            final BatteryUsageSlot batteryUsageSlot) {
+        final long timestamp = batteryUsageSlot.getStartTimestamp();
+        final List<ContentValues> valuesList =
+                new ArrayList<>(
+                        batteryUsageSlot.getAppUsageCount()
+                                + batteryUsageSlot.getSystemUsageCount());
+        for (BatteryUsageDiff batteryUsageDiff : batteryUsageSlot.getAppUsageList()) {
+            valuesList.add(
+                    convertBatteryUsageDiffToContentValues(
+                            timestamp, batteryUsageDiff, /* isSystemUsage= */ false));
+        }
+        for (BatteryUsageDiff batteryUsageDiff : batteryUsageSlot.getSystemUsageList()) {
+            valuesList.add(
+                    convertBatteryUsageDiffToContentValues(
+                            timestamp, batteryUsageDiff, /* isSystemUsage= */ true));
+        }
+        return valuesList;
+    }
+
+    /** Converts {@link BatteryUsageDiff} to {@link ContentValues} */
+    public static ContentValues convertBatteryUsageDiffToContentValues(
+            final long timestamp,
+            final BatteryUsageDiff batteryUsageDiff,
+            final boolean isSystemUsage) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryUsageDiffEntity.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryUsageDiffEntity.KEY_IS_SYSTEM_USAGE, isSystemUsage);
+        values.put(BatteryUsageDiffEntity.KEY_UID, batteryUsageDiff.getUid());
+        values.put(BatteryUsageDiffEntity.KEY_USER_ID, batteryUsageDiff.getUserId());
+        if (batteryUsageDiff.hasPackageName()) {
+            values.put(BatteryUsageDiffEntity.KEY_PACKAGE_NAME, batteryUsageDiff.getPackageName());
+        }
+        if (batteryUsageDiff.hasKey()) {
+            values.put(BatteryUsageDiffEntity.KEY_KEY, batteryUsageDiff.getKey());
+        }
+        if (batteryUsageDiff.hasLabel()) {
+            values.put(BatteryUsageDiffEntity.KEY_LABEL, batteryUsageDiff.getLabel());
+        }
+        values.put(BatteryUsageDiffEntity.KEY_IS_HIDDEN, batteryUsageDiff.getIsHidden());
+        values.put(BatteryUsageDiffEntity.KEY_COMPONENT_ID, batteryUsageDiff.getComponentId());
+        values.put(BatteryUsageDiffEntity.KEY_CONSUMER_TYPE, batteryUsageDiff.getConsumerType());
+        values.put(BatteryUsageDiffEntity.KEY_CONSUME_POWER, batteryUsageDiff.getConsumePower());
+        values.put(
+                BatteryUsageDiffEntity.KEY_FOREGROUND_USAGE_CONSUME_POWER,
+                batteryUsageDiff.getForegroundUsageConsumePower());
+        values.put(
+                BatteryUsageDiffEntity.KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER,
+                batteryUsageDiff.getForegroundServiceUsageConsumePower());
+        values.put(
+                BatteryUsageDiffEntity.KEY_BACKGROUND_USAGE_CONSUME_POWER,
+                batteryUsageDiff.getBackgroundUsageConsumePower());
+        values.put(
+                BatteryUsageDiffEntity.KEY_CACHED_USAGE_CONSUME_POWER,
+                batteryUsageDiff.getCachedUsageConsumePower());
+        values.put(
+                BatteryUsageDiffEntity.KEY_FOREGROUND_USAGE_TIME_IN_MS,
+                batteryUsageDiff.getForegroundUsageTime());
+        values.put(
+                BatteryUsageDiffEntity.KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS,
+                batteryUsageDiff.getForegroundServiceUsageTime());
+        values.put(
+                BatteryUsageDiffEntity.KEY_BACKGROUND_USAGE_TIME_IN_MS,
+                batteryUsageDiff.getBackgroundUsageTime());
+        values.put(
+                BatteryUsageDiffEntity.KEY_SCREEN_ON_TIME_IN_MS,
+                batteryUsageDiff.getScreenOnTime());
+        values.put(
+                BatteryUsageDiffEntity.KEY_APP_OPTIMIZATION_MODE,
+                batteryUsageDiff.getAppOptimizationMode().getNumber());
+        return values;
+    }
+
     /** Gets the encoded string from {@link BatteryInformation} instance. */
     public static String convertBatteryInformationToString(
             final BatteryInformation batteryInformation) {
@@ -366,6 +463,45 @@ public final class ConvertUtils {
                 : BatteryUtils.parseProtoFromString(cursor.getString(columnIndex), defaultInstance);
     }
 
+    /**
+     * Converts from the columnar {@link Cursor} rows to {@link List<BatteryUsageSlot>}, the rows
+     * of the same slot are expected to be adjacent and ordered by the slot timestamp.
+     */
+    public static List<BatteryUsageSlot> convertToBatteryUsageSlotList(final Cursor cursor) {
+        final List<BatteryUsageSlot> batteryUsageSlotList = new ArrayList<>();
+        final ColumnarSlotCursorReader reader = new ColumnarSlotCursorReader(cursor);
+        BatteryUsageSlot.Builder slotBuilder = null;
+        while (cursor.moveToNext()) {
+            final long timestamp = reader.getLong(reader.mTimestamp);
+            if (slotBuilder == null || slotBuilder.getStartTimestamp() != timestamp) {
+                if (slotBuilder != null) {
+                    batteryUsageSlotList.add(slotBuilder.build());
+                }
+                slotBuilder =
+                        BatteryUsageSlot.newBuilder()
+                                .setStartTimestamp(timestamp)
+                                .setEndTimestamp(reader.getLong(reader.mEndTimestamp))
+                                .setStartBatteryLevel(reader.getInt(reader.mStartBatteryLevel))
+                                .setEndBatteryLevel(reader.getInt(reader.mEndBatteryLevel))
+                                .setScreenOnTime(reader.getLong(reader.mSlotScreenOnTime));
+            }
+            // The slot doesn't contain any app or system usage.
+            if (reader.mDiffId < 0 || cursor.isNull(reader.mDiffId)) {
+                continue;
+            }
+            final BatteryUsageDiff batteryUsageDiff = reader.readBatteryUsageDiff();
+            if (reader.getInt(reader.mIsSystemUsage) != 0) {
+                slotBuilder.addSystemUsage(batteryUsageDiff);
+            } else {
+                slotBuilder.addAppUsage(batteryUsageDiff);
+            }
+        }
+        if (slotBuilder != null) {
+            batteryUsageSlotList.add(slotBuilder.build());
+        }
+        return batteryUsageSlotList;
+    }
+
     /** Converts from {@link Map<Long, BatteryDiffData>} to {@link List<BatteryUsageSlot>} */
     public static List<BatteryUsageSlot> convertToBatteryUsageSlotList(
             final Context context,
@@ -661,6 +797,141 @@ public final class ConvertUtils {
         return batteryInformationBuilder.build();
     }
 
+    /** Resolves the columnar slot column indexes once for the whole {@link Cursor} scan. */
+    private static final class ColumnarSlotCursorReader {
+        private final Cursor mCursor;
+        private final int mTimestamp;
+        private final int mEndTimestamp;
+        private final int mStartBatteryLevel;
+        private final int mEndBatteryLevel;
+        private final int mSlotScreenOnTime;
+        private final int mDiffId;
+        private final int mIsSystemUsage;
+        private final int mUid;
+        private final int mUserId;
+        private final int mPackageName;
+        private final int mKey;
+        private final int mLabel;
+        private final int mIsHidden;
+        private final int mComponentId;
+        private final int mConsumerType;
+        private final int mConsumePower;
+        private final int mForegroundUsageConsumePower;
+        private final int mForegroundServiceUsageConsumePower;
+        private final int mBackgroundUsageConsumePower;
+        private final int mCachedUsageConsumePower;
+        private final int mForegroundUsageTimeInMs;
+        private final int mForegroundServiceUsageTimeInMs;
+        private final int mBackgroundUsageTimeInMs;
+        private final int mScreenOnTimeInMs;
+        private final int mAppOptimizationMode;
+
+        ColumnarSlotCursorReader(Cursor cursor) {
+            mCursor = cursor;
+            mTimestamp = cursor.getColumnIndex(BatteryUsageSlotHeaderEntity.KEY_TIMESTAMP);
+            mEndTimestamp = cursor.getColumnIndex(BatteryUsageSlotHeaderEntity.KEY_END_TIMESTAMP);
+            mStartBatteryLevel =
+                    cursor.getColumnIndex(BatteryUsageSlotHeaderEntity.KEY_START_BATTERY_LEVEL);
+            mEndBatteryLevel =
+                    cursor.getColumnIndex(BatteryUsageSlotHeaderEntity.KEY_END_BATTERY_LEVEL);
+            mSlotScreenOnTime =
+                    cursor.getColumnIndex(BatteryUsageSlotHeaderEntity.KEY_SLOT_SCREEN_ON_TIME);
+            mDiffId = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_DIFF_ID);
+            mIsSystemUsage = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_IS_SYSTEM_USAGE);
+            mUid = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_UID);
+            mUserId = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_USER_ID);
+            mPackageName = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_PACKAGE_NAME);
+            mKey = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_KEY);
+            mLabel = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_LABEL);
+            mIsHidden = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_IS_HIDDEN);
+            mComponentId = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_COMPONENT_ID);
+            mConsumerType = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_CONSUMER_TYPE);
+            mConsumePower = cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_CONSUME_POWER);
+            mForegroundUsageConsumePower =
+                    cursor.getColumnIndex(
+                            BatteryUsageDiffEntity.KEY_FOREGROUND_USAGE_CONSUME_POWER);
+            mForegroundServiceUsageConsumePower =
+                    cursor.getColumnIndex(
+                            BatteryUsageDiffEntity.KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER);
+            mBackgroundUsageConsumePower =
+                    cursor.getColumnIndex(
+                            BatteryUsageDiffEntity.KEY_BACKGROUND_USAGE_CONSUME_POWER);
+            mCachedUsageConsumePower =
+                    cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_CACHED_USAGE_CONSUME_POWER);
+            mForegroundUsageTimeInMs =
+                    cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_FOREGROUND_USAGE_TIME_IN_MS);
+            mForegroundServiceUsageTimeInMs =
+                    cursor.getColumnIndex(
+                            BatteryUsageDiffEntity.KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS);
+            mBackgroundUsageTimeInMs =
+                    cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_BACKGROUND_USAGE_TIME_IN_MS);
+            mScreenOnTimeInMs =
+                    cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_SCREEN_ON_TIME_IN_MS);
+            mAppOptimizationMode =
+                    cursor.getColumnIndex(BatteryUsageDiffEntity.KEY_APP_OPTIMIZATION_MODE);
+        }
+
+        BatteryUsageDiff readBatteryUsageDiff() {
+            final BatteryUsageDiff.Builder builder =
+                    BatteryUsageDiff.newBuilder()
+                            .setUid(getLong(mUid))
+                            .setUserId(getLong(mUserId))
+                            .setIsHidden(getInt(mIsHidden) != 0)
+                            .setComponentId(getInt(mComponentId))
+                            .setConsumerType(getInt(mConsumerType))
+                            .setConsumePower(getDouble(mConsumePower))
+                            .setForegroundUsageConsumePower(
+                                    getDouble(mForegroundUsageConsumePower))
+                            .setForegroundServiceUsageConsumePower(
+                                    getDouble(mForegroundServiceUsageConsumePower))
+                            .setBackgroundUsageConsumePower(
+                                    getDouble(mBackgroundUsageConsumePower))
+                            .setCachedUsageConsumePower(getDouble(mCachedUsageConsumePower))
+                            .setForegroundUsageTime(getLong(mForegroundUsageTimeInMs))
+                            .setForegroundServiceUsageTime(
+                                    getLong(mForegroundServiceUsageTimeInMs))
+                            .setBackgroundUsageTime(getLong(mBackgroundUsageTimeInMs))
+                            .setScreenOnTime(getLong(mScreenOnTimeInMs));
+            final String packageName = getString(mPackageName);
+            if (packageName != null) {
+                builder.setPackageName(packageName);
+            }
+            final String key = getString(mKey);
+            if (key != null) {
+                builder.setKey(key);
+            }
+            final String label = getString(mLabel);
+            if (label != null) {
+                builder.setLabel(label);
+            }
+            final BatteryOptimizationMode optimizationMode =
+                    BatteryOptimizationMode.forNumber(getInt(mAppOptimizationMode));
+            if (optimizationMode != null
+                    && optimizationMode != BatteryOptimizationMode.MODE_UNKNOWN) {
+                builder.setAppOptimizationMode(optimizationMode);
+            }
+            return builder.build();
+        }
+
+        int getInt(int columnIndex) {
+            return columnIndex >= 0 ? mCursor.getInt(columnIndex) : 0;
+        }
+
+        long getLong(int columnIndex) {
+            return columnIndex >= 0 ? mCursor.getLong(columnIndex) : 0L;
+        }
+
+        double getDouble(int columnIndex) {
+            return columnIndex >= 0 ? mCursor.getDouble(columnIndex) : 0d;
+        }
+
+        String getString(int columnIndex) {
+            return columnIndex >= 0 && !mCursor.isNull(columnIndex)
+                    ? mCursor.getString(columnIndex)
+                    : null;
+        }
+    }
+
     private static int getIntegerFromCursor(final Cursor cursor, final String key) {
         final int columnIndex = cursor.getColumnIndex(key);
         if (columnIndex >= 0) {
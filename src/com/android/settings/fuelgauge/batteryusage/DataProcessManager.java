@@ -37,6 +37,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the async tasks to process battery and app usage data.
@@ -54,7 +58,9 @@ import java.util.Set;
  *       last full charge) from battery stats service and apply the callback function directly
  * </ul>
  *
- * If there is battery level data, the first 3 async tasks will be started at the same time.
+ * If there is battery level data, the first 3 async tasks will be started at the same time and
+ * run concurrently in {@link AsyncTask#THREAD_POOL_EXECUTOR}, together with the database loading
+ * of the battery events and battery usage slots.
  *
  * <ul>
  *   <li>After loadCurrentAppUsageList and loadDatabaseAppUsageList complete, which means all app
@@ -73,6 +79,12 @@ public class DataProcessManager {
     private static final String TAG = "DataProcessManager";
     private static final List<BatteryEventType> POWER_CONNECTION_EVENTS =
             List.of(BatteryEventType.POWER_CONNECTED, BatteryEventType.POWER_DISCONNECTED);
+    private static final int MAX_USER_USAGE_EVENTS_THREAD_COUNT = 2;
+    private static final long USER_USAGE_EVENTS_KEEP_ALIVE_SECONDS = 30;
+
+    // Loads the usage events of the other users, separated from AsyncTask.THREAD_POOL_EXECUTOR
+    // since the caller runs there and waits for them.
+    private static ThreadPoolExecutor sUserUsageEventsExecutor;
 
     // For testing only.
     @VisibleForTesting static Map<Long, Map<String, BatteryHistEntry>> sFakeBatteryHistoryMap;
@@ -100,16 +112,10 @@ public class DataProcessManager {
     private boolean mShowScreenOnTime = true;
     private Set<String> mSystemAppsPackageNames = null;
     private Set<Integer> mSystemAppsUids = null;
+    private long mStartTimestamp;
 
-    /**
-     * The indexed {@link AppUsagePeriod} list data for each corresponding time slot.
-     *
-     * <p>{@code Long} stands for the userId.
-     *
-     * <p>{@code String} stands for the packageName.
-     */
-    private Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-            mAppUsagePeriodMap;
+    /** The indexed {@link AppUsagePeriod} data for each corresponding time slot. */
+    private UsagePeriodIndex mAppUsagePeriodMap;
 
     /**
      * A callback listener when all the data is processed. This happens when all the async tasks
@@ -164,6 +170,7 @@ public class DataProcessManager {
 
     /** Starts the async tasks to load battery history data and app usage data. */
     public void start() {
+        mStartTimestamp = System.currentTimeMillis();
         // If we have battery level data, load the battery history map and app usage simultaneously.
         if (mHourlyBatteryLevelsPerDay != null) {
             if (mIsFromPeriodJob) {
@@ -199,8 +206,7 @@ public class DataProcessManager {
     }
 
     @VisibleForTesting
-    Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-            getAppUsagePeriodMap() {
+    UsagePeriodIndex getAppUsagePeriodMap() {
         return mAppUsagePeriodMap;
     }
 
@@ -263,7 +269,7 @@ public class DataProcessManager {
                 mIsCurrentBatteryHistoryLoaded = true;
                 tryToGenerateFinalDataAndApplyCallback();
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     private void loadCurrentAppUsageList() {
@@ -277,11 +283,12 @@ public class DataProcessManager {
                 }
                 final long startTime = System.currentTimeMillis();
                 // Loads the current battery usage data from the battery stats service.
+                final List<Integer> userIds = mUserIdsSeries.getVisibleUserIds();
+                final List<UsageEvents> usageEventsList = loadCurrentAppUsageEvents(userIds);
                 final Map<Long, UsageEvents> usageEventsMap = new ArrayMap<>();
-                for (int userId : mUserIdsSeries.getVisibleUserIds()) {
-                    final UsageEvents usageEventsForCurrentUser =
-                            DataProcessor.getCurrentAppUsageEventsForUser(
-                                    mContext, mUserIdsSeries, userId, mRawStartTimestamp);
+                for (int index = 0; index < userIds.size(); index++) {
+                    final int userId = userIds.get(index);
+                    final UsageEvents usageEventsForCurrentUser = usageEventsList.get(index);
                     if (usageEventsForCurrentUser == null) {
                         // If fail to load usage events for any user, return null directly and
                         // screen-on time will not be shown in the UI.
@@ -314,7 +321,7 @@ public class DataProcessManager {
                 mIsCurrentAppUsageLoaded = true;
                 tryToProcessAppUsageData();
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     private void loadDatabaseAppUsageList() {
@@ -352,7 +359,7 @@ public class DataProcessManager {
                 mIsDatabaseAppUsageLoaded = true;
                 tryToProcessAppUsageData();
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     private void loadPowerConnectionBatteryEventList() {
@@ -386,7 +393,7 @@ public class DataProcessManager {
                 mIsBatteryEventLoaded = true;
                 tryToProcessAppUsageData();
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     private void loadBatteryUsageSlotList() {
@@ -418,7 +425,7 @@ public class DataProcessManager {
                 mIsBatteryUsageSlotLoaded = true;
                 tryToGenerateFinalDataAndApplyCallback();
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     private void loadAndApplyBatteryMapFromServiceOnly() {
@@ -452,7 +459,53 @@ public class DataProcessManager {
                             });
                 }
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Loads the usage events of each user from the usage stats service, the users (e.g. the work
+     * profile and the private space) are loaded concurrently.
+     */
+    private List<UsageEvents> loadCurrentAppUsageEvents(List<Integer> userIds) {
+        final List<UsageEvents> usageEventsList = new ArrayList<>(userIds.size());
+        if (userIds.size() == 1) {
+            usageEventsList.add(
+                    DataProcessor.getCurrentAppUsageEventsForUser(
+                            mContext, mUserIdsSeries, userIds.get(0), mRawStartTimestamp));
+            return usageEventsList;
+        }
+        final List<CompletableFuture<UsageEvents>> futures = new ArrayList<>(userIds.size());
+        for (int index = 1; index < userIds.size(); index++) {
+            final int userId = userIds.get(index);
+            futures.add(
+                    CompletableFuture.supplyAsync(
+                            () ->
+                                    DataProcessor.getCurrentAppUsageEventsForUser(
+                                            mContext, mUserIdsSeries, userId, mRawStartTimestamp),
+                            getUserUsageEventsExecutor()));
+        }
+        // Loads the first user on the calling thread while the others are loading.
+        usageEventsList.add(
+                DataProcessor.getCurrentAppUsageEventsForUser(
+                        mContext, mUserIdsSeries, userIds.get(0), mRawStartTimestamp));
+        for (CompletableFuture<UsageEvents> future : futures) {
+            usageEventsList.add(future.join());
+        }
+        return usageEventsList;
+    }
+
+    private static synchronized ThreadPoolExecutor getUserUsageEventsExecutor() {
+        if (sUserUsageEventsExecutor == null) {
+            sUserUsageEventsExecutor =
+                    new ThreadPoolExecutor(
+                            MAX_USER_USAGE_EVENTS_THREAD_COUNT,
+                            MAX_USER_USAGE_EVENTS_THREAD_COUNT,
+                            USER_USAGE_EVENTS_KEEP_ALIVE_SECONDS,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>());
+            sUserUsageEventsExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sUserUsageEventsExecutor;
     }
 
     private void tryToProcessAppUsageData() {
@@ -460,7 +513,13 @@ public class DataProcessManager {
         if (!mIsCurrentAppUsageLoaded || !mIsDatabaseAppUsageLoaded || !mIsBatteryEventLoaded) {
             return;
         }
+        final long startTime = System.currentTimeMillis();
         processAppUsageData();
+        Log.d(
+                TAG,
+                String.format(
+                        "processAppUsageData() in %d/ms, all app usage data loaded in %d/ms",
+                        System.currentTimeMillis() - startTime, startTime - mStartTimestamp));
         tryToGenerateFinalDataAndApplyCallback();
     }
 
@@ -496,16 +555,13 @@ public class DataProcessManager {
             @Override
             protected Map<Long, BatteryDiffData> doInBackground(Void... voids) {
                 final long startTime = System.currentTimeMillis();
-                final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
-                for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
-                    batteryDiffDataMap.put(
-                            batteryUsageSlot.getStartTimestamp(),
-                            ConvertUtils.convertToBatteryDiffData(
-                                    mContext,
-                                    batteryUsageSlot,
-                                    getSystemAppsPackageNames(),
-                                    getSystemAppsUids()));
-                }
+                // Finished hourly slots are persisted, only converts the changed ones.
+                final Map<Long, BatteryDiffData> batteryDiffDataMap =
+                        BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                                mContext,
+                                mBatteryUsageSlotList,
+                                getSystemAppsPackageNames(),
+                                getSystemAppsUids());
                 batteryDiffDataMap.putAll(
                         DataProcessor.getBatteryDiffDataMap(
                                 mContext,
@@ -521,14 +577,20 @@ public class DataProcessManager {
                 final PowerUsageFeatureProvider featureProvider =
                         FeatureFactory.getFeatureFactory()
                                 .getPowerUsageFeatureProvider();
-                featureProvider.processBatteryReattributeData(
-                        mContext, batteryDiffDataMap, mBatteryEventList, mIsFromPeriodJob);
+                if (featureProvider.processBatteryReattributeData(
+                        mContext, batteryDiffDataMap, mBatteryEventList, mIsFromPeriodJob)) {
+                    // The cached data may be re-attributed, so it couldn't be reused anymore.
+                    BatteryDiffDataCache.clearCache();
+                }
 
                 Log.d(
                         TAG,
                         String.format(
-                                "execute generateFinalDataAndApplyCallback size=%d in %d/ms",
-                                batteryDiffDataMap.size(), System.currentTimeMillis() - startTime));
+                                "execute generateFinalDataAndApplyCallback size=%d in %d/ms,"
+                                        + " total in %d/ms",
+                                batteryDiffDataMap.size(),
+                                System.currentTimeMillis() - startTime,
+                                System.currentTimeMillis() - mStartTimestamp));
                 return batteryDiffDataMap;
             }
 
@@ -542,7 +604,7 @@ public class DataProcessManager {
                             });
                 }
             }
-        }.execute();
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     // Whether we should load app usage data from service or database.
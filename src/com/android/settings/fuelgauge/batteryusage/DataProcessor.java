@@ -60,6 +60,7 @@ import com.google.common.base.Preconditions;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -68,7 +69,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * A utility class to process data loaded from database and make the data easy to use for battery
@@ -258,18 +258,13 @@ public final class DataProcessor {
      *
      * <p>The structure is consistent with the battery usage map returned by {@code
      * generateBatteryUsageMap}.
-     *
-     * <p>{@code Long} stands for the userId.
-     *
-     * <p>{@code String} stands for the packageName.
      */
     @Nullable
-    public static Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-            generateAppUsagePeriodMap(
-                    Context context,
-                    final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
-                    final List<AppUsageEvent> appUsageEventList,
-                    final List<BatteryEvent> batteryEventList) {
+    public static UsagePeriodIndex generateAppUsagePeriodMap(
+            Context context,
+            final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
+            final List<AppUsageEvent> appUsageEventList,
+            final List<BatteryEvent> batteryEventList) {
         if (appUsageEventList.isEmpty()) {
             Log.w(TAG, "appUsageEventList is empty");
             return null;
@@ -278,13 +273,11 @@ public final class DataProcessor {
         // timestamp before distribution.
         Collections.sort(appUsageEventList, APP_USAGE_EVENT_TIMESTAMP_COMPARATOR);
         Collections.sort(batteryEventList, BATTERY_EVENT_TIMESTAMP_COMPARATOR);
-        final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>> resultMap =
-                new ArrayMap<>();
+        final UsagePeriodIndex usagePeriodIndex = new UsagePeriodIndex();
+        final AppUsageEventWindow appUsageEventWindow = new AppUsageEventWindow(appUsageEventList);
 
         for (int dailyIndex = 0; dailyIndex < hourlyBatteryLevelsPerDay.size(); dailyIndex++) {
-            final Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>> dailyMap =
-                    new ArrayMap<>();
-            resultMap.put(dailyIndex, dailyMap);
+            usagePeriodIndex.putDaily(dailyIndex);
             if (hourlyBatteryLevelsPerDay.get(dailyIndex) == null) {
                 continue;
             }
@@ -294,11 +287,12 @@ public final class DataProcessor {
                 final long endTimestamp = timestamps.get(hourlyIndex + 1);
                 // Gets the app usage event list for this hourly slot first.
                 final List<AppUsageEvent> hourlyAppUsageEventList =
-                        getAppUsageEventListWithinTimeRangeWithBuffer(
-                                appUsageEventList, startTimestamp, endTimestamp);
+                        appUsageEventWindow.getEventsWithinTimeRangeWithBuffer(
+                                startTimestamp, endTimestamp);
 
                 // The value could be null when there is no data in the hourly slot.
-                dailyMap.put(
+                usagePeriodIndex.putSlot(
+                        dailyIndex,
                         hourlyIndex,
                         buildAppUsagePeriodList(
                                 context,
@@ -308,7 +302,7 @@ public final class DataProcessor {
                                 endTimestamp));
             }
         }
-        return resultMap;
+        return usagePeriodIndex;
     }
 
     /** Generates the list of {@link AppUsageEvent} from the supplied {@link UsageEvents}. */
@@ -520,8 +514,7 @@ public final class DataProcessor {
             final UserIdsSeries userIdsSeries,
             final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
-            final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-                    appUsagePeriodMap,
+            final @Nullable UsagePeriodIndex appUsagePeriodMap,
             final @NonNull Set<String> systemAppsPackageNames,
             final @NonNull Set<Integer> systemAppsUids) {
         final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
@@ -566,9 +559,8 @@ public final class DataProcessor {
                                 systemAppsPackageNames,
                                 systemAppsUids,
                                 appUsagePeriodMap == null
-                                                || appUsagePeriodMap.get(dailyIndex) == null
                                         ? null
-                                        : appUsagePeriodMap.get(dailyIndex).get(hourlyIndex),
+                                        : appUsagePeriodMap.getSlot(dailyIndex, hourlyIndex),
                                 slotBatteryHistoryList);
                 batteryDiffDataMap.put(startTimestamp, hourlyBatteryDiffData);
             }
@@ -606,10 +598,9 @@ public final class DataProcessor {
                 batteryLevelData.getHourlyBatteryLevelsPerDay();
         // Insert diff data from [0][0] to [maxDailyIndex][maxHourlyIndex].
         insertHourlyUsageDiffData(hourlyBatteryLevelsPerDay, batteryDiffDataMap, resultMap);
-        // Insert diff data from [0][SELECTED_INDEX_ALL] to [maxDailyIndex][SELECTED_INDEX_ALL].
-        insertDailyUsageDiffData(context, hourlyBatteryLevelsPerDay, resultMap);
-        // Insert diff data [SELECTED_INDEX_ALL][SELECTED_INDEX_ALL].
-        insertAllUsageDiffData(context, resultMap);
+        // Insert diff data from [0][SELECTED_INDEX_ALL] to [maxDailyIndex][SELECTED_INDEX_ALL]
+        // and diff data [SELECTED_INDEX_ALL][SELECTED_INDEX_ALL].
+        insertAccumulatedUsageDiffData(context, hourlyBatteryLevelsPerDay, resultMap);
         if (!isUsageMapValid(resultMap, hourlyBatteryLevelsPerDay)) {
             return null;
         }
@@ -690,14 +681,9 @@ public final class DataProcessor {
                 /* isAccumulated= */ false);
     }
 
-    /**
-     * {@code Long} stands for the userId.
-     *
-     * <p>{@code String} stands for the packageName.
-     */
     @VisibleForTesting
     @Nullable
-    static Map<Long, Map<String, List<AppUsagePeriod>>> buildAppUsagePeriodList(
+    static UsagePeriodIndex.SlotUsagePeriods buildAppUsagePeriodList(
             Context context,
             final List<AppUsageEvent> appUsageEvents,
             final List<BatteryEvent> batteryEventList,
@@ -729,7 +715,8 @@ public final class DataProcessor {
             return null;
         }
 
-        final Map<Long, Map<String, List<AppUsagePeriod>>> allUsagePeriods = new ArrayMap<>();
+        final UsagePeriodIndex.SlotUsagePeriods allUsagePeriods =
+                new UsagePeriodIndex.SlotUsagePeriods();
 
         for (int i = 0; i < usageEventsByInstanceId.size(); i++) {
             // The usage periods for an instance are determined by the usage events with its
@@ -758,22 +745,17 @@ public final class DataProcessor {
                     excludePowerConnectedTimeFromAppUsagePeriodList(
                             buildAppUsagePeriodListPerInstance(usageEvents, startTime, endTime),
                             batteryEventList);
-            if (!usagePeriodList.isEmpty()) {
-                addToUsagePeriodMap(allUsagePeriods, usagePeriodList, eventUserId, packageName);
+            for (final AppUsagePeriod usagePeriod : usagePeriodList) {
+                allUsagePeriods.add(
+                        eventUserId,
+                        packageName,
+                        usagePeriod.getStartTime(),
+                        usagePeriod.getEndTime());
             }
         }
 
         // Sorts all usage periods by start time.
-        for (final long userId : allUsagePeriods.keySet()) {
-            if (allUsagePeriods.get(userId) == null) {
-                continue;
-            }
-            for (final String packageName : allUsagePeriods.get(userId).keySet()) {
-                Collections.sort(
-                        allUsagePeriods.get(userId).get(packageName),
-                        Comparator.comparing(AppUsagePeriod::getStartTime));
-            }
-        }
+        allUsagePeriods.sortByStartTime();
         return allUsagePeriods.isEmpty() ? null : allUsagePeriods;
     }
 
@@ -877,18 +859,6 @@ public final class DataProcessor {
         return resultList;
     }
 
-    @VisibleForTesting
-    static long getScreenOnTime(
-            final Map<Long, Map<String, List<AppUsagePeriod>>> appUsageMap,
-            final long userId,
-            final String packageName) {
-        if (appUsageMap == null || appUsageMap.get(userId) == null) {
-            return 0;
-        }
-
-        return getScreenOnTime(appUsageMap.get(userId).get(packageName));
-    }
-
     static Map<Long, BatteryDiffData> getBatteryDiffDataMapFromStatsService(
             final Context context,
             final UserIdsSeries userIdsSeries,
@@ -942,32 +912,6 @@ public final class DataProcessor {
         return result;
     }
 
-    /**
-     * Generates the list of {@link AppUsageEvent} within the specific time range. The buffer is
-     * added to make sure the app usage calculation near the boundaries is correct.
-     *
-     * <p>Note: The appUsageEventList should have been sorted when calling this function.
-     */
-    private static List<AppUsageEvent> getAppUsageEventListWithinTimeRangeWithBuffer(
-            final List<AppUsageEvent> appUsageEventList, final long startTime, final long endTime) {
-        final long start = startTime - DatabaseUtils.USAGE_QUERY_BUFFER_HOURS;
-        final long end = endTime + DatabaseUtils.USAGE_QUERY_BUFFER_HOURS;
-        final List<AppUsageEvent> resultList = new ArrayList<>();
-        for (final AppUsageEvent event : appUsageEventList) {
-            final long eventTime = event.getTimestamp();
-            // Because the appUsageEventList has been sorted, if any event is already after the end
-            // time, all the following events should be able to drop directly.
-            if (eventTime > end) {
-                break;
-            }
-            // If the event timestamp is in [start, end], add it into the result list.
-            if (eventTime >= start) {
-                resultList.add(event);
-            }
-        }
-        return resultList;
-    }
-
     private static void validateAndAddToPeriodList(
             final List<AppUsagePeriod> appUsagePeriodList,
             final AppUsagePeriod appUsagePeriod,
@@ -994,17 +938,6 @@ public final class DataProcessor {
         return finalTime;
     }
 
-    private static void addToUsagePeriodMap(
-            final Map<Long, Map<String, List<AppUsagePeriod>>> usagePeriodMap,
-            final List<AppUsagePeriod> usagePeriodList,
-            final long userId,
-            final String packageName) {
-        usagePeriodMap.computeIfAbsent(userId, key -> new ArrayMap<>());
-        final Map<String, List<AppUsagePeriod>> packageNameMap = usagePeriodMap.get(userId);
-        packageNameMap.computeIfAbsent(packageName, key -> new ArrayList<>());
-        packageNameMap.get(packageName).addAll(usagePeriodList);
-    }
-
     /** Returns the start time that gives {@code usagePeriod} the default usage duration. */
     private static long getStartTimeForIncompleteUsagePeriod(
             final AppUsagePeriodOrBuilder usagePeriod) {
@@ -1285,31 +1218,69 @@ public final class DataProcessor {
         }
     }
 
-    private static void insertDailyUsageDiffData(
+    private static void insertAccumulatedUsageDiffData(
             final Context context,
             final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
             final Map<Integer, Map<Integer, BatteryDiffData>> resultMap) {
-        for (int index = 0; index < hourlyBatteryLevelsPerDay.size(); index++) {
+        // Only the latest hourly slot is still changing, so the other slots are accumulated
+        // through the cache and the latest slot is added into the cached results as a delta.
+        final Set<Long> cacheKeySet = new ArraySet<>();
+        final List<BatteryDiffData> finishedDailyDiffDataList = new ArrayList<>();
+        final int lastDailyIndex = hourlyBatteryLevelsPerDay.size() - 1;
+        BatteryDiffData latestHourlyDiffData = null;
+        for (int index = 0; index <= lastDailyIndex; index++) {
             Map<Integer, BatteryDiffData> dailyUsageMap = resultMap.get(index);
             if (dailyUsageMap == null) {
                 dailyUsageMap = new ArrayMap<>();
                 resultMap.put(index, dailyUsageMap);
             }
+            final List<BatteryDiffData> hourlyDiffDataList =
+                    new ArrayList<>(dailyUsageMap.values());
+            if (index == lastDailyIndex && !hourlyDiffDataList.isEmpty()) {
+                latestHourlyDiffData = hourlyDiffDataList.remove(hourlyDiffDataList.size() - 1);
+            }
+            final BatteryLevelData.PeriodBatteryLevelData dailyBatteryLevels =
+                    hourlyBatteryLevelsPerDay.get(index);
+            final BatteryDiffData finishedDailyDiffData =
+                    dailyBatteryLevels == null || dailyBatteryLevels.getTimestamps().isEmpty()
+                            ? getAccumulatedUsageDiffData(context, hourlyDiffDataList)
+                            : getCachedAccumulatedUsageDiffData(
+                                    context,
+                                    dailyBatteryLevels.getTimestamps().get(0),
+                                    hourlyDiffDataList,
+                                    cacheKeySet);
+            finishedDailyDiffDataList.add(finishedDailyDiffData);
             dailyUsageMap.put(
                     SELECTED_INDEX_ALL,
-                    getAccumulatedUsageDiffData(context, dailyUsageMap.values()));
-        }
-    }
-
-    private static void insertAllUsageDiffData(
-            final Context context, final Map<Integer, Map<Integer, BatteryDiffData>> resultMap) {
-        final List<BatteryDiffData> diffDataList = new ArrayList<>();
-        resultMap
-                .keySet()
-                .forEach(key -> diffDataList.add(resultMap.get(key).get(SELECTED_INDEX_ALL)));
+                    index == lastDailyIndex
+                            ? getAccumulatedUsageDiffData(
+                                    context,
+                                    Arrays.asList(finishedDailyDiffData, latestHourlyDiffData))
+                            : finishedDailyDiffData);
+        }
+        final BatteryDiffData finishedAllDiffData =
+                getCachedAccumulatedUsageDiffData(
+                        context, SELECTED_INDEX_ALL, finishedDailyDiffDataList, cacheKeySet);
         final Map<Integer, BatteryDiffData> allUsageMap = new ArrayMap<>();
-        allUsageMap.put(SELECTED_INDEX_ALL, getAccumulatedUsageDiffData(context, diffDataList));
+        allUsageMap.put(
+                SELECTED_INDEX_ALL,
+                getAccumulatedUsageDiffData(
+                        context, Arrays.asList(finishedAllDiffData, latestHourlyDiffData)));
         resultMap.put(SELECTED_INDEX_ALL, allUsageMap);
+        BatteryDiffDataCache.retainAccumulatedKeys(cacheKeySet);
+    }
+
+    @Nullable
+    private static BatteryDiffData getCachedAccumulatedUsageDiffData(
+            final Context context,
+            final long cacheKey,
+            final List<BatteryDiffData> batteryDiffDataList,
+            final Set<Long> cacheKeySet) {
+        cacheKeySet.add(cacheKey);
+        return BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                cacheKey,
+                batteryDiffDataList,
+                diffDataList -> getAccumulatedUsageDiffData(context, diffDataList));
     }
 
     @Nullable
@@ -1323,24 +1294,11 @@ public final class DataProcessor {
             final long slotDuration,
             final Set<String> systemAppsPackageNames,
             final Set<Integer> systemAppsUids,
-            final Map<Long, Map<String, List<AppUsagePeriod>>> appUsageMap,
+            final @Nullable UsagePeriodIndex.SlotUsagePeriods appUsageMap,
             final List<Map<String, BatteryHistEntry>> slotBatteryHistoryList) {
         long slotScreenOnTime = 0L;
         if (appUsageMap != null) {
-            final List<AppUsagePeriod> flatAppUsagePeriodList = new ArrayList<>();
-            for (final long userId : appUsageMap.keySet()) {
-                if (userIdsSeries.isFromOtherUsers(userId) || appUsageMap.get(userId) == null) {
-                    continue;
-                }
-                for (final String packageName : appUsageMap.get(userId).keySet()) {
-                    final List<AppUsagePeriod> appUsagePeriodList =
-                            appUsageMap.get(userId).get(packageName);
-                    if (appUsagePeriodList != null) {
-                        flatAppUsagePeriodList.addAll(appUsagePeriodList);
-                    }
-                }
-            }
-            slotScreenOnTime = Math.min(slotDuration, getScreenOnTime(flatAppUsagePeriodList));
+            slotScreenOnTime = Math.min(slotDuration, appUsageMap.getScreenOnTime(userIdsSeries));
         }
 
         final List<BatteryDiffEntry> appEntries = new ArrayList<>();
@@ -1480,12 +1438,13 @@ public final class DataProcessor {
 
             // Compute the screen on time and make sure it won't exceed the threshold.
             final long screenOnTime =
-                    Math.min(
-                            (long) slotDuration,
-                            getScreenOnTime(
-                                    appUsageMap,
-                                    selectedBatteryEntry.mUserId,
-                                    selectedBatteryEntry.mPackageName));
+                    appUsageMap == null
+                            ? 0
+                            : Math.min(
+                                    (long) slotDuration,
+                                    appUsageMap.getScreenOnTime(
+                                            selectedBatteryEntry.mUserId,
+                                            selectedBatteryEntry.mPackageName));
             // Ensure the following value will not exceed the threshold.
             // value = background + foregroundService + screen-on
             backgroundUsageTimeInMs =
@@ -1534,49 +1493,6 @@ public final class DataProcessor {
                 /* isAccumulated= */ false);
     }
 
-    private static long getScreenOnTime(@Nullable final List<AppUsagePeriod> appUsagePeriodList) {
-        if (appUsagePeriodList == null || appUsagePeriodList.isEmpty()) {
-            return 0;
-        }
-        // Create a list of endpoints (the beginning or the end) of usage periods and order the list
-        // chronologically.
-        final List<AppUsageEndPoint> endPoints =
-                appUsagePeriodList.stream()
-                        .flatMap(
-                                foregroundUsage ->
-                                        Stream.of(
-                                                AppUsageEndPoint.newBuilder()
-                                                        .setTimestamp(
-                                                                foregroundUsage.getStartTime())
-                                                        .setType(AppUsageEndPointType.START)
-                                                        .build(),
-                                                AppUsageEndPoint.newBuilder()
-                                                        .setTimestamp(foregroundUsage.getEndTime())
-                                                        .setType(AppUsageEndPointType.END)
-                                                        .build()))
-                        .sorted((x, y) -> (int) (x.getTimestamp() - y.getTimestamp()))
-                        .collect(Collectors.toList());
-
-        // Traverse the list of endpoints in order to determine the non-overlapping usage duration.
-        int numberOfActiveAppUsagePeriods = 0;
-        long startOfCurrentContiguousAppUsagePeriod = 0;
-        long totalScreenOnTime = 0;
-        for (final AppUsageEndPoint endPoint : endPoints) {
-            if (endPoint.getType() == AppUsageEndPointType.START) {
-                if (numberOfActiveAppUsagePeriods++ == 0) {
-                    startOfCurrentContiguousAppUsagePeriod = endPoint.getTimestamp();
-                }
-            } else {
-                if (--numberOfActiveAppUsagePeriods == 0) {
-                    totalScreenOnTime +=
-                            (endPoint.getTimestamp() - startOfCurrentContiguousAppUsagePeriod);
-                }
-            }
-        }
-
-        return totalScreenOnTime;
-    }
-
     private static boolean isConsumedFromOtherUsers(
             final UserIdsSeries userIdsSeries,
             final BatteryHistEntry batteryHistEntry) {
@@ -1892,4 +1808,40 @@ public final class DataProcessor {
                             entry));
         }
     }
+
+    /**
+     * A window sliding over the sorted {@link AppUsageEvent} list, which returns the events within
+     * the time range of each slot as a view of the list instead of copying them.
+     */
+    private static final class AppUsageEventWindow {
+        private final List<AppUsageEvent> mAppUsageEventList;
+        private int mStartIndex;
+        private int mEndIndex;
+
+        AppUsageEventWindow(final List<AppUsageEvent> appUsageEventList) {
+            mAppUsageEventList = appUsageEventList;
+        }
+
+        /**
+         * Gets the events within the specific time range. The buffer is added to make sure the app
+         * usage calculation near the boundaries is correct.
+         *
+         * <p>Note: The time ranges should be requested in ascending order.
+         */
+        List<AppUsageEvent> getEventsWithinTimeRangeWithBuffer(
+                final long startTime, final long endTime) {
+            final long start = startTime - DatabaseUtils.USAGE_QUERY_BUFFER_HOURS;
+            final long end = endTime + DatabaseUtils.USAGE_QUERY_BUFFER_HOURS;
+            final int size = mAppUsageEventList.size();
+            while (mStartIndex < size
+                    && mAppUsageEventList.get(mStartIndex).getTimestamp() < start) {
+                mStartIndex++;
+            }
+            mEndIndex = Math.max(mEndIndex, mStartIndex);
+            while (mEndIndex < size && mAppUsageEventList.get(mEndIndex).getTimestamp() <= end) {
+                mEndIndex++;
+            }
+            return mAppUsageEventList.subList(mStartIndex, mEndIndex);
+        }
+    }
 }
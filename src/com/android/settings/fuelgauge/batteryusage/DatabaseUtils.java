@@ -20,6 +20,7 @@ import static com.android.settings.fuelgauge.batteryusage.ConvertUtils.utcToLoca
 
 import android.app.usage.IUsageStatsManager;
 import android.app.usage.UsageStatsManager;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
@@ -46,6 +47,9 @@ import com.android.settings.fuelgauge.BatteryUsageHistoricalLogEntry.Action;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batteryusage.bugreport.BatteryUsageLogUtils;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageColumnarMigration;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.fuelgauge.BatteryStatus;
 
 import java.io.PrintWriter;
@@ -58,6 +62,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -78,6 +83,7 @@ public final class DatabaseUtils {
     static final String KEY_LAST_UPLOAD_FULL_CHARGE_TIME = "last_upload_full_charge_time";
     static final String KEY_LAST_USAGE_SOURCE = "last_usage_source";
     static final String KEY_DISMISSED_POWER_ANOMALY_KEYS = "dismissed_power_anomaly_keys";
+    static final String KEY_LAST_COLUMNAR_STORAGE_ENABLED = "last_columnar_storage_enabled";
 
     /** An authority name of the battery content provider. */
     public static final String AUTHORITY = "com.android.settings.battery.usage.provider";
@@ -94,6 +100,12 @@ public final class DatabaseUtils {
     /** A table name for battery usage slot. */
     public static final String BATTERY_USAGE_SLOT_TABLE = "BatteryUsageSlot";
 
+    /** A table name for the slot level information of columnar battery usage slot. */
+    public static final String BATTERY_USAGE_SLOT_HEADER_TABLE = "BatteryUsageSlotHeader";
+
+    /** A table name for the app and system usage of columnar battery usage slot. */
+    public static final String BATTERY_USAGE_DIFF_TABLE = "BatteryUsageDiff";
+
     /** A path name for last full charge time query. */
     public static final String LAST_FULL_CHARGE_TIMESTAMP_PATH = "lastFullChargeTimestamp";
 
@@ -152,6 +164,22 @@ public final class DatabaseUtils {
                     .appendPath(BATTERY_USAGE_SLOT_TABLE)
                     .build();
 
+    /** A content URI to access columnar battery usage slots data. */
+    public static final Uri BATTERY_USAGE_SLOT_HEADER_URI =
+            new Uri.Builder()
+                    .scheme(ContentResolver.SCHEME_CONTENT)
+                    .authority(AUTHORITY)
+                    .appendPath(BATTERY_USAGE_SLOT_HEADER_TABLE)
+                    .build();
+
+    /** A content URI to insert the app and system usage of columnar battery usage slots. */
+    public static final Uri BATTERY_USAGE_DIFF_URI =
+            new Uri.Builder()
+                    .scheme(ContentResolver.SCHEME_CONTENT)
+                    .authority(AUTHORITY)
+                    .appendPath(BATTERY_USAGE_DIFF_TABLE)
+                    .build();
+
     /** A list of level record event types to access battery usage data. */
     public static final List<BatteryEventType> BATTERY_LEVEL_RECORD_EVENTS =
             List.of(BatteryEventType.FULL_CHARGED, BatteryEventType.EVEN_HOUR);
@@ -272,18 +300,31 @@ public final class DatabaseUtils {
         final long sixDaysAgoTimestamp = getTimestampSixDaysAgo(calendar);
         final long queryTimestamp = Math.max(rawStartTimestamp, sixDaysAgoTimestamp);
         Log.d(TAG, "getBatteryUsageSlots for timestamp: " + queryTimestamp);
+        convertBatteryUsageSlotsIfNeeded(context);
+        final boolean isColumnarStorageEnabled = isColumnarStorageEnabled();
         // Builds the content uri everytime to avoid cache.
         final Uri batteryUsageSlotUri =
                 new Uri.Builder()
                         .scheme(ContentResolver.SCHEME_CONTENT)
                         .authority(AUTHORITY)
-                        .appendPath(BATTERY_USAGE_SLOT_TABLE)
+                        .appendPath(
+                                isColumnarStorageEnabled
+                                        ? BATTERY_USAGE_SLOT_HEADER_TABLE
+                                        : BATTERY_USAGE_SLOT_TABLE)
                         .appendQueryParameter(QUERY_KEY_TIMESTAMP, Long.toString(queryTimestamp))
                         .build();
 
         final List<BatteryUsageSlot> batteryUsageSlotList =
-                loadListFromContentProvider(
-                        context, batteryUsageSlotUri, ConvertUtils::convertToBatteryUsageSlot);
+                isColumnarStorageEnabled
+                        ? loadFromContentProvider(
+                                context,
+                                batteryUsageSlotUri,
+                                new ArrayList<>(),
+                                ConvertUtils::convertToBatteryUsageSlotList)
+                        : loadListFromContentProvider(
+                                context,
+                                batteryUsageSlotUri,
+                                ConvertUtils::convertToBatteryUsageSlot);
         Log.d(
                 TAG,
                 String.format(
@@ -357,23 +398,16 @@ public final class DatabaseUtils {
                         .appendQueryParameter(QUERY_KEY_TIMESTAMP, Long.toString(queryTimestamp))
                         .build();
 
-        final List<BatteryHistEntry> batteryHistEntryList =
-                loadListFromContentProvider(
-                        context, batteryStateUri, cursor -> new BatteryHistEntry(cursor));
-        final Map<Long, Map<String, BatteryHistEntry>> resultMap = new ArrayMap();
-        for (final BatteryHistEntry entry : batteryHistEntryList) {
-            final long timestamp = entry.mTimestamp;
-            final String key = entry.getKey();
-            Map batteryHistEntryMap = resultMap.get(timestamp);
-            // Creates new one if there is no corresponding map.
-            if (batteryHistEntryMap == null) {
-                batteryHistEntryMap = new ArrayMap();
-                resultMap.put(timestamp, batteryHistEntryMap);
-            }
-            batteryHistEntryMap.put(key, entry);
-        }
+        // Groups the rows into the result map while reading, without an intermediate list.
+        final BatteryHistoryMapBuilder historyMapBuilder = new BatteryHistoryMapBuilder();
+        forEachFromContentProvider(
+                context,
+                batteryStateUri,
+                cursor -> new BatteryHistEntry(cursor),
+                historyMapBuilder);
+        final Map<Long, Map<String, BatteryHistEntry>> resultMap = historyMapBuilder.mResultMap;
 
-        if (resultMap == null || resultMap.isEmpty()) {
+        if (resultMap.isEmpty()) {
             Log.d(TAG, "getBatteryHistoryMap() returns empty or null");
         } else {
             Log.d(
@@ -420,6 +454,7 @@ public final class DatabaseUtils {
 
     /** Clears all data in the battery usage database. */
     public static void clearAll(Context context) {
+        BatteryDiffDataCache.clearCache();
         AsyncTask.execute(
                 () -> {
                     try {
@@ -429,6 +464,9 @@ public final class DatabaseUtils {
                         database.batteryEventDao().clearAll();
                         database.batteryStateDao().clearAll();
                         database.batteryUsageSlotDao().clearAll();
+                        database.batteryUsageColumnarDao().clearAllHeaders();
+                        database.batteryUsageColumnarDao().clearAllDiffs();
+                        database.batteryUsageColumnarDao().clearAllNames();
                         database.batteryReattributeDao().clearAll();
                     } catch (RuntimeException e) {
                         Log.e(TAG, "clearAll() failed", e);
@@ -438,6 +476,7 @@ public final class DatabaseUtils {
 
     /** Clears data after a specific startTimestamp in the battery usage database. */
     public static void clearAllAfter(Context context, long startTimestamp) {
+        BatteryDiffDataCache.clearCache();
         AsyncTask.execute(
                 () -> {
                     try {
@@ -447,6 +486,9 @@ public final class DatabaseUtils {
                         database.batteryEventDao().clearAllAfter(startTimestamp);
                         database.batteryStateDao().clearAllAfter(startTimestamp);
                         database.batteryUsageSlotDao().clearAllAfter(startTimestamp);
+                        database.batteryUsageColumnarDao().clearHeadersAfter(startTimestamp);
+                        database.batteryUsageColumnarDao().clearDiffsAfter(startTimestamp);
+                        database.batteryUsageColumnarDao().clearUnusedNames();
                     } catch (RuntimeException e) {
                         Log.e(TAG, "clearAllAfter() failed", e);
                     }
@@ -467,6 +509,9 @@ public final class DatabaseUtils {
                         database.batteryEventDao().clearAllBefore(earliestTimestamp);
                         database.batteryStateDao().clearAllBefore(earliestTimestamp);
                         database.batteryUsageSlotDao().clearAllBefore(earliestTimestamp);
+                        database.batteryUsageColumnarDao().clearHeadersBefore(earliestTimestamp);
+                        database.batteryUsageColumnarDao().clearDiffsBefore(earliestTimestamp);
+                        database.batteryUsageColumnarDao().clearUnusedNames();
                         database.batteryReattributeDao().clearAllBefore(earliestTimestamp);
                     } catch (RuntimeException e) {
                         Log.e(TAG, "clearAllBefore() failed", e);
@@ -634,6 +679,10 @@ public final class DatabaseUtils {
 
     static List<ContentValues> sendBatteryUsageSlotData(
             final Context context, final List<BatteryUsageSlot> batteryUsageSlotList) {
+        convertBatteryUsageSlotsIfNeeded(context);
+        if (isColumnarStorageEnabled()) {
+            return sendColumnarBatteryUsageSlotData(context, batteryUsageSlotList);
+        }
         final long startTime = System.currentTimeMillis();
         // Creates the ContentValues list to insert them into provider.
         final List<ContentValues> valuesList = new ArrayList<>();
@@ -666,6 +715,132 @@ public final class DatabaseUtils {
         return valuesList;
     }
 
+    /**
+     * Sends the battery usage slots into the columnar tables, the slot level information and the
+     * app and system usage are inserted as fixed-width rows without encoding the whole proto.
+     */
+    static List<ContentValues> sendColumnarBatteryUsageSlotData(
+            final Context context, final List<BatteryUsageSlot> batteryUsageSlotList) {
+        final long startTime = System.currentTimeMillis();
+        // Creates the ContentValues list to insert them into provider.
+        final List<ContentValues> headerValuesList = new ArrayList<>();
+        final List<ContentValues> diffValuesList = new ArrayList<>();
+        for (BatteryUsageSlot batteryUsageSlot : batteryUsageSlotList) {
+            headerValuesList.add(
+                    ConvertUtils.convertBatteryUsageSlotToHeaderContentValues(batteryUsageSlot));
+            diffValuesList.addAll(
+                    ConvertUtils.convertBatteryUsageSlotToDiffContentValuesList(
+                            batteryUsageSlot));
+        }
+        int size = 0;
+        final ContentResolver resolver = context.getContentResolver();
+        // Inserts the slot headers before the usage rows, since inserting a header clears the
+        // stale usage rows of the same slot. All rows are applied in one transaction, so a slot
+        // is never left without its usage rows.
+        if (!headerValuesList.isEmpty()) {
+            final ArrayList<ContentProviderOperation> operations =
+                    new ArrayList<>(headerValuesList.size() + diffValuesList.size());
+            for (ContentValues headerValues : headerValuesList) {
+                operations.add(
+                        ContentProviderOperation.newInsert(BATTERY_USAGE_SLOT_HEADER_URI)
+                                .withValues(headerValues)
+                                .build());
+            }
+            for (ContentValues diffValues : diffValuesList) {
+                operations.add(
+                        ContentProviderOperation.newInsert(BATTERY_USAGE_DIFF_URI)
+                                .withValues(diffValues)
+                                .build());
+            }
+            try {
+                resolver.applyBatch(AUTHORITY, operations);
+                size = headerValuesList.size();
+                resolver.notifyChange(BATTERY_USAGE_SLOT_HEADER_URI, /* observer= */ null);
+                Log.d(TAG, "insert() columnar battery usage slots data into database");
+            } catch (Exception e) {
+                Log.e(TAG, "applyBatch() columnar battery usage slots into database error:", e);
+            }
+        }
+        Log.d(
+                TAG,
+                String.format(
+                        "sendColumnarBatteryUsageSlotData() size=%d rows=%d in %d/ms",
+                        size,
+                        diffValuesList.size(),
+                        (System.currentTimeMillis() - startTime)));
+        clearMemory();
+        return headerValuesList;
+    }
+
+    /**
+     * Converts the battery usage slots written while the columnar storage was in the other mode
+     * into the current storage, so the slots written before the flag is flipped are kept. It only
+     * writes the database once after the flag is flipped, the last mode is kept in the shared
+     * preferences.
+     */
+    @VisibleForTesting
+    static void convertBatteryUsageSlotsIfNeeded(Context context) {
+        if (BatteryUtils.isWorkProfile(context)) {
+            return;
+        }
+        final boolean isColumnarStorageEnabled = isColumnarStorageEnabled();
+        final SharedPreferences sharedPreferences = getSharedPreferences(context);
+        if (sharedPreferences.contains(KEY_LAST_COLUMNAR_STORAGE_ENABLED)
+                && sharedPreferences.getBoolean(KEY_LAST_COLUMNAR_STORAGE_ENABLED, false)
+                        == isColumnarStorageEnabled) {
+            return;
+        }
+        final long startTime = System.currentTimeMillis();
+        try {
+            final BatteryStateDatabase database =
+                    BatteryStateDatabase.getInstance(context.getApplicationContext());
+            final int size =
+                    database.runInTransaction(
+                            () ->
+                                    isColumnarStorageEnabled
+                                            ? BatteryUsageColumnarMigration
+                                                    .convertBatteryUsageSlotRows(
+                                                            database.getOpenHelper()
+                                                                    .getWritableDatabase())
+                                            : convertColumnarBatteryUsageSlots(database));
+            sharedPreferences
+                    .edit()
+                    .putBoolean(KEY_LAST_COLUMNAR_STORAGE_ENABLED, isColumnarStorageEnabled)
+                    .apply();
+            Log.d(
+                    TAG,
+                    String.format(
+                            "convertBatteryUsageSlotsIfNeeded() columnar=%b size=%d in %d/ms",
+                            isColumnarStorageEnabled,
+                            size,
+                            (System.currentTimeMillis() - startTime)));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "convertBatteryUsageSlotsIfNeeded() failed", e);
+        }
+    }
+
+    /**
+     * Converts the columnar slots newer than the latest Base64 encoded slot, which are written
+     * while the columnar storage was enabled, into Base64 encoded slots.
+     */
+    private static int convertColumnarBatteryUsageSlots(BatteryStateDatabase database) {
+        final List<BatteryUsageSlot> batteryUsageSlots;
+        try (Cursor cursor =
+                database.batteryUsageColumnarDao()
+                        .getAllAfter(database.batteryUsageSlotDao().getLatestTimestamp() + 1)) {
+            batteryUsageSlots = ConvertUtils.convertToBatteryUsageSlotList(cursor);
+        }
+        final List<BatteryUsageSlotEntity> entities = new ArrayList<>(batteryUsageSlots.size());
+        for (BatteryUsageSlot batteryUsageSlot : batteryUsageSlots) {
+            entities.add(
+                    BatteryUsageSlotEntity.create(
+                            ConvertUtils.convertBatteryUsageSlotToContentValues(
+                                    batteryUsageSlot)));
+        }
+        database.batteryUsageSlotDao().insertAll(entities);
+        return entities.size();
+    }
+
     static List<ContentValues> sendBatteryEntryData(
             final Context context,
             final long snapshotTimestamp,
@@ -894,6 +1069,12 @@ public final class DatabaseUtils {
         }
     }
 
+    private static boolean isColumnarStorageEnabled() {
+        return FeatureFactory.getFeatureFactory()
+                .getPowerUsageFeatureProvider()
+                .isBatteryUsageSlotColumnarStorageEnabled();
+    }
+
     private static void clearDataAfterTimeChangedIfNeededInternal(Context context) {
         final long currentTime = System.currentTimeMillis();
         final String logInfo =
@@ -946,7 +1127,7 @@ public final class DatabaseUtils {
                 uri,
                 new ArrayList<>(),
                 cursor -> {
-                    final List<E> list = new ArrayList<>();
+                    final List<E> list = new ArrayList<>(cursor.getCount());
                     while (cursor.moveToNext()) {
                         list.add(converter.apply(cursor));
                     }
@@ -954,6 +1135,28 @@ public final class DatabaseUtils {
                 });
     }
 
+    /**
+     * Converts and passes the rows to the consumer one by one, so a large query result could be
+     * aggregated directly without holding all converted rows in a list.
+     *
+     * @return the number of consumed rows
+     */
+    private static <E> int forEachFromContentProvider(
+            Context context, Uri uri, Function<Cursor, E> converter, Consumer<E> consumer) {
+        return loadFromContentProvider(
+                context,
+                uri,
+                /* defaultValue= */ 0,
+                cursor -> {
+                    int size = 0;
+                    while (cursor.moveToNext()) {
+                        consumer.accept(converter.apply(cursor));
+                        size++;
+                    }
+                    return size;
+                });
+    }
+
     private static void writeString(
             Context context, PrintWriter writer, String prefix, String key) {
         final SharedPreferences sharedPreferences = getSharedPreferences(context);
@@ -991,4 +1194,26 @@ public final class DatabaseUtils {
                 },
                 CLEAR_MEMORY_DELAYED_MS);
     }
+
+    /** Groups the streamed {@link BatteryHistEntry} rows into the battery history map. */
+    private static final class BatteryHistoryMapBuilder implements Consumer<BatteryHistEntry> {
+        private final Map<Long, Map<String, BatteryHistEntry>> mResultMap = new ArrayMap<>();
+        // The rows are ordered by timestamp, so only looks up the map when the timestamp changes.
+        private Map<String, BatteryHistEntry> mCurrentEntryMap;
+        private long mCurrentTimestamp;
+
+        @Override
+        public void accept(BatteryHistEntry entry) {
+            if (mCurrentEntryMap == null || mCurrentTimestamp != entry.mTimestamp) {
+                mCurrentTimestamp = entry.mTimestamp;
+                mCurrentEntryMap = mResultMap.get(mCurrentTimestamp);
+                // Creates new one if there is no corresponding map.
+                if (mCurrentEntryMap == null) {
+                    mCurrentEntryMap = new ArrayMap<>();
+                    mResultMap.put(mCurrentTimestamp, mCurrentEntryMap);
+                }
+            }
+            mCurrentEntryMap.put(entry.getKey(), entry);
+        }
+    }
 }
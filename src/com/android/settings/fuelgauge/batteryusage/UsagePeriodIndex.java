@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.util.ArrayMap;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The indexed app usage periods for each corresponding time slot, in the same [dailyIndex]
+ * [hourlyIndex] structure as the battery usage map.
+ *
+ * <p>Slots and users are indexed by primitive keys and the periods of each app are packed into a
+ * {@code long} array, to avoid allocating a boxed object graph for days of app usage events.
+ */
+public final class UsagePeriodIndex {
+    private final SparseArray<SparseArray<SlotUsagePeriods>> mDailySlots = new SparseArray<>();
+
+    /** Adds the daily index with no hourly slots if it is not added yet. */
+    void putDaily(int dailyIndex) {
+        if (mDailySlots.get(dailyIndex) == null) {
+            mDailySlots.put(dailyIndex, new SparseArray<>());
+        }
+    }
+
+    /** Puts the usage periods of a slot, the value could be null if there is no data. */
+    void putSlot(int dailyIndex, int hourlyIndex, @Nullable SlotUsagePeriods slotUsagePeriods) {
+        putDaily(dailyIndex);
+        mDailySlots.get(dailyIndex).put(hourlyIndex, slotUsagePeriods);
+    }
+
+    /** Gets the usage periods of a slot, or null if there is no data. */
+    @Nullable
+    SlotUsagePeriods getSlot(int dailyIndex, int hourlyIndex) {
+        final SparseArray<SlotUsagePeriods> hourlySlots = mDailySlots.get(dailyIndex);
+        return hourlySlots == null ? null : hourlySlots.get(hourlyIndex);
+    }
+
+    /** Gets the number of daily indexes. */
+    int getDailySize() {
+        return mDailySlots.size();
+    }
+
+    /** Gets the number of hourly slots of the daily index. */
+    int getHourlySize(int dailyIndex) {
+        final SparseArray<SlotUsagePeriods> hourlySlots = mDailySlots.get(dailyIndex);
+        return hourlySlots == null ? 0 : hourlySlots.size();
+    }
+
+    /** The app usage periods of all users and packages in a specific time slot. */
+    public static final class SlotUsagePeriods {
+        private final LongSparseArray<Map<String, PeriodList>> mUserPeriods =
+                new LongSparseArray<>();
+
+        /** Adds a usage period of the package for the user. */
+        void add(long userId, @NonNull String packageName, long startTime, long endTime) {
+            Map<String, PeriodList> packagePeriods = mUserPeriods.get(userId);
+            if (packagePeriods == null) {
+                packagePeriods = new ArrayMap<>();
+                mUserPeriods.put(userId, packagePeriods);
+            }
+            PeriodList periodList = packagePeriods.get(packageName);
+            if (periodList == null) {
+                periodList = new PeriodList();
+                packagePeriods.put(packageName, periodList);
+            }
+            periodList.add(startTime, endTime);
+        }
+
+        /** Sorts the usage periods of each package by start time. */
+        void sortByStartTime() {
+            for (int i = 0; i < mUserPeriods.size(); i++) {
+                for (PeriodList periodList : mUserPeriods.valueAt(i).values()) {
+                    periodList.sortByStartTime();
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return mUserPeriods.size() == 0;
+        }
+
+        /** Gets the number of users which have usage periods. */
+        int getUserSize() {
+            return mUserPeriods.size();
+        }
+
+        /** Gets the number of packages which have usage periods for the user. */
+        int getPackageSize(long userId) {
+            final Map<String, PeriodList> packagePeriods = mUserPeriods.get(userId);
+            return packagePeriods == null ? 0 : packagePeriods.size();
+        }
+
+        /** Gets the non-overlapping usage duration of the package for the user. */
+        long getScreenOnTime(long userId, @Nullable String packageName) {
+            final Map<String, PeriodList> packagePeriods = mUserPeriods.get(userId);
+            final PeriodList periodList =
+                    packagePeriods == null ? null : packagePeriods.get(packageName);
+            return periodList == null
+                    ? 0
+                    : getScreenOnTime(
+                            periodList.getStartTimes(),
+                            periodList.getEndTimes(),
+                            periodList.size());
+        }
+
+        /** Gets the non-overlapping usage duration of all packages for the visible users. */
+        long getScreenOnTime(@NonNull UserIdsSeries userIdsSeries) {
+            int size = 0;
+            for (int i = 0; i < mUserPeriods.size(); i++) {
+                if (userIdsSeries.isFromOtherUsers(mUserPeriods.keyAt(i))) {
+                    continue;
+                }
+                for (PeriodList periodList : mUserPeriods.valueAt(i).values()) {
+                    size += periodList.size();
+                }
+            }
+            final long[] startTimes = new long[size];
+            final long[] endTimes = new long[size];
+            int index = 0;
+            for (int i = 0; i < mUserPeriods.size(); i++) {
+                if (userIdsSeries.isFromOtherUsers(mUserPeriods.keyAt(i))) {
+                    continue;
+                }
+                for (PeriodList periodList : mUserPeriods.valueAt(i).values()) {
+                    for (int j = 0; j < periodList.size(); j++) {
+                        startTimes[index] = periodList.getStartTime(j);
+                        endTimes[index] = periodList.getEndTime(j);
+                        index++;
+                    }
+                }
+            }
+            return getScreenOnTime(startTimes, endTimes, size);
+        }
+
+        /** Gets the usage periods of the package for the user as {@link AppUsagePeriod} list. */
+        @VisibleForTesting
+        List<AppUsagePeriod> getAppUsagePeriodList(long userId, @NonNull String packageName) {
+            final List<AppUsagePeriod> appUsagePeriodList = new ArrayList<>();
+            final Map<String, PeriodList> packagePeriods = mUserPeriods.get(userId);
+            final PeriodList periodList =
+                    packagePeriods == null ? null : packagePeriods.get(packageName);
+            if (periodList == null) {
+                return appUsagePeriodList;
+            }
+            for (int i = 0; i < periodList.size(); i++) {
+                appUsagePeriodList.add(
+                        AppUsagePeriod.newBuilder()
+                                .setStartTime(periodList.getStartTime(i))
+                                .setEndTime(periodList.getEndTime(i))
+                                .build());
+            }
+            return appUsagePeriodList;
+        }
+
+        /**
+         * Gets the total length of the union of the periods, the input arrays are sorted in
+         * place.
+         */
+        private static long getScreenOnTime(long[] startTimes, long[] endTimes, int size) {
+            if (size == 0) {
+                return 0;
+            }
+            // Traverse the sorted start and end points in order to determine the non-overlapping
+            // usage duration.
+            Arrays.sort(startTimes, 0, size);
+            Arrays.sort(endTimes, 0, size);
+            int numberOfActivePeriods = 0;
+            long startOfCurrentContiguousPeriod = 0;
+            long totalScreenOnTime = 0;
+            int startIndex = 0;
+            int endIndex = 0;
+            while (endIndex < size) {
+                if (startIndex < size && startTimes[startIndex] <= endTimes[endIndex]) {
+                    if (numberOfActivePeriods++ == 0) {
+                        startOfCurrentContiguousPeriod = startTimes[startIndex];
+                    }
+                    startIndex++;
+                } else {
+                    if (--numberOfActivePeriods == 0) {
+                        totalScreenOnTime += endTimes[endIndex] - startOfCurrentContiguousPeriod;
+                    }
+                    endIndex++;
+                }
+            }
+            return totalScreenOnTime;
+        }
+    }
+
+    /** A growable list of periods packed as [start0, end0, start1, end1, ...]. */
+    private static final class PeriodList {
+        private static final int INITIAL_CAPACITY = 4;
+
+        private long[] mTimes = new long[INITIAL_CAPACITY * 2];
+        private int mSize;
+
+        void add(long startTime, long endTime) {
+            if (mSize * 2 == mTimes.length) {
+                mTimes = Arrays.copyOf(mTimes, mTimes.length * 2);
+            }
+            mTimes[mSize * 2] = startTime;
+            mTimes[mSize * 2 + 1] = endTime;
+            mSize++;
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        long getStartTime(int index) {
+            return mTimes[index * 2];
+        }
+
+        long getEndTime(int index) {
+            return mTimes[index * 2 + 1];
+        }
+
+        long[] getStartTimes() {
+            final long[] startTimes = new long[mSize];
+            for (int i = 0; i < mSize; i++) {
+                startTimes[i] = mTimes[i * 2];
+            }
+            return startTimes;
+        }
+
+        long[] getEndTimes() {
+            final long[] endTimes = new long[mSize];
+            for (int i = 0; i < mSize; i++) {
+                endTimes[i] = mTimes[i * 2 + 1];
+            }
+            return endTimes;
+        }
+
+        // Stable insertion sort, the periods of a package in a slot are few and mostly sorted.
+        void sortByStartTime() {
+            for (int i = 1; i < mSize; i++) {
+                final long startTime = mTimes[i * 2];
+                final long endTime = mTimes[i * 2 + 1];
+                int j = i - 1;
+                while (j >= 0 && mTimes[j * 2] > startTime) {
+                    mTimes[(j + 1) * 2] = mTimes[j * 2];
+                    mTimes[(j + 1) * 2 + 1] = mTimes[j * 2 + 1];
+                    j--;
+                }
+                mTimes[(j + 1) * 2] = startTime;
+                mTimes[(j + 1) * 2 + 1] = endTime;
+            }
+        }
+    }
+}
@@ -31,9 +31,12 @@ import androidx.room.RoomDatabase;
             BatteryEventEntity.class,
             BatteryState.class,
             BatteryUsageSlotEntity.class,
-            BatteryReattributeEntity.class
+            BatteryReattributeEntity.class,
+            BatteryUsageSlotHeaderEntity.class,
+            BatteryUsageDiffEntity.class,
+            BatteryUsageNameEntity.class
         },
-        version = 2)
+        version = 4)
 public abstract class BatteryStateDatabase extends RoomDatabase {
     private static final String TAG = "BatteryStateDatabase";
     private static final String DB_FILE_NAME = "battery-usage-db-v10";
@@ -52,6 +55,9 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
     /** Provides DAO for battery usage slot table. */
     public abstract BatteryUsageSlotDao batteryUsageSlotDao();
 
+    /** Provides DAO for columnar battery usage slot tables. */
+    public abstract BatteryUsageColumnarDao batteryUsageColumnarDao();
+
     /** Provides DAO for battery reattribution table. */
     @NonNull
     public abstract BatteryReattributeDao batteryReattributeDao();
@@ -63,6 +69,9 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
                     Room.databaseBuilder(context, BatteryStateDatabase.class, DB_FILE_NAME)
                             // Allows accessing data in the main thread for dumping bugreport.
                             .allowMainThreadQueries()
+                            .addMigrations(
+                                    BatteryUsageColumnarMigration.MIGRATION_2_3,
+                                    BatteryStateIndexMigration.MIGRATION_3_4)
                             .fallbackToDestructiveMigration()
                             .build();
             Log.d(TAG, "initialize battery states database");
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.List;
+
+/**
+ * A {@link Migration} to create the indexes for the timestamp range queries and deletions of the
+ * battery usage tables, which scanned the whole tables before.
+ */
+public final class BatteryStateIndexMigration extends Migration {
+    private static final String TAG = "BatteryStateIndexMigration";
+
+    @VisibleForTesting
+    static final List<String> CREATE_INDEXES =
+            List.of(
+                    "CREATE INDEX IF NOT EXISTS `index_BatteryState_timestamp`"
+                            + " ON `BatteryState` (`timestamp`)",
+                    "CREATE INDEX IF NOT EXISTS `index_AppUsageEventEntity_timestamp`"
+                            + " ON `AppUsageEventEntity` (`timestamp`)",
+                    "CREATE INDEX IF NOT EXISTS `index_AppUsageEventEntity_userId_timestamp`"
+                            + " ON `AppUsageEventEntity` (`userId`, `timestamp`)",
+                    "CREATE INDEX IF NOT EXISTS `index_BatteryEventEntity_timestamp`"
+                            + " ON `BatteryEventEntity` (`timestamp`)",
+                    "CREATE INDEX IF NOT EXISTS"
+                            + " `index_BatteryEventEntity_batteryEventType_timestamp`"
+                            + " ON `BatteryEventEntity` (`batteryEventType`, `timestamp`)",
+                    "CREATE INDEX IF NOT EXISTS `index_BatteryUsageSlotEntity_timestamp`"
+                            + " ON `BatteryUsageSlotEntity` (`timestamp`)");
+
+    /** Migrates the database from version 3 to version 4. */
+    public static final Migration MIGRATION_3_4 = new BatteryStateIndexMigration(3, 4);
+
+    private BatteryStateIndexMigration(int startVersion, int endVersion) {
+        super(startVersion, endVersion);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        final long startTime = System.currentTimeMillis();
+        for (String createIndex : CREATE_INDEXES) {
+            database.execSQL(createIndex);
+        }
+        Log.d(
+                TAG,
+                String.format(
+                        "migrate() from %d to %d in %d/ms",
+                        startVersion, endVersion, System.currentTimeMillis() - startTime));
+    }
+}
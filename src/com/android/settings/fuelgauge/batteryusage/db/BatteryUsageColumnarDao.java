@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import android.database.Cursor;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Data access object for accessing the columnar battery usage slot tables {@link
+ * BatteryUsageSlotHeaderEntity}, {@link BatteryUsageDiffEntity} and {@link BatteryUsageNameEntity}
+ * in the database.
+ */
+@Dao
+public interface BatteryUsageColumnarDao {
+    /** Inserts a {@link BatteryUsageSlotHeaderEntity} data into the database. */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertHeader(BatteryUsageSlotHeaderEntity header);
+
+    /** Inserts a {@link BatteryUsageDiffEntity} data into the database. */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertDiff(BatteryUsageDiffEntity diff);
+
+    /** Inserts a new {@link BatteryUsageNameEntity} data into the database. */
+    @Insert(onConflict = OnConflictStrategy.ABORT)
+    void insertName(BatteryUsageNameEntity name);
+
+    /** Gets all recorded slot headers. */
+    @Query("SELECT * FROM BatteryUsageSlotHeaderEntity ORDER BY timestamp ASC")
+    List<BatteryUsageSlotHeaderEntity> getAllHeaders();
+
+    /** Gets all recorded app and system usage rows. */
+    @Query("SELECT * FROM BatteryUsageDiffEntity ORDER BY timestamp ASC, mId ASC")
+    List<BatteryUsageDiffEntity> getAllDiffs();
+
+    /** Gets the stored name of an id in the dictionary, or {@code null} if the id is free. */
+    @Query("SELECT name FROM BatteryUsageNameEntity WHERE id = :id")
+    String getName(long id);
+
+    /** Gets all recorded names in the dictionary. */
+    @Query("SELECT * FROM BatteryUsageNameEntity")
+    List<BatteryUsageNameEntity> getAllNames();
+
+    /**
+     * Gets the {@link Cursor} of all recorded slots after a specific timestamp, one row for each
+     * app or system usage joined with its slot header and names. A slot without any usage has one
+     * row with a {@code null} {@link BatteryUsageDiffEntity#KEY_DIFF_ID} column.
+     */
+    @Query(
+            "SELECT h.timestamp AS timestamp, h.endTimestamp AS endTimestamp,"
+                    + " h.startBatteryLevel AS startBatteryLevel,"
+                    + " h.endBatteryLevel AS endBatteryLevel,"
+                    + " h.screenOnTime AS slotScreenOnTime, d.mId AS diffId,"
+                    + " d.isSystemUsage, d.uid, d.userId, d.isHidden, d.componentId,"
+                    + " d.consumerType, d.consumePower, d.foregroundUsageConsumePower,"
+                    + " d.foregroundServiceUsageConsumePower, d.backgroundUsageConsumePower,"
+                    + " d.cachedUsageConsumePower, d.foregroundUsageTimeInMs,"
+                    + " d.foregroundServiceUsageTimeInMs, d.backgroundUsageTimeInMs,"
+                    + " d.screenOnTimeInMs, d.appOptimizationMode,"
+                    + " p.name AS packageName, k.name AS diffKey, l.name AS label"
+                    + " FROM BatteryUsageSlotHeaderEntity h"
+                    + " LEFT JOIN BatteryUsageDiffEntity d ON d.timestamp = h.timestamp"
+                    + " LEFT JOIN BatteryUsageNameEntity p ON p.id = d.packageNameId"
+                    + " LEFT JOIN BatteryUsageNameEntity k ON k.id = d.keyId"
+                    + " LEFT JOIN BatteryUsageNameEntity l ON l.id = d.labelId"
+                    + " WHERE h.timestamp >= :timestamp"
+                    + " ORDER BY h.timestamp ASC, d.mId ASC")
+    Cursor getAllAfter(long timestamp);
+
+    /** Deletes all usage rows of the slot at a specific timestamp. */
+    @Query("DELETE FROM BatteryUsageDiffEntity WHERE timestamp = :timestamp")
+    void clearDiffsAt(long timestamp);
+
+    /** Deletes all recorded slot headers before a specific timestamp. */
+    @Query("DELETE FROM BatteryUsageSlotHeaderEntity WHERE timestamp <= :timestamp")
+    void clearHeadersBefore(long timestamp);
+
+    /** Deletes all recorded usage rows before a specific timestamp. */
+    @Query("DELETE FROM BatteryUsageDiffEntity WHERE timestamp <= :timestamp")
+    void clearDiffsBefore(long timestamp);
+
+    /** Deletes all recorded slot headers after a specific timestamp. */
+    @Query("DELETE FROM BatteryUsageSlotHeaderEntity WHERE timestamp >= :timestamp")
+    void clearHeadersAfter(long timestamp);
+
+    /** Deletes all recorded usage rows after a specific timestamp. */
+    @Query("DELETE FROM BatteryUsageDiffEntity WHERE timestamp >= :timestamp")
+    void clearDiffsAfter(long timestamp);
+
+    /** Deletes all names which are no longer referenced by any usage row. */
+    @Query(
+            "DELETE FROM BatteryUsageNameEntity WHERE id NOT IN"
+                    + " (SELECT packageNameId FROM BatteryUsageDiffEntity"
+                    + " UNION SELECT keyId FROM BatteryUsageDiffEntity"
+                    + " UNION SELECT labelId FROM BatteryUsageDiffEntity)")
+    void clearUnusedNames();
+
+    /** Clears all recorded slot headers in the database. */
+    @Query("DELETE FROM BatteryUsageSlotHeaderEntity")
+    void clearAllHeaders();
+
+    /** Clears all recorded usage rows in the database. */
+    @Query("DELETE FROM BatteryUsageDiffEntity")
+    void clearAllDiffs();
+
+    /** Clears all recorded names in the database. */
+    @Query("DELETE FROM BatteryUsageNameEntity")
+    void clearAllNames();
+}
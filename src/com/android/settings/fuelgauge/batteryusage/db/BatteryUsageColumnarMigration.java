@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.android.settings.fuelgauge.BatteryUtils;
+import com.android.settings.fuelgauge.batteryusage.BatteryUsageSlot;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+
+/**
+ * A {@link Migration} to create the columnar battery usage slot tables and convert the existing
+ * Base64 encoded {@link BatteryUsageSlotEntity} rows into them.
+ */
+public final class BatteryUsageColumnarMigration extends Migration {
+    private static final String TAG = "BatteryUsageColumnarMigration";
+
+    @VisibleForTesting
+    static final String CREATE_NAME_TABLE =
+            "CREATE TABLE IF NOT EXISTS `BatteryUsageNameEntity` (`id` INTEGER NOT NULL,"
+                    + " `name` TEXT, PRIMARY KEY(`id`))";
+
+    @VisibleForTesting
+    static final String CREATE_HEADER_TABLE =
+            "CREATE TABLE IF NOT EXISTS `BatteryUsageSlotHeaderEntity` ("
+                    + "`timestamp` INTEGER NOT NULL, `endTimestamp` INTEGER NOT NULL,"
+                    + " `startBatteryLevel` INTEGER NOT NULL, `endBatteryLevel` INTEGER NOT NULL,"
+                    + " `screenOnTime` INTEGER NOT NULL, PRIMARY KEY(`timestamp`))";
+
+    @VisibleForTesting
+    static final String CREATE_DIFF_TABLE =
+            "CREATE TABLE IF NOT EXISTS `BatteryUsageDiffEntity` ("
+                    + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL,"
+                    + " `timestamp` INTEGER NOT NULL, `isSystemUsage` INTEGER NOT NULL,"
+                    + " `uid` INTEGER NOT NULL, `userId` INTEGER NOT NULL,"
+                    + " `packageNameId` INTEGER NOT NULL, `keyId` INTEGER NOT NULL,"
+                    + " `labelId` INTEGER NOT NULL, `isHidden` INTEGER NOT NULL,"
+                    + " `componentId` INTEGER NOT NULL, `consumerType` INTEGER NOT NULL,"
+                    + " `consumePower` REAL NOT NULL, `foregroundUsageConsumePower` REAL NOT NULL,"
+                    + " `foregroundServiceUsageConsumePower` REAL NOT NULL,"
+                    + " `backgroundUsageConsumePower` REAL NOT NULL,"
+                    + " `cachedUsageConsumePower` REAL NOT NULL,"
+                    + " `foregroundUsageTimeInMs` INTEGER NOT NULL,"
+                    + " `foregroundServiceUsageTimeInMs` INTEGER NOT NULL,"
+                    + " `backgroundUsageTimeInMs` INTEGER NOT NULL,"
+                    + " `screenOnTimeInMs` INTEGER NOT NULL,"
+                    + " `appOptimizationMode` INTEGER NOT NULL)";
+
+    @VisibleForTesting
+    static final String CREATE_DIFF_TIMESTAMP_INDEX =
+            "CREATE INDEX IF NOT EXISTS `index_BatteryUsageDiffEntity_timestamp`"
+                    + " ON `BatteryUsageDiffEntity` (`timestamp`)";
+
+    /** Migrates the database from version 2 to version 3. */
+    public static final Migration MIGRATION_2_3 = new BatteryUsageColumnarMigration(2, 3);
+
+    private BatteryUsageColumnarMigration(int startVersion, int endVersion) {
+        super(startVersion, endVersion);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        final long startTime = System.currentTimeMillis();
+        database.execSQL(CREATE_NAME_TABLE);
+        database.execSQL(CREATE_HEADER_TABLE);
+        database.execSQL(CREATE_DIFF_TABLE);
+        database.execSQL(CREATE_DIFF_TIMESTAMP_INDEX);
+        final int size = convertBatteryUsageSlotRows(database);
+        Log.d(
+                TAG,
+                String.format(
+                        "migrate() from %d to %d size=%d in %d/ms",
+                        startVersion,
+                        endVersion,
+                        size,
+                        System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Converts the Base64 encoded {@link BatteryUsageSlotEntity} rows newer than the latest
+     * columnar slot into columnar rows. It converts all rows on the migration, and the rows
+     * written while the columnar storage was disabled once it's enabled.
+     *
+     * @return the number of converted slots
+     */
+    public static int convertBatteryUsageSlotRows(SupportSQLiteDatabase database) {
+        int size = 0;
+        try (Cursor cursor =
+                database.query(
+                        "SELECT batteryUsageSlot FROM BatteryUsageSlotEntity WHERE timestamp >"
+                                + " (SELECT COALESCE(MAX(timestamp), -1)"
+                                + " FROM BatteryUsageSlotHeaderEntity)"
+                                + " ORDER BY timestamp ASC")) {
+            while (cursor.moveToNext()) {
+                final BatteryUsageSlot batteryUsageSlot =
+                        BatteryUtils.parseProtoFromString(
+                                cursor.getString(/* columnIndex= */ 0),
+                                BatteryUsageSlot.getDefaultInstance());
+                if (!batteryUsageSlot.hasStartTimestamp()) {
+                    continue;
+                }
+                insertBatteryUsageSlot(database, batteryUsageSlot);
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static void insertBatteryUsageSlot(
+            SupportSQLiteDatabase database, BatteryUsageSlot batteryUsageSlot) {
+        database.insert(
+                "BatteryUsageSlotHeaderEntity",
+                SQLiteDatabase.CONFLICT_REPLACE,
+                ConvertUtils.convertBatteryUsageSlotToHeaderContentValues(batteryUsageSlot));
+        for (ContentValues diffValues :
+                ConvertUtils.convertBatteryUsageSlotToDiffContentValuesList(batteryUsageSlot)) {
+            database.insert(
+                    "BatteryUsageDiffEntity",
+                    SQLiteDatabase.CONFLICT_REPLACE,
+                    toColumnValues(
+                            BatteryUsageDiffEntity.create(
+                                    diffValues, name -> getOrInsertNameId(database, name))));
+        }
+    }
+
+    private static long getOrInsertNameId(SupportSQLiteDatabase database, String name) {
+        return BatteryUsageNameEntity.getOrInsertNameId(
+                name,
+                id -> {
+                    try (Cursor cursor =
+                            database.query(
+                                    "SELECT name FROM BatteryUsageNameEntity WHERE id = ?",
+                                    new Object[] {id})) {
+                        return cursor.moveToFirst() ? cursor.getString(/* columnIndex= */ 0) : null;
+                    }
+                },
+                nameEntity -> {
+                    final ContentValues nameValues = new ContentValues(2);
+                    nameValues.put("id", nameEntity.id);
+                    nameValues.put("name", nameEntity.name);
+                    database.insert(
+                            "BatteryUsageNameEntity", SQLiteDatabase.CONFLICT_ABORT, nameValues);
+                });
+    }
+
+    private static ContentValues toColumnValues(BatteryUsageDiffEntity entity) {
+        final ContentValues values = new ContentValues();
+        values.put("timestamp", entity.timestamp);
+        values.put("isSystemUsage", entity.isSystemUsage);
+        values.put("uid", entity.uid);
+        values.put("userId", entity.userId);
+        values.put("packageNameId", entity.packageNameId);
+        values.put("keyId", entity.keyId);
+        values.put("labelId", entity.labelId);
+        values.put("isHidden", entity.isHidden);
+        values.put("componentId", entity.componentId);
+        values.put("consumerType", entity.consumerType);
+        values.put("consumePower", entity.consumePower);
+        values.put("foregroundUsageConsumePower", entity.foregroundUsageConsumePower);
+        values.put(
+                "foregroundServiceUsageConsumePower", entity.foregroundServiceUsageConsumePower);
+        values.put("backgroundUsageConsumePower", entity.backgroundUsageConsumePower);
+        values.put("cachedUsageConsumePower", entity.cachedUsageConsumePower);
+        values.put("foregroundUsageTimeInMs", entity.foregroundUsageTimeInMs);
+        values.put("foregroundServiceUsageTimeInMs", entity.foregroundServiceUsageTimeInMs);
+        values.put("backgroundUsageTimeInMs", entity.backgroundUsageTimeInMs);
+        values.put("screenOnTimeInMs", entity.screenOnTimeInMs);
+        values.put("appOptimizationMode", entity.appOptimizationMode);
+        return values;
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import android.content.ContentValues;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link Entity} class to save one app or system usage of a battery usage slot into database as
+ * a fixed-width row. The package name, key and label are saved in {@link BatteryUsageNameEntity}
+ * and referenced by their ids.
+ */
+@Entity(indices = {@Index("timestamp")})
+public class BatteryUsageDiffEntity {
+    /** Keys for accessing {@link ContentValues}. */
+    public static final String KEY_TIMESTAMP = "timestamp";
+
+    public static final String KEY_IS_SYSTEM_USAGE = "isSystemUsage";
+    public static final String KEY_UID = "uid";
+    public static final String KEY_USER_ID = "userId";
+    public static final String KEY_PACKAGE_NAME = "packageName";
+    public static final String KEY_KEY = "diffKey";
+    public static final String KEY_LABEL = "label";
+    public static final String KEY_IS_HIDDEN = "isHidden";
+    public static final String KEY_COMPONENT_ID = "componentId";
+    public static final String KEY_CONSUMER_TYPE = "consumerType";
+    public static final String KEY_CONSUME_POWER = "consumePower";
+    public static final String KEY_FOREGROUND_USAGE_CONSUME_POWER = "foregroundUsageConsumePower";
+    public static final String KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER =
+            "foregroundServiceUsageConsumePower";
+    public static final String KEY_BACKGROUND_USAGE_CONSUME_POWER = "backgroundUsageConsumePower";
+    public static final String KEY_CACHED_USAGE_CONSUME_POWER = "cachedUsageConsumePower";
+    public static final String KEY_FOREGROUND_USAGE_TIME_IN_MS = "foregroundUsageTimeInMs";
+    public static final String KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS =
+            "foregroundServiceUsageTimeInMs";
+    public static final String KEY_BACKGROUND_USAGE_TIME_IN_MS = "backgroundUsageTimeInMs";
+    public static final String KEY_SCREEN_ON_TIME_IN_MS = "screenOnTimeInMs";
+    public static final String KEY_APP_OPTIMIZATION_MODE = "appOptimizationMode";
+
+    /** Key for the row id column in the joined columnar query result. */
+    public static final String KEY_DIFF_ID = "diffId";
+
+    @PrimaryKey(autoGenerate = true)
+    private long mId;
+
+    public final long timestamp;
+    public final boolean isSystemUsage;
+    public final long uid;
+    public final long userId;
+    public final long packageNameId;
+    public final long keyId;
+    public final long labelId;
+    public final boolean isHidden;
+    public final int componentId;
+    public final int consumerType;
+    public final double consumePower;
+    public final double foregroundUsageConsumePower;
+    public final double foregroundServiceUsageConsumePower;
+    public final double backgroundUsageConsumePower;
+    public final double cachedUsageConsumePower;
+    public final long foregroundUsageTimeInMs;
+    public final long foregroundServiceUsageTimeInMs;
+    public final long backgroundUsageTimeInMs;
+    public final long screenOnTimeInMs;
+    public final int appOptimizationMode;
+
+    public BatteryUsageDiffEntity(
+            final long timestamp,
+            final boolean isSystemUsage,
+            final long uid,
+            final long userId,
+            final long packageNameId,
+            final long keyId,
+            final long labelId,
+            final boolean isHidden,
+            final int componentId,
+            final int consumerType,
+            final double consumePower,
+            final double foregroundUsageConsumePower,
+            final double foregroundServiceUsageConsumePower,
+            final double backgroundUsageConsumePower,
+            final double cachedUsageConsumePower,
+            final long foregroundUsageTimeInMs,
+            final long foregroundServiceUsageTimeInMs,
+            final long backgroundUsageTimeInMs,
+            final long screenOnTimeInMs,
+            final int appOptimizationMode) {
+        this.timestamp = timestamp;
+        this.isSystemUsage = isSystemUsage;
+        this.uid = uid;
+        this.userId = userId;
+        this.packageNameId = packageNameId;
+        this.keyId = keyId;
+        this.labelId = labelId;
+        this.isHidden = isHidden;
+        this.componentId = componentId;
+        this.consumerType = consumerType;
+        this.consumePower = consumePower;
+        this.foregroundUsageConsumePower = foregroundUsageConsumePower;
+        this.foregroundServiceUsageConsumePower = foregroundServiceUsageConsumePower;
+        this.backgroundUsageConsumePower = backgroundUsageConsumePower;
+        this.cachedUsageConsumePower = cachedUsageConsumePower;
+        this.foregroundUsageTimeInMs = foregroundUsageTimeInMs;
+        this.foregroundServiceUsageTimeInMs = foregroundServiceUsageTimeInMs;
+        this.backgroundUsageTimeInMs = backgroundUsageTimeInMs;
+        this.screenOnTimeInMs = screenOnTimeInMs;
+        this.appOptimizationMode = appOptimizationMode;
+    }
+
+    /** Sets the auto-generated content ID. */
+    public void setId(long id) {
+        this.mId = id;
+    }
+
+    /** Gets the auto-generated content ID. */
+    public long getId() {
+        return mId;
+    }
+
+    @Override
+    public String toString() {
+        final String recordAtDateTime = ConvertUtils.utcToLocalTimeForLogging(timestamp);
+        final StringBuilder builder =
+                new StringBuilder()
+                        .append("\nBatteryUsageDiff{")
+                        .append(
+                                String.format(
+                                        Locale.US,
+                                        "\n\ttimestamp=%s|isSystemUsage=%b|uid=%d|userId=%d"
+                                                + "|packageNameId=%d|componentId=%d",
+                                        recordAtDateTime,
+                                        isSystemUsage,
+                                        uid,
+                                        userId,
+                                        packageNameId,
+                                        componentId))
+                        .append(
+                                String.format(
+                                        Locale.US,
+                                        "\n\tconsume=%f|fg=%f|fgs=%f|bg=%f|cached=%f",
+                                        consumePower,
+                                        foregroundUsageConsumePower,
+                                        foregroundServiceUsageConsumePower,
+                                        backgroundUsageConsumePower,
+                                        cachedUsageConsumePower))
+                        .append(
+                                String.format(
+                                        Locale.US,
+                                        "\n\ttime=fg:%d|fgs:%d|bg:%d|screen:%d",
+                                        foregroundUsageTimeInMs,
+                                        foregroundServiceUsageTimeInMs,
+                                        backgroundUsageTimeInMs,
+                                        screenOnTimeInMs))
+                        .append("\n}");
+        return builder.toString();
+    }
+
+    /**
+     * Creates new {@link BatteryUsageDiffEntity} from {@link ContentValues}.
+     *
+     * @param nameIdResolver returns the {@link BatteryUsageNameEntity} id of a name
+     */
+    public static BatteryUsageDiffEntity create(
+            ContentValues contentValues, ToLongFunction<String> nameIdResolver) {
+        Builder builder = BatteryUsageDiffEntity.newBuilder();
+        if (contentValues.containsKey(KEY_TIMESTAMP)) {
+            builder.setTimestamp(contentValues.getAsLong(KEY_TIMESTAMP));
+        }
+        if (contentValues.containsKey(KEY_IS_SYSTEM_USAGE)) {
+            builder.setIsSystemUsage(contentValues.getAsBoolean(KEY_IS_SYSTEM_USAGE));
+        }
+        if (contentValues.containsKey(KEY_UID)) {
+            builder.setUid(contentValues.getAsLong(KEY_UID));
+        }
+        if (contentValues.containsKey(KEY_USER_ID)) {
+            builder.setUserId(contentValues.getAsLong(KEY_USER_ID));
+        }
+        if (contentValues.containsKey(KEY_PACKAGE_NAME)) {
+            builder.setPackageNameId(
+                    nameIdResolver.applyAsLong(contentValues.getAsString(KEY_PACKAGE_NAME)));
+        }
+        if (contentValues.containsKey(KEY_KEY)) {
+            builder.setKeyId(nameIdResolver.applyAsLong(contentValues.getAsString(KEY_KEY)));
+        }
+        if (contentValues.containsKey(KEY_LABEL)) {
+            builder.setLabelId(nameIdResolver.applyAsLong(contentValues.getAsString(KEY_LABEL)));
+        }
+        if (contentValues.containsKey(KEY_IS_HIDDEN)) {
+            builder.setIsHidden(contentValues.getAsBoolean(KEY_IS_HIDDEN));
+        }
+        if (contentValues.containsKey(KEY_COMPONENT_ID)) {
+            builder.setComponentId(contentValues.getAsInteger(KEY_COMPONENT_ID));
+        }
+        if (contentValues.containsKey(KEY_CONSUMER_TYPE)) {
+            builder.setConsumerType(contentValues.getAsInteger(KEY_CONSUMER_TYPE));
+        }
+        if (contentValues.containsKey(KEY_CONSUME_POWER)) {
+            builder.setConsumePower(contentValues.getAsDouble(KEY_CONSUME_POWER));
+        }
+        if (contentValues.containsKey(KEY_FOREGROUND_USAGE_CONSUME_POWER)) {
+            builder.setForegroundUsageConsumePower(
+                    contentValues.getAsDouble(KEY_FOREGROUND_USAGE_CONSUME_POWER));
+        }
+        if (contentValues.containsKey(KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER)) {
+            builder.setForegroundServiceUsageConsumePower(
+                    contentValues.getAsDouble(KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER));
+        }
+        if (contentValues.containsKey(KEY_BACKGROUND_USAGE_CONSUME_POWER)) {
+            builder.setBackgroundUsageConsumePower(
+                    contentValues.getAsDouble(KEY_BACKGROUND_USAGE_CONSUME_POWER));
+        }
+        if (contentValues.containsKey(KEY_CACHED_USAGE_CONSUME_POWER)) {
+            builder.setCachedUsageConsumePower(
+                    contentValues.getAsDouble(KEY_CACHED_USAGE_CONSUME_POWER));
+        }
+        if (contentValues.containsKey(KEY_FOREGROUND_USAGE_TIME_IN_MS)) {
+            builder.setForegroundUsageTimeInMs(
+                    contentValues.getAsLong(KEY_FOREGROUND_USAGE_TIME_IN_MS));
+        }
+        if (contentValues.containsKey(KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS)) {
+            builder.setForegroundServiceUsageTimeInMs(
+                    contentValues.getAsLong(KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS));
+        }
+        if (contentValues.containsKey(KEY_BACKGROUND_USAGE_TIME_IN_MS)) {
+            builder.setBackgroundUsageTimeInMs(
+                    contentValues.getAsLong(KEY_BACKGROUND_USAGE_TIME_IN_MS));
+        }
+        if (contentValues.containsKey(KEY_SCREEN_ON_TIME_IN_MS)) {
+            builder.setScreenOnTimeInMs(contentValues.getAsLong(KEY_SCREEN_ON_TIME_IN_MS));
+        }
+        if (contentValues.containsKey(KEY_APP_OPTIMIZATION_MODE)) {
+            builder.setAppOptimizationMode(contentValues.getAsInteger(KEY_APP_OPTIMIZATION_MODE));
+        }
+        return builder.build();
+    }
+
+    /** Creates a new {@link Builder} instance. */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /** A convenience builder class to improve readability. */
+    public static class Builder {
+        private long mTimestamp;
+        private boolean mIsSystemUsage;
+        private long mUid;
+        private long mUserId;
+        private long mPackageNameId;
+        private long mKeyId;
+        private long mLabelId;
+        private boolean mIsHidden;
+        private int mComponentId;
+        private int mConsumerType;
+        private double mConsumePower;
+        private double mForegroundUsageConsumePower;
+        private double mForegroundServiceUsageConsumePower;
+        private double mBackgroundUsageConsumePower;
+        private double mCachedUsageConsumePower;
+        private long mForegroundUsageTimeInMs;
+        private long mForegroundServiceUsageTimeInMs;
+        private long mBackgroundUsageTimeInMs;
+        private long mScreenOnTimeInMs;
+        private int mAppOptimizationMode;
+
+        /** Sets the start timestamp of the slot. */
+        @CanIgnoreReturnValue
+        public Builder setTimestamp(final long timestamp) {
+            mTimestamp = timestamp;
+            return this;
+        }
+
+        /** Sets whether it is a system usage or not. */
+        @CanIgnoreReturnValue
+        public Builder setIsSystemUsage(final boolean isSystemUsage) {
+            mIsSystemUsage = isSystemUsage;
+            return this;
+        }
+
+        /** Sets the uid. */
+        @CanIgnoreReturnValue
+        public Builder setUid(final long uid) {
+            mUid = uid;
+            return this;
+        }
+
+        /** Sets the user ID. */
+        @CanIgnoreReturnValue
+        public Builder setUserId(final long userId) {
+            mUserId = userId;
+            return this;
+        }
+
+        /** Sets the package name id. */
+        @CanIgnoreReturnValue
+        public Builder setPackageNameId(final long packageNameId) {
+            mPackageNameId = packageNameId;
+            return this;
+        }
+
+        /** Sets the key id. */
+        @CanIgnoreReturnValue
+        public Builder setKeyId(final long keyId) {
+            mKeyId = keyId;
+            return this;
+        }
+
+        /** Sets the label id. */
+        @CanIgnoreReturnValue
+        public Builder setLabelId(final long labelId) {
+            mLabelId = labelId;
+            return this;
+        }
+
+        /** Sets whether it is hidden or not. */
+        @CanIgnoreReturnValue
+        public Builder setIsHidden(final boolean isHidden) {
+            mIsHidden = isHidden;
+            return this;
+        }
+
+        /** Sets the power component id. */
+        @CanIgnoreReturnValue
+        public Builder setComponentId(final int componentId) {
+            mComponentId = componentId;
+            return this;
+        }
+
+        /** Sets the consumer type. */
+        @CanIgnoreReturnValue
+        public Builder setConsumerType(final int consumerType) {
+            mConsumerType = consumerType;
+            return this;
+        }
+
+        /** Sets the consumed power. */
+        @CanIgnoreReturnValue
+        public Builder setConsumePower(final double consumePower) {
+            mConsumePower = consumePower;
+            return this;
+        }
+
+        /** Sets the foreground usage consumed power. */
+        @CanIgnoreReturnValue
+        public Builder setForegroundUsageConsumePower(final double foregroundUsageConsumePower) {
+            mForegroundUsageConsumePower = foregroundUsageConsumePower;
+            return this;
+        }
+
+        /** Sets the foreground service usage consumed power. */
+        @CanIgnoreReturnValue
+        public Builder setForegroundServiceUsageConsumePower(
+                final double foregroundServiceUsageConsumePower) {
+            mForegroundServiceUsageConsumePower = foregroundServiceUsageConsumePower;
+            return this;
+        }
+
+        /** Sets the background usage consumed power. */
+        @CanIgnoreReturnValue
+        public Builder setBackgroundUsageConsumePower(final double backgroundUsageConsumePower) {
+            mBackgroundUsageConsumePower = backgroundUsageConsumePower;
+            return this;
+        }
+
+        /** Sets the cached usage consumed power. */
+        @CanIgnoreReturnValue
+        public Builder setCachedUsageConsumePower(final double cachedUsageConsumePower) {
+            mCachedUsageConsumePower = cachedUsageConsumePower;
+            return this;
+        }
+
+        /** Sets the foreground usage time. */
+        @CanIgnoreReturnValue
+        public Builder setForegroundUsageTimeInMs(final long foregroundUsageTimeInMs) {
+            mForegroundUsageTimeInMs = foregroundUsageTimeInMs;
+            return this;
+        }
+
+        /** Sets the foreground service usage time. */
+        @CanIgnoreReturnValue
+        public Builder setForegroundServiceUsageTimeInMs(
+                final long foregroundServiceUsageTimeInMs) {
+            mForegroundServiceUsageTimeInMs = foregroundServiceUsageTimeInMs;
+            return this;
+        }
+
+        /** Sets the background usage time. */
+        @CanIgnoreReturnValue
+        public Builder setBackgroundUsageTimeInMs(final long backgroundUsageTimeInMs) {
+            mBackgroundUsageTimeInMs = backgroundUsageTimeInMs;
+            return this;
+        }
+
+        /** Sets the screen on time. */
+        @CanIgnoreReturnValue
+        public Builder setScreenOnTimeInMs(final long screenOnTimeInMs) {
+            mScreenOnTimeInMs = screenOnTimeInMs;
+            return this;
+        }
+
+        /** Sets the app optimization mode. */
+        @CanIgnoreReturnValue
+        public Builder setAppOptimizationMode(final int appOptimizationMode) {
+            mAppOptimizationMode = appOptimizationMode;
+            return this;
+        }
+
+        /** Builds the {@link BatteryUsageDiffEntity}. */
+        public BatteryUsageDiffEntity build() {
+            return new BatteryUsageDiffEntity(
+                    mTimestamp,
+                    mIsSystemUsage,
+                    mUid,
+                    mUserId,
+                    mPackageNameId,
+                    mKeyId,
+                    mLabelId,
+                    mIsHidden,
+                    mComponentId,
+                    mConsumerType,
+                    mConsumePower,
+                    mForegroundUsageConsumePower,
+                    mForegroundServiceUsageConsumePower,
+                    mBackgroundUsageConsumePower,
+                    mCachedUsageConsumePower,
+                    mForegroundUsageTimeInMs,
+                    mForegroundServiceUsageTimeInMs,
+                    mBackgroundUsageTimeInMs,
+                    mScreenOnTimeInMs,
+                    mAppOptimizationMode);
+        }
+
+        private Builder() {}
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * A {@link Entity} class to save the dictionary of package names, keys and labels referenced by
+ * {@link BatteryUsageDiffEntity} rows into database.
+ */
+@Entity
+public class BatteryUsageNameEntity {
+    private static final String TAG = "BatteryUsageNameEntity";
+
+    /** The id used by {@link BatteryUsageDiffEntity} for an empty or absent name. */
+    public static final long EMPTY_NAME_ID = 0L;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @PrimaryKey public final long id;
+    public final String name;
+
+    public BatteryUsageNameEntity(final long id, final String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "\nBatteryUsageName{id=%d|name=%s}", id, name);
+    }
+
+    /**
+     * Gets the id of the {@code name} in the dictionary, inserts the {@code name} if it's not
+     * stored yet. The id is {@link #getNameId(String)}, or the next free id if another name with
+     * the same hash is already stored, so a hash collision never maps a row to another name.
+     *
+     * @param nameLookup returns the stored name of an id, or {@code null} if the id is free
+     * @param nameInserter inserts a new {@link BatteryUsageNameEntity} into the dictionary
+     */
+    public static long getOrInsertNameId(
+            final String name,
+            final LongFunction<String> nameLookup,
+            final Consumer<BatteryUsageNameEntity> nameInserter) {
+        if (TextUtils.isEmpty(name)) {
+            return EMPTY_NAME_ID;
+        }
+        long id = getNameId(name);
+        while (true) {
+            final String storedName = nameLookup.apply(id);
+            if (storedName == null) {
+                nameInserter.accept(new BatteryUsageNameEntity(id, name));
+                return id;
+            }
+            if (storedName.equals(name)) {
+                return id;
+            }
+            Log.w(TAG, "name id collision for id=" + id);
+            id++;
+            if (id == EMPTY_NAME_ID) {
+                id++;
+            }
+        }
+    }
+
+    /**
+     * Gets the preferred id of the {@code name}, which is a 64-bit FNV-1a hash. Use {@link
+     * #getOrInsertNameId} to get the id actually stored in the dictionary.
+     */
+    public static long getNameId(final String name) {
+        if (TextUtils.isEmpty(name)) {
+            return EMPTY_NAME_ID;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Keeps the reserved id for the empty name.
+        return hash == EMPTY_NAME_ID ? FNV_OFFSET_BASIS : hash;
+    }
+}
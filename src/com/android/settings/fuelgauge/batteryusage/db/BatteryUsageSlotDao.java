@@ -32,6 +32,10 @@ public interface BatteryUsageSlotDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(BatteryUsageSlotEntity event);
 
+    /** Inserts {@link BatteryUsageSlotEntity} data into the database. */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<BatteryUsageSlotEntity> slots);
+
     /** Gets all recorded data. */
     @Query("SELECT * FROM BatteryUsageSlotEntity ORDER BY timestamp ASC")
     List<BatteryUsageSlotEntity> getAll();
@@ -42,6 +46,10 @@ public interface BatteryUsageSlotDao {
                     + " ORDER BY timestamp ASC")
     Cursor getAllAfter(long timestamp);
 
+    /** Gets the latest recorded timestamp, or -1 if there is no data. */
+    @Query("SELECT COALESCE(MAX(timestamp), -1) FROM BatteryUsageSlotEntity")
+    long getLatestTimestamp();
+
     /** Gets all recorded data after a specific timestamp for log.*/
     @Query(
             "SELECT * FROM BatteryUsageSlotEntity WHERE timestamp >= :timestamp"
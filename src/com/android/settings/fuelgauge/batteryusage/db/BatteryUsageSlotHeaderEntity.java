@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import android.content.ContentValues;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+
+import java.util.Locale;
+
+/**
+ * A {@link Entity} class to save the slot level information of a battery usage slot into database,
+ * the per-app usage of the slot is saved in {@link BatteryUsageDiffEntity} rows.
+ */
+@Entity
+public class BatteryUsageSlotHeaderEntity {
+    /** Keys for accessing {@link ContentValues}. */
+    public static final String KEY_TIMESTAMP = "timestamp";
+
+    public static final String KEY_END_TIMESTAMP = "endTimestamp";
+    public static final String KEY_START_BATTERY_LEVEL = "startBatteryLevel";
+    public static final String KEY_END_BATTERY_LEVEL = "endBatteryLevel";
+    public static final String KEY_SCREEN_ON_TIME = "screenOnTime";
+
+    /** Key for the slot screen on time column in the joined columnar query result. */
+    public static final String KEY_SLOT_SCREEN_ON_TIME = "slotScreenOnTime";
+
+    @PrimaryKey public final long timestamp;
+    public final long endTimestamp;
+    public final int startBatteryLevel;
+    public final int endBatteryLevel;
+    public final long screenOnTime;
+
+    public BatteryUsageSlotHeaderEntity(
+            final long timestamp,
+            final long endTimestamp,
+            final int startBatteryLevel,
+            final int endBatteryLevel,
+            final long screenOnTime) {
+        this.timestamp = timestamp;
+        this.endTimestamp = endTimestamp;
+        this.startBatteryLevel = startBatteryLevel;
+        this.endBatteryLevel = endBatteryLevel;
+        this.screenOnTime = screenOnTime;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder =
+                new StringBuilder()
+                        .append("\nBatteryUsageSlotHeader{")
+                        .append(
+                                String.format(
+                                        Locale.US,
+                                        "\n\ttimestamp=%s|endTimestamp=%s|batteryLevel=%d->%d"
+                                                + "|screenOnTime=%d",
+                                        ConvertUtils.utcToLocalTimeForLogging(timestamp),
+                                        ConvertUtils.utcToLocalTimeForLogging(endTimestamp),
+                                        startBatteryLevel,
+                                        endBatteryLevel,
+                                        screenOnTime))
+                        .append("\n}");
+        return builder.toString();
+    }
+
+    /** Creates new {@link BatteryUsageSlotHeaderEntity} from {@link ContentValues}. */
+    public static BatteryUsageSlotHeaderEntity create(ContentValues contentValues) {
+        Builder builder = BatteryUsageSlotHeaderEntity.newBuilder();
+        if (contentValues.containsKey(KEY_TIMESTAMP)) {
+            builder.setTimestamp(contentValues.getAsLong(KEY_TIMESTAMP));
+        }
+        if (contentValues.containsKey(KEY_END_TIMESTAMP)) {
+            builder.setEndTimestamp(contentValues.getAsLong(KEY_END_TIMESTAMP));
+        }
+        if (contentValues.containsKey(KEY_START_BATTERY_LEVEL)) {
+            builder.setStartBatteryLevel(contentValues.getAsInteger(KEY_START_BATTERY_LEVEL));
+        }
+        if (contentValues.containsKey(KEY_END_BATTERY_LEVEL)) {
+            builder.setEndBatteryLevel(contentValues.getAsInteger(KEY_END_BATTERY_LEVEL));
+        }
+        if (contentValues.containsKey(KEY_SCREEN_ON_TIME)) {
+            builder.setScreenOnTime(contentValues.getAsLong(KEY_SCREEN_ON_TIME));
+        }
+        return builder.build();
+    }
+
+    /** Creates a new {@link Builder} instance. */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /** A convenience builder class to improve readability. */
+    public static class Builder {
+        private long mTimestamp;
+        private long mEndTimestamp;
+        private int mStartBatteryLevel;
+        private int mEndBatteryLevel;
+        private long mScreenOnTime;
+
+        /** Sets the start timestamp of the slot. */
+        @CanIgnoreReturnValue
+        public Builder setTimestamp(final long timestamp) {
+            mTimestamp = timestamp;
+            return this;
+        }
+
+        /** Sets the end timestamp of the slot. */
+        @CanIgnoreReturnValue
+        public Builder setEndTimestamp(final long endTimestamp) {
+            mEndTimestamp = endTimestamp;
+            return this;
+        }
+
+        /** Sets the start battery level of the slot. */
+        @CanIgnoreReturnValue
+        public Builder setStartBatteryLevel(final int startBatteryLevel) {
+            mStartBatteryLevel = startBatteryLevel;
+            return this;
+        }
+
+        /** Sets the end battery level of the slot. */
+        @CanIgnoreReturnValue
+        public Builder setEndBatteryLevel(final int endBatteryLevel) {
+            mEndBatteryLevel = endBatteryLevel;
+            return this;
+        }
+
+        /** Sets the screen on time of the slot. */
+        @CanIgnoreReturnValue
+        public Builder setScreenOnTime(final long screenOnTime) {
+            mScreenOnTime = screenOnTime;
+            return this;
+        }
+
+        /** Builds the {@link BatteryUsageSlotHeaderEntity}. */
+        public BatteryUsageSlotHeaderEntity build() {
+            return new BatteryUsageSlotHeaderEntity(
+                    mTimestamp, mEndTimestamp, mStartBatteryLevel, mEndBatteryLevel, mScreenOnTime);
+        }
+
+        private Builder() {}
+    }
+}
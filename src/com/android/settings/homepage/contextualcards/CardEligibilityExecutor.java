@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.android.settings.intelligence.ContextualCardProto.ContextualCard.Category.STICKY_VALUE;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded executor shared by all {@link ContextualCardLoader}s to check the eligibility of the
+ * cards and bind their slices, instead of creating a thread per card on every load. The idle
+ * threads are released after {@link #KEEP_ALIVE_SECONDS}.
+ *
+ * <p>The queued {@link EligibleCardChecker}s run in the order of {@link #CARD_PRIORITY}, so the
+ * sticky and the higher ranked cards are checked first when there are more cards than threads.
+ */
+final class CardEligibilityExecutor extends ThreadPoolExecutor {
+
+    private static final String TAG = "CardEligibilityExecutor";
+    static final int MAX_THREAD_COUNT = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /** Sticky cards first, then the cards with higher ranking score. */
+    @VisibleForTesting
+    static final Comparator<ContextualCard> CARD_PRIORITY = Comparator
+            .comparing((ContextualCard card) -> card.getCategory() != STICKY_VALUE)
+            .thenComparing(ContextualCard::getRankingScore, Comparator.reverseOrder());
+
+    private static CardEligibilityExecutor sInstance;
+
+    private final AtomicLong mSequence = new AtomicLong();
+
+    static synchronized CardEligibilityExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new CardEligibilityExecutor();
+        }
+        return sInstance;
+    }
+
+    private CardEligibilityExecutor() {
+        super(MAX_THREAD_COUNT, MAX_THREAD_COUNT, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new CardThreadFactory());
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        // The queue only accepts PrioritizedTask.
+        super.execute(command instanceof PrioritizedTask
+                ? command : newTaskFor(command, null /* value */));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new PrioritizedTask<>(Executors.callable(runnable, value), null /* card */,
+                mSequence.getAndIncrement());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        final ContextualCard card = callable instanceof EligibleCardChecker
+                ? ((EligibleCardChecker) callable).mCard : null;
+        return new PrioritizedTask<>(callable, card, mSequence.getAndIncrement());
+    }
+
+    private static class PrioritizedTask<T> extends FutureTask<T>
+            implements Comparable<PrioritizedTask<?>> {
+
+        @Nullable
+        private final ContextualCard mCard;
+        private final long mSequence;
+        private final long mCreatedTime = SystemClock.elapsedRealtime();
+
+        PrioritizedTask(Callable<T> callable, @Nullable ContextualCard card, long sequence) {
+            super(callable);
+            mCard = card;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            final long startTime = SystemClock.elapsedRealtime();
+            super.run();
+            if (mCard != null) {
+                Log.d(TAG, String.format("Card %s waited %d/ms and checked in %d/ms",
+                        mCard.getName(), startTime - mCreatedTime,
+                        SystemClock.elapsedRealtime() - startTime));
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            if (mCard != null && other.mCard != null) {
+                final int result = CARD_PRIORITY.compare(mCard, other.mCard);
+                if (result != 0) {
+                    return result;
+                }
+            } else if (mCard != null || other.mCard != null) {
+                return mCard != null ? -1 : 1;
+            }
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+
+    private static class CardThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, "CardEligibility-" + mCount.incrementAndGet());
+        }
+    }
+}
@@ -33,4 +33,12 @@ public interface ContextualCardFeatureProvider {
      * @return The number of rows updated
      */
     int markCardAsDismissed(Context context, String cardName);
+
+    /**
+     * @return true if the last loaded cards should be persisted in {@link ContextualCardSnapshot}
+     * and shown on launch while the cards are loaded again.
+     */
+    default boolean isContextualCardSnapshotEnabled() {
+        return false;
+    }
 }
@@ -40,11 +40,8 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
 
@@ -56,6 +53,8 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
 
     private static final String TAG = "ContextualCardLoader";
     private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 400;
+    // The cap of the timeout of all the checkers, however many rounds of them there are.
+    private static final long ELIGIBILITY_CHECKER_MAX_TIMEOUT_MS = 800;
 
     private final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
@@ -187,22 +186,27 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
-        final List<ContextualCard> cards = new ArrayList<>();
-        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
+        final List<EligibleCardChecker> checkers = new ArrayList<>(candidates.size());
+        for (ContextualCard candidate : candidates) {
+            checkers.add(createEligibleCardChecker(candidate));
+        }
 
-        final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
-                .collect(Collectors.toList());
+        // The checkers run on at most MAX_THREAD_COUNT threads, each round of them gets the whole
+        // timeout so the lower priority cards are not timed out by the queue, up to a hard cap.
+        final int rounds = (checkers.size() + CardEligibilityExecutor.MAX_THREAD_COUNT - 1)
+                / CardEligibilityExecutor.MAX_THREAD_COUNT;
+        final long timeout = Math.min(ELIGIBILITY_CHECKER_TIMEOUT_MS * rounds,
+                ELIGIBILITY_CHECKER_MAX_TIMEOUT_MS);
+        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
         try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
+            eligibleCards = CardEligibilityExecutor.getInstance().invokeAll(checkers, timeout,
                     TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             Log.w(TAG, "Failed to get eligible states for all cards", e);
         }
-        executor.shutdown();
 
         // Collect future and eligible cards
+        final List<ContextualCard> cards = new ArrayList<>();
         for (int i = 0; i < eligibleCards.size(); i++) {
             final Future<ContextualCard> cardFuture = eligibleCards.get(i);
             if (cardFuture.isCancelled()) {
@@ -223,6 +227,11 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         return cards;
     }
 
+    @VisibleForTesting
+    EligibleCardChecker createEligibleCardChecker(ContextualCard card) {
+        return new EligibleCardChecker(mContext, card);
+    }
+
     private boolean isLargeCard(ContextualCard card) {
         return card.getSliceUri().equals(BLUETOOTH_DEVICES_SLICE_URI);
     }
@@ -50,6 +50,7 @@ import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnSaveInstanceState;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.core.lifecycle.events.OnStop;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -96,6 +97,12 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
     boolean mIsFirstLaunch;
     @VisibleForTesting
     List<String> mSavedCards;
+    @VisibleForTesting
+    boolean mIsShowingSnapshot;
+
+    @Nullable
+    private final ContextualCardSnapshot mSnapshot;
+    private boolean mSnapshotRequested;
 
     public ContextualCardManager(Context context, Lifecycle lifecycle, Bundle savedInstanceState) {
         mContext = context;
@@ -110,6 +117,8 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         } else {
             mSavedCards = savedInstanceState.getStringArrayList(KEY_CONTEXTUAL_CARDS);
         }
+        mSnapshot = FeatureFactory.getFeatureFactory().getContextualCardFeatureProvider(context)
+                .isContextualCardSnapshotEnabled() ? new ContextualCardSnapshot(context) : null;
         // for data provided by Settings
         for (@ContextualCard.CardType int cardType : getSettingsCards()) {
             setupController(cardType);
@@ -122,6 +131,10 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
             return;
         }
         mStartTime = System.currentTimeMillis();
+        if (mSnapshot != null && !mSnapshotRequested && mIsFirstLaunch && mSavedCards == null) {
+            mSnapshotRequested = true;
+            showSnapshot();
+        }
         final CardContentLoaderCallbacks cardContentLoaderCallbacks =
                 new CardContentLoaderCallbacks(mContext);
         cardContentLoaderCallbacks.setListener(this);
@@ -138,6 +151,29 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         }
     }
 
+    /**
+     * Shows the cards of the last load from {@link ContextualCardSnapshot} until the cards are
+     * loaded again, the loaded cards then replace them through {@link ContextualCardsAdapter}.
+     */
+    private void showSnapshot() {
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final List<ContextualCard> cards = mSnapshot.read();
+            if (cards == null || cards.isEmpty()) {
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                // The cards may have been loaded before the snapshot is read.
+                if (!mIsFirstLaunch || mIsShowingSnapshot) {
+                    return;
+                }
+                Log.d(TAG, "Show snapshot cards = " + cards.size());
+                mIsShowingSnapshot = true;
+                onContextualCardUpdated(cards.stream()
+                        .collect(groupingBy(ContextualCard::getCardType)));
+            });
+        });
+    }
+
     private void loadCardControllers() {
         for (ContextualCard card : mContextualCards) {
             setupController(card.getCardType());
@@ -232,6 +268,10 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         final long loadTime = System.currentTimeMillis() - mStartTime;
         Log.d(TAG, "Total loading time = " + loadTime);
 
+        if (mSnapshot != null) {
+            ThreadUtils.postOnBackgroundThread(() -> mSnapshot.write(cards));
+        }
+
         final List<ContextualCard> cardsToKeep = getCardsToKeep(cards);
 
         final MetricsFeatureProvider metricsFeatureProvider =
@@ -248,7 +288,8 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         }
 
         final long timeoutLimit = getCardLoaderTimeout();
-        if (loadTime <= timeoutLimit) {
+        // The snapshot cards are already shown, the loaded cards always replace them.
+        if (loadTime <= timeoutLimit || mIsShowingSnapshot) {
             onContextualCardUpdated(cards.stream()
                     .collect(groupingBy(ContextualCard::getCardType)));
             metricsFeatureProvider.action(mContext,
@@ -267,6 +308,7 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
                 SettingsEnums.ACTION_CONTEXTUAL_HOME_SHOW, (int) totalTime);
 
         mIsFirstLaunch = false;
+        mIsShowingSnapshot = false;
     }
 
     @Override
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.net.Uri;
+import android.os.Build;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.slice.Slice;
+import androidx.slice.SliceUtils;
+
+import com.android.settings.utils.VersionedSnapshotFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A binary snapshot of the contextual cards last returned by {@link ContextualCardLoader}, with
+ * the metadata and the last bound slice of each card, so {@link ContextualCardManager} can show
+ * them as soon as the homepage is launched while the cards are loaded again.
+ *
+ * <p>The slices are stored with {@link SliceUtils#serializeSlice}, their actions can't be
+ * persisted and do nothing until the slices are bound again by the renderers, so the cards with
+ * inline actions are not stored. The snapshot is keyed by the build and the configuration the
+ * slices were rendered with.
+ *
+ * <p>The snapshot is deleted when a card is dismissed, and the cards dismissed in this process are
+ * never stored again, so a dismissed card doesn't come back from the snapshot.
+ */
+public class ContextualCardSnapshot {
+
+    private static final String TAG = "ContextualCardSnapshot";
+
+    @VisibleForTesting
+    static final String SNAPSHOT_FILE = "contextual_card_snapshot";
+    // Increases it when the format of the snapshot file is changed.
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final String SLICE_ENCODING = "UTF-8";
+
+    private static final Object sLock = new Object();
+    // Card names, guarded by sLock.
+    private static final Set<String> sDismissedCards = new ArraySet<>();
+
+    private final Context mContext;
+
+    ContextualCardSnapshot(Context context) {
+        mContext = context;
+    }
+
+    /** Returns the cards of the snapshot, or null if there is no valid snapshot. */
+    @WorkerThread
+    @Nullable
+    List<ContextualCard> read() {
+        synchronized (sLock) {
+            return getSnapshotFile(mContext).read(getSnapshotKey(), in -> {
+                final int count = in.readInt();
+                final List<ContextualCard> cards = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    cards.add(readCard(in));
+                }
+                return cards;
+            });
+        }
+    }
+
+    /**
+     * Writes the cards returned by {@link ContextualCardLoader}, except the cards with inline
+     * actions and the dismissed cards.
+     */
+    @WorkerThread
+    void write(List<ContextualCard> cards) {
+        synchronized (sLock) {
+            final List<ContextualCard> cardsToWrite = new ArrayList<>(cards.size());
+            for (ContextualCard card : cards) {
+                if (!card.hasInlineAction() && !sDismissedCards.contains(card.getName())) {
+                    cardsToWrite.add(card);
+                }
+            }
+            getSnapshotFile(mContext).write(getSnapshotKey(), out -> {
+                out.writeInt(cardsToWrite.size());
+                for (ContextualCard card : cardsToWrite) {
+                    writeCard(out, card);
+                }
+            });
+        }
+    }
+
+    /** Deletes the snapshot and never stores the card again in this process. */
+    @WorkerThread
+    public static void onCardDismissed(Context context, String cardName) {
+        synchronized (sLock) {
+            sDismissedCards.add(cardName);
+            getSnapshotFile(context).delete();
+        }
+    }
+
+    @VisibleForTesting
+    static void clear(Context context) {
+        synchronized (sLock) {
+            sDismissedCards.clear();
+            getSnapshotFile(context).delete();
+        }
+    }
+
+    private void writeCard(DataOutputStream out, ContextualCard card) throws IOException {
+        out.writeUTF(card.getName());
+        out.writeInt(card.getCardType());
+        out.writeDouble(card.getRankingScore());
+        out.writeUTF(card.getTextSliceUri());
+        out.writeInt(card.getCategory());
+        out.writeUTF(card.getPackageName() == null ? "" : card.getPackageName());
+        out.writeLong(card.getAppVersion());
+        out.writeBoolean(card.isLargeCard());
+        out.writeInt(card.getViewType());
+        final byte[] slice = serializeSlice(card.getSlice());
+        out.writeInt(slice.length);
+        out.write(slice);
+    }
+
+    private ContextualCard readCard(DataInputStream in) throws IOException {
+        final ContextualCard.Builder builder = new ContextualCard.Builder()
+                .setName(in.readUTF())
+                .setCardType(in.readInt())
+                .setRankingScore(in.readDouble())
+                .setSliceUri(Uri.parse(in.readUTF()))
+                .setCategory(in.readInt())
+                .setPackageName(in.readUTF())
+                .setAppVersion(in.readLong())
+                .setIsLargeCard(in.readBoolean())
+                .setViewType(in.readInt())
+                .setTitleText("")
+                .setSummaryText("");
+        final byte[] slice = new byte[in.readInt()];
+        in.readFully(slice);
+        return builder.setSlice(parseSlice(slice)).build();
+    }
+
+    // Returns an empty array if the slice can't be serialized, the card is still shown.
+    private byte[] serializeSlice(@Nullable Slice slice) {
+        if (slice == null) {
+            return new byte[0];
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            SliceUtils.serializeSlice(slice, mContext, out, new SliceUtils.SerializeOptions()
+                    .setActionMode(SliceUtils.SerializeOptions.MODE_CONVERT)
+                    .setImageMode(SliceUtils.SerializeOptions.MODE_CONVERT));
+            return out.toByteArray();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Failed to serialize slice " + slice.getUri(), e);
+            return new byte[0];
+        }
+    }
+
+    @Nullable
+    private Slice parseSlice(byte[] data) {
+        if (data.length == 0) {
+            return null;
+        }
+        try {
+            // The actions are bound again with the slice, nothing to do before that.
+            return SliceUtils.parseSlice(mContext, new ByteArrayInputStream(data),
+                    SLICE_ENCODING, (uri, context, intent) -> { });
+        } catch (IOException | SliceUtils.SliceParseException e) {
+            Log.w(TAG, "Failed to parse slice", e);
+            return null;
+        }
+    }
+
+    private String getSnapshotKey() {
+        final Configuration config = mContext.getResources().getConfiguration();
+        return Build.FINGERPRINT
+                + "|" + config.getLocales().toLanguageTags()
+                + "|" + config.densityDpi
+                + "|" + config.uiMode
+                + "|" + config.fontScale;
+    }
+
+    private static VersionedSnapshotFile getSnapshotFile(Context context) {
+        return new VersionedSnapshotFile(
+                new File(context.getFilesDir(), SNAPSHOT_FILE), SNAPSHOT_VERSION);
+    }
+}
@@ -29,6 +29,7 @@ import com.android.settings.homepage.contextualcards.ContextualCard;
 import com.android.settings.homepage.contextualcards.ContextualCardController;
 import com.android.settings.homepage.contextualcards.ContextualCardFeatureProvider;
 import com.android.settings.homepage.contextualcards.ContextualCardFeedbackDialog;
+import com.android.settings.homepage.contextualcards.ContextualCardSnapshot;
 import com.android.settings.homepage.contextualcards.ContextualCardUpdateListener;
 import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils;
 import com.android.settings.overlay.FeatureFactory;
@@ -71,6 +72,7 @@ public class SliceContextualCardController implements ContextualCardController {
             final ContextualCardFeatureProvider cardFeatureProvider =
                     FeatureFactory.getFeatureFactory().getContextualCardFeatureProvider(mContext);
             cardFeatureProvider.markCardAsDismissed(mContext, card.getName());
+            ContextualCardSnapshot.onCardDismissed(mContext, card.getName());
         });
         showFeedbackDialog(card);
 
@@ -88,6 +88,11 @@ public class BadgingNotificationPreferenceController extends TogglePreferenceCon
         return TextUtils.equals(getPreferenceKey(), "notification_badging");
     }
 
+    @Override
+    public Uri getSliceResultBackingUri() {
+        return Settings.Secure.getUriFor(NOTIFICATION_BADGING);
+    }
+
     @Override
     public int getSliceHighlightMenuRes() {
         return R.string.menu_key_notifications;
@@ -19,6 +19,7 @@ package com.android.settings.notification;
 import static android.provider.Settings.Secure.SHOW_NOTIFICATION_SNOOZE;
 
 import android.content.Context;
+import android.net.Uri;
 import android.provider.Settings;
 
 import androidx.annotation.VisibleForTesting;
@@ -55,6 +56,11 @@ public class SnoozeNotificationPreferenceController extends TogglePreferenceCont
                 SHOW_NOTIFICATION_SNOOZE, isChecked ? ON : OFF);
     }
 
+    @Override
+    public Uri getSliceResultBackingUri() {
+        return Settings.Secure.getUriFor(SHOW_NOTIFICATION_SNOOZE);
+    }
+
     @Override
     public int getSliceHighlightMenuRes() {
         return R.string.menu_key_notifications;
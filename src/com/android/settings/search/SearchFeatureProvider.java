@@ -78,6 +78,14 @@ public interface SearchFeatureProvider {
     default void sendPreIndexIntent(Context context){
     }
 
+    /**
+     * @return true if the static search indexable data should be persisted in
+     * {@link SearchIndexableDataCache} and reused across the indexing queries.
+     */
+    default boolean isSearchIndexableDataCacheEnabled() {
+        return false;
+    }
+
     /**
      * Initializes the search toolbar.
      */
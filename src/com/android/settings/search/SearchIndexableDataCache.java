@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.utils.VersionedSnapshotFile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A persistent cache of the static search indexable rows, i.e. the xml resources and the raw data
+ * of the {@link com.android.settingslib.search.Indexable.SearchIndexProvider}s.
+ *
+ * <p>The rows are stored under the cache directory and only reused while the build fingerprint,
+ * the locales and the version of Settings are unchanged. Anything else which changes the static
+ * data, e.g. toggling the developer options, should call {@link #invalidate(Context)}.
+ */
+public class SearchIndexableDataCache {
+
+    private static final String TAG = "SearchIndexableCache";
+
+    @VisibleForTesting
+    static final String CACHE_DIR = "search_indexable_data";
+    // Increases it when the format of the cache file is changed.
+    private static final int CACHE_VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+
+    private static final Object sLock = new Object();
+
+    private final Context mContext;
+
+    public SearchIndexableDataCache(Context context) {
+        mContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+    }
+
+    /** Deletes all the cached rows, they are reloaded on the next query. */
+    public static void invalidate(Context context) {
+        synchronized (sLock) {
+            final File[] files = getCacheDir(context).listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the cached rows of {@code name}, or loads them from {@code loader} and writes them
+     * into the cache if they are missing or outdated.
+     */
+    public List<Object[]> getRows(String name, Supplier<List<Object[]>> loader) {
+        final String key = getCacheKey();
+        synchronized (sLock) {
+            final List<Object[]> cachedRows = key == null ? null : readRows(name, key);
+            if (cachedRows != null) {
+                return cachedRows;
+            }
+        }
+        final List<Object[]> rows = loader.get();
+        if (key != null) {
+            synchronized (sLock) {
+                writeRows(name, key, rows);
+            }
+        }
+        return rows;
+    }
+
+    @Nullable
+    private List<Object[]> readRows(String name, String key) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final List<Object[]> rows = getCacheFile(name).read(key, in -> {
+            final int rowCount = in.readInt();
+            final List<Object[]> result = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                final Object[] row = new Object[in.readInt()];
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = readValue(in);
+                }
+                result.add(row);
+            }
+            return result;
+        });
+        if (rows != null) {
+            Log.d(TAG, String.format("read %d rows of %s in %d/ms",
+                    rows.size(), name, SystemClock.elapsedRealtime() - startTime));
+        }
+        return rows;
+    }
+
+    private void writeRows(String name, String key, List<Object[]> rows) {
+        getCacheFile(name).write(key, out -> {
+            out.writeInt(rows.size());
+            for (Object[] row : rows) {
+                out.writeInt(row.length);
+                for (Object value : row) {
+                    writeValue(out, value);
+                }
+            }
+        });
+    }
+
+    private VersionedSnapshotFile getCacheFile(String name) {
+        return new VersionedSnapshotFile(new File(getCacheDir(mContext), name), CACHE_VERSION);
+    }
+
+    /** Returns null if the key is not available, the rows are not cached in this case. */
+    @Nullable
+    private String getCacheKey() {
+        final PackageInfo packageInfo;
+        try {
+            packageInfo = mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), /* flags= */ 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Package not found: " + mContext.getPackageName());
+            return null;
+        }
+        return Build.FINGERPRINT
+                + "|" + mContext.getResources().getConfiguration().getLocales().toLanguageTags()
+                + "|" + packageInfo.getLongVersionCode()
+                + "|" + packageInfo.lastUpdateTime;
+    }
+
+    private static File getCacheDir(Context context) {
+        return new File(context.getCacheDir(), CACHE_DIR);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported type: " + value.getClass());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return in.readUTF();
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            default:
+                throw new IOException("Unknown type: " + type);
+        }
+    }
+}
@@ -81,6 +81,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
@@ -97,6 +98,9 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
     private static final Collection<String> INVALID_KEYS;
 
+    private static final String CACHE_NAME_XML_RES = "xml_res";
+    private static final String CACHE_NAME_RAW = "raw";
+
     // Search enabled states for injection (key: category key, value: search enabled)
     private Map<String, Boolean> mSearchEnabledByCategoryKeyMap;
 
@@ -115,17 +119,7 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryXmlResources(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
-        final List<SearchIndexableResource> resources =
-                getSearchIndexableResourcesFromProvider(getContext());
-        for (SearchIndexableResource val : resources) {
-            final Object[] ref = new Object[INDEXABLES_XML_RES_COLUMNS.length];
-            ref[COLUMN_INDEX_XML_RES_RANK] = val.rank;
-            ref[COLUMN_INDEX_XML_RES_RESID] = val.xmlResId;
-            ref[COLUMN_INDEX_XML_RES_CLASS_NAME] = val.className;
-            ref[COLUMN_INDEX_XML_RES_ICON_RESID] = val.iconResId;
-            ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = null; // intent target class
+        for (Object[] ref : getStaticRows(CACHE_NAME_XML_RES, this::createXmlResourceRows)) {
             cursor.addRow(ref);
         }
 
@@ -138,9 +132,8 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryRawData(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
-        final List<SearchIndexableRaw> raws = getSearchIndexableRawFromProvider(getContext());
-        for (SearchIndexableRaw val : raws) {
-            cursor.addRow(createIndexableRawColumnObjects(val));
+        for (Object[] ref : getStaticRows(CACHE_NAME_RAW, this::createRawRows)) {
+            cursor.addRow(ref);
         }
 
         return cursor;
@@ -321,6 +314,46 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         return nonIndexableKeys;
     }
 
+    /**
+     * Gets the rows of the static data, which could be reused from the
+     * {@link SearchIndexableDataCache}. The non-indexable keys and the dynamic raw data depend on
+     * the device state, so they are never cached.
+     */
+    private List<Object[]> getStaticRows(String cacheName, Supplier<List<Object[]>> loader) {
+        if (!FeatureFactory.getFeatureFactory().getSearchFeatureProvider()
+                .isSearchIndexableDataCacheEnabled()) {
+            return loader.get();
+        }
+        return new SearchIndexableDataCache(getContext()).getRows(cacheName, loader);
+    }
+
+    private List<Object[]> createXmlResourceRows() {
+        final List<SearchIndexableResource> resources =
+                getSearchIndexableResourcesFromProvider(getContext());
+        final List<Object[]> rows = new ArrayList<>(resources.size());
+        for (SearchIndexableResource val : resources) {
+            final Object[] ref = new Object[INDEXABLES_XML_RES_COLUMNS.length];
+            ref[COLUMN_INDEX_XML_RES_RANK] = val.rank;
+            ref[COLUMN_INDEX_XML_RES_RESID] = val.xmlResId;
+            ref[COLUMN_INDEX_XML_RES_CLASS_NAME] = val.className;
+            ref[COLUMN_INDEX_XML_RES_ICON_RESID] = val.iconResId;
+            ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
+            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
+            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = null; // intent target class
+            rows.add(ref);
+        }
+        return rows;
+    }
+
+    private List<Object[]> createRawRows() {
+        final List<SearchIndexableRaw> raws = getSearchIndexableRawFromProvider(getContext());
+        final List<Object[]> rows = new ArrayList<>(raws.size());
+        for (SearchIndexableRaw val : raws) {
+            rows.add(createIndexableRawColumnObjects(val));
+        }
+        return rows;
+    }
+
     private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
@@ -141,6 +141,10 @@ public class SettingsSliceProvider extends SliceProvider {
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
 
+    /** The cache of the built slices, null if it is disabled. */
+    @VisibleForTesting
+    SliceResultCache mSliceResultCache;
+
     private Boolean mNightMode;
     private boolean mFirstSlicePinned;
     private boolean mFirstSliceBound;
@@ -155,6 +159,11 @@ public class SettingsSliceProvider extends SliceProvider {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
         mSliceWeakDataCache = new WeakHashMap<>();
+        if (FeatureFactory.getFeatureFactory().getSlicesFeatureProvider()
+                .isSliceResultCacheEnabled()) {
+            mSliceResultCache = SliceResultCache.getInstance();
+            mSliceResultCache.startObserving(getContext());
+        }
         return true;
     }
 
@@ -198,6 +207,9 @@ public class SettingsSliceProvider extends SliceProvider {
     @Override
     public void onSliceUnpinned(Uri sliceUri) {
         mSliceWeakDataCache.remove(sliceUri);
+        if (mSliceResultCache != null) {
+            mSliceResultCache.invalidate(sliceUri);
+        }
         final Context context = getContext();
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
@@ -223,6 +235,7 @@ public class SettingsSliceProvider extends SliceProvider {
                 Log.e(TAG, "Requested blocked slice with Uri: " + sliceUri);
                 return null;
             }
+            SliceBackgroundWorker.onSliceBound(sliceUri);
 
             final boolean nightMode = Utils.isNightMode(getContext());
             if (mNightMode == null) {
@@ -232,6 +245,9 @@ public class SettingsSliceProvider extends SliceProvider {
                 Log.d(TAG, "Night mode changed, reload theme");
                 mNightMode = nightMode;
                 getContext().getTheme().rebase();
+                if (mSliceResultCache != null) {
+                    mSliceResultCache.invalidateAll();
+                }
             }
 
             // Checking if some semi-sensitive slices are requested by a guest user. If so, will
@@ -277,7 +293,7 @@ public class SettingsSliceProvider extends SliceProvider {
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
-            return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
+            return buildSlice(sliceUri, cachedSliceData);
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
             if (!mFirstSliceBound) {
@@ -439,6 +455,25 @@ public class SettingsSliceProvider extends SliceProvider {
                 (System.currentTimeMillis() - startBuildTime));
     }
 
+    private Slice buildSlice(Uri sliceUri, SliceData sliceData) {
+        if (mSliceResultCache == null) {
+            return SliceBuilderUtils.buildSlice(getContext(), sliceData);
+        }
+        final BasePreferenceController controller =
+                SliceBuilderUtils.getPreferenceController(getContext(), sliceData);
+        final Uri settingUri = controller.getSliceResultBackingUri();
+        if (settingUri == null) {
+            return SliceBuilderUtils.buildSlice(getContext(), sliceData, controller);
+        }
+        final long generation = mSliceResultCache.getGeneration();
+        Slice slice = mSliceResultCache.get(sliceUri);
+        if (slice == null) {
+            slice = SliceBuilderUtils.buildSlice(getContext(), sliceData, controller);
+            mSliceResultCache.put(sliceUri, slice, generation, settingUri);
+        }
+        return slice;
+    }
+
     @VisibleForTesting
     void loadSliceInBackground(Uri uri) {
         ThreadUtils.postOnBackgroundThread(() -> loadSlice(uri));
@@ -27,10 +27,14 @@ import android.os.Process;
 import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.LruCache;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -38,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The Slice background worker is used to make Settings Slices be able to work with data that is
@@ -57,6 +62,9 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     private static final String TAG = "SliceBackgroundWorker";
 
     private static final long SLICE_UPDATE_THROTTLE_INTERVAL = 300L;
+    // The bound of the slices whose last bind time is kept to tell if they are visible.
+    @VisibleForTesting
+    static final int MAX_BIND_TIME_COUNT = 64;
 
     private static final Map<Uri, SliceBackgroundWorker> LIVE_WORKERS = new ArrayMap<>();
 
@@ -188,16 +196,67 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         NotifySliceChangeHandler.getInstance().cancelSliceUpdate(this);
     }
 
+    /**
+     * Marks the slice of the {@link Uri} as visible, its updates are notified earlier than the
+     * slices which are not bound recently.
+     */
+    static void onSliceBound(Uri uri) {
+        NotifySliceChangeHandler.getInstance().onSliceBound(uri);
+    }
+
+    /** Returns the number of updates merged into a pending update of the same worker. */
+    static long getCoalescedUpdateCount() {
+        return NotifySliceChangeHandler.getInstance().mCoalescedCount.get();
+    }
+
+    @VisibleForTesting
+    static int getBindTimeCount() {
+        return NotifySliceChangeHandler.getInstance().mLastBindTimeLookup.size();
+    }
+
+    /** Returns the number of pending updates dropped because the worker is unpinned. */
+    static long getDroppedUpdateCount() {
+        return NotifySliceChangeHandler.getInstance().mDroppedCount.get();
+    }
+
+    /** Returns the numbers of coalesced and dropped slice updates since the process started. */
+    public static JSONObject dumpUpdateCounts() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("coalesced", getCoalescedUpdateCount());
+        obj.put("dropped", getDroppedUpdateCount());
+        return obj;
+    }
+
+    /**
+     * Schedules the slice updates of all workers. Each worker has at most one pending update, and
+     * the pending updates due within {@link #COALESCE_WINDOW} are notified together, so bursts of
+     * updates from several workers only cause one round of rebinds.
+     */
     private static class NotifySliceChangeHandler extends Handler {
 
         private static final int MSG_UPDATE_SLICE = 1000;
 
+        // The slices bound within this duration are treated as visible.
+        private static final long VISIBLE_TIMEOUT = 5000L;
+        // The slices not visible are throttled longer.
+        private static final long INVISIBLE_THROTTLE_INTERVAL = SLICE_UPDATE_THROTTLE_INTERVAL * 2;
+        private static final long COALESCE_WINDOW = 100L;
+
         private static NotifySliceChangeHandler sHandler;
 
         private final Map<Uri, Long> mLastUpdateTimeLookup = Collections.synchronizedMap(
                 new ArrayMap<>());
-
-        private static NotifySliceChangeHandler getInstance() {
+        // Every bound slice is recorded, not only the ones with a worker, so it's bounded.
+        private final LruCache<Uri, Long> mLastBindTimeLookup =
+                new LruCache<>(MAX_BIND_TIME_COUNT);
+        // The due time of the pending update of each worker, guarded by itself.
+        private final ArrayMap<SliceBackgroundWorker, Long> mPendingUpdates = new ArrayMap<>();
+        private final AtomicLong mCoalescedCount = new AtomicLong();
+        private final AtomicLong mDroppedCount = new AtomicLong();
+        // The time of the scheduled message, guarded by mPendingUpdates.
+        private long mScheduledTime;
+
+        private static synchronized NotifySliceChangeHandler getInstance() {
             if (sHandler == null) {
                 final HandlerThread workerThread = new HandlerThread("NotifySliceChangeHandler",
                         Process.THREAD_PRIORITY_BACKGROUND);
@@ -217,35 +276,90 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
                 return;
             }
 
-            final SliceBackgroundWorker worker = (SliceBackgroundWorker) msg.obj;
-            final Uri uri = worker.getUri();
-            final Context context = worker.getContext();
-            mLastUpdateTimeLookup.put(uri, SystemClock.uptimeMillis());
-            context.getContentResolver().notifyChange(uri, null);
-        }
+            final long now = SystemClock.uptimeMillis();
+            final List<SliceBackgroundWorker> workers = new ArrayList<>();
+            synchronized (mPendingUpdates) {
+                long nextDueTime = Long.MAX_VALUE;
+                for (int i = mPendingUpdates.size() - 1; i >= 0; i--) {
+                    final long dueTime = mPendingUpdates.valueAt(i);
+                    if (dueTime <= now + COALESCE_WINDOW) {
+                        workers.add(mPendingUpdates.keyAt(i));
+                        mPendingUpdates.removeAt(i);
+                    } else {
+                        nextDueTime = Math.min(nextDueTime, dueTime);
+                    }
+                }
+                if (nextDueTime != Long.MAX_VALUE) {
+                    scheduleLocked(nextDueTime);
+                }
+            }
 
-        private void updateSlice(SliceBackgroundWorker worker) {
-            if (hasMessages(MSG_UPDATE_SLICE, worker)) {
-                return;
+            // Notifies the visible slices first.
+            workers.sort((w1, w2) -> Boolean.compare(isVisible(w2.getUri(), now),
+                    isVisible(w1.getUri(), now)));
+            for (SliceBackgroundWorker worker : workers) {
+                final Uri uri = worker.getUri();
+                mLastUpdateTimeLookup.put(uri, now);
+                SliceResultCache.getInstance().invalidate(uri);
+                worker.getContext().getContentResolver().notifyChange(uri, null);
             }
+        }
+
+        private void onSliceBound(Uri uri) {
+            mLastBindTimeLookup.put(uri, SystemClock.uptimeMillis());
+        }
 
-            final Message message = obtainMessage(MSG_UPDATE_SLICE, worker);
-            final long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(worker.getUri(), 0L);
+        private void updateSlice(SliceBackgroundWorker worker) {
+            final Uri uri = worker.getUri();
+            final long now = SystemClock.uptimeMillis();
+            final long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(uri, 0L);
+            final long dueTime;
             if (lastUpdateTime == 0L) {
                 // Postpone the first update triggering by onSlicePinned() to avoid being too close
                 // to the first Slice bind.
-                sendMessageDelayed(message, SLICE_UPDATE_THROTTLE_INTERVAL);
-            } else if (SystemClock.uptimeMillis() - lastUpdateTime
-                    > SLICE_UPDATE_THROTTLE_INTERVAL) {
-                sendMessage(message);
+                dueTime = now + SLICE_UPDATE_THROTTLE_INTERVAL;
             } else {
-                sendMessageAtTime(message, lastUpdateTime + SLICE_UPDATE_THROTTLE_INTERVAL);
+                final long interval = isVisible(uri, now)
+                        ? SLICE_UPDATE_THROTTLE_INTERVAL
+                        : INVISIBLE_THROTTLE_INTERVAL;
+                dueTime = Math.max(now, lastUpdateTime + interval);
+            }
+
+            synchronized (mPendingUpdates) {
+                if (mPendingUpdates.containsKey(worker)) {
+                    mCoalescedCount.incrementAndGet();
+                    return;
+                }
+                mPendingUpdates.put(worker, dueTime);
+                scheduleLocked(dueTime);
             }
         }
 
         private void cancelSliceUpdate(SliceBackgroundWorker worker) {
-            removeMessages(MSG_UPDATE_SLICE, worker);
+            synchronized (mPendingUpdates) {
+                if (mPendingUpdates.remove(worker) != null) {
+                    mDroppedCount.incrementAndGet();
+                }
+            }
             mLastUpdateTimeLookup.remove(worker.getUri());
+            mLastBindTimeLookup.remove(worker.getUri());
+        }
+
+        private boolean isVisible(Uri uri, long now) {
+            final Long lastBindTime = mLastBindTimeLookup.get(uri);
+            return lastBindTime != null && now - lastBindTime <= VISIBLE_TIMEOUT;
+        }
+
+        // Keeps a single message at the earliest due time of the pending updates.
+        private void scheduleLocked(long dueTime) {
+            if (hasMessages(MSG_UPDATE_SLICE)) {
+                if (dueTime >= mScheduledTime) {
+                    return;
+                }
+                removeMessages(MSG_UPDATE_SLICE);
+            }
+            mScheduledTime = dueTime;
+            sendEmptyMessageAtTime(MSG_UPDATE_SLICE, dueTime);
         }
     };
 }
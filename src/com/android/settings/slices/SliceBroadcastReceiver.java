@@ -116,6 +116,7 @@ public class SliceBroadcastReceiver extends BroadcastReceiver {
         if (!controller.isAvailable()) {
             Log.w(TAG, "Can't update " + key + " since the setting is unavailable");
             if (!controller.hasAsyncUpdate()) {
+                SliceResultCache.getInstance().invalidate(sliceUri);
                 context.getContentResolver().notifyChange(sliceUri, null /* observer */);
             }
             return;
@@ -126,6 +127,7 @@ public class SliceBroadcastReceiver extends BroadcastReceiver {
         final TogglePreferenceController toggleController = (TogglePreferenceController) controller;
         toggleController.setChecked(isChecked);
         logSliceValueChange(context, key, isChecked ? 1 : 0);
+        SliceResultCache.getInstance().invalidate(sliceUri);
         if (!controller.hasAsyncUpdate()) {
             context.getContentResolver().notifyChange(sliceUri, null /* observer */);
         }
@@ -149,6 +151,7 @@ public class SliceBroadcastReceiver extends BroadcastReceiver {
 
         if (!controller.isAvailable()) {
             Log.w(TAG, "Can't update " + key + " since the setting is unavailable");
+            SliceResultCache.getInstance().invalidate(sliceUri);
             context.getContentResolver().notifyChange(sliceUri, null /* observer */);
             return;
         }
@@ -164,6 +167,7 @@ public class SliceBroadcastReceiver extends BroadcastReceiver {
 
         sliderController.setSliderPosition(newPosition);
         logSliceValueChange(context, key, newPosition);
+        SliceResultCache.getInstance().invalidate(sliceUri);
         context.getContentResolver().notifyChange(sliceUri, null /* observer */);
     }
 
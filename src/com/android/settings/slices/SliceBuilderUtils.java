@@ -77,8 +77,15 @@ public class SliceBuilderUtils {
      * {@param sliceData} is an inline controller.
      */
     public static Slice buildSlice(Context context, SliceData sliceData) {
+        return buildSlice(context, sliceData, getPreferenceController(context, sliceData));
+    }
+
+    /**
+     * Build a Slice from {@link SliceData} with the {@code controller} created from it.
+     */
+    static Slice buildSlice(Context context, SliceData sliceData,
+            BasePreferenceController controller) {
         Log.d(TAG, "Creating slice for: " + sliceData.getPreferenceController());
-        final BasePreferenceController controller = getPreferenceController(context, sliceData);
 
         if (!controller.isAvailable()) {
             // Cannot guarantee setting page is accessible, let the presenter handle error case.
@@ -37,6 +37,7 @@ import android.content.pm.ServiceInfo;
 import android.content.res.Resources;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.SearchIndexableResource;
 import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
@@ -59,6 +60,9 @@ import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.search.Indexable.SearchIndexProvider;
 import com.android.settingslib.search.SearchIndexableData;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
@@ -67,7 +71,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Converts all Slice sources into {@link SliceData}.
@@ -75,10 +86,19 @@ import java.util.Set;
  * - All {@link DashboardFragment DashboardFragments} indexed by settings search
  * - Accessibility services
  */
-class SliceDataConverter {
+public class SliceDataConverter {
 
     private static final String TAG = "SliceDataConverter";
 
+    // The bound of the worker pool in the parallel conversion mode.
+    private static final int MAX_WORKER_COUNT = 4;
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+    private static final long SLOW_CONVERSION_THRESHOLD_MS = 50;
+
+    private static ThreadPoolExecutor sConversionExecutor;
+    // The conversion time in milliseconds of each fragment in the last conversion.
+    private static volatile Map<String, Long> sLastConversionTimes = Collections.emptyMap();
+
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private Context mContext;
 
@@ -98,34 +118,147 @@ class SliceDataConverter {
      * {@link com.android.settings.core.BasePreferenceController}.
      */
     public List<SliceData> getSliceData() {
-        List<SliceData> sliceData = new ArrayList<>();
+        final List<SliceData> sliceData = getXmlSliceData();
+
+        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
+        sliceData.addAll(a11ySliceData);
+        return sliceData;
+    }
+
+    /**
+     * @return a list of {@link SliceData} from the XML resources of the search index providers,
+     * only including the slices available on the device.
+     */
+    List<SliceData> getXmlSliceData() {
+        return getXmlSliceData(true /* onlyAvailable */);
+    }
 
+    /**
+     * @return a list of {@link SliceData} from the XML resources of the search index providers.
+     * If {@code onlyAvailable} is false, the slices are not filtered by the availability of their
+     * controllers, so the result only changes with the build and the locales. They must be passed
+     * to {@link #filterAvailableSliceData} before they are indexed.
+     */
+    List<SliceData> getXmlSliceData(boolean onlyAvailable) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final Map<String, Long> conversionTimes = new ConcurrentHashMap<>();
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
-        for (SearchIndexableData bundle : bundles) {
-            final String fragmentName = bundle.getTargetClass().getName();
+        final boolean isParallel = FeatureFactory.getFeatureFactory().getSlicesFeatureProvider()
+                .isParallelSliceDataConversionEnabled();
+        final List<SliceData> sliceData = isParallel
+                ? getSliceDataInParallel(bundles, onlyAvailable, conversionTimes)
+                : getSliceDataSerially(bundles, onlyAvailable, conversionTimes);
+        sLastConversionTimes = conversionTimes;
 
-            final SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        Log.d(TAG, String.format("getXmlSliceData() size=%d parallel=%b in %d/ms",
+                sliceData.size(), isParallel, SystemClock.elapsedRealtime() - startTime));
+        return sliceData;
+    }
 
-            // CodeInspection test guards against the null check. Keep check in case of bad actors.
-            if (provider == null) {
-                Log.e(TAG, fragmentName + " dose not implement Search Index Provider");
-                continue;
+    private List<SliceData> getSliceDataSerially(Collection<SearchIndexableData> bundles,
+            boolean onlyAvailable, Map<String, Long> conversionTimes) {
+        final List<SliceData> sliceData = new ArrayList<>();
+        for (SearchIndexableData bundle : bundles) {
+            sliceData.addAll(getSliceDataFromBundle(bundle, onlyAvailable, conversionTimes));
+        }
+        return sliceData;
+    }
+
+    /**
+     * Converts each provider in the shared bounded worker pool. The results are merged in the
+     * order of the providers, so the converted data is the same as {@link #getSliceDataSerially}.
+     */
+    private List<SliceData> getSliceDataInParallel(Collection<SearchIndexableData> bundles,
+            boolean onlyAvailable, Map<String, Long> conversionTimes) {
+        final ThreadPoolExecutor executor = getConversionExecutor();
+        final List<Future<List<SliceData>>> futures = new ArrayList<>(bundles.size());
+        try {
+            for (SearchIndexableData bundle : bundles) {
+                futures.add(executor.submit(
+                        () -> getSliceDataFromBundle(bundle, onlyAvailable, conversionTimes)));
             }
+            final List<SliceData> sliceData = new ArrayList<>();
+            for (Future<List<SliceData>> future : futures) {
+                sliceData.addAll(future.get());
+            }
+            return sliceData;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting slice data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // Only stops the remaining work of this conversion, the pool is shared.
+            for (Future<List<SliceData>> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+    }
 
-            final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
-                    fragmentName);
-            sliceData.addAll(providerSliceData);
+    private static synchronized ThreadPoolExecutor getConversionExecutor() {
+        if (sConversionExecutor == null) {
+            final int workerCount = getWorkerCount();
+            sConversionExecutor = new ThreadPoolExecutor(workerCount, workerCount,
+                    WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            sConversionExecutor.allowCoreThreadTimeOut(true);
         }
+        return sConversionExecutor;
+    }
 
-        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
-        sliceData.addAll(a11ySliceData);
-        return sliceData;
+    private List<SliceData> getSliceDataFromBundle(SearchIndexableData bundle,
+            boolean onlyAvailable, Map<String, Long> conversionTimes) {
+        final String fragmentName = bundle.getTargetClass().getName();
+
+        final SearchIndexProvider provider = bundle.getSearchIndexProvider();
+
+        // CodeInspection test guards against the null check. Keep check in case of bad actors.
+        if (provider == null) {
+            Log.e(TAG, fragmentName + " dose not implement Search Index Provider");
+            return Collections.emptyList();
+        }
+
+        final long startTime = SystemClock.elapsedRealtime();
+        final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
+                fragmentName, onlyAvailable);
+        final long conversionTime = SystemClock.elapsedRealtime() - startTime;
+        conversionTimes.put(fragmentName, conversionTime);
+        if (conversionTime >= SLOW_CONVERSION_THRESHOLD_MS) {
+            Log.w(TAG, String.format("Slow slice data conversion of %s in %d/ms",
+                    fragmentName, conversionTime));
+        }
+        return providerSliceData;
+    }
+
+    /**
+     * Returns the conversion time of each fragment in the last conversion, sorted by the
+     * conversion time in descending order.
+     */
+    public static JSONArray dumpConversionTimes() throws JSONException {
+        final List<Map.Entry<String, Long>> entries =
+                new ArrayList<>(sLastConversionTimes.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        final JSONArray array = new JSONArray();
+        for (Map.Entry<String, Long> entry : entries) {
+            final JSONObject obj = new JSONObject();
+            obj.put("name", entry.getKey());
+            obj.put("ms", entry.getValue());
+            array.put(obj);
+        }
+        return array;
+    }
+
+    private static int getWorkerCount() {
+        return Math.max(1, Math.min(MAX_WORKER_COUNT, Runtime.getRuntime().availableProcessors()));
     }
 
     private List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
-            String fragmentName) {
+            String fragmentName, boolean onlyAvailable) {
         final List<SliceData> sliceData = new ArrayList<>();
 
         final List<SearchIndexableResource> resList =
@@ -144,14 +277,16 @@ class SliceDataConverter {
                 continue;
             }
 
-            List<SliceData> xmlSliceData = getSliceDataFromXML(xmlResId, fragmentName);
+            List<SliceData> xmlSliceData = getSliceDataFromXML(xmlResId, fragmentName,
+                    onlyAvailable);
             sliceData.addAll(xmlSliceData);
         }
 
         return sliceData;
     }
 
-    private List<SliceData> getSliceDataFromXML(int xmlResId, String fragmentName) {
+    private List<SliceData> getSliceDataFromXML(int xmlResId, String fragmentName,
+            boolean onlyAvailable) {
         final List<SliceData> xmlSliceData = new ArrayList<>();
         String controllerClassName = "";
         @NonNull String screenTitle = "";
@@ -190,11 +325,8 @@ class SliceDataConverter {
                 final String key = bundle.getString(METADATA_KEY);
                 final BasePreferenceController controller = SliceBuilderUtils
                         .getPreferenceController(mContext, controllerClassName, key);
-                // Only add pre-approved Slices available on the device.
-                // Always index RingerModeAffected slices so they are available for panel
                 if (!controller.isSliceable()
-                        || !(controller.isAvailable()
-                        || controller instanceof RingerModeAffectedVolumePreferenceController)) {
+                        || (onlyAvailable && !isAvailableForIndexing(controller))) {
                     continue;
                 }
                 final String summary = bundle.getString(METADATA_SUMMARY);
@@ -250,7 +382,38 @@ class SliceDataConverter {
         return xmlSliceData;
     }
 
-    private List<SliceData> getAccessibilitySliceData() {
+    /**
+     * @return the {@link SliceData} of {@code sliceData} whose controllers are available on the
+     * device.
+     */
+    List<SliceData> filterAvailableSliceData(List<SliceData> sliceData) {
+        final List<SliceData> availableSliceData = new ArrayList<>(sliceData.size());
+        for (SliceData data : sliceData) {
+            try {
+                final BasePreferenceController controller = SliceBuilderUtils
+                        .getPreferenceController(mContext, data.getPreferenceController(),
+                                data.getKey());
+                if (isAvailableForIndexing(controller)) {
+                    availableSliceData.add(data);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to check availability of " + data.getKey(), e);
+            }
+        }
+        return availableSliceData;
+    }
+
+    // Only add pre-approved Slices available on the device.
+    // Always index RingerModeAffected slices so they are available for panel
+    private static boolean isAvailableForIndexing(BasePreferenceController controller) {
+        return controller.isAvailable()
+                || controller instanceof RingerModeAffectedVolumePreferenceController;
+    }
+
+    /**
+     * @return a list of {@link SliceData} of the installed accessibility services.
+     */
+    List<SliceData> getAccessibilitySliceData() {
         final List<SliceData> sliceData = new ArrayList<>();
 
         final String accessibilityControllerClassName =
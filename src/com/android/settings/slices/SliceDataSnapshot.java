@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.utils.VersionedSnapshotFile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary snapshot of the {@link SliceData} converted from the indexable XML resources.
+ *
+ * <p>The static rows only change with the build, the version of Settings and the locales, so one
+ * snapshot is kept for each locale of the current build. The rows are not filtered by the
+ * availability of their controllers, which depends on the device state. Re-indexing after a
+ * locale change or a database rebuild then loads the rows instead of parsing every XML again. The
+ * snapshots of other builds are deleted when a new snapshot is written.
+ */
+class SliceDataSnapshot {
+
+    private static final String TAG = "SliceDataSnapshot";
+
+    @VisibleForTesting
+    static final String SNAPSHOT_DIR = "slice_data_snapshot";
+    // Increases it when the format of the snapshot file is changed.
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final Context mContext;
+
+    SliceDataSnapshot(Context context) {
+        mContext = context;
+    }
+
+    /** Returns the rows of the current build and locales, or null if there is no snapshot. */
+    @Nullable
+    List<SliceData> read() {
+        final String key = getSnapshotKey();
+        if (key == null) {
+            return null;
+        }
+        return getSnapshotFile().read(key, in -> {
+            final int size = in.readInt();
+            final List<SliceData> sliceData = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                sliceData.add(readSliceData(in));
+            }
+            return sliceData;
+        });
+    }
+
+    /** Writes the rows of the current build and locales, and deletes the outdated snapshots. */
+    void write(List<SliceData> sliceData) {
+        final String key = getSnapshotKey();
+        if (key == null) {
+            return;
+        }
+        deleteOutdatedSnapshots(getSnapshotDir(mContext));
+        getSnapshotFile().write(key, out -> {
+            out.writeInt(sliceData.size());
+            for (SliceData data : sliceData) {
+                writeSliceData(out, data);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    static void clear(Context context) {
+        final File[] files = getSnapshotDir(context).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private void deleteOutdatedSnapshots(File dir) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        final String prefix = getBuildPrefix();
+        for (File file : files) {
+            if (!file.getName().startsWith(prefix)) {
+                file.delete();
+            }
+        }
+    }
+
+    private VersionedSnapshotFile getSnapshotFile() {
+        final String locales =
+                mContext.getResources().getConfiguration().getLocales().toLanguageTags();
+        return new VersionedSnapshotFile(
+                new File(getSnapshotDir(mContext), getBuildPrefix() + locales), SNAPSHOT_VERSION);
+    }
+
+    /** Returns null if the key is not available, the rows are not stored in this case. */
+    @Nullable
+    private String getSnapshotKey() {
+        final PackageInfo packageInfo;
+        try {
+            packageInfo = mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), /* flags= */ 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Package not found: " + mContext.getPackageName());
+            return null;
+        }
+        return Build.FINGERPRINT
+                + "|" + packageInfo.getLongVersionCode()
+                + "|" + packageInfo.lastUpdateTime;
+    }
+
+    // The fingerprint is also stored in the file, the hash only keeps the file name short.
+    private static String getBuildPrefix() {
+        return Integer.toHexString(Build.FINGERPRINT.hashCode()) + "_";
+    }
+
+    private static File getSnapshotDir(Context context) {
+        return new File(context.getFilesDir(), SNAPSHOT_DIR);
+    }
+
+    private static void writeSliceData(DataOutputStream out, SliceData data) throws IOException {
+        writeString(out, data.getKey());
+        writeString(out, data.getUri() == null ? null : data.getUri().toString());
+        writeString(out, data.getTitle());
+        writeString(out, data.getSummary());
+        writeString(out, data.getScreenTitle() == null ? null : data.getScreenTitle().toString());
+        writeString(out, data.getKeywords());
+        out.writeInt(data.getIconResource());
+        writeString(out, data.getFragmentClassName());
+        writeString(out, data.getPreferenceController());
+        out.writeInt(data.getSliceType());
+        writeString(out, data.getUnavailableSliceSubtitle());
+        out.writeBoolean(data.isPublicSlice());
+        out.writeInt(data.getHighlightMenuRes());
+        writeString(out, data.getUserRestriction());
+    }
+
+    private static SliceData readSliceData(DataInputStream in) throws IOException {
+        final SliceData.Builder builder = new SliceData.Builder()
+                .setKey(readString(in));
+        final String uri = readString(in);
+        return builder
+                .setUri(uri == null ? null : Uri.parse(uri))
+                .setTitle(readString(in))
+                .setSummary(readString(in))
+                .setScreenTitle(readString(in))
+                .setKeywords(readString(in))
+                .setIcon(in.readInt())
+                .setFragmentName(readString(in))
+                .setPreferenceControllerClassName(readString(in))
+                .setSliceType(in.readInt())
+                .setUnavailableSliceSubtitle(readString(in))
+                .setIsPublicSlice(in.readBoolean())
+                .setHighlightMenuRes(in.readInt())
+                .setUserRestriction(readString(in))
+                .build();
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
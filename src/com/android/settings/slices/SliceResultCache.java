@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.provider.SettingsSlicesContract;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.slice.Slice;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded LRU cache of the {@link Slice}s built by {@link SettingsSliceProvider} from the
+ * indexed {@link SliceData}, so rebinding an unchanged slice does not query the controller again.
+ *
+ * <p>Only the slices of the controllers returning a setting from
+ * {@link Sliceable#getSliceResultBackingUri()} are cached, and each of them is dropped when its
+ * setting is changed. All the cached slices are dropped when the locale or the configuration is
+ * changed. A cached slice is also dropped before its uri is notified to be changed, e.g. by
+ * {@link SliceBackgroundWorker#notifySliceChange()}, {@link SliceRelayReceiver} or
+ * {@link SliceBroadcastReceiver}.
+ */
+class SliceResultCache {
+
+    @VisibleForTesting
+    static final int MAX_SIZE = 32;
+
+    private static SliceResultCache sInstance;
+
+    private final LruCache<Uri, Slice> mCache = new LruCache<>(MAX_SIZE);
+    // The slice uris cached for each observed setting, the observers are only registered once.
+    private final Map<Uri, Set<Uri>> mSliceUrisBySetting = new ArrayMap<>();
+    private final ContentObserver mSettingObserver = new ContentObserver(null /* handler */) {
+        @Override
+        public void onChange(boolean selfChange, @Nullable Uri uri) {
+            if (uri == null) {
+                invalidateAll();
+            } else {
+                onSettingChanged(uri);
+            }
+        }
+    };
+    // Increases on every invalidation, a slice built before an invalidation is not cached.
+    private long mGeneration;
+    @Nullable
+    private ContentResolver mResolver;
+
+    static synchronized SliceResultCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new SliceResultCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SliceResultCache() {
+    }
+
+    /** Returns the cached slice of the uri, or null if it is not cached. */
+    @Nullable
+    synchronized Slice get(Uri uri) {
+        return mCache.get(uri);
+    }
+
+    /** Returns the generation to be passed to {@link #put}, it must be read before building. */
+    synchronized long getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Caches the slice until the {@code settingUri} is changed, unless it is invalidated after the
+     * {@code generation} was read.
+     */
+    synchronized void put(Uri uri, @Nullable Slice slice, long generation, Uri settingUri) {
+        // An unavailable controller builds no slice, it's not cached.
+        if (slice == null || generation != mGeneration) {
+            return;
+        }
+        Set<Uri> sliceUris = mSliceUrisBySetting.get(settingUri);
+        if (sliceUris == null) {
+            sliceUris = new ArraySet<>();
+            mSliceUrisBySetting.put(settingUri, sliceUris);
+            if (mResolver != null) {
+                mResolver.registerContentObserver(settingUri, false /* notifyForDescendants */,
+                        mSettingObserver);
+            }
+        }
+        sliceUris.add(uri);
+        mCache.put(uri, slice);
+    }
+
+    /** Drops the cached slices of the key of the uri, for both slice authorities. */
+    synchronized void invalidate(Uri uri) {
+        mGeneration++;
+        final String key = uri.getLastPathSegment();
+        for (Uri cachedUri : mCache.snapshot().keySet()) {
+            if (cachedUri.equals(uri) || TextUtils.equals(cachedUri.getLastPathSegment(), key)) {
+                mCache.remove(cachedUri);
+            }
+        }
+    }
+
+    /** Drops all the cached slices. */
+    synchronized void invalidateAll() {
+        mGeneration++;
+        mCache.evictAll();
+    }
+
+    /** Drops the cached slices backed by the setting. */
+    @VisibleForTesting
+    synchronized void onSettingChanged(Uri settingUri) {
+        final Set<Uri> sliceUris = mSliceUrisBySetting.get(settingUri);
+        if (sliceUris == null) {
+            return;
+        }
+        for (Uri sliceUri : sliceUris) {
+            invalidate(sliceUri);
+        }
+    }
+
+    /**
+     * Starts observing the slice uris and the locale and configuration changes, it only registers
+     * the observers once. The settings backing the cached slices are observed when they are put.
+     */
+    synchronized void startObserving(Context context) {
+        if (mResolver != null) {
+            return;
+        }
+        mResolver = context.getContentResolver();
+        for (Uri settingUri : mSliceUrisBySetting.keySet()) {
+            mResolver.registerContentObserver(settingUri, false /* notifyForDescendants */,
+                    mSettingObserver);
+        }
+
+        // Catches the changes notified outside of the slices package.
+        final ContentObserver sliceObserver = new ContentObserver(null /* handler */) {
+            @Override
+            public void onChange(boolean selfChange, @Nullable Uri uri) {
+                if (uri == null) {
+                    invalidateAll();
+                } else {
+                    invalidate(uri);
+                }
+            }
+        };
+        mResolver.registerContentObserver(getAuthorityUri(SettingsSliceProvider.SLICE_AUTHORITY),
+                true /* notifyForDescendants */, sliceObserver);
+        mResolver.registerContentObserver(getAuthorityUri(SettingsSlicesContract.AUTHORITY),
+                true /* notifyForDescendants */, sliceObserver);
+
+        // The titles, summaries and icons of the cached slices depend on the configuration.
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_LOCALE_CHANGED);
+        filter.addAction(Intent.ACTION_CONFIGURATION_CHANGED);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidateAll();
+            }
+        }, filter);
+    }
+
+    private static Uri getAuthorityUri(String authority) {
+        return new Uri.Builder()
+                .scheme(ContentResolver.SCHEME_CONTENT)
+                .authority(authority)
+                .build();
+    }
+}
@@ -25,6 +25,7 @@ import android.content.IntentFilter;
 import android.net.Uri;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.slice.Slice;
 
@@ -88,6 +89,19 @@ public interface Sliceable {
         return false;
     }
 
+    /**
+     * @return the uri of the setting in {@link android.provider.Settings.Global}, {@link
+     * android.provider.Settings.Secure} or {@link android.provider.Settings.System} which the
+     * state of the slice is only read from, or {@code null} if the slice is not cached.
+     * <p>
+     * The built slice is then cached until the setting is changed. A controller reading any other
+     * state, e.g. from a system service, must return null.
+     */
+    @Nullable
+    default Uri getSliceResultBackingUri() {
+        return null;
+    }
+
     /**
      * Whether or not summary comes from something dynamic (ie, not hardcoded in xml)
      */
@@ -41,6 +41,28 @@ public interface SlicesFeatureProvider {
      */
     void indexSliceData(Context context);
 
+    /**
+     * Whether {@link SliceDataConverter} converts the search index providers in a worker pool
+     * instead of one by one.
+     */
+    default boolean isParallelSliceDataConversionEnabled() {
+        return false;
+    }
+
+    /**
+     * Whether {@link SlicesIndexer} loads the slices converted from the XML resources from a
+     * {@link SliceDataSnapshot} instead of converting them on every index.
+     */
+    default boolean isSliceDataSnapshotEnabled() {
+        return false;
+    }
+
+    /**
+     * Whether {@link SettingsSliceProvider} caches the built slices until they are changed.
+     */
+    default boolean isSliceResultCacheEnabled() {
+        return false;
+    }
 
     /**
      * Return a {@link CustomSliceable} associated to the Uri.
@@ -29,6 +29,7 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,9 +44,12 @@ class SlicesIndexer implements Runnable {
 
     private SlicesDatabaseHelper mHelper;
 
+    private final SliceDataSnapshot mSnapshot;
+
     public SlicesIndexer(Context context) {
         mContext = context;
         mHelper = SlicesDatabaseHelper.getInstance(mContext);
+        mSnapshot = new SliceDataSnapshot(mContext);
     }
 
     /**
@@ -86,12 +90,37 @@ class SlicesIndexer implements Runnable {
         }
     }
 
+    /**
+     * Converts the slices to be indexed. If the snapshot is enabled by
+     * {@link SlicesFeatureProvider#isSliceDataSnapshotEnabled}, the XML slices are loaded from the
+     * {@link SliceDataSnapshot} if there is one for the current build, version of Settings and
+     * locales, otherwise they are converted and the snapshot is written. The snapshot doesn't
+     * depend on the device state, so its slices are filtered by the availability of their
+     * controllers on every index. The accessibility slices depend on the installed services, so
+     * they are always converted.
+     */
     @VisibleForTesting
     List<SliceData> getSliceData() {
-        return FeatureFactory.getFeatureFactory()
-                .getSlicesFeatureProvider()
-                .getSliceDataConverter(mContext)
-                .getSliceData();
+        final SlicesFeatureProvider slicesFeatureProvider =
+                FeatureFactory.getFeatureFactory().getSlicesFeatureProvider();
+        final SliceDataConverter converter =
+                slicesFeatureProvider.getSliceDataConverter(mContext);
+        if (!slicesFeatureProvider.isSliceDataSnapshotEnabled()) {
+            return converter.getSliceData();
+        }
+
+        List<SliceData> xmlSliceData = mSnapshot.read();
+        if (xmlSliceData == null) {
+            xmlSliceData = converter.getXmlSliceData(false /* onlyAvailable */);
+            mSnapshot.write(xmlSliceData);
+        } else {
+            Log.d(TAG, "Loaded " + xmlSliceData.size() + " slices from snapshot");
+        }
+
+        final List<SliceData> sliceData =
+                new ArrayList<>(converter.filterAvailableSliceData(xmlSliceData));
+        sliceData.addAll(converter.getAccessibilitySliceData());
+        return sliceData;
     }
 
     @VisibleForTesting
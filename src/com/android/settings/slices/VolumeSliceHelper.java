@@ -135,6 +135,7 @@ public class VolumeSliceHelper {
     private static void handleStreamChanged(Context context, int inputType) {
         for (Map.Entry<Uri, Integer> entry : sRegisteredUri.entrySet()) {
             if (entry.getValue() == inputType) {
+                SliceResultCache.getInstance().invalidate(entry.getKey());
                 context.getContentResolver().notifyChange(entry.getKey(), null /* observer */);
                 if (inputType != AudioManager.STREAM_RING) { // Two URIs are mapped to ring
                     break;
@@ -145,6 +146,7 @@ public class VolumeSliceHelper {
 
     private static void notifyAllStreamsChanged(Context context) {
         sRegisteredUri.keySet().forEach(uri -> {
+            SliceResultCache.getInstance().invalidate(uri);
             context.getContentResolver().notifyChange(uri, null /* observer */);
         });
     }
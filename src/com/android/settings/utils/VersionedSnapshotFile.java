@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A file persisting a snapshot of data which is expensive to load. The file starts with the
+ * format version and a key describing what the data depends on, e.g. the build and the
+ * configuration, and it's only read back while both of them are unchanged.
+ *
+ * <p>The file is written atomically, a failed read or write is logged and treated as a missing
+ * snapshot.
+ */
+public class VersionedSnapshotFile {
+
+    private static final String TAG = "VersionedSnapshotFile";
+
+    /** Reads the payload of the snapshot. */
+    public interface PayloadReader<T> {
+        /** Returns the payload, or null if it's not valid anymore. */
+        @Nullable
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /** Writes the payload of the snapshot. */
+    public interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private final File mFile;
+    private final int mVersion;
+
+    /**
+     * @param file the snapshot file, its parent directory is created on write
+     * @param version the format version, increase it when the format of the payload is changed
+     */
+    public VersionedSnapshotFile(File file, int version) {
+        mFile = file;
+        mVersion = version;
+    }
+
+    /** Returns the payload, or null if there is no snapshot of the version and the key. */
+    @Nullable
+    public <T> T read(String key, PayloadReader<T> reader) {
+        if (!mFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != mVersion || !key.equals(in.readUTF())) {
+                Log.d(TAG, "Outdated snapshot: " + mFile.getName());
+                return null;
+            }
+            return reader.read(in);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to read snapshot: " + mFile.getName(), e);
+            return null;
+        }
+    }
+
+    /** Writes the payload with the version and the key, returns true if it's written. */
+    public boolean write(String key, PayloadWriter writer) {
+        final File dir = mFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Failed to create snapshot directory: " + dir);
+            return false;
+        }
+        final AtomicFile atomicFile = new AtomicFile(mFile);
+        FileOutputStream fileOut = null;
+        try {
+            fileOut = atomicFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(mVersion);
+            out.writeUTF(key);
+            writer.write(out);
+            out.flush();
+            atomicFile.finishWrite(fileOut);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to write snapshot: " + mFile.getName(), e);
+            if (fileOut != null) {
+                atomicFile.failWrite(fileOut);
+            }
+            return false;
+        }
+    }
+
+    /** Deletes the snapshot. */
+    public void delete() {
+        new AtomicFile(mFile).delete();
+    }
+}
@@ -86,6 +86,11 @@ public class NotifyOpenNetworksPreferenceController extends TogglePreferenceCont
         return true;
     }
 
+    @Override
+    public Uri getSliceResultBackingUri() {
+        return Settings.Global.getUriFor(Settings.Global.WIFI_NETWORKS_AVAILABLE_NOTIFICATION_ON);
+    }
+
     @Override
     public int getSliceHighlightMenuRes() {
         return R.string.menu_key_network;
@@ -0,0 +1,412 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageEvents.Event;
+import android.content.ContentValues;
+import android.os.BatteryManager;
+import android.os.Process;
+import android.os.UserHandle;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates deterministic synthetic battery usage data for the benchmarks, shaped like the data
+ * the periodic job records: one snapshot per hour for the last days, with the cumulative usage of
+ * every app of every user in each snapshot.
+ */
+final class BatteryUsageDataGenerator {
+    static final int DEFAULT_DAYS = 6;
+
+    private static final long RANDOM_SEED = 0x5E771265L;
+    private static final int SYSTEM_COMPONENT_COUNT = 16;
+    private static final int SESSIONS_PER_HOUR_PER_USER = 12;
+    private static final String ZONE_ID = "America/Los_Angeles";
+
+    private final int mAppCount;
+    private final int mUserCount;
+    private final int mHourCount;
+    private final long mStartTimestamp;
+    private final String[] mPackageNames;
+    // The consume power per hour of each app, the total usage grows linearly in each snapshot.
+    private final double[] mPowerRates;
+
+    /**
+     * @param appCount the number of apps of each user
+     * @param userCount the number of users, the first one is the current user
+     * @param days the number of days before the current hour to generate data for
+     */
+    BatteryUsageDataGenerator(int appCount, int userCount, int days) {
+        mAppCount = appCount;
+        mUserCount = userCount;
+        mHourCount = days * 24;
+        final long currentHour =
+                System.currentTimeMillis() / DateUtils.HOUR_IN_MILLIS * DateUtils.HOUR_IN_MILLIS;
+        mStartTimestamp = currentHour - mHourCount * DateUtils.HOUR_IN_MILLIS;
+        mPackageNames = new String[appCount];
+        mPowerRates = new double[appCount];
+        final Random random = new Random(RANDOM_SEED);
+        for (int index = 0; index < appCount; index++) {
+            mPackageNames[index] = "com.android.settings.benchmark.app" + index;
+            // Most apps drain a little and a few apps drain a lot.
+            mPowerRates[index] = random.nextDouble() * random.nextDouble() * 20;
+        }
+    }
+
+    /** Gets the benchmark scales as {appCount, userCount}, up to 2000 apps in total. */
+    static List<Object[]> getScaleParameters() {
+        return Arrays.asList(new Object[][] {{200, 1}, {200, 4}, {1000, 2}, {2000, 1}});
+    }
+
+    long getStartTimestamp() {
+        return mStartTimestamp;
+    }
+
+    long getEndTimestamp() {
+        return getTimestamp(mHourCount);
+    }
+
+    /** Gets the number of battery state rows of {@link #generateBatteryStateList()}. */
+    int getBatteryStateSize() {
+        return (mHourCount + 1) * (mAppCount * mUserCount + SYSTEM_COMPONENT_COUNT);
+    }
+
+    /** Generates the battery history map as loaded from the battery state table. */
+    Map<Long, Map<String, BatteryHistEntry>> generateBatteryHistoryMap() {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new ArrayMap<>();
+        for (int hour = 0; hour <= mHourCount; hour++) {
+            final Map<String, BatteryHistEntry> entryMap = new ArrayMap<>();
+            for (ContentValues values : generateSnapshot(hour)) {
+                final BatteryHistEntry entry = new BatteryHistEntry(values);
+                entryMap.put(entry.getKey(), entry);
+            }
+            batteryHistoryMap.put(getTimestamp(hour), entryMap);
+        }
+        return batteryHistoryMap;
+    }
+
+    /** Generates the battery state rows of all hourly snapshots for the database. */
+    List<ContentValues> generateBatteryStateList() {
+        final List<ContentValues> valuesList = new ArrayList<>(getBatteryStateSize());
+        for (int hour = 0; hour <= mHourCount; hour++) {
+            valuesList.addAll(generateSnapshot(hour));
+        }
+        return valuesList;
+    }
+
+    /** Generates the app usage sessions of all users, in random order of timestamps. */
+    List<AppUsageEvent> generateAppUsageEventList() {
+        final List<AppUsageEvent> appUsageEventList = new ArrayList<>();
+        final Random random = new Random(RANDOM_SEED);
+        int instanceId = 0;
+        for (int hour = 0; hour < mHourCount; hour++) {
+            for (int userIndex = 0; userIndex < mUserCount; userIndex++) {
+                final long userId = getUserId(userIndex);
+                for (int session = 0; session < SESSIONS_PER_HOUR_PER_USER; session++) {
+                    final int appIndex = random.nextInt(mAppCount);
+                    final long startTime =
+                            getTimestamp(hour) + random.nextInt((int) DateUtils.HOUR_IN_MILLIS);
+                    final long endTime =
+                            startTime + random.nextInt((int) (10 * DateUtils.MINUTE_IN_MILLIS));
+                    instanceId++;
+                    appUsageEventList.add(
+                            buildAppUsageEvent(
+                                    AppUsageEventType.ACTIVITY_RESUMED,
+                                    startTime,
+                                    userId,
+                                    appIndex,
+                                    instanceId));
+                    appUsageEventList.add(
+                            buildAppUsageEvent(
+                                    AppUsageEventType.ACTIVITY_STOPPED,
+                                    endTime,
+                                    userId,
+                                    appIndex,
+                                    instanceId));
+                }
+            }
+        }
+        // The events are sorted by the processing code, so shuffles them to include the sort.
+        Collections.shuffle(appUsageEventList, random);
+        return appUsageEventList;
+    }
+
+    /** Generates one charging period per day and the even hour events. */
+    List<BatteryEvent> generateBatteryEventList() {
+        final List<BatteryEvent> batteryEventList = new ArrayList<>();
+        for (int hour = 0; hour < mHourCount; hour++) {
+            final long timestamp = getTimestamp(hour);
+            if (hour % 24 == 2) {
+                batteryEventList.add(
+                        buildBatteryEvent(
+                                BatteryEventType.POWER_CONNECTED, timestamp, getLevel(hour)));
+            } else if (hour % 24 == 3) {
+                batteryEventList.add(
+                        buildBatteryEvent(
+                                BatteryEventType.POWER_DISCONNECTED, timestamp, getLevel(hour)));
+            } else if (hour % 2 == 0) {
+                batteryEventList.add(
+                        buildBatteryEvent(BatteryEventType.EVEN_HOUR, timestamp, getLevel(hour)));
+            }
+        }
+        return batteryEventList;
+    }
+
+    /** Generates the hourly {@link BatteryUsageSlot} list as persisted by the periodic job. */
+    List<BatteryUsageSlot> generateBatteryUsageSlotList() {
+        final List<BatteryUsageSlot> batteryUsageSlotList = new ArrayList<>(mHourCount);
+        final Random random = new Random(RANDOM_SEED);
+        for (int hour = 0; hour < mHourCount; hour++) {
+            final BatteryUsageSlot.Builder slotBuilder =
+                    BatteryUsageSlot.newBuilder()
+                            .setStartTimestamp(getTimestamp(hour))
+                            .setEndTimestamp(getTimestamp(hour + 1))
+                            .setStartBatteryLevel(getLevel(hour))
+                            .setEndBatteryLevel(getLevel(hour + 1))
+                            .setScreenOnTime(random.nextInt((int) DateUtils.HOUR_IN_MILLIS));
+            for (int userIndex = 0; userIndex < mUserCount; userIndex++) {
+                final long userId = getUserId(userIndex);
+                for (int appIndex = 0; appIndex < mAppCount; appIndex++) {
+                    final long uid = UserHandle.getUid((int) userId, getAppId(appIndex));
+                    slotBuilder.addAppUsage(
+                            buildBatteryUsageDiff(random, mPowerRates[appIndex])
+                                    .setUid(uid)
+                                    .setUserId(userId)
+                                    .setPackageName(mPackageNames[appIndex])
+                                    .setKey(Long.toString(uid))
+                                    .setComponentId(-1)
+                                    .setConsumerType(ConvertUtils.CONSUMER_TYPE_UID_BATTERY));
+                }
+            }
+            for (int component = 0; component < SYSTEM_COMPONENT_COUNT; component++) {
+                slotBuilder.addSystemUsage(
+                        buildBatteryUsageDiff(random, /* powerRate= */ 10)
+                                .setUid(0L)
+                                .setUserId(0L)
+                                .setKey("S|" + component)
+                                .setComponentId(component)
+                                .setConsumerType(ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY));
+            }
+            batteryUsageSlotList.add(slotBuilder.build());
+        }
+        return batteryUsageSlotList;
+    }
+
+    /**
+     * Generates the usage events of the current user on the given installed packages, so the
+     * package manager could resolve the uid of every event. The returned {@link UsageEvents} could
+     * only be iterated once.
+     */
+    static UsageEvents generateUsageEvents(
+            List<String> packageNames, long startTimestamp, long endTimestamp, int sessionCount) {
+        final List<Event> events = new ArrayList<>(sessionCount * 2);
+        final Random random = new Random(RANDOM_SEED);
+        final long sessionDuration = (endTimestamp - startTimestamp) / sessionCount;
+        for (int session = 0; session < sessionCount; session++) {
+            final String packageName = packageNames.get(random.nextInt(packageNames.size()));
+            final long startTime = startTimestamp + session * sessionDuration;
+            events.add(buildEvent(Event.ACTIVITY_RESUMED, startTime, packageName, session));
+            events.add(
+                    buildEvent(
+                            Event.ACTIVITY_STOPPED,
+                            startTime + random.nextInt((int) sessionDuration),
+                            packageName,
+                            session));
+        }
+        return new UsageEvents(events, packageNames.toArray(new String[0]));
+    }
+
+    private List<ContentValues> generateSnapshot(int hour) {
+        final List<ContentValues> valuesList =
+                new ArrayList<>(mAppCount * mUserCount + SYSTEM_COMPONENT_COUNT);
+        final long timestamp = getTimestamp(hour);
+        final DeviceBatteryState deviceBatteryState =
+                DeviceBatteryState.newBuilder()
+                        .setBatteryLevel(getLevel(hour))
+                        .setBatteryStatus(BatteryManager.BATTERY_STATUS_DISCHARGING)
+                        .setBatteryHealth(BatteryManager.BATTERY_HEALTH_GOOD)
+                        .build();
+        final double totalPower = hour * mAppCount * mUserCount * 10.0;
+        for (int userIndex = 0; userIndex < mUserCount; userIndex++) {
+            final long userId = getUserId(userIndex);
+            for (int appIndex = 0; appIndex < mAppCount; appIndex++) {
+                final BatteryInformation batteryInformation =
+                        buildBatteryInformation(
+                                        deviceBatteryState,
+                                        timestamp,
+                                        hour,
+                                        totalPower,
+                                        mPowerRates[appIndex])
+                                .setAppLabel(mPackageNames[appIndex])
+                                .build();
+                valuesList.add(
+                        buildBatteryStateValues(
+                                UserHandle.getUid((int) userId, getAppId(appIndex)),
+                                userId,
+                                mPackageNames[appIndex],
+                                timestamp,
+                                ConvertUtils.CONSUMER_TYPE_UID_BATTERY,
+                                hour == 0,
+                                batteryInformation));
+            }
+        }
+        for (int component = 0; component < SYSTEM_COMPONENT_COUNT; component++) {
+            final BatteryInformation batteryInformation =
+                    buildBatteryInformation(
+                                    deviceBatteryState,
+                                    timestamp,
+                                    hour,
+                                    totalPower,
+                                    /* powerRate= */ 10)
+                            .setIsHidden(component % 4 == 0)
+                            .setDrainType(component)
+                            .build();
+            valuesList.add(
+                    buildBatteryStateValues(
+                            /* uid= */ 0L,
+                            /* userId= */ 0L,
+                            /* packageName= */ "",
+                            timestamp,
+                            ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY,
+                            hour == 0,
+                            batteryInformation));
+        }
+        return valuesList;
+    }
+
+    private long getTimestamp(int hour) {
+        return mStartTimestamp + hour * DateUtils.HOUR_IN_MILLIS;
+    }
+
+    // Drains four percent per hour and charges back to full once per day.
+    private static int getLevel(int hour) {
+        return Math.max(5, 100 - (hour + 21) % 24 * 4);
+    }
+
+    private static long getUserId(int userIndex) {
+        return userIndex == 0
+                ? UserHandle.myUserId()
+                : UserHandle.MIN_SECONDARY_USER_ID + userIndex;
+    }
+
+    private static int getAppId(int appIndex) {
+        return Process.FIRST_APPLICATION_UID + appIndex;
+    }
+
+    private static BatteryInformation.Builder buildBatteryInformation(
+            DeviceBatteryState deviceBatteryState,
+            long timestamp,
+            int hour,
+            double totalPower,
+            double powerRate) {
+        final double consumePower = powerRate * hour;
+        return BatteryInformation.newBuilder()
+                .setDeviceBatteryState(deviceBatteryState)
+                .setIsHidden(false)
+                .setBootTimestamp(timestamp - DateUtils.DAY_IN_MILLIS)
+                .setZoneId(ZONE_ID)
+                .setTotalPower(totalPower)
+                .setConsumePower(consumePower)
+                .setForegroundUsageConsumePower(consumePower * 0.5)
+                .setForegroundServiceUsageConsumePower(consumePower * 0.1)
+                .setBackgroundUsageConsumePower(consumePower * 0.3)
+                .setCachedUsageConsumePower(consumePower * 0.1)
+                .setPercentOfTotal(totalPower == 0 ? 0 : consumePower / totalPower * 100)
+                .setForegroundUsageTimeInMs((long) (powerRate * hour * 1000))
+                .setForegroundServiceUsageTimeInMs((long) (powerRate * hour * 100))
+                .setBackgroundUsageTimeInMs((long) (powerRate * hour * 2000));
+    }
+
+    private static ContentValues buildBatteryStateValues(
+            long uid,
+            long userId,
+            String packageName,
+            long timestamp,
+            int consumerType,
+            boolean isFullChargeCycleStart,
+            BatteryInformation batteryInformation) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_UID, uid);
+        values.put(BatteryHistEntry.KEY_USER_ID, userId);
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, packageName);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, consumerType);
+        values.put(BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START, isFullChargeCycleStart);
+        values.put(
+                BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION_DEBUG, "");
+        return values;
+    }
+
+    private static BatteryUsageDiff.Builder buildBatteryUsageDiff(
+            Random random, double powerRate) {
+        final double consumePower = powerRate * random.nextDouble();
+        return BatteryUsageDiff.newBuilder()
+                .setIsHidden(false)
+                .setConsumePower(consumePower)
+                .setForegroundUsageConsumePower(consumePower * 0.5)
+                .setForegroundServiceUsageConsumePower(consumePower * 0.1)
+                .setBackgroundUsageConsumePower(consumePower * 0.3)
+                .setCachedUsageConsumePower(consumePower * 0.1)
+                .setForegroundUsageTime((long) (consumePower * 1000))
+                .setForegroundServiceUsageTime((long) (consumePower * 100))
+                .setBackgroundUsageTime((long) (consumePower * 2000))
+                .setScreenOnTime((long) (consumePower * 500));
+    }
+
+    private AppUsageEvent buildAppUsageEvent(
+            AppUsageEventType type, long timestamp, long userId, int appIndex, int instanceId) {
+        return AppUsageEvent.newBuilder()
+                .setType(type)
+                .setTimestamp(timestamp)
+                .setUserId(userId)
+                .setUid(UserHandle.getUid((int) userId, getAppId(appIndex)))
+                .setPackageName(mPackageNames[appIndex])
+                .setTaskRootPackageName(mPackageNames[appIndex])
+                .setInstanceId(instanceId)
+                .build();
+    }
+
+    private static BatteryEvent buildBatteryEvent(
+            BatteryEventType type, long timestamp, int batteryLevel) {
+        return BatteryEvent.newBuilder()
+                .setType(type)
+                .setTimestamp(timestamp)
+                .setBatteryLevel(batteryLevel)
+                .build();
+    }
+
+    private static Event buildEvent(
+            int eventType, long timestamp, String packageName, int instanceId) {
+        final Event event = new Event();
+        event.mEventType = eventType;
+        event.mTimeStamp = timestamp;
+        event.mPackage = packageName;
+        event.mTaskRootPackage = packageName;
+        event.mInstanceId = instanceId;
+        return event;
+    }
+}
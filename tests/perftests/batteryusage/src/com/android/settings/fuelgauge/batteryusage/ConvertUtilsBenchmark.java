@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.MatrixCursor;
+import android.util.ArrayMap;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Benchmarks the proto and {@link ContentValues} conversions in {@link ConvertUtils}. */
+@RunWith(Parameterized.class)
+public final class ConvertUtilsBenchmark {
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameter(0)
+    public int mAppCount;
+
+    @Parameterized.Parameter(1)
+    public int mUserCount;
+
+    private Context mContext;
+    private BatteryUsageDataGenerator mGenerator;
+    private List<BatteryUsageSlot> mBatteryUsageSlotList;
+    private Set<String> mSystemAppsPackageNames;
+    private Set<Integer> mSystemAppsUids;
+
+    @Parameterized.Parameters(name = "apps={0},users={1}")
+    public static Collection<Object[]> getParameters() {
+        return BatteryUsageDataGenerator.getScaleParameters();
+    }
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mGenerator =
+                new BatteryUsageDataGenerator(
+                        mAppCount, mUserCount, BatteryUsageDataGenerator.DEFAULT_DAYS);
+        mBatteryUsageSlotList = mGenerator.generateBatteryUsageSlotList();
+        mSystemAppsPackageNames = DataProcessor.getSystemAppsPackageNames(mContext);
+        mSystemAppsUids = DataProcessor.getSystemAppsUids(mContext);
+    }
+
+    @Test
+    public void convertBatteryUsageSlotToContentValues() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
+                ConvertUtils.convertBatteryUsageSlotToContentValues(batteryUsageSlot);
+            }
+        }
+    }
+
+    @Test
+    public void convertBatteryUsageSlotToColumnarContentValues() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
+                ConvertUtils.convertBatteryUsageSlotToHeaderContentValues(batteryUsageSlot);
+                ConvertUtils.convertBatteryUsageSlotToDiffContentValuesList(batteryUsageSlot);
+            }
+        }
+    }
+
+    @Test
+    public void convertToBatteryUsageSlot() {
+        final MatrixCursor cursor =
+                new MatrixCursor(new String[] {BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT});
+        for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
+            cursor.addRow(
+                    new Object[] {
+                        ConvertUtils.convertBatteryUsageSlotToContentValues(batteryUsageSlot)
+                                .getAsString(BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT)
+                    });
+        }
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                ConvertUtils.convertToBatteryUsageSlot(cursor);
+            }
+        }
+    }
+
+    @Test
+    public void convertToBatteryDiffData() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
+                ConvertUtils.convertToBatteryDiffData(
+                        mContext, batteryUsageSlot, mSystemAppsPackageNames, mSystemAppsUids);
+            }
+        }
+    }
+
+    @Test
+    public void convertToBatteryUsageSlotList() {
+        final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
+        for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
+            batteryDiffDataMap.put(
+                    batteryUsageSlot.getStartTimestamp(),
+                    ConvertUtils.convertToBatteryDiffData(
+                            mContext, batteryUsageSlot, mSystemAppsPackageNames, mSystemAppsUids));
+        }
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ConvertUtils.convertToBatteryUsageSlotList(
+                    mContext, batteryDiffDataMap, /* isAppOptimizationModeLogged= */ false);
+        }
+    }
+
+    /** Decodes the battery information of the hourly battery state rows. */
+    @Test
+    public void convertToBatteryHistEntry() {
+        final List<ContentValues> valuesList = mGenerator.generateBatteryStateList();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (ContentValues values : valuesList) {
+                new BatteryHistEntry(values);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.app.usage.UsageEvents;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Benchmarks the battery usage processing in {@link DataProcessor}. */
+@RunWith(Parameterized.class)
+public final class DataProcessorBenchmark {
+    // Twelve app sessions per hour for six days.
+    private static final int USAGE_SESSION_COUNT = 12 * 24 * BatteryUsageDataGenerator.DEFAULT_DAYS;
+
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameter(0)
+    public int mAppCount;
+
+    @Parameterized.Parameter(1)
+    public int mUserCount;
+
+    private Context mContext;
+    private UserIdsSeries mUserIdsSeries;
+    private BatteryUsageDataGenerator mGenerator;
+    private Map<Long, Map<String, BatteryHistEntry>> mBatteryHistoryMap;
+    private Map<Long, Map<String, BatteryHistEntry>> mProcessedBatteryHistoryMap;
+    private BatteryLevelData mBatteryLevelData;
+    private Set<String> mSystemAppsPackageNames;
+    private Set<Integer> mSystemAppsUids;
+
+    @Parameterized.Parameters(name = "apps={0},users={1}")
+    public static Collection<Object[]> getParameters() {
+        return BatteryUsageDataGenerator.getScaleParameters();
+    }
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mUserIdsSeries = new UserIdsSeries(mContext, /* isNonUIRequest= */ false);
+        mGenerator =
+                new BatteryUsageDataGenerator(
+                        mAppCount, mUserCount, BatteryUsageDataGenerator.DEFAULT_DAYS);
+        mBatteryHistoryMap = mGenerator.generateBatteryHistoryMap();
+        mProcessedBatteryHistoryMap =
+                DataProcessor.getHistoryMapWithExpectedTimestamps(mContext, mBatteryHistoryMap);
+        mBatteryLevelData =
+                DataProcessor.getLevelDataThroughProcessedHistoryMap(
+                        mContext, mProcessedBatteryHistoryMap);
+        mSystemAppsPackageNames = DataProcessor.getSystemAppsPackageNames(mContext);
+        mSystemAppsUids = DataProcessor.getSystemAppsUids(mContext);
+        BatteryDiffDataCache.clearCache();
+    }
+
+    @After
+    public void tearDown() {
+        BatteryDiffDataCache.clearCache();
+    }
+
+    /** The whole pipeline of the battery usage page, including the live battery stats query. */
+    @Test
+    public void getBatteryUsageData() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            DataProcessor.getBatteryUsageData(mContext, mUserIdsSeries, mBatteryHistoryMap);
+        }
+    }
+
+    @Test
+    public void getHistoryMapWithExpectedTimestamps() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            DataProcessor.getHistoryMapWithExpectedTimestamps(mContext, mBatteryHistoryMap);
+        }
+    }
+
+    @Test
+    public void getBatteryDiffDataMap() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            getBatteryDiffDataMap();
+        }
+    }
+
+    @Test
+    public void generateBatteryUsageMap() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            final Map<Long, BatteryDiffData> batteryDiffDataMap = getBatteryDiffDataMap();
+            state.resumeTiming();
+            DataProcessor.generateBatteryUsageMap(mContext, batteryDiffDataMap, mBatteryLevelData);
+        }
+    }
+
+    /** Reloads the same hourly data, so the accumulated data could be reused from the cache. */
+    @Test
+    public void generateBatteryUsageMap_sameHourlyData() {
+        final Map<Long, BatteryDiffData> batteryDiffDataMap = getBatteryDiffDataMap();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            DataProcessor.generateBatteryUsageMap(mContext, batteryDiffDataMap, mBatteryLevelData);
+        }
+    }
+
+    @Test
+    public void generateAppUsagePeriodMap() {
+        final List<AppUsageEvent> appUsageEventList = mGenerator.generateAppUsageEventList();
+        final List<BatteryEvent> batteryEventList = mGenerator.generateBatteryEventList();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            DataProcessor.generateAppUsagePeriodMap(
+                    mContext,
+                    mBatteryLevelData.getHourlyBatteryLevelsPerDay(),
+                    appUsageEventList,
+                    batteryEventList);
+        }
+    }
+
+    @Test
+    public void generateAppUsageEventListFromUsageEvents() {
+        final List<String> packageNames = getInstalledPackageNames();
+        final Map<Long, UsageEvents> usageEventsMap = new ArrayMap<>();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            // The usage events could only be iterated once.
+            state.pauseTiming();
+            usageEventsMap.put(
+                    (long) UserHandle.myUserId(),
+                    BatteryUsageDataGenerator.generateUsageEvents(
+                            packageNames,
+                            mGenerator.getStartTimestamp(),
+                            mGenerator.getEndTimestamp(),
+                            USAGE_SESSION_COUNT));
+            state.resumeTiming();
+            DataProcessor.generateAppUsageEventListFromUsageEvents(mContext, usageEventsMap);
+        }
+    }
+
+    private Map<Long, BatteryDiffData> getBatteryDiffDataMap() {
+        return DataProcessor.getBatteryDiffDataMap(
+                mContext,
+                mUserIdsSeries,
+                mBatteryLevelData.getHourlyBatteryLevelsPerDay(),
+                mProcessedBatteryHistoryMap,
+                /* appUsagePeriodMap= */ null,
+                mSystemAppsPackageNames,
+                mSystemAppsUids);
+    }
+
+    // Uses the installed packages, so the package manager could resolve the uid of the events.
+    private List<String> getInstalledPackageNames() {
+        final List<String> packageNames = new ArrayList<>();
+        for (PackageInfo packageInfo :
+                mContext.getPackageManager().getInstalledPackages(/* flags= */ 0)) {
+            if (packageNames.size() == mAppCount) {
+                break;
+            }
+            packageNames.add(packageInfo.packageName);
+        }
+        return packageNames;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.room.Room;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDao;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Benchmarks loading the battery history from the battery state table in {@link DatabaseUtils}.
+ *
+ * <p>The rows are queried from a seeded in-memory database instead of the content provider, so
+ * the benchmark neither depends on nor changes the data of the device.
+ */
+@RunWith(Parameterized.class)
+public final class DatabaseUtilsBenchmark {
+    @Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameter(0)
+    public int mAppCount;
+
+    @Parameterized.Parameter(1)
+    public int mUserCount;
+
+    private Context mContext;
+    private BatteryStateDatabase mDatabase;
+    private BatteryUsageDataGenerator mGenerator;
+
+    @Parameterized.Parameters(name = "apps={0},users={1}")
+    public static Collection<Object[]> getParameters() {
+        return BatteryUsageDataGenerator.getScaleParameters();
+    }
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mGenerator =
+                new BatteryUsageDataGenerator(
+                        mAppCount, mUserCount, BatteryUsageDataGenerator.DEFAULT_DAYS);
+        mDatabase =
+                Room.inMemoryDatabaseBuilder(mContext, BatteryStateDatabase.class)
+                        .allowMainThreadQueries()
+                        .build();
+        final List<BatteryState> batteryStateList =
+                new ArrayList<>(mGenerator.getBatteryStateSize());
+        for (ContentValues values : mGenerator.generateBatteryStateList()) {
+            batteryStateList.add(BatteryState.create(values));
+        }
+        final BatteryStateDao batteryStateDao = mDatabase.batteryStateDao();
+        batteryStateDao.insertAll(batteryStateList);
+        DatabaseUtils.sFakeSupplier =
+                () -> batteryStateDao.getBatteryStatesAfter(mGenerator.getStartTimestamp());
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseUtils.sFakeSupplier = null;
+        mDatabase.close();
+    }
+
+    @Test
+    public void getHistoryMapSinceQueryTimestamp() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            DatabaseUtils.getHistoryMapSinceQueryTimestamp(
+                    mContext, mGenerator.getStartTimestamp());
+        }
+    }
+}
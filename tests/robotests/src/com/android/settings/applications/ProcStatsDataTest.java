@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.internal.app.procstats.ProcessStats;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+    private static final long DURATION = 3 * 60 * 60 * 1000;
+    private static final long OTHER_DURATION = 6 * 60 * 60 * 1000;
+
+    private Context mContext;
+    private ProcStatsData mStatsData;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mStatsData = createStatsData(false /* useXfer */);
+        mStatsData.setDuration(DURATION);
+    }
+
+    @Test
+    public void refreshStats_sameDuration_loadOnce() {
+        mStatsData.refreshStats(false /* forceLoad */);
+        mStatsData.refreshStats(false /* forceLoad */);
+
+        verify(mStatsData, times(1)).loadSnapshot(anyLong(), anyBoolean());
+        assertThat(mStatsData.getEntries()).hasSize(1);
+    }
+
+    @Test
+    public void refreshStats_backToLoadedDuration_notLoadAgain() {
+        mStatsData.refreshStats(false /* forceLoad */);
+        mStatsData.setDuration(OTHER_DURATION);
+        mStatsData.refreshStats(false /* forceLoad */);
+        mStatsData.setDuration(DURATION);
+        mStatsData.refreshStats(false /* forceLoad */);
+
+        verify(mStatsData, times(1)).loadSnapshot(eq(DURATION), anyBoolean());
+        verify(mStatsData, times(1)).loadSnapshot(eq(OTHER_DURATION), anyBoolean());
+    }
+
+    @Test
+    public void refreshStats_forceLoad_clearLoadedDurations() {
+        mStatsData.refreshStats(false /* forceLoad */);
+        mStatsData.setDuration(OTHER_DURATION);
+        mStatsData.refreshStats(true /* forceLoad */);
+        mStatsData.setDuration(DURATION);
+        mStatsData.refreshStats(false /* forceLoad */);
+
+        verify(mStatsData, times(2)).loadSnapshot(eq(DURATION), anyBoolean());
+    }
+
+    @Test
+    public void xferStats_newInstanceWithXfer_notLoadAgain() {
+        mStatsData.refreshStats(false /* forceLoad */);
+        mStatsData.xferStats();
+
+        final ProcStatsData statsData = createStatsData(true /* useXfer */);
+        statsData.setDuration(DURATION);
+        statsData.refreshStats(false /* forceLoad */);
+
+        verify(statsData, never()).loadSnapshot(anyLong(), anyBoolean());
+        assertThat(statsData.getEntries()).hasSize(1);
+    }
+
+    @Test
+    public void getEntries_modifyReturnedList_notChangeEntries() {
+        mStatsData.refreshStats(false /* forceLoad */);
+
+        mStatsData.getEntries().clear();
+
+        assertThat(mStatsData.getEntries()).hasSize(1);
+    }
+
+    @Test
+    public void getStatsSnapshot_otherDurationRefreshed_returnSnapshotOfLastRefresh() {
+        mStatsData.refreshStats(false /* forceLoad */);
+        final ProcStatsData.StatsSnapshot snapshot = mStatsData.getStatsSnapshot();
+        mStatsData.setDuration(OTHER_DURATION);
+        mStatsData.refreshStats(false /* forceLoad */);
+
+        assertThat(snapshot.mDuration).isEqualTo(DURATION);
+        assertThat(mStatsData.getStatsSnapshot().mDuration).isEqualTo(OTHER_DURATION);
+        assertThat(mStatsData.getStatsSnapshot().getEntries()).hasSize(1);
+    }
+
+    private ProcStatsData createStatsData(boolean useXfer) {
+        final ProcStatsData statsData = spy(new ProcStatsData(mContext, useXfer));
+        doAnswer(invocation -> {
+            final long duration = invocation.getArgument(0);
+            final ArrayList<ProcStatsPackageEntry> entries = new ArrayList<>();
+            entries.add(new ProcStatsPackageEntry("os", duration));
+            return new ProcStatsData.StatsSnapshot(new ProcessStats(false), duration,
+                    null /* memInfo */, entries);
+        }).when(statsData).loadSnapshot(anyLong(), anyBoolean());
+        return statsData;
+    }
+}
@@ -215,6 +215,67 @@ public class BasePreferenceControllerTest {
         assertThat(category).isEqualTo(SettingsEnums.DISPLAY);
     }
 
+    @Test
+    public void isAvailable_precomputedStatusSet_returnsPrecomputedAvailability() {
+        mPreferenceController.setAvailability(AVAILABLE);
+        mPreferenceController.setPrecomputedAvailabilityStatus(CONDITIONALLY_UNAVAILABLE);
+
+        assertThat(mPreferenceController.isAvailable()).isFalse();
+    }
+
+    @Test
+    public void isAvailable_precomputedStatusCleared_returnsCurrentAvailability() {
+        mPreferenceController.setAvailability(AVAILABLE);
+        mPreferenceController.setPrecomputedAvailabilityStatus(UNSUPPORTED_ON_DEVICE);
+
+        mPreferenceController.setPrecomputedAvailabilityStatus(null);
+
+        assertThat(mPreferenceController.isAvailable()).isTrue();
+    }
+
+    @Test
+    public void createInstance_withKey_shouldCreateNewInstanceEveryTime() {
+        final BasePreferenceController controller1 = BasePreferenceController.createInstance(
+                mContext, KeyPreferenceController.class.getName(), KEY);
+        final BasePreferenceController controller2 = BasePreferenceController.createInstance(
+                mContext, KeyPreferenceController.class.getName(), KEY);
+
+        assertThat(controller1).isInstanceOf(KeyPreferenceController.class);
+        assertThat(controller1.getPreferenceKey()).isEqualTo(KEY);
+        assertThat(controller2).isNotSameInstanceAs(controller1);
+    }
+
+    @Test
+    public void createInstance_invalidControllerTwice_shouldThrowBothTimesWithCause() {
+        final String controllerName = "com.android.settings.core.NotExistingController";
+        for (int i = 0; i < 2; i++) {
+            try {
+                BasePreferenceController.createInstance(mContext, controllerName, KEY);
+                throw new AssertionError("IllegalStateException expected");
+            } catch (IllegalStateException expected) {
+                assertThat(expected).hasCauseThat().isInstanceOf(ClassNotFoundException.class);
+            }
+        }
+    }
+
+    @Test
+    public void hasContextConstructor_keyOnlyController_returnsFalse() {
+        assertThat(BasePreferenceController.hasContextConstructor(
+                KeyPreferenceController.class.getName())).isFalse();
+    }
+
+    public static class KeyPreferenceController extends BasePreferenceController {
+
+        public KeyPreferenceController(Context context, String preferenceKey) {
+            super(context, preferenceKey);
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return AVAILABLE;
+        }
+    }
+
     private class FakeBasePreferenceController extends BasePreferenceController {
 
         private int mAvailable;
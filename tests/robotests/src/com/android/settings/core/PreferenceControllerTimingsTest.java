@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.android.settings.core.PreferenceControllerTimings.CALLBACK_UPDATE_STATE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerTimingsTest {
+
+    private static final long NANOS_PER_MILLI = 1_000_000;
+
+    private boolean mAlwaysEnabled;
+
+    @Before
+    public void setUp() {
+        mAlwaysEnabled = PreferenceControllerTimings.sAlwaysEnabled;
+        PreferenceControllerTimings.sAlwaysEnabled = true;
+        PreferenceControllerTimings.reset();
+    }
+
+    @After
+    public void tearDown() {
+        PreferenceControllerTimings.sAlwaysEnabled = mAlwaysEnabled;
+    }
+
+    @Test
+    public void record_sameName_aggregateDurations() throws Exception {
+        PreferenceControllerTimings.record("a", 3 * NANOS_PER_MILLI);
+        PreferenceControllerTimings.record("a", 200 * NANOS_PER_MILLI);
+
+        final JSONArray dump = PreferenceControllerTimings.dump();
+
+        assertThat(dump.length()).isEqualTo(1);
+        final JSONObject obj = dump.getJSONObject(0);
+        assertThat(obj.getString("name")).isEqualTo("a");
+        assertThat(obj.getLong("count")).isEqualTo(2);
+        assertThat(obj.getLong("totalMs")).isEqualTo(203);
+        assertThat(obj.getLong("maxMs")).isEqualTo(200);
+        final JSONArray histogram = obj.getJSONArray("histogram");
+        assertThat(histogram.length())
+                .isEqualTo(PreferenceControllerTimings.BUCKET_BOUNDS_MILLIS.length + 1);
+        // 3ms falls into [2, 4), 200ms into the unbounded last bucket.
+        assertThat(histogram.getLong(2)).isEqualTo(1);
+        assertThat(histogram.getLong(histogram.length() - 1)).isEqualTo(1);
+    }
+
+    @Test
+    public void dump_multipleNames_sortByTotalDuration() throws Exception {
+        PreferenceControllerTimings.record("fast", NANOS_PER_MILLI);
+        PreferenceControllerTimings.record("slow", 10 * NANOS_PER_MILLI);
+
+        final JSONArray dump = PreferenceControllerTimings.dump();
+
+        assertThat(dump.getJSONObject(0).getString("name")).isEqualTo("slow");
+        assertThat(dump.getJSONObject(1).getString("name")).isEqualTo("fast");
+    }
+
+    @Test
+    public void end_recordControllerCallback() throws Exception {
+        final Object controller = new Object();
+
+        final long startTime = PreferenceControllerTimings.begin(controller,
+                CALLBACK_UPDATE_STATE);
+        PreferenceControllerTimings.end(controller, CALLBACK_UPDATE_STATE, startTime);
+
+        final JSONArray dump = PreferenceControllerTimings.dump();
+        assertThat(dump.getJSONObject(0).getString("name"))
+                .isEqualTo("java.lang.Object#" + CALLBACK_UPDATE_STATE);
+        assertThat(dump.getJSONObject(0).getLong("count")).isEqualTo(1);
+    }
+
+    @Test
+    public void end_sameControllerClass_aggregateCallbacks() throws Exception {
+        for (Object controller : new Object[] {new Object(), new Object()}) {
+            final long startTime = PreferenceControllerTimings.begin(controller,
+                    CALLBACK_UPDATE_STATE);
+            PreferenceControllerTimings.end(controller, CALLBACK_UPDATE_STATE, startTime);
+        }
+
+        final JSONArray dump = PreferenceControllerTimings.dump();
+        assertThat(dump.length()).isEqualTo(1);
+        assertThat(dump.getJSONObject(0).getLong("count")).isEqualTo(2);
+    }
+}
@@ -26,12 +26,20 @@ import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_UNAVAI
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 import android.content.Context;
+import android.content.res.Resources;
 import android.os.Bundle;
 import android.text.TextUtils;
 
 import com.android.settings.R;
 import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settings.testutils.FakeFeatureFactory;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -264,4 +272,57 @@ public class PreferenceXmlParserUtilsTest {
         assertThat(bundleWithKey2Found).isTrue();
     }
 
+    @Test
+    public void extractMetadata_cacheEnabled_shouldParseXmlOnce() throws Exception {
+        final Context context = enableMetadataCache();
+
+        final List<Bundle> metadata1 = PreferenceXmlParserUtils.extractMetadata(context,
+                R.xml.top_level_settings, MetadataFlag.FLAG_NEED_KEY);
+        final List<Bundle> metadata2 = PreferenceXmlParserUtils.extractMetadata(context,
+                R.xml.top_level_settings, MetadataFlag.FLAG_NEED_KEY);
+
+        verify(context.getResources()).getXml(R.xml.top_level_settings);
+        assertThat(metadata2).hasSize(metadata1.size());
+        assertThat(metadata2.get(0).getString(METADATA_KEY))
+                .isEqualTo(metadata1.get(0).getString(METADATA_KEY));
+    }
+
+    @Test
+    public void extractMetadata_cacheEnabled_modifyReturnedMetadata_shouldNotChangeCache()
+            throws Exception {
+        final Context context = enableMetadataCache();
+        final List<Bundle> metadata1 = PreferenceXmlParserUtils.extractMetadata(context,
+                R.xml.top_level_settings, MetadataFlag.FLAG_NEED_KEY);
+        final String key = metadata1.get(0).getString(METADATA_KEY);
+
+        metadata1.get(0).putString(METADATA_KEY, "modified");
+
+        final List<Bundle> metadata2 = PreferenceXmlParserUtils.extractMetadata(context,
+                R.xml.top_level_settings, MetadataFlag.FLAG_NEED_KEY);
+        assertThat(metadata2.get(0).getString(METADATA_KEY)).isEqualTo(key);
+    }
+
+    @Test
+    public void extractMetadata_cacheInvalidated_shouldParseXmlAgain() throws Exception {
+        final Context context = enableMetadataCache();
+        PreferenceXmlParserUtils.extractMetadata(context, R.xml.top_level_settings,
+                MetadataFlag.FLAG_NEED_KEY);
+
+        PreferenceXmlParserUtils.invalidateMetadataCache();
+        PreferenceXmlParserUtils.extractMetadata(context, R.xml.top_level_settings,
+                MetadataFlag.FLAG_NEED_KEY);
+
+        verify(context.getResources(), times(2)).getXml(R.xml.top_level_settings);
+    }
+
+    private Context enableMetadataCache() {
+        final FakeFeatureFactory featureFactory = FakeFeatureFactory.setupForTest();
+        when(featureFactory.dashboardFeatureProvider.isPreferenceXmlMetadataCacheEnabled())
+                .thenReturn(true);
+        PreferenceXmlParserUtils.invalidateMetadataCache();
+        final Context context = spy(mContext);
+        final Resources resources = spy(mContext.getResources());
+        doReturn(resources).when(context).getResources();
+        return context;
+    }
 }
@@ -16,6 +16,7 @@
 package com.android.settings.dashboard;
 
 import static com.android.internal.logging.nano.MetricsProto.MetricsEvent.DASHBOARD_CONTAINER;
+import static com.android.settings.core.BasePreferenceController.CONDITIONALLY_UNAVAILABLE;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_GROUP_KEY;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYHINT;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_PENDING_INTENT;
@@ -41,6 +42,7 @@ import android.content.pm.ActivityInfo;
 import android.content.pm.ProviderInfo;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Looper;
 import android.os.UserHandle;
 import android.preference.PreferenceManager.OnActivityResultListener;
 
@@ -54,6 +56,7 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
 import com.android.settings.R;
+import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.slices.BlockingSlicePrefController;
 import com.android.settings.testutils.FakeFeatureFactory;
@@ -84,6 +87,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(RobolectricTestRunner.class)
 public class DashboardFragmentTest {
@@ -391,6 +397,49 @@ public class DashboardFragmentTest {
         assertThat(mTestFragment.mBlockerController).isNull();
     }
 
+    @Test
+    public void applyPrecomputedAvailability_threadSafeController_useBackgroundResult() {
+        final ThreadSafePreferenceController controller =
+                new ThreadSafePreferenceController(mContext);
+        mControllers.add(controller);
+        mControllers.add(new TestPreferenceController(mContext));
+
+        mTestFragment.startAvailabilityCheck(mControllers);
+        mTestFragment.applyPrecomputedAvailability();
+
+        assertThat(controller.isAvailable()).isFalse();
+        assertThat(controller.isAvailable()).isFalse();
+        assertThat(controller.mAvailabilityCheckCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void applyPrecomputedAvailability_checkTimedOut_ignoreLateResult() throws Exception {
+        final SlowThreadSafePreferenceController controller =
+                new SlowThreadSafePreferenceController(mContext);
+        mControllers.add(controller);
+
+        mTestFragment.startAvailabilityCheck(mControllers);
+        mTestFragment.applyPrecomputedAvailability();
+        controller.mRelease.countDown();
+        controller.mBackgroundCheckFinished.await(1, TimeUnit.SECONDS);
+
+        assertThat(controller.isAvailable()).isTrue();
+    }
+
+    @Test
+    public void clearPrecomputedAvailability_threadSafeController_checkAvailabilityAgain() {
+        final ThreadSafePreferenceController controller =
+                new ThreadSafePreferenceController(mContext);
+        mControllers.add(controller);
+        mTestFragment.startAvailabilityCheck(mControllers);
+        mTestFragment.applyPrecomputedAvailability();
+
+        mTestFragment.clearPrecomputedAvailability();
+        controller.isAvailable();
+
+        assertThat(controller.mAvailabilityCheckCount.get()).isEqualTo(2);
+    }
+
     @Test
     public void createPreference_isProviderTile_returnSwitchPreference() {
         final Preference pref = mTestFragment.createPreference(mProviderTile);
@@ -535,6 +584,48 @@ public class DashboardFragmentTest {
         }
     }
 
+    private static class ThreadSafePreferenceController extends BasePreferenceController
+            implements BasePreferenceController.ThreadSafeAvailability {
+
+        private final AtomicInteger mAvailabilityCheckCount = new AtomicInteger();
+
+        private ThreadSafePreferenceController(Context context) {
+            super(context, "thread_safe_key");
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            mAvailabilityCheckCount.incrementAndGet();
+            return CONDITIONALLY_UNAVAILABLE;
+        }
+    }
+
+    private static class SlowThreadSafePreferenceController extends BasePreferenceController
+            implements BasePreferenceController.ThreadSafeAvailability {
+
+        private final CountDownLatch mRelease = new CountDownLatch(1);
+        private final CountDownLatch mBackgroundCheckFinished = new CountDownLatch(1);
+
+        private SlowThreadSafePreferenceController(Context context) {
+            super(context, "slow_thread_safe_key");
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                return AVAILABLE;
+            }
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                // Cancelled by the timeout.
+            } finally {
+                mBackgroundCheckFinished.countDown();
+            }
+            return CONDITIONALLY_UNAVAILABLE;
+        }
+    }
+
     private static class TestFragment extends DashboardFragment {
 
         private final PreferenceManager mPreferenceManager;
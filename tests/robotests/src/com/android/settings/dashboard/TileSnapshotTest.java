@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.os.UserManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settingslib.drawer.ActivityTile;
+import com.android.settingslib.drawer.CategoryKey;
+import com.android.settingslib.drawer.DashboardCategory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class TileSnapshotTest {
+
+    private static final int SEQUENCE_NUMBER = 10;
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    private Context mContext;
+    private TileSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(ApplicationProvider.getApplicationContext());
+        doReturn(mPackageManager).when(mContext).getPackageManager();
+        mSnapshot = new TileSnapshot(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        TileSnapshot.clear(mContext);
+    }
+
+    @Test
+    public void read_noPackageChanged_returnSameCategories() {
+        mSnapshot.write(List.of(createCategory()), SEQUENCE_NUMBER, mSnapshot.getSnapshotKey());
+
+        final List<DashboardCategory> categories = mSnapshot.read();
+
+        assertThat(categories).hasSize(1);
+        final DashboardCategory category = categories.get(0);
+        assertThat(category.key).isEqualTo(CategoryKey.CATEGORY_HOMEPAGE);
+        assertThat(category.getTilesCount()).isEqualTo(1);
+        assertThat(category.getTile(0).getPackageName()).isEqualTo("pkg");
+        assertThat(category.getTile(0).getCategory()).isEqualTo(CategoryKey.CATEGORY_HOMEPAGE);
+    }
+
+    @Test
+    public void read_packageChanged_returnNull() {
+        mSnapshot.write(List.of(createCategory()), SEQUENCE_NUMBER, mSnapshot.getSnapshotKey());
+        when(mPackageManager.getChangedPackages(SEQUENCE_NUMBER))
+                .thenReturn(new ChangedPackages(SEQUENCE_NUMBER + 1, List.of("pkg")));
+
+        assertThat(mSnapshot.read()).isNull();
+    }
+
+    @Test
+    public void read_otherLocale_returnNull() {
+        mSnapshot.write(List.of(createCategory()), SEQUENCE_NUMBER, mSnapshot.getSnapshotKey());
+
+        RuntimeEnvironment.setQualifiers("fr-rFR");
+
+        assertThat(mSnapshot.read()).isNull();
+    }
+
+    @Test
+    public void read_profileAdded_returnNull() {
+        mSnapshot.write(List.of(createCategory()), SEQUENCE_NUMBER, mSnapshot.getSnapshotKey());
+
+        Shadows.shadowOf(mContext.getSystemService(UserManager.class))
+                .addProfile(0 /* userHandle */, 10 /* profileUserHandle */, "work",
+                        0 /* profileFlags */);
+
+        assertThat(mSnapshot.read()).isNull();
+    }
+
+    @Test
+    public void getReadSequenceNumber_afterRead_returnWrittenSequenceNumber() {
+        mSnapshot.write(List.of(createCategory()), SEQUENCE_NUMBER, mSnapshot.getSnapshotKey());
+
+        final TileSnapshot snapshot = new TileSnapshot(mContext);
+        snapshot.read();
+
+        assertThat(snapshot.getReadSequenceNumber()).isEqualTo(SEQUENCE_NUMBER);
+    }
+
+    @Test
+    public void getSequenceNumber_noPackageChanged_returnZero() {
+        assertThat(mSnapshot.getSequenceNumber()).isEqualTo(0);
+    }
+
+    @Test
+    public void getSequenceNumber_packageChanged_returnCurrentSequenceNumber() {
+        when(mPackageManager.getChangedPackages(anyInt()))
+                .thenReturn(new ChangedPackages(SEQUENCE_NUMBER, List.of("pkg")));
+
+        assertThat(mSnapshot.getSequenceNumber()).isEqualTo(SEQUENCE_NUMBER);
+    }
+
+    private static DashboardCategory createCategory() {
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = "pkg";
+        activityInfo.name = "class";
+        activityInfo.applicationInfo = new ApplicationInfo();
+        final DashboardCategory category = new DashboardCategory(CategoryKey.CATEGORY_HOMEPAGE);
+        category.addTile(new ActivityTile(activityInfo, CategoryKey.CATEGORY_HOMEPAGE));
+        return category;
+    }
+}
@@ -403,6 +403,38 @@ public class StorageItemPreferenceControllerTest {
                 .isEqualTo("60 MB");
     }
 
+    @Test
+    @Config(shadows = ShadowUserManager.class)
+    public void onUserResultLoaded_sizesShown_updatePreferences() {
+        mController.displayPreference(mPreferenceScreen);
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, new StorageAsyncLoader.StorageResult());
+        mController.onLoadFinished(results, 0);
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+        result.imagesSize = MEGABYTE_IN_BYTES * 350;
+        result.trashSize = KILOBYTE_IN_BYTES * 100;
+
+        mController.onUserResultLoaded(result, 0);
+
+        assertThat(mController.mImagesPreference.getSummary().toString()).isEqualTo("350 MB");
+        assertThat(mController.mTrashPreference.getSummary().toString()).isEqualTo("100 kB");
+    }
+
+    @Test
+    @Config(shadows = ShadowUserManager.class)
+    public void onUserResultLoaded_otherUser_notUpdatePreferences() {
+        mController.displayPreference(mPreferenceScreen);
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, new StorageAsyncLoader.StorageResult());
+        mController.onLoadFinished(results, 0);
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+        result.imagesSize = MEGABYTE_IN_BYTES * 350;
+
+        mController.onUserResultLoaded(result, 10);
+
+        assertThat(mController.mImagesPreference.getSummary().toString()).isNotEqualTo("350 MB");
+    }
+
     @Test
     public void settingUserIdAppliesNewIcons() {
         mController.displayPreference(mPreferenceScreen);
@@ -82,6 +82,11 @@ public class PowerUsageFeatureProviderImplTest {
         assertThat(mPowerFeatureProvider.isAppOptimizationModeLogged()).isFalse();
     }
 
+    @Test
+    public void isBatteryUsageSlotColumnarStorageEnabled_returnFalse() {
+        assertThat(mPowerFeatureProvider.isBatteryUsageSlotColumnarStorageEnabled()).isFalse();
+    }
+
     @Test
     public void getBatteryUsageListConsumePowerThreshold_return0() {
         assertThat(mPowerFeatureProvider.getBatteryUsageListConsumePowerThreshold()).isEqualTo(0.0);
@@ -91,4 +91,34 @@ public final class BatteryChartViewTest {
         mBatteryChartView.onClick(mMockView);
         assertThat(selectedIndex[0]).isEqualTo(BatteryChartViewModel.SELECTED_INDEX_ALL);
     }
+
+    @Test
+    public void setViewModel_sameViewModel_keepsTrapezoidSlots() {
+        final BatteryChartViewModel batteryChartViewModel = createBatteryChartViewModel();
+        mBatteryChartView.setViewModel(batteryChartViewModel);
+        final BatteryChartView.TrapezoidSlot[] trapezoidSlots = mBatteryChartView.mTrapezoidSlots;
+
+        batteryChartViewModel.setSelectedIndex(1);
+        mBatteryChartView.setViewModel(batteryChartViewModel);
+
+        assertThat(mBatteryChartView.mTrapezoidSlots).isSameInstanceAs(trapezoidSlots);
+    }
+
+    @Test
+    public void setViewModel_differentViewModel_resetsTrapezoidSlots() {
+        mBatteryChartView.setViewModel(createBatteryChartViewModel());
+        final BatteryChartView.TrapezoidSlot[] trapezoidSlots = mBatteryChartView.mTrapezoidSlots;
+
+        mBatteryChartView.setViewModel(createBatteryChartViewModel());
+
+        assertThat(mBatteryChartView.mTrapezoidSlots).isNotSameInstanceAs(trapezoidSlots);
+    }
+
+    private static BatteryChartViewModel createBatteryChartViewModel() {
+        return new BatteryChartViewModel(
+                List.of(90, 80, 70, 60),
+                List.of(0L, 0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS,
+                null);
+    }
 }
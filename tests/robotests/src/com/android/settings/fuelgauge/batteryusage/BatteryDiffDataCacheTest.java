@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryDiffDataCacheTest {
+    private static final long TIMESTAMP1 = 1700000000000L;
+    private static final long TIMESTAMP2 = TIMESTAMP1 + 3600000L;
+    private static final long TIMESTAMP3 = TIMESTAMP2 + 3600000L;
+
+    private Context mContext;
+    private int mAccumulatedCount;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        BatteryDiffDataCache.clearCache();
+    }
+
+    @After
+    public void tearDown() {
+        BatteryDiffDataCache.clearCache();
+    }
+
+    @Test
+    public void convertToBatteryDiffDataMap_sameSlots_reuseCachedData() {
+        final List<BatteryUsageSlot> slotList =
+                List.of(
+                        createBatteryUsageSlot(TIMESTAMP1, TIMESTAMP2),
+                        createBatteryUsageSlot(TIMESTAMP2, TIMESTAMP3));
+
+        final Map<Long, BatteryDiffData> resultMap1 =
+                BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                        mContext, slotList, Set.of(), Set.of());
+        final Map<Long, BatteryDiffData> resultMap2 =
+                BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                        mContext, slotList, Set.of(), Set.of());
+
+        assertThat(resultMap1).hasSize(2);
+        assertThat(resultMap2.get(TIMESTAMP1)).isSameInstanceAs(resultMap1.get(TIMESTAMP1));
+        assertThat(resultMap2.get(TIMESTAMP2)).isSameInstanceAs(resultMap1.get(TIMESTAMP2));
+    }
+
+    @Test
+    public void convertToBatteryDiffDataMap_changedSlot_convertAgain() {
+        final Map<Long, BatteryDiffData> resultMap1 =
+                BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                        mContext,
+                        List.of(createBatteryUsageSlot(TIMESTAMP1, TIMESTAMP2)),
+                        Set.of(),
+                        Set.of());
+        final Map<Long, BatteryDiffData> resultMap2 =
+                BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                        mContext,
+                        List.of(createBatteryUsageSlot(TIMESTAMP1, TIMESTAMP3)),
+                        Set.of(),
+                        Set.of());
+
+        assertThat(resultMap2.get(TIMESTAMP1)).isNotSameInstanceAs(resultMap1.get(TIMESTAMP1));
+        assertThat(resultMap2.get(TIMESTAMP1).getEndTimestamp()).isEqualTo(TIMESTAMP3);
+    }
+
+    @Test
+    public void convertToBatteryDiffDataMap_removedSlot_removeFromCache() {
+        BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                mContext,
+                List.of(
+                        createBatteryUsageSlot(TIMESTAMP1, TIMESTAMP2),
+                        createBatteryUsageSlot(TIMESTAMP2, TIMESTAMP3)),
+                Set.of(),
+                Set.of());
+        BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                mContext,
+                List.of(createBatteryUsageSlot(TIMESTAMP2, TIMESTAMP3)),
+                Set.of(),
+                Set.of());
+
+        assertThat(BatteryDiffDataCache.sHourlyCache.keySet()).containsExactly(TIMESTAMP2);
+    }
+
+    @Test
+    public void getAccumulatedUsageDiffData_sameInputs_reuseCachedData() {
+        final List<BatteryDiffData> inputList = createBatteryDiffDataList();
+
+        final BatteryDiffData result1 =
+                BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                        TIMESTAMP1, inputList, this::accumulate);
+        final BatteryDiffData result2 =
+                BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                        TIMESTAMP1, new ArrayList<>(inputList), this::accumulate);
+
+        assertThat(result2).isSameInstanceAs(result1);
+        assertThat(mAccumulatedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getAccumulatedUsageDiffData_differentInputs_accumulateAgain() {
+        BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                TIMESTAMP1, createBatteryDiffDataList(), this::accumulate);
+        BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                TIMESTAMP1, createBatteryDiffDataList(), this::accumulate);
+
+        assertThat(mAccumulatedCount).isEqualTo(2);
+    }
+
+    @Test
+    public void retainAccumulatedKeys_removeOtherKeys() {
+        BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                TIMESTAMP1, createBatteryDiffDataList(), this::accumulate);
+        BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                TIMESTAMP2, createBatteryDiffDataList(), this::accumulate);
+
+        BatteryDiffDataCache.retainAccumulatedKeys(Set.of(TIMESTAMP2));
+
+        assertThat(BatteryDiffDataCache.sAccumulatedCache.keySet()).containsExactly(TIMESTAMP2);
+    }
+
+    @Test
+    public void clearCache_clearAllCachedData() {
+        BatteryDiffDataCache.convertToBatteryDiffDataMap(
+                mContext,
+                List.of(createBatteryUsageSlot(TIMESTAMP1, TIMESTAMP2)),
+                Set.of(),
+                Set.of());
+        BatteryDiffDataCache.getAccumulatedUsageDiffData(
+                TIMESTAMP1, createBatteryDiffDataList(), this::accumulate);
+
+        BatteryDiffDataCache.clearCache();
+
+        assertThat(BatteryDiffDataCache.sHourlyCache).isEmpty();
+        assertThat(BatteryDiffDataCache.sAccumulatedCache).isEmpty();
+    }
+
+    private BatteryDiffData accumulate(List<BatteryDiffData> batteryDiffDataList) {
+        mAccumulatedCount++;
+        return createBatteryDiffData(TIMESTAMP1, TIMESTAMP3);
+    }
+
+    private List<BatteryDiffData> createBatteryDiffDataList() {
+        return List.of(
+                createBatteryDiffData(TIMESTAMP1, TIMESTAMP2),
+                createBatteryDiffData(TIMESTAMP2, TIMESTAMP3));
+    }
+
+    private BatteryDiffData createBatteryDiffData(long startTimestamp, long endTimestamp) {
+        return new BatteryDiffData(
+                mContext,
+                startTimestamp,
+                endTimestamp,
+                /* startBatteryLevel= */ 100,
+                /* endBatteryLevel= */ 90,
+                /* screenOnTime= */ 0L,
+                /* appDiffEntries= */ new ArrayList<>(),
+                /* systemDiffEntries= */ new ArrayList<>(),
+                /* systemAppsPackageNames= */ Set.of(),
+                /* systemAppsUids= */ Set.of(),
+                /* isAccumulated= */ true);
+    }
+
+    private static BatteryUsageSlot createBatteryUsageSlot(
+            long startTimestamp, long endTimestamp) {
+        return BatteryUsageSlot.newBuilder()
+                .setStartTimestamp(startTimestamp)
+                .setEndTimestamp(endTimestamp)
+                .setStartBatteryLevel(100)
+                .setEndBatteryLevel(90)
+                .setScreenOnTime(0L)
+                .build();
+    }
+}
@@ -19,7 +19,9 @@ package com.android.settings.fuelgauge.batteryusage;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.when;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
@@ -33,8 +35,10 @@ import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotHeaderEntity;
 import com.android.settings.testutils.BatteryTestUtils;
 import com.android.settings.testutils.FakeClock;
+import com.android.settings.testutils.FakeFeatureFactory;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -61,6 +65,7 @@ public final class BatteryUsageContentProviderTest {
 
     private Context mContext;
     private BatteryUsageContentProvider mProvider;
+    private FakeFeatureFactory mFeatureFactory;
 
     @Before
     public void setUp() {
@@ -68,6 +73,8 @@ public final class BatteryUsageContentProviderTest {
         mProvider = new BatteryUsageContentProvider();
         mProvider.attachInfo(mContext, /* info= */ null);
         BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        mFeatureFactory = FakeFeatureFactory.setupForTest();
+        DatabaseUtils.getSharedPreferences(mContext).edit().clear().apply();
     }
 
     @Test
@@ -450,6 +457,170 @@ public final class BatteryUsageContentProviderTest {
         assertThat(cursor2.getCount()).isEqualTo(0);
     }
 
+    @Test
+    public void convertBatteryUsageSlotsIfNeeded_columnarEnabled_convertsBase64Slots() {
+        mProvider.onCreate();
+        final BatteryUsageSlot batteryUsageSlot = createBatteryUsageSlot(10001L);
+        mProvider.insert(
+                DatabaseUtils.BATTERY_USAGE_SLOT_URI,
+                ConvertUtils.convertBatteryUsageSlotToContentValues(batteryUsageSlot));
+        setColumnarStorageEnabled(true);
+
+        DatabaseUtils.convertBatteryUsageSlotsIfNeeded(mContext);
+
+        final Cursor cursor =
+                query(
+                        DatabaseUtils.BATTERY_USAGE_SLOT_HEADER_URI
+                                .buildUpon()
+                                .appendQueryParameter(
+                                        DatabaseUtils.QUERY_KEY_TIMESTAMP, Long.toString(10001L))
+                                .build());
+
+        assertThat(ConvertUtils.convertToBatteryUsageSlotList(cursor))
+                .containsExactly(batteryUsageSlot);
+    }
+
+    @Test
+    public void convertBatteryUsageSlotsIfNeeded_columnarDisabled_convertsColumnarSlots() {
+        mProvider.onCreate();
+        final BatteryUsageSlot batteryUsageSlot = createBatteryUsageSlot(10001L);
+        insertColumnarBatteryUsageSlot(batteryUsageSlot);
+        setColumnarStorageEnabled(false);
+
+        DatabaseUtils.convertBatteryUsageSlotsIfNeeded(mContext);
+
+        final Cursor cursor = getCursorOfBatteryUsageSlots(10001L);
+        assertThat(cursor.getCount()).isEqualTo(1);
+        cursor.moveToFirst();
+        assertThat(ConvertUtils.convertToBatteryUsageSlot(cursor)).isEqualTo(batteryUsageSlot);
+    }
+
+    @Test
+    public void convertBatteryUsageSlotsIfNeeded_modeNotChanged_doesNotConvertAgain() {
+        mProvider.onCreate();
+        setColumnarStorageEnabled(false);
+        DatabaseUtils.convertBatteryUsageSlotsIfNeeded(mContext);
+        insertColumnarBatteryUsageSlot(createBatteryUsageSlot(10001L));
+
+        DatabaseUtils.convertBatteryUsageSlotsIfNeeded(mContext);
+
+        assertThat(getCursorOfBatteryUsageSlots(10001L).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void query_batteryUsageSlot_doesNotConvertColumnarSlots() {
+        mProvider.onCreate();
+        insertColumnarBatteryUsageSlot(createBatteryUsageSlot(10001L));
+
+        final Cursor cursor = getCursorOfBatteryUsageSlots(10001L);
+
+        assertThat(cursor.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void bulkInsert_batteryEvent_insertsAllRows() {
+        mProvider.onCreate();
+        final ContentValues[] valuesArray = {
+            getBatteryEventValues(10001L), getBatteryEventValues(10002L)
+        };
+
+        final int size = mProvider.bulkInsert(DatabaseUtils.BATTERY_EVENT_URI, valuesArray);
+
+        assertThat(size).isEqualTo(2);
+        final List<BatteryEventEntity> entities =
+                BatteryStateDatabase.getInstance(mContext).batteryEventDao().getAll();
+        assertThat(entities).hasSize(2);
+        assertThat(entities.get(0).timestamp).isEqualTo(10002L);
+        assertThat(entities.get(1).timestamp).isEqualTo(10001L);
+    }
+
+    @Test
+    public void bulkInsert_columnarRowFailed_rollsBackAllRows() {
+        mProvider.onCreate();
+        final ContentValues invalidValues = new ContentValues();
+        invalidValues.put(BatteryUsageSlotHeaderEntity.KEY_TIMESTAMP, "invalid");
+        final ContentValues[] valuesArray = {
+            ConvertUtils.convertBatteryUsageSlotToHeaderContentValues(
+                    createBatteryUsageSlot(10001L)),
+            invalidValues
+        };
+
+        final int size =
+                mProvider.bulkInsert(DatabaseUtils.BATTERY_USAGE_SLOT_HEADER_URI, valuesArray);
+
+        assertThat(size).isEqualTo(0);
+        assertThat(
+                        BatteryStateDatabase.getInstance(mContext)
+                                .batteryUsageColumnarDao()
+                                .getAllHeaders())
+                .isEmpty();
+    }
+
+    @Test
+    public void bulkInsert_incorrectContentUri_throwsIllegalArgumentException() {
+        mProvider.onCreate();
+        final Uri uri =
+                new Uri.Builder()
+                        .scheme(ContentResolver.SCHEME_CONTENT)
+                        .authority(DatabaseUtils.AUTHORITY)
+                        .appendPath(DatabaseUtils.BATTERY_STATE_TABLE + "/0")
+                        .build();
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        mProvider.bulkInsert(
+                                uri, new ContentValues[] {getBatteryEventValues(10001L)}));
+    }
+
+    @Test
+    public void applyBatch_insertsRowsOfAllTables() throws Exception {
+        mProvider.onCreate();
+        final ContentValues slotValues = new ContentValues();
+        slotValues.put(BatteryUsageSlotEntity.KEY_TIMESTAMP, 10001L);
+        slotValues.put(BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT, "TEST_STRING");
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(
+                ContentProviderOperation.newInsert(DatabaseUtils.BATTERY_EVENT_URI)
+                        .withValues(getBatteryEventValues(10001L))
+                        .build());
+        operations.add(
+                ContentProviderOperation.newInsert(DatabaseUtils.BATTERY_USAGE_SLOT_URI)
+                        .withValues(slotValues)
+                        .build());
+
+        mProvider.applyBatch(operations);
+
+        final BatteryStateDatabase database = BatteryStateDatabase.getInstance(mContext);
+        assertThat(database.batteryEventDao().getAll()).hasSize(1);
+        assertThat(database.batteryUsageSlotDao().getAll()).hasSize(1);
+    }
+
+    @Test
+    public void applyBatch_incorrectContentUri_rollsBackAllRows() {
+        mProvider.onCreate();
+        final Uri uri =
+                new Uri.Builder()
+                        .scheme(ContentResolver.SCHEME_CONTENT)
+                        .authority(DatabaseUtils.AUTHORITY)
+                        .appendPath(DatabaseUtils.BATTERY_STATE_TABLE + "/0")
+                        .build();
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(
+                ContentProviderOperation.newInsert(DatabaseUtils.BATTERY_EVENT_URI)
+                        .withValues(getBatteryEventValues(10001L))
+                        .build());
+        operations.add(
+                ContentProviderOperation.newInsert(uri)
+                        .withValues(getBatteryEventValues(10002L))
+                        .build());
+
+        assertThrows(IllegalArgumentException.class, () -> mProvider.applyBatch(operations));
+
+        assertThat(BatteryStateDatabase.getInstance(mContext).batteryEventDao().getAll())
+                .isEmpty();
+    }
+
     @Test
     public void delete_throwsUnsupportedOperationException() {
         assertThrows(
@@ -469,6 +640,44 @@ public final class BatteryUsageContentProviderTest {
                                 /* strings= */ null));
     }
 
+    private static ContentValues getBatteryEventValues(long timestamp) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryEventEntity.KEY_TIMESTAMP, timestamp);
+        values.put(
+                BatteryEventEntity.KEY_BATTERY_EVENT_TYPE,
+                BatteryEventType.POWER_CONNECTED.getNumber());
+        values.put(BatteryEventEntity.KEY_BATTERY_LEVEL, 66);
+        return values;
+    }
+
+    private static BatteryUsageSlot createBatteryUsageSlot(long timestamp) {
+        return BatteryUsageSlot.newBuilder()
+                .setStartTimestamp(timestamp)
+                .setEndTimestamp(timestamp + 1)
+                .setStartBatteryLevel(90)
+                .setEndBatteryLevel(80)
+                .setScreenOnTime(1234L)
+                .addAppUsage(
+                        BatteryUsageDiff.newBuilder()
+                                .setUid(1001L)
+                                .setUserId(0L)
+                                .setPackageName(PACKAGE_NAME1)
+                                .setKey("1001")
+                                .setIsHidden(false)
+                                .setComponentId(-1)
+                                .setConsumerType(ConvertUtils.CONSUMER_TYPE_UID_BATTERY)
+                                .setConsumePower(1.1)
+                                .setForegroundUsageConsumePower(0.5)
+                                .setForegroundServiceUsageConsumePower(0.1)
+                                .setBackgroundUsageConsumePower(0.4)
+                                .setCachedUsageConsumePower(0.1)
+                                .setForegroundUsageTime(100L)
+                                .setForegroundServiceUsageTime(10L)
+                                .setBackgroundUsageTime(200L)
+                                .setScreenOnTime(50L))
+                .build();
+    }
+
     private Cursor insertBatteryState(Duration currentTime, String queryTimestamp)
             throws Exception {
         mProvider.onCreate();
@@ -581,6 +790,21 @@ public final class BatteryUsageContentProviderTest {
         return query(batteryEventUri);
     }
 
+    private void insertColumnarBatteryUsageSlot(BatteryUsageSlot batteryUsageSlot) {
+        mProvider.insert(
+                DatabaseUtils.BATTERY_USAGE_SLOT_HEADER_URI,
+                ConvertUtils.convertBatteryUsageSlotToHeaderContentValues(batteryUsageSlot));
+        for (ContentValues values :
+                ConvertUtils.convertBatteryUsageSlotToDiffContentValuesList(batteryUsageSlot)) {
+            mProvider.insert(DatabaseUtils.BATTERY_USAGE_DIFF_URI, values);
+        }
+    }
+
+    private void setColumnarStorageEnabled(boolean enabled) {
+        when(mFeatureFactory.powerUsageFeatureProvider.isBatteryUsageSlotColumnarStorageEnabled())
+                .thenReturn(enabled);
+    }
+
     private Cursor getCursorOfBatteryUsageSlots(final long queryTimestamp) {
         final Uri batteryUsageSlotUri =
                 new Uri.Builder()
@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
@@ -67,6 +68,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RunWith(RobolectricTestRunner.class)
 public final class DataProcessManagerTest {
@@ -289,29 +291,59 @@ public final class DataProcessManagerTest {
         assertAppUsageEvent(
                 appUsageEventList.get(5), AppUsageEventType.ACTIVITY_STOPPED, /* timestamp= */ 6);
 
-        final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-                appUsagePeriodMap = dataProcessManager.getAppUsagePeriodMap();
-        assertThat(appUsagePeriodMap.size()).isEqualTo(3);
+        final UsagePeriodIndex appUsagePeriodMap = dataProcessManager.getAppUsagePeriodMap();
+        assertThat(appUsagePeriodMap.getDailySize()).isEqualTo(3);
         // Day 1
-        assertThat(appUsagePeriodMap.get(0).size()).isEqualTo(2);
-        Map<Long, Map<String, List<AppUsagePeriod>>> hourlyMap = appUsagePeriodMap.get(0).get(0);
+        assertThat(appUsagePeriodMap.getHourlySize(0)).isEqualTo(2);
+        UsagePeriodIndex.SlotUsagePeriods hourlyMap = appUsagePeriodMap.getSlot(0, 0);
         assertThat(hourlyMap).isNull();
-        hourlyMap = appUsagePeriodMap.get(0).get(1);
-        assertThat(hourlyMap.size()).isEqualTo(1);
-        Map<String, List<AppUsagePeriod>> userMap = hourlyMap.get(1L);
-        assertThat(userMap.size()).isEqualTo(1);
-        assertThat(userMap.get(packageName).size()).isEqualTo(1);
-        assertAppUsagePeriod(userMap.get(packageName).get(0), 3, 4);
+        hourlyMap = appUsagePeriodMap.getSlot(0, 1);
+        assertThat(hourlyMap.getUserSize()).isEqualTo(1);
+        assertThat(hourlyMap.getPackageSize(1L)).isEqualTo(1);
+        List<AppUsagePeriod> periodList = hourlyMap.getAppUsagePeriodList(1L, packageName);
+        assertThat(periodList.size()).isEqualTo(1);
+        assertAppUsagePeriod(periodList.get(0), 3, 4);
         // Day 2
-        assertThat(appUsagePeriodMap.get(1).size()).isEqualTo(0);
+        assertThat(appUsagePeriodMap.getHourlySize(1)).isEqualTo(0);
         // Day 3
-        assertThat(appUsagePeriodMap.get(2).size()).isEqualTo(1);
-        hourlyMap = appUsagePeriodMap.get(2).get(0);
-        assertThat(hourlyMap.size()).isEqualTo(1);
-        userMap = hourlyMap.get(1L);
-        assertThat(userMap.size()).isEqualTo(1);
-        assertThat(userMap.get(packageName).size()).isEqualTo(1);
-        assertAppUsagePeriod(userMap.get(packageName).get(0), 5, 6);
+        assertThat(appUsagePeriodMap.getHourlySize(2)).isEqualTo(1);
+        hourlyMap = appUsagePeriodMap.getSlot(2, 0);
+        assertThat(hourlyMap.getUserSize()).isEqualTo(1);
+        assertThat(hourlyMap.getPackageSize(1L)).isEqualTo(1);
+        periodList = hourlyMap.getAppUsagePeriodList(1L, packageName);
+        assertThat(periodList.size()).isEqualTo(1);
+        assertAppUsagePeriod(periodList.get(0), 5, 6);
+    }
+
+    @Test
+    public void start_multipleUsers_loadsAppUsageDataOfAllUsers() throws RemoteException {
+        final List<UsageEvents.Event> events = new ArrayList<>();
+        events.add(
+                getUsageEvent(UsageEvents.Event.ACTIVITY_RESUMED, /* timestamp= */ 1, "package"));
+        events.add(
+                getUsageEvent(UsageEvents.Event.ACTIVITY_STOPPED, /* timestamp= */ 2, "package"));
+        // Each user gets its own UsageEvents, which can only be read once.
+        doAnswer(invocation -> getUsageEvents(events))
+                .when(mUsageStatsManager)
+                .queryEventsForUser(anyLong(), anyLong(), anyInt(), any());
+        doReturn(true).when(mUserManager).isUserUnlocked(anyInt());
+        doReturn(1).when(mUserIdsSeries).getCurrentUserId();
+        doReturn(new ArrayList<>(List.of(1, 10, 11))).when(mUserIdsSeries).getVisibleUserIds();
+        DatabaseUtils.sFakeSupplier = () -> null;
+
+        mDataProcessManager.start();
+        mExecutorService.runAll();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mDataProcessManager.getIsCurrentAppUsageLoaded()).isTrue();
+        assertThat(mDataProcessManager.getIsDatabaseAppUsageLoaded()).isTrue();
+        assertThat(mDataProcessManager.getShowScreenOnTime()).isTrue();
+        assertThat(
+                        mDataProcessManager.getAppUsageEventList().stream()
+                                .map(AppUsageEvent::getUserId)
+                                .collect(Collectors.toSet()))
+                .containsExactly(1L, 10L, 11L);
+        assertThat(mDataProcessManager.getAppUsageEventList()).hasSize(6);
     }
 
     @Test
@@ -329,37 +329,37 @@ public final class DataProcessorTest {
                         /* instanceId= */ 4,
                         packageName));
 
-        final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>> periodMap =
+        final UsagePeriodIndex periodMap =
                 DataProcessor.generateAppUsagePeriodMap(
                         mContext, hourlyBatteryLevelsPerDay, appUsageEventList, new ArrayList<>());
 
-        assertThat(periodMap).hasSize(3);
+        assertThat(periodMap.getDailySize()).isEqualTo(3);
         // Day 1
-        assertThat(periodMap.get(0)).hasSize(2);
-        Map<Long, Map<String, List<AppUsagePeriod>>> hourlyMap = periodMap.get(0).get(0);
-        assertThat(hourlyMap).hasSize(2);
-        Map<String, List<AppUsagePeriod>> userMap = hourlyMap.get(1L);
-        assertThat(userMap).hasSize(1);
-        assertThat(userMap.get(packageName)).hasSize(1);
-        assertAppUsagePeriod(userMap.get(packageName).get(0), 17200000L, 17800000L);
-        userMap = hourlyMap.get(2L);
-        assertThat(userMap).hasSize(1);
-        assertThat(userMap.get(packageName)).hasSize(2);
-        assertAppUsagePeriod(userMap.get(packageName).get(0), 14400000L, 15600000L);
-        assertAppUsagePeriod(userMap.get(packageName).get(1), 16200000L, 18000000L);
-        hourlyMap = periodMap.get(0).get(1);
+        assertThat(periodMap.getHourlySize(0)).isEqualTo(2);
+        UsagePeriodIndex.SlotUsagePeriods hourlyMap = periodMap.getSlot(0, 0);
+        assertThat(hourlyMap.getUserSize()).isEqualTo(2);
+        assertThat(hourlyMap.getPackageSize(1L)).isEqualTo(1);
+        List<AppUsagePeriod> periodList = hourlyMap.getAppUsagePeriodList(1L, packageName);
+        assertThat(periodList).hasSize(1);
+        assertAppUsagePeriod(periodList.get(0), 17200000L, 17800000L);
+        assertThat(hourlyMap.getPackageSize(2L)).isEqualTo(1);
+        periodList = hourlyMap.getAppUsagePeriodList(2L, packageName);
+        assertThat(periodList).hasSize(2);
+        assertAppUsagePeriod(periodList.get(0), 14400000L, 15600000L);
+        assertAppUsagePeriod(periodList.get(1), 16200000L, 18000000L);
+        hourlyMap = periodMap.getSlot(0, 1);
         assertThat(hourlyMap).isNull();
         // Day 2
-        assertThat(periodMap.get(1)).hasSize(0);
+        assertThat(periodMap.getHourlySize(1)).isEqualTo(0);
         // Day 3
-        assertThat(periodMap.get(2)).hasSize(1);
-        hourlyMap = periodMap.get(2).get(0);
-        assertThat(hourlyMap).hasSize(1);
-        userMap = hourlyMap.get(1L);
-        assertThat(userMap).hasSize(1);
-        assertThat(userMap.get(packageName)).hasSize(2);
-        assertAppUsagePeriod(userMap.get(packageName).get(0), 45970000L, 46000000L);
-        assertAppUsagePeriod(userMap.get(packageName).get(1), 47800000L, 48800000L);
+        assertThat(periodMap.getHourlySize(2)).isEqualTo(1);
+        hourlyMap = periodMap.getSlot(2, 0);
+        assertThat(hourlyMap.getUserSize()).isEqualTo(1);
+        assertThat(hourlyMap.getPackageSize(1L)).isEqualTo(1);
+        periodList = hourlyMap.getAppUsagePeriodList(1L, packageName);
+        assertThat(periodList).hasSize(2);
+        assertAppUsagePeriod(periodList.get(0), 45970000L, 46000000L);
+        assertAppUsagePeriod(periodList.get(1), 47800000L, 48800000L);
     }
 
     @Test
@@ -939,17 +939,11 @@ public final class DataProcessorTest {
                                                 0L,
                                                 false)));
         final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
-        final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-                appUsagePeriodMap =
-                        Map.of(
-                                0,
-                                Map.of(
-                                        0,
-                                        Map.of(
-                                                Long.valueOf(userId),
-                                                Map.of(
-                                                        FAKE_PACKAGE_NAME,
-                                                        List.of(buildAppUsagePeriod(0, 6))))));
+        final UsagePeriodIndex appUsagePeriodMap = new UsagePeriodIndex();
+        final UsagePeriodIndex.SlotUsagePeriods appUsageMap =
+                new UsagePeriodIndex.SlotUsagePeriods();
+        appUsageMap.add(userId, FAKE_PACKAGE_NAME, /* startTime= */ 0, /* endTime= */ 6);
+        appUsagePeriodMap.putSlot(/* dailyIndex= */ 0, /* hourlyIndex= */ 0, appUsageMap);
 
         Map<Long, BatteryDiffData> batteryDiffDataMap =
                 DataProcessor.getBatteryDiffDataMap(
@@ -1145,26 +1139,21 @@ public final class DataProcessorTest {
         batteryHistoryMap.put(batteryHistoryKeys[4], entryMap);
         final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
         // Adds app usage data to test screen on time.
-        final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-                appUsagePeriodMap = new HashMap<>();
-        appUsagePeriodMap.put(0, new HashMap<>());
-        appUsagePeriodMap.put(1, new HashMap<>());
+        final UsagePeriodIndex appUsagePeriodMap = new UsagePeriodIndex();
+        appUsagePeriodMap.putDaily(0);
+        appUsagePeriodMap.putDaily(1);
         // Adds the index [0][0].
-        Map<Long, Map<String, List<AppUsagePeriod>>> appUsageMap = new HashMap<>();
-        Map<String, List<AppUsagePeriod>> userPeriodMap = new HashMap<>();
-        appUsageMap.put(Long.valueOf(currentUserId), userPeriodMap);
-        userPeriodMap.put("package2", List.of(buildAppUsagePeriod(0, 5)));
-        userPeriodMap.put("package3", List.of(buildAppUsagePeriod(10, 25)));
-        appUsagePeriodMap.get(0).put(0, appUsageMap);
+        UsagePeriodIndex.SlotUsagePeriods appUsageMap = new UsagePeriodIndex.SlotUsagePeriods();
+        appUsageMap.add(currentUserId, "package2", 0, 5);
+        appUsageMap.add(currentUserId, "package3", 10, 25);
+        appUsagePeriodMap.putSlot(0, 0, appUsageMap);
         // Adds the index [1][0].
-        appUsageMap = new HashMap<>();
-        userPeriodMap = new HashMap<>();
-        appUsageMap.put(Long.valueOf(currentUserId), userPeriodMap);
-        userPeriodMap.put(
-                "package2", List.of(buildAppUsagePeriod(2, 7), buildAppUsagePeriod(5, 9)));
-        userPeriodMap.put(
-                "package3", List.of(buildAppUsagePeriod(10, 15), buildAppUsagePeriod(25, 29)));
-        appUsagePeriodMap.get(1).put(0, appUsageMap);
+        appUsageMap = new UsagePeriodIndex.SlotUsagePeriods();
+        appUsageMap.add(currentUserId, "package2", 2, 7);
+        appUsageMap.add(currentUserId, "package2", 5, 9);
+        appUsageMap.add(currentUserId, "package3", 10, 15);
+        appUsageMap.add(currentUserId, "package3", 25, 29);
+        appUsagePeriodMap.putSlot(1, 0, appUsageMap);
 
         final Map<Integer, Map<Integer, BatteryDiffData>> resultMap =
                 DataProcessor.generateBatteryUsageMap(
@@ -1554,15 +1543,12 @@ public final class DataProcessorTest {
         final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
 
         // Adds app usage data to test screen on time.
-        final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
-                appUsagePeriodMap = new HashMap<>();
-        appUsagePeriodMap.put(0, new HashMap<>());
+        final UsagePeriodIndex appUsagePeriodMap = new UsagePeriodIndex();
         // Adds the index [0][0].
-        final Map<Long, Map<String, List<AppUsagePeriod>>> appUsageMap = new HashMap<>();
-        final Map<String, List<AppUsagePeriod>> userPeriodMap = new HashMap<>();
-        appUsageMap.put(Long.valueOf(currentUserId), userPeriodMap);
-        userPeriodMap.put("package1", List.of(buildAppUsagePeriod(0, 8000000)));
-        appUsagePeriodMap.get(0).put(0, appUsageMap);
+        final UsagePeriodIndex.SlotUsagePeriods appUsageMap =
+                new UsagePeriodIndex.SlotUsagePeriods();
+        appUsageMap.add(currentUserId, "package1", 0, 8000000);
+        appUsagePeriodMap.putSlot(0, 0, appUsageMap);
 
         final Map<Integer, Map<Integer, BatteryDiffData>> resultMap =
                 DataProcessor.generateBatteryUsageMap(
@@ -2100,24 +2086,23 @@ public final class DataProcessorTest {
                         /* instanceId= */ 4,
                         packageName2));
 
-        final Map<Long, Map<String, List<AppUsagePeriod>>> appUsagePeriodMap =
+        final UsagePeriodIndex.SlotUsagePeriods appUsagePeriodMap =
                 DataProcessor.buildAppUsagePeriodList(
                         mContext, appUsageEvents, new ArrayList<>(), 0, 5);
 
-        assertThat(appUsagePeriodMap).hasSize(2);
-        final Map<String, List<AppUsagePeriod>> userMap1 = appUsagePeriodMap.get(1L);
-        assertThat(userMap1).hasSize(2);
-        List<AppUsagePeriod> appUsagePeriodList = userMap1.get(packageName1);
+        assertThat(appUsagePeriodMap.getUserSize()).isEqualTo(2);
+        assertThat(appUsagePeriodMap.getPackageSize(1L)).isEqualTo(2);
+        List<AppUsagePeriod> appUsagePeriodList =
+                appUsagePeriodMap.getAppUsagePeriodList(1L, packageName1);
         assertThat(appUsagePeriodList).hasSize(3);
         assertAppUsagePeriod(appUsagePeriodList.get(0), 1, 2);
         assertAppUsagePeriod(appUsagePeriodList.get(1), 2, 4);
         assertAppUsagePeriod(appUsagePeriodList.get(2), 3, 4);
-        appUsagePeriodList = userMap1.get(packageName2);
+        appUsagePeriodList = appUsagePeriodMap.getAppUsagePeriodList(1L, packageName2);
         assertThat(appUsagePeriodList).hasSize(1);
         assertAppUsagePeriod(appUsagePeriodList.get(0), 2, 4);
-        final Map<String, List<AppUsagePeriod>> userMap2 = appUsagePeriodMap.get(2L);
-        assertThat(userMap2).hasSize(1);
-        appUsagePeriodList = userMap2.get(packageName2);
+        assertThat(appUsagePeriodMap.getPackageSize(2L)).isEqualTo(1);
+        appUsagePeriodList = appUsagePeriodMap.getAppUsagePeriodList(2L, packageName2);
         assertThat(appUsagePeriodList).hasSize(2);
         assertAppUsagePeriod(appUsagePeriodList.get(0), 1, 2);
         assertAppUsagePeriod(appUsagePeriodList.get(1), 3, 4);
@@ -2315,44 +2300,6 @@ public final class DataProcessorTest {
         assertAppUsagePeriod(resultList.get(0), 100, 200);
     }
 
-    @Test
-    public void getScreenOnTime_returnExpectedResult() {
-        final long userId = 1;
-        final String packageName = "com.android.settings";
-        final Map<Long, Map<String, List<AppUsagePeriod>>> appUsageMap = new HashMap<>();
-        final List<AppUsagePeriod> appUsagePeriodList = new ArrayList<>();
-        appUsageMap.put(userId, new HashMap<>());
-        appUsageMap.get(userId).put(packageName, appUsagePeriodList);
-        // Fake overlapped case.
-        appUsagePeriodList.add(buildAppUsagePeriod(0, 5));
-        appUsagePeriodList.add(buildAppUsagePeriod(2, 3));
-        appUsagePeriodList.add(buildAppUsagePeriod(2, 4));
-        appUsagePeriodList.add(buildAppUsagePeriod(5, 7));
-        // Fake same case.
-        appUsagePeriodList.add(buildAppUsagePeriod(10, 12));
-        appUsagePeriodList.add(buildAppUsagePeriod(10, 12));
-        appUsagePeriodList.add(buildAppUsagePeriod(10, 12));
-        // Fake normal case.
-        appUsagePeriodList.add(buildAppUsagePeriod(15, 20));
-        appUsagePeriodList.add(buildAppUsagePeriod(35, 40));
-        appUsagePeriodList.add(buildAppUsagePeriod(25, 30));
-
-        assertThat(DataProcessor.getScreenOnTime(appUsageMap, userId, packageName)).isEqualTo(24);
-    }
-
-    @Test
-    public void getScreenOnTime_nullInput_returnZero() {
-        final long userId = 1;
-        final String packageName = "com.android.settings";
-        final Map<Long, Map<String, List<AppUsagePeriod>>> appUsageMap = new HashMap<>();
-        appUsageMap.put(userId, new HashMap<>());
-
-        assertThat(DataProcessor.getScreenOnTime(null, userId, packageName)).isEqualTo(0);
-        assertThat(DataProcessor.getScreenOnTime(new HashMap<>(), userId, packageName))
-                .isEqualTo(0);
-        assertThat(DataProcessor.getScreenOnTime(appUsageMap, userId, packageName)).isEqualTo(0);
-    }
-
     private static Map<Long, Map<String, BatteryHistEntry>> createHistoryMap(
             final long[] timestamps, final int[] levels) {
         final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
@@ -2453,10 +2400,6 @@ public final class DataProcessorTest {
                 .build();
     }
 
-    private AppUsagePeriod buildAppUsagePeriod(final long start, final long end) {
-        return AppUsagePeriod.newBuilder().setStartTime(start).setEndTime(end).build();
-    }
-
     private void assertAppUsageEvent(
             final AppUsageEvent event, final AppUsageEventType eventType, final long timestamp) {
         assertThat(event.getType()).isEqualTo(eventType);
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public final class UsagePeriodIndexTest {
+    private static final long USER_ID = 1L;
+    private static final long OTHER_USER_ID = 2L;
+    private static final String PACKAGE_NAME = "com.android.settings";
+    private static final String PACKAGE_NAME2 = "com.android.systemui";
+
+    @Mock private UserIdsSeries mUserIdsSeries;
+
+    private UsagePeriodIndex.SlotUsagePeriods mSlotUsagePeriods;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doReturn(false).when(mUserIdsSeries).isFromOtherUsers(USER_ID);
+        doReturn(true).when(mUserIdsSeries).isFromOtherUsers(OTHER_USER_ID);
+        mSlotUsagePeriods = new UsagePeriodIndex.SlotUsagePeriods();
+    }
+
+    @Test
+    public void putSlot_returnExpectedResult() {
+        final UsagePeriodIndex usagePeriodIndex = new UsagePeriodIndex();
+
+        usagePeriodIndex.putDaily(/* dailyIndex= */ 1);
+        usagePeriodIndex.putSlot(/* dailyIndex= */ 0, /* hourlyIndex= */ 0, mSlotUsagePeriods);
+        usagePeriodIndex.putSlot(/* dailyIndex= */ 0, /* hourlyIndex= */ 1, null);
+
+        assertThat(usagePeriodIndex.getDailySize()).isEqualTo(2);
+        assertThat(usagePeriodIndex.getHourlySize(0)).isEqualTo(2);
+        assertThat(usagePeriodIndex.getHourlySize(1)).isEqualTo(0);
+        assertThat(usagePeriodIndex.getHourlySize(2)).isEqualTo(0);
+        assertThat(usagePeriodIndex.getSlot(0, 0)).isSameInstanceAs(mSlotUsagePeriods);
+        assertThat(usagePeriodIndex.getSlot(0, 1)).isNull();
+        assertThat(usagePeriodIndex.getSlot(2, 0)).isNull();
+    }
+
+    @Test
+    public void sortByStartTime_returnSortedPeriods() {
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 3, 4);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 1, 2);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 2, 6);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 1, 5);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 8, 9);
+
+        mSlotUsagePeriods.sortByStartTime();
+
+        final List<AppUsagePeriod> periodList =
+                mSlotUsagePeriods.getAppUsagePeriodList(USER_ID, PACKAGE_NAME);
+        assertThat(periodList).hasSize(5);
+        assertAppUsagePeriod(periodList.get(0), 1, 2);
+        assertAppUsagePeriod(periodList.get(1), 1, 5);
+        assertAppUsagePeriod(periodList.get(2), 2, 6);
+        assertAppUsagePeriod(periodList.get(3), 3, 4);
+        assertAppUsagePeriod(periodList.get(4), 8, 9);
+    }
+
+    @Test
+    public void getScreenOnTime_returnExpectedResult() {
+        // Fake overlapped case.
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 0, 5);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 2, 3);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 2, 4);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 5, 7);
+        // Fake same case.
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 10, 12);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 10, 12);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 10, 12);
+        // Fake normal case.
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 15, 20);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 35, 40);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 25, 30);
+
+        assertThat(mSlotUsagePeriods.getScreenOnTime(USER_ID, PACKAGE_NAME)).isEqualTo(24);
+    }
+
+    @Test
+    public void getScreenOnTime_noData_returnZero() {
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME2, 0, 5);
+
+        assertThat(mSlotUsagePeriods.getScreenOnTime(USER_ID, PACKAGE_NAME)).isEqualTo(0);
+        assertThat(mSlotUsagePeriods.getScreenOnTime(OTHER_USER_ID, PACKAGE_NAME)).isEqualTo(0);
+        assertThat(mSlotUsagePeriods.getScreenOnTime(USER_ID, /* packageName= */ null))
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void getScreenOnTime_allPackages_excludeOtherUsers() {
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME, 0, 5);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME2, 3, 8);
+        mSlotUsagePeriods.add(USER_ID, PACKAGE_NAME2, 10, 12);
+        mSlotUsagePeriods.add(OTHER_USER_ID, PACKAGE_NAME, 20, 30);
+
+        assertThat(mSlotUsagePeriods.getScreenOnTime(mUserIdsSeries)).isEqualTo(10);
+    }
+
+    @Test
+    public void getScreenOnTime_emptyData_returnZero() {
+        assertThat(mSlotUsagePeriods.isEmpty()).isTrue();
+        assertThat(mSlotUsagePeriods.getScreenOnTime(mUserIdsSeries)).isEqualTo(0);
+    }
+
+    private static void assertAppUsagePeriod(
+            final AppUsagePeriod period, final long startTime, final long endTime) {
+        assertThat(period.getStartTime()).isEqualTo(startTime);
+        assertThat(period.getEndTime()).isEqualTo(endTime);
+    }
+}
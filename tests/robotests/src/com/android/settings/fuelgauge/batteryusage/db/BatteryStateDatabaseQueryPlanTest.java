@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Verifies the query plans of the DAO queries, all queries filtered by a timestamp range or a
+ * type should be backed by an index instead of scanning the whole table.
+ */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryStateDatabaseQueryPlanTest {
+    private static final long TIMESTAMP = System.currentTimeMillis();
+    private static final List<String> INDEX_NAMES =
+            List.of(
+                    "index_BatteryState_timestamp",
+                    "index_AppUsageEventEntity_timestamp",
+                    "index_AppUsageEventEntity_userId_timestamp",
+                    "index_BatteryEventEntity_timestamp",
+                    "index_BatteryEventEntity_batteryEventType_timestamp",
+                    "index_BatteryUsageSlotEntity_timestamp");
+
+    private final List<CapturedQuery> mCapturedQueries = new ArrayList<>();
+
+    private BatteryStateDatabase mDatabase;
+    private boolean mIsCapturing;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mDatabase =
+                Room.inMemoryDatabaseBuilder(context, BatteryStateDatabase.class)
+                        .allowMainThreadQueries()
+                        .setQueryCallback(
+                                (sqlQuery, bindArgs) -> {
+                                    if (mIsCapturing) {
+                                        mCapturedQueries.add(
+                                                new CapturedQuery(sqlQuery, bindArgs));
+                                    }
+                                },
+                                Runnable::run)
+                        .build();
+        // Opens the database before capturing, to skip the queries of the schema validation.
+        mDatabase.getOpenHelper().getWritableDatabase();
+        mIsCapturing = true;
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void batteryStateDao_queriesUseIndex() {
+        final BatteryStateDao dao = mDatabase.batteryStateDao();
+
+        dao.getLatestTimestampBefore(TIMESTAMP).close();
+        dao.getBatteryStatesAfter(TIMESTAMP).close();
+        dao.getAllAfter(TIMESTAMP);
+        dao.getDistinctTimestampCount(TIMESTAMP);
+        dao.getDistinctTimestamps(TIMESTAMP);
+        dao.clearAllBefore(TIMESTAMP);
+        dao.clearAllAfter(TIMESTAMP);
+
+        assertCapturedQueriesUseIndex(/* expectedSize= */ 7);
+    }
+
+    @Test
+    public void appUsageEventDao_queriesUseIndex() {
+        final AppUsageEventDao dao = mDatabase.appUsageEventDao();
+
+        dao.getAllAfter(TIMESTAMP);
+        dao.getAllForUsersAfter(List.of(0L, 10L), TIMESTAMP).close();
+        dao.getLatestTimestampOfUser(0L).close();
+        dao.clearAllBefore(TIMESTAMP);
+        dao.clearAllAfter(TIMESTAMP);
+
+        assertCapturedQueriesUseIndex(/* expectedSize= */ 5);
+    }
+
+    @Test
+    public void batteryEventDao_queriesUseIndex() {
+        final BatteryEventDao dao = mDatabase.batteryEventDao();
+
+        dao.getAll();
+        dao.getLastFullChargeTimestamp().close();
+        dao.getLastFullChargeTimestampForLog();
+        dao.getAllAfter(TIMESTAMP, List.of(1, 2)).close();
+        dao.getAllAfterForLog(TIMESTAMP);
+        dao.clearAllBefore(TIMESTAMP);
+        dao.clearAllAfter(TIMESTAMP);
+
+        assertCapturedQueriesUseIndex(/* expectedSize= */ 7);
+    }
+
+    @Test
+    public void batteryUsageSlotDao_queriesUseIndex() {
+        final BatteryUsageSlotDao dao = mDatabase.batteryUsageSlotDao();
+
+        dao.getAll();
+        dao.getAllAfter(TIMESTAMP).close();
+        dao.getAllAfterForLog(TIMESTAMP);
+        dao.clearAllBefore(TIMESTAMP);
+        dao.clearAllAfter(TIMESTAMP);
+
+        assertCapturedQueriesUseIndex(/* expectedSize= */ 5);
+    }
+
+    @Test
+    public void batteryReattributeDao_queriesUseIndex() {
+        final BatteryReattributeDao dao = mDatabase.batteryReattributeDao();
+
+        dao.getAllAfter(TIMESTAMP);
+        dao.clearAllBefore(TIMESTAMP);
+        dao.clearAllAfter(TIMESTAMP);
+
+        assertCapturedQueriesUseIndex(/* expectedSize= */ 3);
+    }
+
+    @Test
+    public void batteryUsageColumnarDao_queriesUseIndex() {
+        final BatteryUsageColumnarDao dao = mDatabase.batteryUsageColumnarDao();
+
+        // clearUnusedNames() is excluded, it needs to check every name and usage row anyway.
+        dao.getAllHeaders();
+        dao.getAllDiffs();
+        dao.getAllAfter(TIMESTAMP).close();
+        dao.clearDiffsAt(TIMESTAMP);
+        dao.clearHeadersBefore(TIMESTAMP);
+        dao.clearDiffsBefore(TIMESTAMP);
+        dao.clearHeadersAfter(TIMESTAMP);
+        dao.clearDiffsAfter(TIMESTAMP);
+
+        assertCapturedQueriesUseIndex(/* expectedSize= */ 8);
+    }
+
+    @Test
+    public void migrate_3_4_createsAllIndexes() {
+        mIsCapturing = false;
+        final SupportSQLiteDatabase database = mDatabase.getOpenHelper().getWritableDatabase();
+        for (String indexName : INDEX_NAMES) {
+            database.execSQL("DROP INDEX `" + indexName + "`");
+        }
+
+        BatteryStateIndexMigration.MIGRATION_3_4.migrate(database);
+
+        final List<String> indexNames = new ArrayList<>();
+        try (Cursor cursor =
+                database.query("SELECT name FROM sqlite_master WHERE type = 'index'")) {
+            while (cursor.moveToNext()) {
+                indexNames.add(cursor.getString(/* columnIndex= */ 0));
+            }
+        }
+        assertThat(indexNames).containsAtLeastElementsIn(INDEX_NAMES);
+    }
+
+    private void assertCapturedQueriesUseIndex(int expectedSize) {
+        mIsCapturing = false;
+        final List<CapturedQuery> queries = new ArrayList<>();
+        for (CapturedQuery query : mCapturedQueries) {
+            final String sql = query.mSql.trim().toUpperCase(Locale.ROOT);
+            if (sql.startsWith("SELECT") || sql.startsWith("DELETE")) {
+                queries.add(query);
+            }
+        }
+        assertThat(queries).hasSize(expectedSize);
+
+        final SupportSQLiteDatabase database = mDatabase.getOpenHelper().getWritableDatabase();
+        for (CapturedQuery query : queries) {
+            final boolean isFiltered = query.mSql.toUpperCase(Locale.ROOT).contains(" WHERE ");
+            final List<String> details = new ArrayList<>();
+            try (Cursor cursor =
+                    database.query(
+                            "EXPLAIN QUERY PLAN " + query.mSql, query.mBindArgs.toArray())) {
+                final int detailIndex = cursor.getColumnIndexOrThrow("detail");
+                while (cursor.moveToNext()) {
+                    details.add(cursor.getString(detailIndex));
+                }
+            }
+            for (String detail : details) {
+                // Unfiltered queries read every row anyway, e.g. for dumping.
+                final boolean isFullScan = detail.startsWith("SCAN") && !detail.contains(" USING ");
+                assertWithMessage("%s\nquery plan: %s", query.mSql, details)
+                        .that(isFiltered && isFullScan)
+                        .isFalse();
+            }
+        }
+    }
+
+    private static final class CapturedQuery {
+        final String mSql;
+        final List<Object> mBindArgs;
+
+        CapturedQuery(String sql, List<Object> bindArgs) {
+            mSql = sql;
+            mBindArgs = new ArrayList<>(bindArgs);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryOptimizationMode;
+import com.android.settings.fuelgauge.batteryusage.BatteryUsageDiff;
+import com.android.settings.fuelgauge.batteryusage.BatteryUsageSlot;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+import com.android.settings.testutils.BatteryTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+/** Tests for {@link BatteryUsageColumnarDao}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryUsageColumnarDaoTest {
+    private static final long CURRENT = System.currentTimeMillis();
+    private static final long TIMESTAMP1 = CURRENT;
+    private static final long TIMESTAMP2 = CURRENT + 2;
+    private static final long TIMESTAMP3 = CURRENT + 4;
+    private static final String PACKAGE_NAME = "com.android.settings";
+
+    private Context mContext;
+    private BatteryStateDatabase mDatabase;
+    private BatteryUsageColumnarDao mBatteryUsageColumnarDao;
+    private BatteryUsageSlot mBatteryUsageSlot1;
+    private BatteryUsageSlot mBatteryUsageSlot2;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mDatabase = BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        mBatteryUsageColumnarDao = mDatabase.batteryUsageColumnarDao();
+        mBatteryUsageSlot1 =
+                BatteryUsageSlot.newBuilder()
+                        .setStartTimestamp(TIMESTAMP1)
+                        .setEndTimestamp(TIMESTAMP2)
+                        .setStartBatteryLevel(90)
+                        .setEndBatteryLevel(80)
+                        .setScreenOnTime(1234L)
+                        .addAppUsage(
+                                createBatteryUsageDiff(/* uid= */ 1001L, /* componentId= */ -1)
+                                        .setPackageName(PACKAGE_NAME)
+                                        .setKey("1001")
+                                        .setAppOptimizationMode(
+                                                BatteryOptimizationMode.MODE_OPTIMIZED))
+                        .addSystemUsage(
+                                createBatteryUsageDiff(/* uid= */ 0L, /* componentId= */ 15)
+                                        .setKey("S|15")
+                                        .setLabel("Screen"))
+                        .build();
+        mBatteryUsageSlot2 =
+                BatteryUsageSlot.newBuilder()
+                        .setStartTimestamp(TIMESTAMP2)
+                        .setEndTimestamp(TIMESTAMP2 + 1)
+                        .setStartBatteryLevel(80)
+                        .setEndBatteryLevel(79)
+                        .setScreenOnTime(0L)
+                        .build();
+        insertBatteryUsageSlot(mBatteryUsageSlot1);
+        insertBatteryUsageSlot(mBatteryUsageSlot2);
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+        BatteryStateDatabase.setBatteryStateDatabase(/* database= */ null);
+    }
+
+    @Test
+    public void getAll_normalFlow_expectedBehavior() throws Exception {
+        final List<BatteryUsageSlotHeaderEntity> headers =
+                mBatteryUsageColumnarDao.getAllHeaders();
+        assertThat(headers).hasSize(2);
+        assertThat(headers.get(0).timestamp).isEqualTo(TIMESTAMP1);
+        assertThat(headers.get(1).timestamp).isEqualTo(TIMESTAMP2);
+
+        final List<BatteryUsageDiffEntity> diffs = mBatteryUsageColumnarDao.getAllDiffs();
+        assertThat(diffs).hasSize(2);
+        assertThat(diffs.get(0).isSystemUsage).isFalse();
+        assertThat(diffs.get(0).packageNameId)
+                .isEqualTo(BatteryUsageNameEntity.getNameId(PACKAGE_NAME));
+        assertThat(diffs.get(1).isSystemUsage).isTrue();
+        assertThat(diffs.get(1).packageNameId).isEqualTo(BatteryUsageNameEntity.EMPTY_NAME_ID);
+
+        // Package name, two keys and one label.
+        assertThat(mBatteryUsageColumnarDao.getAllNames()).hasSize(4);
+    }
+
+    @Test
+    public void getAllAfter_normalFlow_returnsSameBatteryUsageSlots() throws Exception {
+        final Cursor cursor = mBatteryUsageColumnarDao.getAllAfter(TIMESTAMP1);
+
+        // Two usage rows of the first slot and one empty row of the second slot.
+        assertThat(cursor.getCount()).isEqualTo(3);
+        assertThat(ConvertUtils.convertToBatteryUsageSlotList(cursor))
+                .containsExactly(mBatteryUsageSlot1, mBatteryUsageSlot2)
+                .inOrder();
+    }
+
+    @Test
+    public void getAllAfter_afterFirstSlot_returnsLatestBatteryUsageSlot() throws Exception {
+        final Cursor cursor = mBatteryUsageColumnarDao.getAllAfter(TIMESTAMP1 + 1);
+
+        assertThat(ConvertUtils.convertToBatteryUsageSlotList(cursor))
+                .containsExactly(mBatteryUsageSlot2);
+    }
+
+    @Test
+    public void clearDiffsAt_normalFlow_expectedBehavior() throws Exception {
+        mBatteryUsageColumnarDao.clearDiffsAt(TIMESTAMP1);
+
+        assertThat(mBatteryUsageColumnarDao.getAllHeaders()).hasSize(2);
+        assertThat(mBatteryUsageColumnarDao.getAllDiffs()).isEmpty();
+    }
+
+    @Test
+    public void clearAllBefore_normalFlow_expectedBehavior() throws Exception {
+        mBatteryUsageColumnarDao.clearHeadersBefore(TIMESTAMP1);
+        mBatteryUsageColumnarDao.clearDiffsBefore(TIMESTAMP1);
+        mBatteryUsageColumnarDao.clearUnusedNames();
+
+        final List<BatteryUsageSlotHeaderEntity> headers =
+                mBatteryUsageColumnarDao.getAllHeaders();
+        assertThat(headers).hasSize(1);
+        assertThat(headers.get(0).timestamp).isEqualTo(TIMESTAMP2);
+        assertThat(mBatteryUsageColumnarDao.getAllDiffs()).isEmpty();
+        assertThat(mBatteryUsageColumnarDao.getAllNames()).isEmpty();
+    }
+
+    @Test
+    public void clearAll_normalFlow_expectedBehavior() throws Exception {
+        mBatteryUsageColumnarDao.clearAllHeaders();
+        mBatteryUsageColumnarDao.clearAllDiffs();
+        mBatteryUsageColumnarDao.clearAllNames();
+
+        assertThat(mBatteryUsageColumnarDao.getAllHeaders()).isEmpty();
+        assertThat(mBatteryUsageColumnarDao.getAllDiffs()).isEmpty();
+        assertThat(mBatteryUsageColumnarDao.getAllNames()).isEmpty();
+    }
+
+    @Test
+    public void convertBatteryUsageSlotRows_fromBase64Rows_insertsColumnarRows() {
+        mBatteryUsageColumnarDao.clearAllHeaders();
+        mBatteryUsageColumnarDao.clearAllDiffs();
+        mBatteryUsageColumnarDao.clearAllNames();
+        insertBase64BatteryUsageSlot(mBatteryUsageSlot1);
+
+        final int size =
+                BatteryUsageColumnarMigration.convertBatteryUsageSlotRows(
+                        mDatabase.getOpenHelper().getWritableDatabase());
+
+        assertThat(size).isEqualTo(1);
+        assertThat(
+                        ConvertUtils.convertToBatteryUsageSlotList(
+                                mBatteryUsageColumnarDao.getAllAfter(TIMESTAMP1)))
+                .containsExactly(mBatteryUsageSlot1);
+    }
+
+    @Test
+    public void convertBatteryUsageSlotRows_olderThanColumnarRows_onlyConvertsNewerRows() {
+        final BatteryUsageSlot batteryUsageSlot3 =
+                mBatteryUsageSlot2.toBuilder()
+                        .setStartTimestamp(TIMESTAMP3)
+                        .setEndTimestamp(TIMESTAMP3 + 1)
+                        .build();
+        insertBase64BatteryUsageSlot(mBatteryUsageSlot1);
+        insertBase64BatteryUsageSlot(batteryUsageSlot3);
+
+        final int size =
+                BatteryUsageColumnarMigration.convertBatteryUsageSlotRows(
+                        mDatabase.getOpenHelper().getWritableDatabase());
+
+        assertThat(size).isEqualTo(1);
+        assertThat(
+                        ConvertUtils.convertToBatteryUsageSlotList(
+                                mBatteryUsageColumnarDao.getAllAfter(TIMESTAMP1)))
+                .containsExactly(mBatteryUsageSlot1, mBatteryUsageSlot2, batteryUsageSlot3)
+                .inOrder();
+    }
+
+    @Test
+    public void getOrInsertNameId_hashCollision_usesNextFreeId() {
+        final long hashId = BatteryUsageNameEntity.getNameId("com.android.collided");
+        mBatteryUsageColumnarDao.insertName(new BatteryUsageNameEntity(hashId, "com.other"));
+
+        final long id = getOrInsertNameId("com.android.collided");
+
+        assertThat(id).isEqualTo(hashId + 1);
+        assertThat(mBatteryUsageColumnarDao.getName(id)).isEqualTo("com.android.collided");
+        assertThat(mBatteryUsageColumnarDao.getName(hashId)).isEqualTo("com.other");
+        assertThat(getOrInsertNameId("com.android.collided")).isEqualTo(id);
+    }
+
+    @Test
+    public void getOrInsertNameId_storedName_returnsSameId() {
+        final int nameCount = mBatteryUsageColumnarDao.getAllNames().size();
+
+        final long id = getOrInsertNameId(PACKAGE_NAME);
+
+        assertThat(id).isEqualTo(BatteryUsageNameEntity.getNameId(PACKAGE_NAME));
+        assertThat(mBatteryUsageColumnarDao.getAllNames()).hasSize(nameCount);
+    }
+
+    private long getOrInsertNameId(String name) {
+        return BatteryUsageNameEntity.getOrInsertNameId(
+                name, mBatteryUsageColumnarDao::getName, mBatteryUsageColumnarDao::insertName);
+    }
+
+    private void insertBase64BatteryUsageSlot(BatteryUsageSlot batteryUsageSlot) {
+        mDatabase
+                .batteryUsageSlotDao()
+                .insert(
+                        BatteryUsageSlotEntity.create(
+                                ConvertUtils.convertBatteryUsageSlotToContentValues(
+                                        batteryUsageSlot)));
+    }
+
+    private static BatteryUsageDiff.Builder createBatteryUsageDiff(
+            final long uid, final int componentId) {
+        return BatteryUsageDiff.newBuilder()
+                .setUid(uid)
+                .setUserId(0L)
+                .setIsHidden(false)
+                .setComponentId(componentId)
+                .setConsumerType(ConvertUtils.CONSUMER_TYPE_UID_BATTERY)
+                .setConsumePower(1.1)
+                .setForegroundUsageConsumePower(0.5)
+                .setForegroundServiceUsageConsumePower(0.1)
+                .setBackgroundUsageConsumePower(0.4)
+                .setCachedUsageConsumePower(0.1)
+                .setForegroundUsageTime(100L)
+                .setForegroundServiceUsageTime(10L)
+                .setBackgroundUsageTime(200L)
+                .setScreenOnTime(50L);
+    }
+
+    private void insertBatteryUsageSlot(BatteryUsageSlot batteryUsageSlot) {
+        mBatteryUsageColumnarDao.insertHeader(
+                BatteryUsageSlotHeaderEntity.create(
+                        ConvertUtils.convertBatteryUsageSlotToHeaderContentValues(
+                                batteryUsageSlot)));
+        for (ContentValues values :
+                ConvertUtils.convertBatteryUsageSlotToDiffContentValuesList(batteryUsageSlot)) {
+            mBatteryUsageColumnarDao.insertDiff(
+                    BatteryUsageDiffEntity.create(values, this::getOrInsertNameId));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.android.settings.intelligence.ContextualCardProto.ContextualCard.Category.STICKY_VALUE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+@RunWith(RobolectricTestRunner.class)
+public class CardEligibilityExecutorTest {
+
+    @Test
+    public void cardPriority_stickyCardsFirstThenHigherRankingScore() {
+        final ContextualCard low = buildCard("low", 0.1, 0);
+        final ContextualCard high = buildCard("high", 0.9, 0);
+        final ContextualCard sticky = buildCard("sticky", 0.0, STICKY_VALUE);
+        final List<ContextualCard> cards = new ArrayList<>(List.of(low, high, sticky));
+
+        cards.sort(CardEligibilityExecutor.CARD_PRIORITY);
+
+        assertThat(cards).containsExactly(sticky, high, low).inOrder();
+    }
+
+    @Test
+    public void submit_returnResultOfCallable() throws Exception {
+        final Future<String> future = CardEligibilityExecutor.getInstance().submit(() -> "done");
+
+        assertThat(future.get()).isEqualTo("done");
+    }
+
+    private static ContextualCard buildCard(String name, double rankingScore, int category) {
+        return new ContextualCard.Builder()
+                .setName(name)
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setSliceUri(Uri.parse("content://com.android.settings.test.slices/" + name))
+                .setRankingScore(rankingScore)
+                .setCategory(category)
+                .build();
+    }
+}
@@ -25,8 +25,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import android.app.settings.SettingsEnums;
@@ -151,6 +153,36 @@ public class ContextualCardLoaderTest {
         assertThat(mContextualCardLoader.getCardCount()).isEqualTo(configCount);
     }
 
+    @Test
+    public void filterEligibleCards_checkedRecently_checkAgain() {
+        final List<ContextualCard> candidates = getContextualCardList().subList(0, 1);
+        final EligibleCardChecker checker = mock(EligibleCardChecker.class);
+        doReturn(null).when(checker).call();
+        doReturn(checker).when(mContextualCardLoader).createEligibleCardChecker(any());
+
+        mContextualCardLoader.filterEligibleCards(candidates);
+        mContextualCardLoader.filterEligibleCards(candidates);
+
+        verify(mContextualCardLoader, times(2)).createEligibleCardChecker(any());
+    }
+
+    @Test
+    public void filterEligibleCards_notEligible_filterOut() {
+        final List<ContextualCard> candidates = getContextualCardList().subList(0, 2);
+        final EligibleCardChecker checker = mock(EligibleCardChecker.class);
+        final EligibleCardChecker ineligibleChecker = mock(EligibleCardChecker.class);
+        doReturn(candidates.get(0)).when(checker).call();
+        doReturn(null).when(ineligibleChecker).call();
+        doReturn(checker).when(mContextualCardLoader)
+                .createEligibleCardChecker(candidates.get(0));
+        doReturn(ineligibleChecker).when(mContextualCardLoader)
+                .createEligibleCardChecker(candidates.get(1));
+
+        final List<ContextualCard> result = mContextualCardLoader.filterEligibleCards(candidates);
+
+        assertThat(result).containsExactly(candidates.get(0));
+    }
+
     private List<ContextualCard> getContextualCardList() {
         final List<ContextualCard> cards = new ArrayList<>();
         cards.add(new ContextualCard.Builder()
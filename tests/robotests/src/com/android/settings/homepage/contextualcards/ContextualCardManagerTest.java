@@ -328,6 +328,19 @@ public class ContextualCardManagerTest {
         verify(manager, never()).onContextualCardUpdated(anyMap());
     }
 
+    @Test
+    public void onFinishCardLoading_slowLoad_showingSnapshot_shouldCallOnContextualCardUpdated() {
+        mManager.mStartTime = 0;
+        mManager.mIsShowingSnapshot = true;
+        final ContextualCardManager manager = spy(mManager);
+        doNothing().when(manager).onContextualCardUpdated(anyMap());
+
+        manager.onFinishCardLoading(new ArrayList<>());
+
+        verify(manager).onContextualCardUpdated(anyMap());
+        assertThat(manager.mIsShowingSnapshot).isFalse();
+    }
+
     @Test
     public void onFinishCardLoading_newLaunch_twoLoadedCards_shouldShowTwoCards() {
         mManager.mStartTime = System.currentTimeMillis();
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.android.settings.intelligence.ContextualCardProto.ContextualCard.Category.STICKY_VALUE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.homepage.contextualcards.slices.SliceContextualCardRenderer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class ContextualCardSnapshotTest {
+
+    private static final Uri TEST_SLICE_URI =
+            Uri.parse("content://com.android.settings.slices/action/flashlight");
+
+    private Context mContext;
+    private ContextualCardSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mSnapshot = new ContextualCardSnapshot(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        ContextualCardSnapshot.clear(mContext);
+    }
+
+    @Test
+    public void read_afterWrite_returnSameCards() {
+        mSnapshot.write(List.of(buildCard()));
+
+        final List<ContextualCard> cards = mSnapshot.read();
+
+        assertThat(cards).hasSize(1);
+        final ContextualCard card = cards.get(0);
+        assertThat(card.getName()).isEqualTo("test_card");
+        assertThat(card.getCardType()).isEqualTo(ContextualCard.CardType.SLICE);
+        assertThat(card.getRankingScore()).isEqualTo(0.5);
+        assertThat(card.getSliceUri()).isEqualTo(TEST_SLICE_URI);
+        assertThat(card.getCategory()).isEqualTo(STICKY_VALUE);
+        assertThat(card.getPackageName()).isEqualTo("com.android.settings");
+        assertThat(card.getAppVersion()).isEqualTo(10L);
+        assertThat(card.getViewType())
+                .isEqualTo(SliceContextualCardRenderer.VIEW_TYPE_FULL_WIDTH);
+        assertThat(card.getSlice()).isNull();
+    }
+
+    @Test
+    public void write_cardWithInlineAction_notStored() {
+        mSnapshot.write(List.of(buildCard().mutate().setHasInlineAction(true).build()));
+
+        assertThat(mSnapshot.read()).isEmpty();
+    }
+
+    @Test
+    public void onCardDismissed_deleteSnapshot() {
+        mSnapshot.write(List.of(buildCard()));
+
+        ContextualCardSnapshot.onCardDismissed(mContext, "test_card");
+
+        assertThat(mSnapshot.read()).isNull();
+    }
+
+    @Test
+    public void write_dismissedCard_notStored() {
+        ContextualCardSnapshot.onCardDismissed(mContext, "test_card");
+
+        mSnapshot.write(List.of(buildCard()));
+
+        assertThat(mSnapshot.read()).isEmpty();
+    }
+
+    @Test
+    public void read_otherLocale_returnNull() {
+        mSnapshot.write(List.of(buildCard()));
+
+        RuntimeEnvironment.setQualifiers("fr-rFR");
+
+        assertThat(mSnapshot.read()).isNull();
+    }
+
+    private static ContextualCard buildCard() {
+        return new ContextualCard.Builder()
+                .setName("test_card")
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setRankingScore(0.5)
+                .setSliceUri(TEST_SLICE_URI)
+                .setCategory(STICKY_VALUE)
+                .setPackageName("com.android.settings")
+                .setAppVersion(10L)
+                .setViewType(SliceContextualCardRenderer.VIEW_TYPE_FULL_WIDTH)
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexableDataCacheTest {
+    private static final String CACHE_NAME = "test";
+
+    private Context mContext;
+    private SearchIndexableDataCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mCache = new SearchIndexableDataCache(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        SearchIndexableDataCache.invalidate(mContext);
+    }
+
+    @Test
+    public void getRows_cached_returnsSameValuesWithoutLoading() {
+        final List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {"title", 1, null, 2L});
+        rows.add(new Object[] {null, "", Integer.MAX_VALUE, Long.MIN_VALUE});
+        mCache.getRows(CACHE_NAME, () -> rows);
+
+        final CountingLoader loader = new CountingLoader(new ArrayList<>());
+        final List<Object[]> cachedRows = mCache.getRows(CACHE_NAME, loader);
+
+        assertThat(loader.mCount).isEqualTo(0);
+        assertThat(cachedRows).hasSize(2);
+        assertThat(cachedRows.get(0)).asList().containsExactly("title", 1, null, 2L).inOrder();
+        assertThat(cachedRows.get(1)).asList()
+                .containsExactly(null, "", Integer.MAX_VALUE, Long.MIN_VALUE).inOrder();
+    }
+
+    @Test
+    public void getRows_invalidated_loadsAgain() {
+        mCache.getRows(CACHE_NAME, () -> List.<Object[]>of(new Object[] {"title"}));
+
+        SearchIndexableDataCache.invalidate(mContext);
+        final CountingLoader loader = new CountingLoader(new ArrayList<>());
+        final List<Object[]> rows = mCache.getRows(CACHE_NAME, loader);
+
+        assertThat(loader.mCount).isEqualTo(1);
+        assertThat(rows).isEmpty();
+    }
+
+    @Test
+    public void getRows_unsupportedType_notCached() {
+        final List<Object[]> rows = List.<Object[]>of(new Object[] {1.5f});
+        assertThat(mCache.getRows(CACHE_NAME, () -> rows)).isSameInstanceAs(rows);
+
+        final CountingLoader loader = new CountingLoader(new ArrayList<>());
+        mCache.getRows(CACHE_NAME, loader);
+
+        assertThat(loader.mCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getRows_corruptedFile_loadsAgain() throws Exception {
+        mCache.getRows(CACHE_NAME, () -> List.<Object[]>of(new Object[] {"title"}));
+        final File file = new File(
+                new File(mContext.getCacheDir(), SearchIndexableDataCache.CACHE_DIR), CACHE_NAME);
+        Files.write(file.toPath(), new byte[] {1, 2});
+
+        final CountingLoader loader = new CountingLoader(new ArrayList<>());
+        mCache.getRows(CACHE_NAME, loader);
+
+        assertThat(loader.mCount).isEqualTo(1);
+    }
+
+    private static final class CountingLoader implements Supplier<List<Object[]>> {
+        private final List<Object[]> mRows;
+        private int mCount;
+
+        CountingLoader(List<Object[]> rows) {
+            mRows = rows;
+        }
+
+        @Override
+        public List<Object[]> get() {
+            mCount++;
+            return mRows;
+        }
+    }
+}
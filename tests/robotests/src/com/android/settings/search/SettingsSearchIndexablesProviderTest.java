@@ -89,6 +89,7 @@ public class SettingsSearchIndexablesProviderTest {
     @After
     public void cleanUp() {
         ShadowCategoryManager.reset();
+        SearchIndexableDataCache.invalidate(mContext);
         mFakeFeatureFactory.searchFeatureProvider = mock(SearchFeatureProvider.class);
     }
 
@@ -150,6 +151,97 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(keys).containsAtLeast("pref_key_1", "pref_key_3", "pref_key_5");
     }
 
+    @Test
+    public void queryRawData_cacheDisabled_reloadsFromProviders() {
+        final Uri rawUri = Uri.parse(BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_RAW_PATH);
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null, null)
+                .close();
+
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .clear();
+
+        try (Cursor cursor = mProvider.query(rawUri,
+                SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null, null)) {
+            assertThat(cursor.getCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void queryRawData_cacheEnabled_reusesCachedRows() {
+        enableSearchIndexableDataCache();
+        final Uri rawUri = Uri.parse(BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_RAW_PATH);
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null, null)
+                .close();
+
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .clear();
+
+        try (Cursor cursor = mProvider.query(rawUri,
+                SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null, null)) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(cursor.getString(1)).isEqualTo(FakeSettingsFragment.TITLE);
+            assertThat(cursor.getInt(8)).isEqualTo(FakeSettingsFragment.ICON);
+            assertThat(cursor.getString(12)).isEqualTo(FakeSettingsFragment.KEY);
+        }
+    }
+
+    @Test
+    public void queryXmlResources_cacheEnabled_reusesCachedRows() {
+        enableSearchIndexableDataCache();
+        final Uri xmlUri =
+                Uri.parse(BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_XML_RES_PATH);
+        mProvider.query(xmlUri, SearchIndexablesContract.INDEXABLES_XML_RES_COLUMNS, null, null,
+                null).close();
+
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .clear();
+
+        try (Cursor cursor = mProvider.query(xmlUri,
+                SearchIndexablesContract.INDEXABLES_XML_RES_COLUMNS, null, null, null)) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(cursor.getInt(1)).isEqualTo(R.xml.display_settings);
+            assertThat(cursor.getString(2)).isEqualTo(FakeSettingsFragment.CLASS_NAME);
+            assertThat(cursor.getString(6)).isNull();
+        }
+    }
+
+    @Test
+    public void queryRawData_cacheInvalidated_reloadsFromProviders() {
+        enableSearchIndexableDataCache();
+        final Uri rawUri = Uri.parse(BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_RAW_PATH);
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null, null)
+                .close();
+
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .clear();
+        SearchIndexableDataCache.invalidate(mContext);
+
+        try (Cursor cursor = mProvider.query(rawUri,
+                SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null, null)) {
+            assertThat(cursor.getCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void queryNonIndexableKeys_cacheEnabled_reloadsFromProviders() {
+        enableSearchIndexableDataCache();
+        final Uri uri = Uri.parse(
+                BASE_AUTHORITY + SearchIndexablesContract.NON_INDEXABLES_KEYS_PATH);
+        mProvider.query(uri, SearchIndexablesContract.NON_INDEXABLES_KEYS_COLUMNS, null, null,
+                null).close();
+
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .clear();
+
+        try (Cursor cursor = mProvider.query(uri,
+                SearchIndexablesContract.NON_INDEXABLES_KEYS_COLUMNS, null, null, null)) {
+            assertThat(cursor.getCount()).isEqualTo(0);
+        }
+    }
+
     @Test
     public void refreshSearchEnabledState_classNotFoundInCategoryMap_hasInjectionRawData() {
         mProvider.refreshSearchEnabledState(mContext,
@@ -219,6 +311,13 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(mProvider.isEligibleForIndexing(PACKAGE_NAME, activityTile)).isFalse();
     }
 
+    private void enableSearchIndexableDataCache() {
+        final SearchFeatureProvider featureProvider =
+                spy(mFakeFeatureFactory.searchFeatureProvider);
+        when(featureProvider.isSearchIndexableDataCacheEnabled()).thenReturn(true);
+        mFakeFeatureFactory.searchFeatureProvider = featureProvider;
+    }
+
     @Implements(CategoryManager.class)
     public static class ShadowCategoryManager {
 
@@ -55,6 +55,7 @@ import androidx.slice.widget.SliceLiveData;
 
 import com.android.settings.Utils;
 import com.android.settings.testutils.DatabaseTestUtils;
+import com.android.settings.testutils.FakeSliderController;
 import com.android.settings.testutils.FakeToggleController;
 import com.android.settings.testutils.shadow.ShadowBluetoothAdapter;
 import com.android.settings.testutils.shadow.ShadowLockPatternUtils;
@@ -296,6 +297,69 @@ public class SettingsSliceProviderTest {
         assertThat(ShadowTheme.isThemeRebased()).isFalse();
     }
 
+    @Test
+    public void onBindSlice_sliceResultCacheDisabled_buildsSliceAgain() {
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+
+        final Slice slice = mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.onBindSlice(data.getUri())).isNotSameInstanceAs(slice);
+    }
+
+    @Test
+    public void onBindSlice_sliceResultCacheEnabled_returnsCachedSlice() {
+        mProvider.mSliceResultCache = new SliceResultCache();
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+
+        final Slice slice = mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.onBindSlice(data.getUri())).isSameInstanceAs(slice);
+    }
+
+    @Test
+    public void onBindSlice_sliceResultNotCacheable_buildsSliceAgain() {
+        mProvider.mSliceResultCache = new SliceResultCache();
+        final SliceData data = new SliceData.Builder()
+                .setKey(KEY)
+                .setUri(URI)
+                .setTitle(SliceTestUtils.FAKE_TITLE)
+                .setFragmentName(SliceTestUtils.FAKE_FRAGMENT_NAME)
+                .setPreferenceControllerClassName(FakeSliderController.class.getName())
+                .build();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+
+        final Slice slice = mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.onBindSlice(data.getUri())).isNotSameInstanceAs(slice);
+        assertThat(mProvider.mSliceResultCache.get(data.getUri())).isNull();
+    }
+
+    @Test
+    public void onBindSlice_sliceResultInvalidated_buildsSliceAgain() {
+        mProvider.mSliceResultCache = new SliceResultCache();
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        final Slice slice = mProvider.onBindSlice(data.getUri());
+
+        mProvider.mSliceResultCache.invalidate(data.getUri());
+
+        assertThat(mProvider.onBindSlice(data.getUri())).isNotSameInstanceAs(slice);
+    }
+
+    @Test
+    public void onSliceUnpinned_sliceResultCacheEnabled_removesCachedSlice() {
+        mProvider.mSliceResultCache = new SliceResultCache();
+        final SliceData data = getMockData();
+        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.onBindSlice(data.getUri());
+
+        mProvider.onSliceUnpinned(data.getUri());
+
+        assertThat(mProvider.mSliceResultCache.get(data.getUri())).isNull();
+    }
+
     @Test
     public void onBindSlice_guestRestricted_returnsNull() {
         final String key = "enable_usb_tethering";
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceBackgroundWorkerTest {
+
+    private static final Uri URI = Uri.parse("content://com.android.settings.slices/action/test");
+
+    private TestWorker mWorker;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mWorker = new TestWorker(context, URI);
+    }
+
+    @After
+    public void tearDown() {
+        mWorker.unpin();
+    }
+
+    @Test
+    public void notifySliceChange_updatePending_coalesceUpdate() {
+        final long coalescedCount = SliceBackgroundWorker.getCoalescedUpdateCount();
+
+        // The first update is postponed, so the following ones are merged into it.
+        mWorker.notifySliceChange();
+        mWorker.notifySliceChange();
+        mWorker.notifySliceChange();
+
+        assertThat(SliceBackgroundWorker.getCoalescedUpdateCount() - coalescedCount)
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void unpin_updatePending_dropUpdate() {
+        final long droppedCount = SliceBackgroundWorker.getDroppedUpdateCount();
+        mWorker.notifySliceChange();
+
+        mWorker.unpin();
+
+        assertThat(SliceBackgroundWorker.getDroppedUpdateCount() - droppedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void unpin_noUpdatePending_doNotDropUpdate() {
+        final long droppedCount = SliceBackgroundWorker.getDroppedUpdateCount();
+
+        mWorker.unpin();
+
+        assertThat(SliceBackgroundWorker.getDroppedUpdateCount()).isEqualTo(droppedCount);
+    }
+
+    @Test
+    public void dumpUpdateCounts_returnCounts() throws Exception {
+        final JSONObject counts = SliceBackgroundWorker.dumpUpdateCounts();
+
+        assertThat(counts.getLong("coalesced"))
+                .isEqualTo(SliceBackgroundWorker.getCoalescedUpdateCount());
+        assertThat(counts.getLong("dropped"))
+                .isEqualTo(SliceBackgroundWorker.getDroppedUpdateCount());
+    }
+
+    @Test
+    public void onSliceBound_manySlicesBound_keepBoundedBindTimes() {
+        for (int i = 0; i <= SliceBackgroundWorker.MAX_BIND_TIME_COUNT; i++) {
+            SliceBackgroundWorker.onSliceBound(URI.buildUpon().appendPath("key" + i).build());
+        }
+
+        assertThat(SliceBackgroundWorker.getBindTimeCount())
+                .isEqualTo(SliceBackgroundWorker.MAX_BIND_TIME_COUNT);
+    }
+
+    @Test
+    public void unpin_sliceBound_removeBindTime() {
+        SliceBackgroundWorker.onSliceBound(URI);
+        final int bindTimeCount = SliceBackgroundWorker.getBindTimeCount();
+
+        mWorker.unpin();
+
+        assertThat(SliceBackgroundWorker.getBindTimeCount()).isEqualTo(bindTimeCount - 1);
+    }
+
+    private static class TestWorker extends SliceBackgroundWorker<Void> {
+
+        TestWorker(Context context, Uri uri) {
+            super(context, uri);
+        }
+
+        @Override
+        protected void onSlicePinned() {
+        }
+
+        @Override
+        protected void onSliceUnpinned() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
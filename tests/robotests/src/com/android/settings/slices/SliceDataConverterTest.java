@@ -22,23 +22,29 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
 
 import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.provider.Settings;
 import android.text.TextUtils;
 
 import com.android.settings.R;
 import com.android.settings.accessibility.AccessibilitySettings;
 import com.android.settings.accessibility.AccessibilitySlicePreferenceController;
+import com.android.settings.core.BasePreferenceController;
 import com.android.settings.search.SearchFeatureProvider;
 import com.android.settings.search.SearchFeatureProviderImpl;
 import com.android.settings.testutils.FakeFeatureFactory;
 import com.android.settings.testutils.FakeIndexProvider;
+import com.android.settings.testutils.FakeUnavailablePreferenceController;
 import com.android.settingslib.search.SearchIndexableData;
 
+import org.json.JSONArray;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -67,6 +73,7 @@ public class SliceDataConverterTest {
     private static final String FAKE_A11Y_SERVICE_NAME =
             FAKE_ACCESSIBILITY_PACKAGE + "/" + FAKE_SERVICE_NAME;
     private static final int FAKE_ICON = 1234;
+    private static final Uri FAKE_URI = Uri.parse("content://com.android.settings.slices/test");
 
     private Context mContext;
 
@@ -114,6 +121,71 @@ public class SliceDataConverterTest {
         }
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getXmlSliceData_parallel_keepProviderOrder() {
+        final List<Class> fragmentClasses = List.of(FakeIndexProvider.class,
+                AccessibilitySettings.class, SettingsSliceProvider.class);
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues().clear();
+        for (Class fragmentClass : fragmentClasses) {
+            mSearchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                    .add(new SearchIndexableData(fragmentClass,
+                            FakeIndexProvider.SEARCH_INDEX_DATA_PROVIDER));
+        }
+        when(mFakeFeatureFactory.slicesFeatureProvider.isParallelSliceDataConversionEnabled())
+                .thenReturn(true);
+
+        final List<SliceData> sliceDataList = mSliceDataConverter.getXmlSliceData();
+
+        assertThat(sliceDataList).hasSize(fragmentClasses.size());
+        for (int i = 0; i < fragmentClasses.size(); i++) {
+            assertThat(sliceDataList.get(i).getFragmentClassName())
+                    .isEqualTo(fragmentClasses.get(i).getName());
+            assertThat(sliceDataList.get(i).getKey()).isEqualTo(FAKE_KEY);
+        }
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getXmlSliceData_recordConversionTimeOfEachProvider() throws Exception {
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues().clear();
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(new SearchIndexableData(FakeIndexProvider.class,
+                        FakeIndexProvider.SEARCH_INDEX_DATA_PROVIDER));
+
+        mSliceDataConverter.getXmlSliceData();
+
+        final JSONArray conversionTimes = SliceDataConverter.dumpConversionTimes();
+        assertThat(conversionTimes.length()).isEqualTo(1);
+        assertThat(conversionTimes.getJSONObject(0).getString("name"))
+                .isEqualTo(FAKE_FRAGMENT_CLASSNAME);
+    }
+
+    @Test
+    public void filterAvailableSliceData_removeUnavailableSliceData() {
+        Settings.Global.putInt(mContext.getContentResolver(),
+                FakeUnavailablePreferenceController.AVAILABILITY_KEY,
+                BasePreferenceController.UNSUPPORTED_ON_DEVICE);
+        final SliceData availableSlice = createSliceData(FAKE_KEY, FAKE_CONTROLLER_NAME);
+        final SliceData unavailableSlice = createSliceData("unavailable",
+                FakeUnavailablePreferenceController.class.getName());
+
+        final List<SliceData> sliceDataList = mSliceDataConverter.filterAvailableSliceData(
+                List.of(availableSlice, unavailableSlice));
+
+        assertThat(sliceDataList).containsExactly(availableSlice);
+    }
+
+    private static SliceData createSliceData(String key, String controllerName) {
+        return new SliceData.Builder()
+                .setKey(key)
+                .setTitle(FAKE_TITLE)
+                .setFragmentName(FAKE_FRAGMENT_CLASSNAME)
+                .setUri(FAKE_URI)
+                .setPreferenceControllerClassName(controllerName)
+                .build();
+    }
+
     private void assertFakeSlice(SliceData fakeSlice) {
         assertThat(fakeSlice.getKey()).isEqualTo(FAKE_KEY);
         assertThat(fakeSlice.getTitle()).isEqualTo(FAKE_TITLE);
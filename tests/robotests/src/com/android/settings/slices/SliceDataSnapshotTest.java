@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceDataSnapshotTest {
+
+    private static final String KEY = "key";
+    private static final String TITLE = "title";
+    private static final String SCREEN_TITLE = "screen title";
+    private static final String FRAGMENT_NAME = "fragment name";
+    private static final String PREF_CONTROLLER = "com.android.settings.slices.tester";
+    private static final Uri URI = Uri.parse("content://com.android.settings.slices/test");
+    private static final int ICON = 1234;
+    private static final int HIGHLIGHT_MENU_RES = 5678;
+
+    private Context mContext;
+    private SliceDataSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mSnapshot = new SliceDataSnapshot(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        SliceDataSnapshot.clear(mContext);
+    }
+
+    @Test
+    public void read_afterWrite_returnSameSliceData() {
+        mSnapshot.write(List.of(createSliceData()));
+
+        final List<SliceData> sliceData = mSnapshot.read();
+
+        assertThat(sliceData).hasSize(1);
+        final SliceData data = sliceData.get(0);
+        assertThat(data.getKey()).isEqualTo(KEY);
+        assertThat(data.getUri()).isEqualTo(URI);
+        assertThat(data.getTitle()).isEqualTo(TITLE);
+        assertThat(data.getSummary()).isNull();
+        assertThat(data.getScreenTitle().toString()).isEqualTo(SCREEN_TITLE);
+        assertThat(data.getKeywords()).isNull();
+        assertThat(data.getIconResource()).isEqualTo(ICON);
+        assertThat(data.getFragmentClassName()).isEqualTo(FRAGMENT_NAME);
+        assertThat(data.getPreferenceController()).isEqualTo(PREF_CONTROLLER);
+        assertThat(data.getSliceType()).isEqualTo(SliceData.SliceType.SLIDER);
+        assertThat(data.getUnavailableSliceSubtitle()).isNull();
+        assertThat(data.isPublicSlice()).isTrue();
+        assertThat(data.getHighlightMenuRes()).isEqualTo(HIGHLIGHT_MENU_RES);
+        assertThat(data.getUserRestriction()).isNull();
+    }
+
+    @Test
+    public void read_otherLocale_returnNull() {
+        mSnapshot.write(List.of(createSliceData()));
+
+        RuntimeEnvironment.setQualifiers("fr-rFR");
+
+        assertThat(new SliceDataSnapshot(mContext).read()).isNull();
+    }
+
+    @Test
+    public void read_packageUpdated_returnNull() {
+        mSnapshot.write(List.of(createSliceData()));
+
+        shadowOf(mContext.getPackageManager())
+                .getInternalMutablePackageInfo(mContext.getPackageName()).lastUpdateTime++;
+
+        assertThat(mSnapshot.read()).isNull();
+    }
+
+    @Test
+    public void write_outdatedSnapshotExists_deleteOutdatedSnapshot() throws Exception {
+        final File dir = new File(mContext.getFilesDir(), SliceDataSnapshot.SNAPSHOT_DIR);
+        dir.mkdirs();
+        final File outdatedFile = new File(dir, "outdated_en-US");
+        outdatedFile.createNewFile();
+
+        mSnapshot.write(List.of(createSliceData()));
+
+        assertThat(outdatedFile.exists()).isFalse();
+        assertThat(mSnapshot.read()).hasSize(1);
+    }
+
+    private static SliceData createSliceData() {
+        return new SliceData.Builder()
+                .setKey(KEY)
+                .setUri(URI)
+                .setTitle(TITLE)
+                .setScreenTitle(SCREEN_TITLE)
+                .setIcon(ICON)
+                .setFragmentName(FRAGMENT_NAME)
+                .setPreferenceControllerClassName(PREF_CONTROLLER)
+                .setSliceType(SliceData.SliceType.SLIDER)
+                .setIsPublicSlice(true)
+                .setHighlightMenuRes(HIGHLIGHT_MENU_RES)
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.provider.Settings;
+import android.provider.SettingsSlicesContract;
+
+import androidx.slice.Slice;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceResultCacheTest {
+
+    private static final String KEY = "key";
+    private static final Uri SLICE_URI = createUri(SettingsSliceProvider.SLICE_AUTHORITY, KEY);
+    private static final Uri PLATFORM_SLICE_URI = createUri(SettingsSlicesContract.AUTHORITY, KEY);
+    private static final Uri SETTING_URI = Settings.Secure.getUriFor("setting_key");
+
+    private SliceResultCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new SliceResultCache();
+    }
+
+    @Test
+    public void put_sameGeneration_cacheSlice() {
+        final Slice slice = createSlice(SLICE_URI);
+
+        mCache.put(SLICE_URI, slice, mCache.getGeneration(), SETTING_URI);
+
+        assertThat(mCache.get(SLICE_URI)).isSameInstanceAs(slice);
+    }
+
+    @Test
+    public void put_invalidatedWhileBuilding_doNotCacheSlice() {
+        final long generation = mCache.getGeneration();
+        mCache.invalidate(SLICE_URI);
+
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), generation, SETTING_URI);
+
+        assertThat(mCache.get(SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void put_nullSlice_doNotCacheSlice() {
+        mCache.put(SLICE_URI, null, mCache.getGeneration(), SETTING_URI);
+
+        assertThat(mCache.get(SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void put_exceedMaxSize_evictLeastRecentlyUsedSlice() {
+        for (int i = 0; i <= SliceResultCache.MAX_SIZE; i++) {
+            final Uri uri = createUri(SettingsSliceProvider.SLICE_AUTHORITY, KEY + i);
+            mCache.put(uri, createSlice(uri), mCache.getGeneration(), SETTING_URI);
+        }
+
+        assertThat(mCache.get(createUri(SettingsSliceProvider.SLICE_AUTHORITY, KEY + 0)))
+                .isNull();
+        assertThat(mCache.get(createUri(SettingsSliceProvider.SLICE_AUTHORITY,
+                KEY + SliceResultCache.MAX_SIZE))).isNotNull();
+    }
+
+    @Test
+    public void invalidate_otherAuthority_removeSliceOfSameKey() {
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), mCache.getGeneration(), SETTING_URI);
+
+        mCache.invalidate(PLATFORM_SLICE_URI);
+
+        assertThat(mCache.get(SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void invalidateAll_removeAllSlices() {
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), mCache.getGeneration(), SETTING_URI);
+
+        mCache.invalidateAll();
+
+        assertThat(mCache.get(SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void invalidate_otherKey_keepSlice() {
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), mCache.getGeneration(), SETTING_URI);
+
+        mCache.invalidate(createUri(SettingsSliceProvider.SLICE_AUTHORITY, "other_key"));
+
+        assertThat(mCache.get(SLICE_URI)).isNotNull();
+    }
+
+    @Test
+    public void onSettingChanged_backingSetting_removeSlice() {
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), mCache.getGeneration(), SETTING_URI);
+
+        mCache.onSettingChanged(SETTING_URI);
+
+        assertThat(mCache.get(SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void onSettingChanged_otherSetting_keepSlice() {
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), mCache.getGeneration(), SETTING_URI);
+
+        mCache.onSettingChanged(Settings.Secure.getUriFor("other_setting_key"));
+
+        assertThat(mCache.get(SLICE_URI)).isNotNull();
+    }
+
+    @Test
+    public void startObserving_localeChanged_removeAllSlices() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mCache.startObserving(context);
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), mCache.getGeneration(), SETTING_URI);
+
+        context.sendBroadcast(new Intent(Intent.ACTION_LOCALE_CHANGED));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCache.get(SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void startObserving_configurationChanged_removeAllSlices() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mCache.startObserving(context);
+        mCache.put(SLICE_URI, createSlice(SLICE_URI), mCache.getGeneration(), SETTING_URI);
+
+        context.sendBroadcast(new Intent(Intent.ACTION_CONFIGURATION_CHANGED));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCache.get(SLICE_URI)).isNull();
+    }
+
+    private static Slice createSlice(Uri uri) {
+        return new Slice.Builder(uri).build();
+    }
+
+    private static Uri createUri(String authority, String key) {
+        return new Uri.Builder()
+                .scheme(ContentResolver.SCHEME_CONTENT)
+                .authority(authority)
+                .appendPath(SettingsSlicesContract.PATH_SETTING_ACTION)
+                .appendPath(key)
+                .build();
+    }
+}
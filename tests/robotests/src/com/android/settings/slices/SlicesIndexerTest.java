@@ -18,8 +18,14 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.ContentValues;
 import android.content.Context;
@@ -29,6 +35,7 @@ import android.net.Uri;
 
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.testutils.DatabaseTestUtils;
+import com.android.settings.testutils.FakeFeatureFactory;
 
 import org.junit.After;
 import org.junit.Before;
@@ -71,6 +78,7 @@ public class SlicesIndexerTest {
     @After
     public void cleanUp() {
         DatabaseTestUtils.clearDb(mContext);
+        SliceDataSnapshot.clear(mContext);
     }
 
     @Test
@@ -205,6 +213,81 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void getSliceData_snapshotDisabled_convertAllSliceData() {
+        final SliceDataConverter converter = setUpSliceDataConverter(false);
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        when(converter.getSliceData()).thenReturn(sliceData);
+
+        assertThat(mManager.getSliceData()).isEqualTo(sliceData);
+        assertThat(new SliceDataSnapshot(mContext).read()).isNull();
+    }
+
+    @Test
+    public void getSliceData_noSnapshot_convertXmlAndAccessibilitySliceData() {
+        final SliceDataConverter converter = setUpSliceDataConverter(true);
+        final List<SliceData> xmlSliceData = getMockIndexableData(false);
+        final List<SliceData> a11ySliceData = List.of(createSliceData("a11y"));
+        when(converter.getXmlSliceData(false)).thenReturn(xmlSliceData);
+        when(converter.getAccessibilitySliceData()).thenReturn(a11ySliceData);
+
+        final List<SliceData> sliceData = mManager.getSliceData();
+
+        assertThat(sliceData).hasSize(xmlSliceData.size() + a11ySliceData.size());
+        assertThat(new SliceDataSnapshot(mContext).read()).hasSize(xmlSliceData.size());
+    }
+
+    @Test
+    public void getSliceData_hasSnapshot_onlyConvertAccessibilitySliceData() {
+        final SliceDataConverter converter = setUpSliceDataConverter(true);
+        new SliceDataSnapshot(mContext).write(getMockIndexableData(false));
+        when(converter.getAccessibilitySliceData())
+                .thenReturn(List.of(createSliceData("a11y")));
+
+        final List<SliceData> sliceData = mManager.getSliceData();
+
+        verify(converter, never()).getXmlSliceData(anyBoolean());
+        assertThat(sliceData).hasSize(KEYS.length + 1);
+        assertThat(sliceData.get(0).getKey()).isEqualTo(KEYS[0]);
+        assertThat(sliceData.get(KEYS.length).getKey()).isEqualTo("a11y");
+    }
+
+    @Test
+    public void getSliceData_hasSnapshot_filterUnavailableSliceData() {
+        final SliceDataConverter converter = setUpSliceDataConverter(true);
+        final List<SliceData> xmlSliceData = getMockIndexableData(false);
+        new SliceDataSnapshot(mContext).write(xmlSliceData);
+        when(converter.filterAvailableSliceData(any()))
+                .thenAnswer(invocation -> invocation.<List<SliceData>>getArgument(0).subList(0, 1));
+
+        final List<SliceData> sliceData = mManager.getSliceData();
+
+        assertThat(sliceData).hasSize(1);
+        assertThat(sliceData.get(0).getKey()).isEqualTo(KEYS[0]);
+    }
+
+    private SliceDataConverter setUpSliceDataConverter(boolean isSnapshotEnabled) {
+        final FakeFeatureFactory featureFactory = FakeFeatureFactory.setupForTest();
+        final SliceDataConverter converter = mock(SliceDataConverter.class);
+        when(featureFactory.slicesFeatureProvider.getSliceDataConverter(any()))
+                .thenReturn(converter);
+        when(featureFactory.slicesFeatureProvider.isSliceDataSnapshotEnabled())
+                .thenReturn(isSnapshotEnabled);
+        when(converter.filterAvailableSliceData(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        return converter;
+    }
+
+    private SliceData createSliceData(String key) {
+        return new SliceData.Builder()
+                .setKey(key)
+                .setTitle(TITLES[0])
+                .setFragmentName(FRAGMENT_NAME)
+                .setUri(URI)
+                .setPreferenceControllerClassName(PREF_CONTROLLER)
+                .build();
+    }
+
     private void insertSpecialCase(String key, String title) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);
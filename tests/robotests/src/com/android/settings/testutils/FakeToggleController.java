@@ -82,6 +82,11 @@ public class FakeToggleController extends TogglePreferenceController {
         return TestWorker.class;
     }
 
+    @Override
+    public Uri getSliceResultBackingUri() {
+        return Settings.System.getUriFor(SETTING_KEY);
+    }
+
     @Override
     public boolean hasAsyncUpdate() {
         return mIsAsyncUpdate;
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+@RunWith(RobolectricTestRunner.class)
+public class VersionedSnapshotFileTest {
+    private static final String KEY = "key";
+    private static final int VERSION = 1;
+
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mFile = new File(new File(context.getCacheDir(), "snapshot_test"), "snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        new VersionedSnapshotFile(mFile, VERSION).delete();
+    }
+
+    @Test
+    public void read_noFile_returnNull() {
+        assertThat(new VersionedSnapshotFile(mFile, VERSION).<String>read(KEY, in -> "payload"))
+                .isNull();
+    }
+
+    @Test
+    public void read_afterWrite_returnPayload() {
+        final VersionedSnapshotFile snapshotFile = new VersionedSnapshotFile(mFile, VERSION);
+
+        assertThat(snapshotFile.write(KEY, out -> out.writeUTF("payload"))).isTrue();
+
+        assertThat(snapshotFile.read(KEY, in -> in.readUTF())).isEqualTo("payload");
+    }
+
+    @Test
+    public void read_otherKey_returnNull() {
+        final VersionedSnapshotFile snapshotFile = new VersionedSnapshotFile(mFile, VERSION);
+        snapshotFile.write(KEY, out -> out.writeUTF("payload"));
+
+        assertThat(snapshotFile.read("other", in -> in.readUTF())).isNull();
+    }
+
+    @Test
+    public void read_otherVersion_returnNull() {
+        new VersionedSnapshotFile(mFile, VERSION).write(KEY, out -> out.writeUTF("payload"));
+
+        assertThat(new VersionedSnapshotFile(mFile, VERSION + 1).read(KEY, in -> in.readUTF()))
+                .isNull();
+    }
+
+    @Test
+    public void read_corruptedFile_returnNull() throws Exception {
+        mFile.getParentFile().mkdirs();
+        Files.write(mFile.toPath(), new byte[] {1, 2});
+
+        assertThat(new VersionedSnapshotFile(mFile, VERSION).read(KEY, in -> in.readUTF()))
+                .isNull();
+    }
+
+    @Test
+    public void write_payloadFailed_keepPreviousSnapshot() {
+        final VersionedSnapshotFile snapshotFile = new VersionedSnapshotFile(mFile, VERSION);
+        snapshotFile.write(KEY, out -> out.writeUTF("payload"));
+
+        assertThat(snapshotFile.write(KEY, out -> {
+            throw new IOException("failed");
+        })).isFalse();
+
+        assertThat(snapshotFile.read(KEY, in -> in.readUTF())).isEqualTo("payload");
+    }
+}
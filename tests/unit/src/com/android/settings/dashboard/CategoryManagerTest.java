@@ -24,6 +24,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Mockito.when;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ApplicationInfo;
@@ -48,7 +49,9 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RunWith(AndroidJUnit4.class)
 public class CategoryManagerTest {
@@ -408,6 +411,81 @@ public class CategoryManagerTest {
         assertThat(category.getTilesCount()).isEqualTo(1);
     }
 
+    @Test
+    public void updateCategoryFromDenylist_shouldRemoveTileFromNewCategory() {
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        final String testPackage = mContext.getPackageName();
+        final DashboardCategory category = new DashboardCategory(CATEGORY_HOMEPAGE);
+        final Tile tile1 = createActivityTile(category.key, testPackage, "class1", 100);
+        final Tile tile2 = createActivityTile(category.key, testPackage, "class2", 50);
+        category.addTile(tile1);
+        category.addTile(tile2);
+        mCategoryByKeyMap.put(CATEGORY_HOMEPAGE, category);
+        categoryManager.publishCategories(List.of(category), mCategoryByKeyMap);
+
+        categoryManager.updateCategoryFromDenylist(
+                Set.of(tile1.getIntent().getComponent()));
+
+        final DashboardCategory newCategory =
+                categoryManager.getTilesByCategory(mContext, CATEGORY_HOMEPAGE);
+        assertThat(newCategory).isNotSameInstanceAs(category);
+        assertThat(newCategory.getTiles()).containsExactly(tile2);
+        assertThat(categoryManager.getTileByComponentMap()).hasSize(1);
+        // The published category is not modified.
+        assertThat(category.getTilesCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void updateCategoryFromDenylist_noTileDenylisted_shouldKeepCategory() {
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        final String testPackage = mContext.getPackageName();
+        final DashboardCategory category = new DashboardCategory(CATEGORY_HOMEPAGE);
+        final Tile tile = createActivityTile(category.key, testPackage, "class1", 100);
+        category.addTile(tile);
+        mCategoryByKeyMap.put(CATEGORY_HOMEPAGE, category);
+        categoryManager.publishCategories(List.of(category), mCategoryByKeyMap);
+
+        categoryManager.updateCategoryFromDenylist(
+                Set.of(new ComponentName(testPackage, "class2")));
+
+        assertThat(categoryManager.getTilesByCategory(mContext, CATEGORY_HOMEPAGE))
+                .isSameInstanceAs(category);
+    }
+
+    @Test
+    public void publishLoadedCategories_oldCategoryKey_shouldNotChangeLoadedTile() {
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        final String oldCategory = "com.android.settings.category.wireless";
+        final DashboardCategory category = new DashboardCategory(oldCategory);
+        final Tile tile = createActivityTile(oldCategory, "pkg", "class1", 100);
+        category.addTile(tile);
+
+        categoryManager.publishLoadedCategories(mContext, List.of(category));
+
+        final DashboardCategory newCategory =
+                categoryManager.getTilesByCategory(mContext, CategoryKey.CATEGORY_NETWORK);
+        assertThat(newCategory.getTilesCount()).isEqualTo(1);
+        assertThat(newCategory.getTile(0)).isNotSameInstanceAs(tile);
+        assertThat(newCategory.getTile(0).getCategory()).isEqualTo(CategoryKey.CATEGORY_NETWORK);
+        // The loaded tile is kept in the tile cache, it's not modified.
+        assertThat(tile.getCategory()).isEqualTo(oldCategory);
+    }
+
+    @Test
+    public void publishLoadedCategories_newCategoryKey_shouldPublishLoadedTile() {
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        final DashboardCategory category = new DashboardCategory(CategoryKey.CATEGORY_NETWORK);
+        final Tile tile = createActivityTile(CategoryKey.CATEGORY_NETWORK, "pkg", "class1", 100);
+        category.addTile(tile);
+
+        categoryManager.publishLoadedCategories(mContext, List.of(category));
+
+        final DashboardCategory publishedCategory =
+                categoryManager.getTilesByCategory(mContext, CategoryKey.CATEGORY_NETWORK);
+        assertThat(publishedCategory).isNotSameInstanceAs(category);
+        assertThat(publishedCategory.getTile(0)).isSameInstanceAs(tile);
+    }
+
     private Tile createActivityTile(String categoryKey, String packageName, String className,
             int order) {
         final ActivityInfo activityInfo = new ActivityInfo();
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.UserInfo;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.SparseArray;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.applications.StorageStatsSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class StorageAccountingTest {
+    private static final int PRIMARY_USER_ID = 0;
+    private static final int SECONDARY_USER_ID = 10;
+    private static final String PACKAGE_NAME_1 = "com.blah.test";
+    private static final String PACKAGE_NAME_2 = "com.blah.test2";
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    @Mock
+    private StorageStatsSource mSource;
+    @Mock
+    private PackageManager mPackageManager;
+    @Mock
+    private UserManager mUserManager;
+    private final List<ApplicationInfo> mInfo = new ArrayList<>();
+    private final List<UserInfo> mUsers = new ArrayList<>();
+
+    private StorageAccounting mAccounting;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        final Context context = ApplicationProvider.getApplicationContext();
+        mAccounting = new StorageAccounting(context, mUserManager, mPackageManager, mSource);
+        when(mPackageManager.getInstalledApplicationsAsUser(eq(0), anyInt())).thenReturn(mInfo);
+        mUsers.add(new UserInfo());
+        when(mUserManager.getUsers()).thenReturn(mUsers);
+        when(mSource.getCacheQuotaBytes(nullable(String.class), anyInt()))
+                .thenReturn(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void getStorageResults_nothingChanged_notQueryPackageAgain() throws Exception {
+        addPackage(PACKAGE_NAME_1, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        mAccounting.getStorageResults();
+        final SparseArray<StorageAsyncLoader.StorageResult> results =
+                mAccounting.getStorageResults();
+
+        assertThat(results.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+        verify(mSource).getStatsForPackage(nullable(String.class), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void getStorageResults_packageChanged_queryChangedPackageOnly() throws Exception {
+        final ApplicationInfo info =
+                addPackage(PACKAGE_NAME_1, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        mAccounting.getStorageResults();
+        when(mPackageManager.getApplicationInfoAsUser(PACKAGE_NAME_1, 0, PRIMARY_USER_ID))
+                .thenReturn(info);
+        addStats(PACKAGE_NAME_1, 1, 100);
+
+        mAccounting.onPackageChanged(PRIMARY_USER_ID, PACKAGE_NAME_1);
+        final SparseArray<StorageAsyncLoader.StorageResult> results =
+                mAccounting.getStorageResults();
+
+        assertThat(results.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(112L);
+        verify(mSource, times(2)).getStatsForPackage(nullable(String.class),
+                eq(PACKAGE_NAME_1), any(UserHandle.class));
+        verify(mSource).getStatsForPackage(nullable(String.class), eq(PACKAGE_NAME_2),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void getStorageResults_packageChangedWhileReading_notBlockedAndQueriedNextTime()
+            throws Exception {
+        final ApplicationInfo info =
+                addPackage(PACKAGE_NAME_1, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        final StorageStatsSource.AppStorageStats stats =
+                mock(StorageStatsSource.AppStorageStats.class);
+        final boolean[] notified = new boolean[1];
+        when(mSource.getStatsForPackage(nullable(String.class), eq(PACKAGE_NAME_1),
+                any(UserHandle.class))).thenAnswer(invocation -> {
+                    if (!notified[0]) {
+                        final Thread thread = new Thread(() ->
+                                mAccounting.onPackageChanged(PRIMARY_USER_ID, PACKAGE_NAME_1));
+                        thread.start();
+                        thread.join(TIMEOUT_MILLIS);
+                        notified[0] = !thread.isAlive();
+                    }
+                    return stats;
+                });
+        when(mPackageManager.getApplicationInfoAsUser(PACKAGE_NAME_1, 0, PRIMARY_USER_ID))
+                .thenReturn(info);
+
+        mAccounting.getStorageResults();
+        mAccounting.getStorageResults();
+
+        assertThat(notified[0]).isTrue();
+        verify(mSource, times(2)).getStatsForPackage(nullable(String.class),
+                eq(PACKAGE_NAME_1), any(UserHandle.class));
+    }
+
+    @Test
+    public void getStorageResults_packageRemoved_removeItsSize() throws Exception {
+        addPackage(PACKAGE_NAME_1, 1, 10, ApplicationInfo.CATEGORY_GAME);
+        mAccounting.getStorageResults();
+        when(mPackageManager.getApplicationInfoAsUser(PACKAGE_NAME_1, 0, PRIMARY_USER_ID))
+                .thenThrow(new PackageManager.NameNotFoundException());
+
+        mAccounting.onPackageChanged(PRIMARY_USER_ID, PACKAGE_NAME_1);
+        final SparseArray<StorageAsyncLoader.StorageResult> results =
+                mAccounting.getStorageResults();
+
+        assertThat(results.get(PRIMARY_USER_ID).gamesSize).isEqualTo(0L);
+    }
+
+    @Test
+    public void getStorageResults_multipleUsers_countDuplicateCodeForLaterUser()
+            throws Exception {
+        final UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+        addPackage(PACKAGE_NAME_1, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        final SparseArray<StorageAsyncLoader.StorageResult> results =
+                mAccounting.getStorageResults();
+
+        assertThat(results.size()).isEqualTo(2);
+        assertThat(results.get(PRIMARY_USER_ID).duplicateCodeSize).isEqualTo(0L);
+        assertThat(results.get(SECONDARY_USER_ID).duplicateCodeSize).isEqualTo(1L);
+    }
+
+    private ApplicationInfo addPackage(String packageName, long codeSize, long dataSize,
+            int category) throws Exception {
+        addStats(packageName, codeSize, dataSize);
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        info.category = category;
+        mInfo.add(info);
+        return info;
+    }
+
+    private void addStats(String packageName, long codeSize, long dataSize) throws Exception {
+        final StorageStatsSource.AppStorageStats storageStats =
+                mock(StorageStatsSource.AppStorageStats.class);
+        when(storageStats.getCodeBytes()).thenReturn(codeSize);
+        when(storageStats.getDataBytes()).thenReturn(dataSize);
+        when(mSource.getStatsForPackage(nullable(String.class), eq(packageName),
+                any(UserHandle.class))).thenReturn(storageStats);
+    }
+}
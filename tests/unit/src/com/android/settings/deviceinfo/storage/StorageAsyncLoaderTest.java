@@ -33,8 +33,11 @@ import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
 import android.content.res.Resources;
+import android.database.MatrixCursor;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.provider.MediaStore.Files.FileColumns;
+import android.provider.MediaStore.MediaColumns;
 import android.util.DataUnit;
 import android.util.SparseArray;
 
@@ -210,6 +213,62 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(33L);
     }
 
+    @Test
+    public void testDuplicateCodeSizeIsCountedForLaterUsers() throws Exception {
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(result.get(PRIMARY_USER_ID).duplicateCodeSize).isEqualTo(0L);
+        assertThat(result.get(SECONDARY_USER_ID).duplicateCodeSize).isEqualTo(1L);
+    }
+
+    @Test
+    public void testMediaSizesAreGroupedByMediaType() {
+        final MatrixCursor cursor = createMediaSizesCursor();
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_NONE, 0, 1L, 1, 1});
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_IMAGE, 0, 10L, 1, 1});
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_IMAGE, 1, 20L, 1, 1});
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_VIDEO, 0, 30L, 1, 1});
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_AUDIO, 0, 40L, 1, 1});
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_DOCUMENT, 0, 50L, 1, 1});
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_SUBTITLE, 0, 60L, 1, 1});
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_DOCUMENT, 1, 70L, 1, 1});
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+
+        assertThat(StorageAsyncLoader.addMediaSizes(result, cursor)).isTrue();
+
+        assertThat(result.imagesSize).isEqualTo(10L);
+        assertThat(result.videosSize).isEqualTo(30L);
+        assertThat(result.audioSize).isEqualTo(40L);
+        assertThat(result.documentsSize).isEqualTo(50L);
+        assertThat(result.otherSize).isEqualTo(61L);
+        assertThat(result.trashSize).isEqualTo(90L);
+    }
+
+    @Test
+    public void testMediaSizesAreNotAddedIfNotGrouped() {
+        final MatrixCursor cursor = createMediaSizesCursor();
+        // The grouping is ignored, the sizes of all media types are summed in a single row.
+        cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_IMAGE, 0, 100L, 3, 1});
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+
+        assertThat(StorageAsyncLoader.addMediaSizes(result, cursor)).isFalse();
+
+        assertThat(result.imagesSize).isEqualTo(0L);
+    }
+
+    private static MatrixCursor createMediaSizesCursor() {
+        return new MatrixCursor(new String[] {
+                FileColumns.MEDIA_TYPE, MediaColumns.IS_TRASHED, "sum(" + MediaColumns.SIZE + ")",
+                "count(DISTINCT " + FileColumns.MEDIA_TYPE + ")",
+                "count(DISTINCT " + MediaColumns.IS_TRASHED + ")"});
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =